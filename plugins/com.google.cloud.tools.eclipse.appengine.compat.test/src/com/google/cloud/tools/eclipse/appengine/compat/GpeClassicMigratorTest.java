@@ -21,9 +21,12 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import com.google.cloud.tools.eclipse.test.util.project.ProjectUtils;
+import com.google.cloud.tools.eclipse.util.ProjectDescriptionEditor;
 import java.io.IOException;
 import java.util.List;
+import org.eclipse.core.resources.ICommand;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -66,6 +69,23 @@ public class GpeClassicMigratorTest {
     assertFalse(GpeMigrator.removeGpeNature(gpeProject, monitor));
   }
 
+  @Test
+  public void testRemoveGpeNature_writtenRightAwayInBatch() throws CoreException {
+    // the standard project conversion removes GPE remnants first in its batch, and the App
+    // Engine facet installed next must not see the GPE nature (#1155)
+    ProjectDescriptionEditor.batch(gpeProject, new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        assertTrue(GpeMigrator.removeGpeNature(gpeProject, monitor));
+        assertFalse(gpeProject.hasNature("com.google.appengine.eclipse.core.gaeNature"));
+        for (ICommand command : gpeProject.getDescription().getBuildSpec()) {
+          assertFalse(GpeMigrator.GPE_GAE_BUILDER_IDS.contains(command.getBuilderName()));
+        }
+      }
+    }, monitor);
+    assertFalse(gpeProject.hasNature("com.google.appengine.eclipse.core.gaeNature"));
+  }
+
   @Test
   public void testRemoveGpeClasspathEntries() throws JavaModelException {
     IJavaProject javaProject = JavaCore.create(gpeProject);
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.compat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.test.util.project.ProjectUtils;
+import com.google.cloud.tools.eclipse.util.ProjectDescriptionEditor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.wst.common.project.facet.core.IFacetedProject;
+import org.eclipse.wst.common.project.facet.core.IProjectFacetVersion;
+import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/** Migrates a faceted and a classic GPE project together. */
+public class GpeWorkspaceMigratorTest {
+
+  private final IProgressMonitor monitor = new NullProgressMonitor();
+
+  private final List<IProject> projects = new ArrayList<>();
+  private IProject facetedProject;
+  private IProject classicProject;
+
+  @Before
+  public void setUp() throws IOException, CoreException {
+    projects.addAll(ProjectUtils.importProjects(getClass(),
+        "test-projects/GPE-faceted-project.zip", false /* checkBuildErrors */, monitor));
+    projects.addAll(ProjectUtils.importProjects(getClass(),
+        "test-projects/GPE-classic-project.zip", false /* checkBuildErrors */, monitor));
+    assertEquals(2, projects.size());
+    facetedProject = projects.get(0);
+    classicProject = projects.get(1);
+  }
+
+  @After
+  public void tearDown() throws CoreException {
+    for (IProject project : projects) {
+      project.delete(true /* force */, monitor);
+    }
+  }
+
+  @Test
+  public void testMigrate() throws CoreException {
+    List<IProject> migrated = GpeWorkspaceMigrator.migrate(projects, monitor);
+    assertEquals(new HashSet<>(projects), new HashSet<>(migrated));
+
+    for (IProject project : projects) {
+      assertFalse(project.hasNature("com.google.appengine.eclipse.core.gaeNature"));
+      for (ICommand command : project.getDescription().getBuildSpec()) {
+        assertFalse(GpeMigrator.GPE_GAE_BUILDER_IDS.contains(command.getBuilderName()));
+      }
+      for (IClasspathEntry entry : JavaCore.create(project).getRawClasspath()) {
+        assertFalse(GpeMigrator.isGpeClasspath(entry));
+      }
+    }
+    // other natures and builders are kept
+    assertTrue(classicProject.hasNature("com.google.gwt.eclipse.core.gwtNature"));
+
+    IFacetedProject faceted = ProjectFacetsManager.create(facetedProject);
+    assertNull(faceted.getPrimaryRuntime());
+    for (IProjectFacetVersion facet : faceted.getProjectFacets()) {
+      assertFalse(facet.getProjectFacet().getId().startsWith("com.google.appengine.facet"));
+    }
+  }
+
+  @Test
+  public void testMigrate_secondRunFindsNothing() throws CoreException {
+    GpeWorkspaceMigrator.migrate(projects, monitor);
+    assertTrue(GpeWorkspaceMigrator.migrate(projects, monitor).isEmpty());
+  }
+
+  @Test
+  public void testMigrate_closedProjectSkipped() throws CoreException {
+    classicProject.close(monitor);
+    List<IProject> migrated = GpeWorkspaceMigrator.migrate(projects, monitor);
+    assertEquals(1, migrated.size());
+    assertEquals(facetedProject, migrated.get(0));
+  }
+
+  @Test
+  public void testMigrateWorkspace() throws CoreException {
+    List<IProject> migrated = GpeWorkspaceMigrator.migrateWorkspace(monitor);
+    assertTrue(migrated.containsAll(projects));
+    assertFalse(facetedProject.hasNature("com.google.appengine.eclipse.core.gaeNature"));
+    assertFalse(classicProject.hasNature("com.google.appengine.eclipse.core.gaeNature"));
+  }
+
+  @Test
+  public void testMigrate_natureRemovedRightAwayInBatch() throws CoreException {
+    ProjectDescriptionEditor.batch(projects, new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        GpeWorkspaceMigrator.migrate(projects, monitor);
+        // the App Engine facet installed next in the batch must not see it (#1155)
+        for (IProject project : projects) {
+          assertFalse(project.hasNature("com.google.appengine.eclipse.core.gaeNature"));
+        }
+      }
+    }, monitor);
+  }
+
+  @Test
+  public void testHasGpeFacetMetadata() {
+    assertTrue(GpeWorkspaceMigrator.hasGpeFacetMetadata(
+        "<runtime name=\"Google App Engine\"/>"));
+    assertTrue(GpeWorkspaceMigrator.hasGpeFacetMetadata(
+        "<installed facet='com.google.appengine.facet' version='1'/>"));
+    assertTrue(GpeWorkspaceMigrator.hasGpeFacetMetadata(
+        "<installed facet='com.google.appengine.facet.ear' version='1'/>"));
+    assertFalse(GpeWorkspaceMigrator.hasGpeFacetMetadata(
+        "<installed facet=\"com.google.cloud.tools.eclipse.appengine.facets.standard\"/>"));
+    assertFalse(GpeWorkspaceMigrator.hasGpeFacetMetadata(
+        "<runtime name=\"Google App Engine'/>"));
+  }
+}
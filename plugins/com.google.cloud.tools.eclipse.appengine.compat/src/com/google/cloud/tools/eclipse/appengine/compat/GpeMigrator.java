@@ -17,6 +17,7 @@
 package com.google.cloud.tools.eclipse.appengine.compat;
 
 import com.google.cloud.tools.eclipse.util.NatureUtils;
+import com.google.cloud.tools.eclipse.util.ProjectDescriptionEditor;
 import com.google.cloud.tools.eclipse.util.Xslt;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
@@ -54,12 +55,18 @@ public class GpeMigrator {
       "com.google.gdt.eclipse.managedapis.MANAGED_API_CONTAINER"
   );
 
-  private static final String GPE_GAE_NATURE_ID = "com.google.appengine.eclipse.core.gaeNature";
+  static final String GPE_GAE_NATURE_ID = "com.google.appengine.eclipse.core.gaeNature";
 
-  private static final String WTP_METADATA_XSLT = "/xslt/wtpMetadata.xsl";
+  static final ImmutableList<String> GPE_GAE_BUILDER_IDS = ImmutableList.of(
+      "com.google.appengine.eclipse.core.enhancerbuilder",
+      "com.google.appengine.eclipse.core.projectValidator",
+      "com.google.appengine.eclipse.wtp.swarm.gaeCloudEndpointsBuilder"
+  );
+
+  static final String WTP_METADATA_XSLT = "/xslt/wtpMetadata.xsl";
 
   // FacetedProject.METADATA_FILE = ".settings/" + FacetCorePlugin.PLUGIN_ID + ".xml";
-  private static final String FACETS_METADATA_FILE =
+  static final String FACETS_METADATA_FILE =
       ".settings/org.eclipse.wst.common.project.facet.core.xml";
 
   /**
@@ -114,7 +121,7 @@ public class GpeMigrator {
     return foundGpeEntries;
   }
 
-  private static boolean isGpeClasspath(IClasspathEntry entry) {
+  static boolean isGpeClasspath(IClasspathEntry entry) {
     for (String gpeClasspath : GPE_CLASSPATH_ENTRIES_PATH) {
       if (new Path(gpeClasspath).isPrefixOf(entry.getPath())) {
         return true;
@@ -126,7 +133,14 @@ public class GpeMigrator {
   @VisibleForTesting
   static boolean removeGpeNature(IProject project, IProgressMonitor monitor) throws CoreException {
     boolean hadNature = NatureUtils.hasNature(project, GPE_GAE_NATURE_ID);
-    NatureUtils.removeNature(project, GPE_GAE_NATURE_ID, monitor);
+    // the builders go with the nature, in the same write; not deferred by a batch, as the
+    // nature must be gone before the App Engine facet is installed (#1155)
+    ProjectDescriptionEditor editor = ProjectDescriptionEditor.editNow(project);
+    editor.removeNature(GPE_GAE_NATURE_ID);
+    for (String builderId : GPE_GAE_BUILDER_IDS) {
+      editor.removeBuilder(builderId);
+    }
+    editor.apply(monitor);
     return hadNature;
   }
 
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.compat;
+
+import com.google.cloud.tools.eclipse.util.ProjectDescriptionEditor;
+import com.google.cloud.tools.eclipse.util.Xslt;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import javax.xml.transform.TransformerException;
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.jdt.core.IClasspathEntry;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Removes GPE remnants from many projects at once, as {@link GpeMigrator} does for one project.
+ * The projects are first scanned and their new classpaths, descriptions and facet metadata are
+ * computed in parallel without changing anything. The changes are then written in a single
+ * workspace operation, with one write each for the classpath, the description and the facet
+ * metadata of a project, so builds and resource change notifications happen once at the end.
+ */
+public class GpeWorkspaceMigrator {
+
+  private static final Logger logger = Logger.getLogger(GpeWorkspaceMigrator.class.getName());
+
+  /**
+   * The GPE runtime and facet attribute values in the WTP facet metadata file, in either quote
+   * style; see {@code wtpMetadata.xsl}.
+   */
+  private static final Pattern GPE_FACET_METADATA = Pattern.compile(
+      "([\"'])(Google App Engine|com\\.google\\.appengine\\.facet(\\.ear)?)\\1");
+
+  private GpeWorkspaceMigrator() {}
+
+  /**
+   * Removes GPE remnants from all projects in the workspace. Any error while migrating a project
+   * is logged but ignored.
+   *
+   * @return the projects that were GPE projects
+   */
+  public static List<IProject> migrateWorkspace(IProgressMonitor monitor) throws CoreException {
+    IProject[] projects = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+    return migrate(Arrays.asList(projects), monitor);
+  }
+
+  /**
+   * Removes GPE remnants from the given projects. Closed projects are skipped. Any error while
+   * migrating a project is logged but ignored.
+   *
+   * @return the projects that were GPE projects
+   */
+  public static List<IProject> migrate(Collection<IProject> projects, IProgressMonitor monitor)
+      throws CoreException {
+    SubMonitor progress = SubMonitor.convert(monitor, 100);
+    final List<ProjectMigration> migrations = scan(projects, progress.newChild(50));
+
+    List<IProject> gpeProjects = new ArrayList<>();
+    for (ProjectMigration migration : migrations) {
+      gpeProjects.add(migration.project);
+    }
+    if (migrations.isEmpty()) {
+      return gpeProjects;
+    }
+
+    IWorkspaceRunnable apply = new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        SubMonitor progress = SubMonitor.convert(monitor, migrations.size());
+        for (ProjectMigration migration : migrations) {
+          if (progress.isCanceled()) {
+            throw new OperationCanceledException();
+          }
+          migration.apply(progress.newChild(1));
+        }
+      }
+    };
+    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    workspace.run(apply, workspace.getRoot(), IWorkspace.AVOID_UPDATE, progress.newChild(50));
+    return gpeProjects;
+  }
+
+  /**
+   * Computes the changes to the projects in parallel.
+   *
+   * @return the changes for the projects that are GPE projects
+   */
+  private static List<ProjectMigration> scan(Collection<IProject> projects,
+      IProgressMonitor monitor) {
+    SubMonitor progress = SubMonitor.convert(monitor, projects.size());
+    int threads = Math.max(1, Math.min(projects.size(),
+        Runtime.getRuntime().availableProcessors()));
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      final URL xslt = GpeMigrator.class.getResource(GpeMigrator.WTP_METADATA_XSLT);
+      List<Future<ProjectMigration>> results = new ArrayList<>();
+      for (final IProject project : projects) {
+        results.add(executor.submit(new Callable<ProjectMigration>() {
+          @Override
+          public ProjectMigration call() {
+            return ProjectMigration.compute(project, xslt);
+          }
+        }));
+      }
+
+      List<ProjectMigration> migrations = new ArrayList<>();
+      for (Future<ProjectMigration> result : results) {
+        if (progress.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        ProjectMigration migration = result.get();
+        if (migration.isGpeProject()) {
+          migrations.add(migration);
+        }
+        progress.worked(1);
+      }
+      return migrations;
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("Unexpected failure scanning projects", ex.getCause());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationCanceledException();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tells if the WTP facet metadata may declare the GPE runtime or facets, in which case it is
+   * transformed with {@code wtpMetadata.xsl}.
+   */
+  @VisibleForTesting
+  static boolean hasGpeFacetMetadata(String metadata) {
+    return GPE_FACET_METADATA.matcher(metadata).find();
+  }
+
+  /** The changes that remove GPE remnants from a project. */
+  private static class ProjectMigration {
+    private final IProject project;
+    /** The new raw classpath, or {@code null} if unchanged. */
+    private IClasspathEntry[] classpath;
+    private boolean hasGpeDescription;
+    /** The new facet metadata, or {@code null} if unchanged. */
+    private byte[] facetMetadata;
+
+    private ProjectMigration(IProject project) {
+      this.project = project;
+    }
+
+    /** Computes the changes without modifying the project. */
+    private static ProjectMigration compute(IProject project, URL xslt) {
+      ProjectMigration migration = new ProjectMigration(project);
+      if (!project.isAccessible()) {
+        return migration;
+      }
+      try {
+        migration.hasGpeDescription = hasGpeNatureOrBuilders(project.getDescription());
+
+        if (project.hasNature(JavaCore.NATURE_ID)) {
+          IJavaProject javaProject = JavaCore.create(project);
+          List<IClasspathEntry> entries = new ArrayList<>();
+          IClasspathEntry[] rawClasspath = javaProject.getRawClasspath();
+          for (IClasspathEntry entry : rawClasspath) {
+            if (!GpeMigrator.isGpeClasspath(entry)) {
+              entries.add(entry);
+            }
+          }
+          if (entries.size() != rawClasspath.length) {
+            migration.classpath = entries.toArray(new IClasspathEntry[0]);
+          }
+        }
+      } catch (CoreException ex) {
+        logger.log(Level.WARNING, "Failed to read GPE settings of " + project.getName(), ex);
+      }
+
+      IFile metadataFile = project.getFile(GpeMigrator.FACETS_METADATA_FILE);
+      if (metadataFile.exists()) {
+        try {
+          byte[] contents;
+          try (InputStream in = metadataFile.getContents()) {
+            contents = ByteStreams.toByteArray(in);
+          }
+          if (hasGpeFacetMetadata(new String(contents, StandardCharsets.UTF_8))) {
+            try (InputStream in = new ByteArrayInputStream(contents);
+                InputStream transformed = Xslt.applyXslt(in, xslt)) {
+              migration.facetMetadata = ByteStreams.toByteArray(transformed);
+            }
+          }
+        } catch (IOException | CoreException | TransformerException ex) {
+          logger.log(Level.WARNING, "Failed to compute WTP facet metadata changes.", ex);
+        }
+      }
+      return migration;
+    }
+
+    private static boolean hasGpeNatureOrBuilders(IProjectDescription description) {
+      if (Arrays.asList(description.getNatureIds()).contains(GpeMigrator.GPE_GAE_NATURE_ID)) {
+        return true;
+      }
+      for (ICommand command : description.getBuildSpec()) {
+        if (GpeMigrator.GPE_GAE_BUILDER_IDS.contains(command.getBuilderName())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean isGpeProject() {
+      return classpath != null || hasGpeDescription || facetMetadata != null;
+    }
+
+    /** Writes the changes; must be called within a workspace operation. */
+    private void apply(IProgressMonitor monitor) {
+      SubMonitor progress = SubMonitor.convert(monitor, 3);
+      if (classpath != null) {
+        try {
+          JavaCore.create(project).setRawClasspath(classpath, progress.newChild(1));
+        } catch (CoreException ex) {
+          logger.log(Level.WARNING, "Failed to remove GPE classpath entries.", ex);
+        }
+      }
+      if (hasGpeDescription) {
+        try {
+          // not deferred by an enclosing batch: the App Engine facet may be installed next and
+          // must not see the GPE nature (#1155)
+          ProjectDescriptionEditor editor = ProjectDescriptionEditor.editNow(project);
+          editor.removeNature(GpeMigrator.GPE_GAE_NATURE_ID);
+          for (String builderId : GpeMigrator.GPE_GAE_BUILDER_IDS) {
+            editor.removeBuilder(builderId);
+          }
+          editor.apply(progress.newChild(1));
+        } catch (CoreException ex) {
+          logger.log(Level.WARNING, "Failed to remove GPE nature.", ex);
+        }
+      }
+      if (facetMetadata != null) {
+        IFile metadataFile = project.getFile(GpeMigrator.FACETS_METADATA_FILE);
+        try {
+          boolean force = true;
+          boolean keepHistory = true;
+          metadataFile.setContents(new ByteArrayInputStream(facetMetadata), force, keepHistory,
+              progress.newChild(1));
+        } catch (CoreException ex) {
+          logger.log(Level.WARNING, "Failed to modify WTP facet metadata.", ex);
+        }
+      }
+    }
+  }
+}
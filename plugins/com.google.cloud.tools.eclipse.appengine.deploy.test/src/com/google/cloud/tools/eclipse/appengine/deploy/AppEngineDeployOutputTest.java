@@ -95,4 +95,28 @@ public class AppEngineDeployOutputTest {
           "Cannot get app version: unexpected gcloud JSON output format", ex.getMessage());
     }
   }
+
+  @Test
+  public void testParseAll_twoVersions() {
+    String jsonOutput = "{\"versions\": ["
+        + "{\"id\": \"v1\", \"project\": \"some-project\", \"service\": \"default\"},"
+        + "{\"id\": \"v1\", \"project\": \"some-project\", \"service\": \"api\"}]}";
+
+    AppEngineDeployOutput deployOutput = AppEngineDeployOutput.parseAll(jsonOutput);
+    Assert.assertEquals(2, deployOutput.getVersionCount());
+    Assert.assertEquals("default", deployOutput.getService(0));
+    Assert.assertEquals("api", deployOutput.getService(1));
+    Assert.assertEquals("some-project", deployOutput.getProject(1));
+  }
+
+  @Test
+  public void testParseAll_noVersions() {
+    try {
+      AppEngineDeployOutput.parseAll("{\"configs\": [], \"versions\": []}");
+      Assert.fail("Should throw exception when parsing deploy output without versions");
+    } catch (JsonParseException ex) {
+      Assert.assertEquals(
+          "Cannot get app version: unexpected gcloud JSON output format", ex.getMessage());
+    }
+  }
 }
@@ -102,6 +102,20 @@ public class AppEngineProjectDeployerTest {
         "WEB-INF/appengine-generated/queue.yaml").toFile()));
   }
 
+  @Test
+  public void testComputeConfigurationFiles_excludesAppYaml() throws IOException {
+    tempFolder.newFile("WEB-INF/appengine-generated/cron.yaml");
+    tempFolder.newFile("WEB-INF/appengine-generated/queue.yaml");
+
+    List<File> configurationFiles =
+        AppEngineProjectDeployer.computeConfigurationFiles(optionalConfigurationFilesDirectory);
+    assertEquals(2, configurationFiles.size());
+    assertTrue(configurationFiles.contains(stagingDirectory.append(
+        "WEB-INF/appengine-generated/cron.yaml").toFile()));
+    assertTrue(configurationFiles.contains(stagingDirectory.append(
+        "WEB-INF/appengine-generated/queue.yaml").toFile()));
+  }
+
   private void createFakeConfigFiles() throws IOException {
     tempFolder.newFile("WEB-INF/appengine-generated/cron.yaml");
     tempFolder.newFile("WEB-INF/appengine-generated/index.yaml");
@@ -57,13 +57,25 @@ public class CleanupOldDeploysJobTest {
     testRun(3, new String[] {"1", "2"});
   }
 
+  @Test
+  public void testRun_keepsDirectoriesOfParallelDeploys() throws IOException {
+    createTestDirectories(5);
+
+    IPath tempFolderPath = new Path(tempFolder.getRoot().toString());
+    new CleanupOldDeploysJob(tempFolderPath, 3).run(mock(IProgressMonitor.class));
+    assertDirectoriesKept(new String[] {"1", "2", "3"});
+  }
+
   private void testRun(int directoryCount, String[] expectedDirectoriesToKeep) throws IOException {
     createTestDirectories(directoryCount);
 
     IPath tempFolderPath = new Path(tempFolder.getRoot().toString());
     CleanupOldDeploysJob job = new CleanupOldDeploysJob(tempFolderPath);
     job.run(mock(IProgressMonitor.class));
+    assertDirectoriesKept(expectedDirectoriesToKeep);
+  }
 
+  private void assertDirectoriesKept(String[] expectedDirectoriesToKeep) {
     File[] directoriesKept = tempFolder.getRoot().listFiles();
     Arrays.sort(directoriesKept, new Comparator<File>() {
 
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.junit.Test;
+
+public class DeployJobSchedulerTest {
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroParallelism() {
+    new DeployJobScheduler(0);
+  }
+
+  @Test
+  public void testConfiguredMaxParallelism() {
+    IEclipsePreferences preferences = InstanceScope.INSTANCE.getNode("deploy-scheduler-test");
+    assertEquals(DeployJobScheduler.DEFAULT_MAX_PARALLELISM,
+        DeployJobScheduler.getConfiguredMaxParallelism(preferences));
+    preferences.putInt(DeployJobScheduler.PREF_MAX_PARALLELISM, 2);
+    assertEquals(2, DeployJobScheduler.getConfiguredMaxParallelism(preferences));
+    preferences.putInt(DeployJobScheduler.PREF_MAX_PARALLELISM, -1);
+    assertEquals(1, DeployJobScheduler.getConfiguredMaxParallelism(preferences));
+  }
+
+  @Test
+  public void testRunsAtMostMaxParallelism() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    DeployJobScheduler scheduler = new DeployJobScheduler(2);
+    for (int i = 0; i < 5; i++) {
+      scheduler.add(new SleepingJob(running, maxRunning, Status.OK_STATUS));
+    }
+    scheduler.schedule();
+
+    assertTrue(scheduler.join(10000, null));
+    assertEquals(2, maxRunning.get());
+    assertTrue(scheduler.getResult().isOK());
+  }
+
+  @Test
+  public void testFailureDoesNotCancelOtherDeploys() throws InterruptedException {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    DeployJobScheduler scheduler = new DeployJobScheduler(1);
+    scheduler.add(new SleepingJob(running, maxRunning,
+        new Status(IStatus.ERROR, "test", "deploy failed")));
+    scheduler.add(new SleepingJob(running, maxRunning, Status.OK_STATUS));
+    scheduler.schedule();
+
+    assertTrue(scheduler.join(10000, null));
+    for (Job job : scheduler.getJobs()) {
+      assertTrue(job.getResult().getSeverity() != IStatus.CANCEL);
+    }
+    assertEquals(IStatus.ERROR, scheduler.getResult().getSeverity());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddAfterSchedule() {
+    DeployJobScheduler scheduler = new DeployJobScheduler(1);
+    scheduler.schedule();
+    scheduler.add(new SleepingJob(new AtomicInteger(), new AtomicInteger(), Status.OK_STATUS));
+  }
+
+  private static class SleepingJob extends Job {
+    private final AtomicInteger running;
+    private final AtomicInteger maxRunning;
+    private final IStatus result;
+
+    private SleepingJob(AtomicInteger running, AtomicInteger maxRunning, IStatus result) {
+      super("sleeping job");
+      this.running = running;
+      this.maxRunning = maxRunning;
+      this.result = result;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      int now = running.incrementAndGet();
+      synchronized (maxRunning) {
+        maxRunning.set(Math.max(maxRunning.get(), now));
+      }
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException ex) {
+        return Status.CANCEL_STATUS;
+      } finally {
+        running.decrementAndGet();
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.appengine.api.deploy.DefaultDeployConfiguration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DeployManifestTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private DefaultDeployConfiguration configuration;
+  private File stagingDirectory;
+  private File configurationFilesDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    configuration = new DefaultDeployConfiguration();
+    configuration.setProject("my-project");
+    configuration.setVersion("v1");
+    configuration.setPromote(true);
+
+    stagingDirectory = tempFolder.newFolder("staging");
+    configurationFilesDirectory = tempFolder.newFolder("staging", "WEB-INF", "appengine-generated");
+    write("app.yaml", "runtime: java7");
+    write("WEB-INF/web.xml", "<web-app/>");
+    write("WEB-INF/appengine-generated/cron.yaml", "cron:");
+  }
+
+  @Test
+  public void testCompute_noVersion() throws IOException {
+    configuration.setVersion(null);
+    assertNull(DeployManifest.compute(configuration, stagingDirectory, null));
+  }
+
+  @Test
+  public void testHasSameApplication_notDeployedYet() throws IOException {
+    DeployManifest manifest = compute();
+    assertFalse(manifest.hasSameApplication(null));
+    assertFalse(manifest.hasSameApplication(compute()));
+  }
+
+  @Test
+  public void testHasSameApplication_unchanged() throws IOException {
+    DeployManifest previous = computeDeployed();
+    DeployManifest manifest = compute();
+    assertTrue(manifest.hasSameApplication(previous));
+    assertTrue(manifest.hasSameConfigurationFiles(previous));
+  }
+
+  @Test
+  public void testHasSameApplication_fileChanged() throws IOException {
+    DeployManifest previous = computeDeployed();
+    write("WEB-INF/web.xml", "<web-app><servlet/></web-app>");
+    assertFalse(compute().hasSameApplication(previous));
+  }
+
+  @Test
+  public void testHasSameApplication_fileAdded() throws IOException {
+    DeployManifest previous = computeDeployed();
+    write("index.html", "<html/>");
+    assertFalse(compute().hasSameApplication(previous));
+  }
+
+  @Test
+  public void testHasSameApplication_differentVersion() throws IOException {
+    DeployManifest previous = computeDeployed();
+    configuration.setVersion("v2");
+    assertFalse(compute().hasSameApplication(previous));
+  }
+
+  @Test
+  public void testHasSameApplication_differentPromote() throws IOException {
+    DeployManifest previous = computeDeployed();
+    configuration.setPromote(false);
+    assertFalse(compute().hasSameApplication(previous));
+  }
+
+  @Test
+  public void testHasSameApplication_noDeployedServices() throws IOException {
+    DeployManifest previous = compute();
+    previous.setDeployed("my-project", Collections.<String>emptyList());
+    assertFalse(compute().hasSameApplication(previous));
+  }
+
+  @Test
+  public void testConfigurationFileChangeDoesNotAffectApplication() throws IOException {
+    DeployManifest previous = computeDeployed();
+    write("WEB-INF/appengine-generated/cron.yaml", "cron: changed");
+    DeployManifest manifest = compute();
+    assertTrue(manifest.hasSameApplication(previous));
+    assertFalse(manifest.hasSameConfigurationFiles(previous));
+  }
+
+  @Test
+  public void testWithTarget() throws IOException {
+    DeployManifest manifest = computeDeployed();
+    DefaultDeployConfiguration otherTarget = new DefaultDeployConfiguration();
+    otherTarget.setProject("other-project");
+    otherTarget.setVersion("v1");
+    otherTarget.setPromote(true);
+    DeployManifest previous = DeployManifest.compute(otherTarget, stagingDirectory,
+        configurationFilesDirectory);
+    previous.setDeployed("other-project", Arrays.asList("default"));
+
+    DeployManifest retargeted = manifest.withTarget(otherTarget);
+    assertTrue(retargeted.hasSameApplication(previous));
+    assertTrue(retargeted.hasSameConfigurationFiles(previous));
+    assertFalse(manifest.hasSameApplication(previous));
+    assertTrue(retargeted.getDeployedServices().isEmpty());
+  }
+
+  @Test
+  public void testWithTarget_noVersion() throws IOException {
+    DeployManifest manifest = computeDeployed();
+    configuration.setVersion(null);
+    assertNull(manifest.withTarget(configuration));
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    Path file = tempFolder.getRoot().toPath().resolve("manifests/project.json");
+    computeDeployed().save(file);
+
+    DeployManifest loaded = DeployManifest.load(file);
+    assertEquals("v1", loaded.getVersion());
+    assertEquals("my-project", loaded.getDeployedProject());
+    assertEquals(Arrays.asList("default", "api"), loaded.getDeployedServices());
+    assertTrue(compute().hasSameApplication(loaded));
+    assertTrue(compute().hasSameConfigurationFiles(loaded));
+  }
+
+  @Test
+  public void testLoad_noFile() {
+    assertNull(DeployManifest.load(tempFolder.getRoot().toPath().resolve("non-existing.json")));
+  }
+
+  @Test
+  public void testLoad_corruptFile() throws IOException {
+    Path file = tempFolder.newFile("corrupt.json").toPath();
+    Files.write(file, "{ not json".getBytes(StandardCharsets.UTF_8));
+    assertNull(DeployManifest.load(file));
+  }
+
+  @Test
+  public void testDiscard() throws IOException {
+    Path file = tempFolder.getRoot().toPath().resolve("project.json");
+    computeDeployed().save(file);
+    DeployManifest.discard(file);
+    assertNull(DeployManifest.load(file));
+  }
+
+  private DeployManifest compute() throws IOException {
+    return DeployManifest.compute(configuration, stagingDirectory, configurationFilesDirectory);
+  }
+
+  private DeployManifest computeDeployed() throws IOException {
+    DeployManifest manifest = compute();
+    manifest.setDeployed("my-project", Arrays.asList("default", "api"));
+    return manifest;
+  }
+
+  private void write(String relativePath, String content) throws IOException {
+    Path file = stagingDirectory.toPath().resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.google.gson.JsonParseException;
+import org.junit.Test;
+
+public class DeployOutputParserTest {
+
+  private final DeployOutputParser parser = new DeployOutputParser();
+
+  @Test
+  public void testDocumentSplitOverLines() {
+    feed("{",
+        "  \"configs\": [],",
+        "  \"versions\": [",
+        "    {",
+        "      \"id\": \"20170101t000000\",",
+        "      \"project\": \"some-project\",",
+        "      \"service\": \"default\"",
+        "    }",
+        "  ]",
+        "}");
+    AppEngineDeployOutput output = parser.getOutput();
+    assertEquals(1, output.getVersionCount());
+    assertEquals("20170101t000000", output.getVersion());
+    assertEquals("some-project", output.getProject(0));
+    assertEquals("default", output.getService());
+  }
+
+  @Test
+  public void testTextAroundDocumentIgnored() {
+    feed("WARNING: some notice",
+        "{\"versions\": [{\"id\": \"v1\", \"service\": \"default\"}]} trailing text",
+        "done");
+    assertEquals("v1", parser.getOutput().getVersion());
+  }
+
+  @Test
+  public void testBracesInsideStrings() {
+    feed("{\"versions\": [{\"id\": \"v}1\", \"service\": \"a\\\"{b\"}]}");
+    AppEngineDeployOutput output = parser.getOutput();
+    assertEquals("v}1", output.getVersion());
+    assertEquals("a\"{b", output.getService());
+  }
+
+  @Test
+  public void testMultipleServices() {
+    feed("{\"versions\": [",
+        "{\"id\": \"v1\", \"service\": \"default\"},",
+        "{\"id\": \"v1\", \"service\": \"api\"}",
+        "]}");
+    AppEngineDeployOutput output = parser.getOutput();
+    assertEquals(2, output.getVersionCount());
+    assertEquals("api", output.getService(1));
+  }
+
+  @Test
+  public void testNoOutput() {
+    feed("Updating service [default]...done.");
+    try {
+      parser.getOutput();
+      fail();
+    } catch (JsonParseException ex) {
+      assertEquals("Cannot get app version: no gcloud JSON output", ex.getMessage());
+    }
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testUnexpectedFormat() {
+    feed("{\"default\": \"https://some-project.appspot.com\"}");
+    parser.getOutput();
+  }
+
+  @Test(expected = JsonParseException.class)
+  public void testDocumentTooLarge() {
+    StringBuilder padding = new StringBuilder();
+    for (int i = 0; i < DeployOutputParser.MAX_DOCUMENT_LENGTH; i++) {
+      padding.append(' ');
+    }
+    feed("{\"versions\": [{\"id\": \"v1\"}],", padding.toString(), "\"configs\": []}");
+    parser.getOutput();
+  }
+
+  @Test
+  public void testDocumentAfterTooLargeDocument() {
+    StringBuilder padding = new StringBuilder();
+    for (int i = 0; i < DeployOutputParser.MAX_DOCUMENT_LENGTH; i++) {
+      padding.append(' ');
+    }
+    feed("{", padding.toString(), "}");
+    feed("{\"versions\": [{\"id\": \"v2\"}]}");
+    assertEquals("v2", parser.getOutput().getVersion());
+  }
+
+  private void feed(String... lines) {
+    for (String line : lines) {
+      parser.onOutputLine(line);
+    }
+  }
+}
@@ -156,6 +156,25 @@ public class DeployPreferencesTest {
     assertTrue(preferences.isIncludeOptionalConfigurationFiles());
   }
 
+  @Test
+  public void testSetAdditionalTargets() {
+    assertThat(preferences.getAdditionalTargets(), isEmptyString());
+    preferences.setAdditionalTargets("staging-project:v1, production-project:v1");
+    assertThat(preferences.getAdditionalTargets(),
+        is("staging-project:v1, production-project:v1"));
+    preferences.setAdditionalTargets(null);
+    assertThat(preferences.getAdditionalTargets(), isEmptyString());
+  }
+
+  @Test
+  public void testSetForceUpload() {
+    assertFalse(preferences.isForceUpload());
+    preferences.setForceUpload(true);
+    assertTrue(preferences.isForceUpload());
+    preferences.setForceUpload(false);
+    assertFalse(preferences.isForceUpload());
+  }
+
   @Test
   public void testResetToDefault() {
     setAllFieldsWithExamples();
@@ -168,6 +187,8 @@ public class DeployPreferencesTest {
     assertThat(preferences.getBucket(), isEmptyString());
     assertTrue(preferences.isStopPreviousVersion());
     assertTrue(preferences.isIncludeOptionalConfigurationFiles());
+    assertThat(preferences.getAdditionalTargets(), isEmptyString());
+    assertFalse(preferences.isForceUpload());
   }
 
   @Test
@@ -191,6 +212,9 @@ public class DeployPreferencesTest {
     assertFalse(preferenceStore.getBoolean(DeployPreferences.PREF_STOP_PREVIOUS_VERSION, true));
     assertFalse(preferenceStore.getBoolean(
         DeployPreferences.PREF_INCLUDE_OPTIONAL_CONFIGURATION_FILES, true));
+    assertThat(preferenceStore.get(DeployPreferences.PREF_ADDITIONAL_TARGETS, ""),
+        is("otherproject12:v2"));
+    assertTrue(preferenceStore.getBoolean(DeployPreferences.PREF_FORCE_UPLOAD, false));
   }
 
   private void setAllFieldsWithExamples() {
@@ -201,6 +225,8 @@ public class DeployPreferencesTest {
     preferences.setBucket("somebucket45");
     preferences.setStopPreviousVersion(false);
     preferences.setIncludeOptionalConfigurationFiles(false);
+    preferences.setAdditionalTargets("otherproject12:v2");
+    preferences.setForceUpload(true);
   }
 
   private void verifyEmptyPreferenceStore() {
@@ -212,5 +238,8 @@ public class DeployPreferencesTest {
     assertTrue(preferenceStore.getBoolean(DeployPreferences.PREF_STOP_PREVIOUS_VERSION, true));
     assertTrue(preferenceStore.getBoolean(
         DeployPreferences.PREF_INCLUDE_OPTIONAL_CONFIGURATION_FILES, true));
+    assertThat(preferenceStore.get(DeployPreferences.PREF_ADDITIONAL_TARGETS, ""),
+        isEmptyString());
+    assertFalse(preferenceStore.getBoolean(DeployPreferences.PREF_FORCE_UPLOAD, false));
   }
 }
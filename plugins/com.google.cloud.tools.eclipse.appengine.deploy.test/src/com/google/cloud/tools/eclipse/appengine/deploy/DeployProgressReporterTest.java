@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Test;
+
+public class DeployProgressReporterTest {
+
+  private final RecordingProgressMonitor monitor = new RecordingProgressMonitor();
+
+  @Test
+  public void testSingleService() {
+    DeployProgressReporter reporter = new DeployProgressReporter(monitor);
+    reporter.onOutputLine("Beginning deployment of service [default]...");
+    reporter.onOutputLine("Uploading 12 files to Google Cloud Storage");
+    reporter.report();
+    assertTrue(monitor.subTask.contains("12"));
+    reporter.onOutputLine("50%");
+    reporter.report();
+    assertEquals(0.5 * DeployProgressReporter.UPLOAD_WORK, monitor.percentDone(), 0.01);
+    reporter.onOutputLine("100%");
+    reporter.onOutputLine("File upload done.");
+    reporter.report();
+    assertEquals(DeployProgressReporter.UPLOAD_WORK, monitor.percentDone(), 0.01);
+    reporter.onOutputLine("Updating service [default]...");
+    reporter.report();
+    assertTrue(monitor.subTask.contains("default"));
+    reporter.onOutputLine("Deployed service [default] to [https://some-project.appspot.com]");
+    reporter.report();
+    assertEquals(100, monitor.percentDone(), 0.01);
+    assertEquals(Arrays.asList("default"), reporter.getDeployedServices());
+  }
+
+  @Test
+  public void testNothingReportedBeforeReport() {
+    DeployProgressReporter reporter = new DeployProgressReporter(monitor);
+    reporter.onOutputLine("Uploading 12 files to Google Cloud Storage");
+    reporter.onOutputLine("50%");
+    assertEquals(0, monitor.percentDone(), 0.01);
+    assertNull(monitor.subTask);
+    reporter.report();
+    assertEquals(0.5 * DeployProgressReporter.UPLOAD_WORK, monitor.percentDone(), 0.01);
+  }
+
+  @Test
+  public void testProgressNeverGoesBackwards() {
+    DeployProgressReporter reporter = new DeployProgressReporter(monitor);
+    reporter.onOutputLine("60%");
+    reporter.onOutputLine("30%");
+    reporter.report();
+    assertEquals(0.6 * DeployProgressReporter.UPLOAD_WORK, monitor.percentDone(), 0.01);
+  }
+
+  @Test
+  public void testLaterServicesOnlyUpdateSubTask() {
+    DeployProgressReporter reporter = new DeployProgressReporter(monitor);
+    reporter.onOutputLine("Beginning deployment of service [default]...");
+    reporter.onOutputLine("Beginning deployment of service [api]...");
+    reporter.report();
+    assertEquals(100, monitor.percentDone(), 0.01);
+    reporter.onOutputLine("Updating service [api]...");
+    reporter.onOutputLine("Deployed service [api] to [https://api-dot-some-project.appspot.com]");
+    reporter.report();
+    assertEquals(100, monitor.percentDone(), 0.01);
+    assertTrue(monitor.subTask.contains("api"));
+    assertEquals(Arrays.asList("api"), reporter.getDeployedServices());
+  }
+
+  @Test
+  public void testUnrelatedLinesIgnored() {
+    DeployProgressReporter reporter = new DeployProgressReporter(monitor);
+    reporter.onOutputLine("Services to deploy:");
+    reporter.onOutputLine("descriptor:      [/tmp/staging/app.yaml]");
+    reporter.report();
+    assertEquals(0, monitor.percentDone(), 0.01);
+  }
+
+  private static class RecordingProgressMonitor extends NullProgressMonitor {
+    private int totalWork;
+    private double worked;
+    private String subTask;
+
+    @Override
+    public void beginTask(String name, int totalWork) {
+      this.totalWork = totalWork;
+    }
+
+    @Override
+    public void internalWorked(double work) {
+      worked += work;
+    }
+
+    /** @return the work done so far, in percent of the total work */
+    private double percentDone() {
+      return worked * 100 / totalWork;
+    }
+
+    @Override
+    public void worked(int work) {
+      internalWorked(work);
+    }
+
+    @Override
+    public void subTask(String name) {
+      subTask = name;
+    }
+  }
+}
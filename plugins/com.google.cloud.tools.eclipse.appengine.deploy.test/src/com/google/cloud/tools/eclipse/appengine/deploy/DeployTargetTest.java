@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.appengine.api.deploy.DefaultDeployConfiguration;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class DeployTargetTest {
+
+  @Test
+  public void testParseList() {
+    assertEquals(Arrays.asList(new DeployTarget("staging", "v1"),
+        new DeployTarget("production", null), new DeployTarget("production", "v2")),
+        DeployTarget.parseList("staging:v1, production\nproduction:v2"));
+  }
+
+  @Test
+  public void testParseList_empty() {
+    assertTrue(DeployTarget.parseList(null).isEmpty());
+    assertTrue(DeployTarget.parseList(" , ").isEmpty());
+  }
+
+  @Test
+  public void testParseList_domainScopedProject() {
+    assertEquals(Arrays.asList(new DeployTarget("example.com:project", null),
+        new DeployTarget("example.com:project", "v3")),
+        DeployTarget.parseList("example.com:project example.com:project:v3"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testParseList_noProject() {
+    DeployTarget.parseList(":v1");
+  }
+
+  @Test
+  public void testEmptyVersion() {
+    assertNull(new DeployTarget("project", "").getVersion());
+    assertEquals("project", new DeployTarget("project", "").toString());
+    assertEquals("project:v1", new DeployTarget("project", "v1").toString());
+  }
+
+  @Test
+  public void testApplyTo() {
+    DefaultDeployConfiguration template = new DefaultDeployConfiguration();
+    template.setProject("template-project");
+    template.setVersion("template-version");
+    template.setBucket("gs://bucket");
+    template.setPromote(false);
+
+    DefaultDeployConfiguration configuration =
+        new DeployTarget("project", "v1").applyTo(template);
+    assertEquals("project", configuration.getProject());
+    assertEquals("v1", configuration.getVersion());
+    assertEquals("gs://bucket", configuration.getBucket());
+    assertEquals(Boolean.FALSE, configuration.getPromote());
+    assertEquals("template-project", template.getProject());
+  }
+}
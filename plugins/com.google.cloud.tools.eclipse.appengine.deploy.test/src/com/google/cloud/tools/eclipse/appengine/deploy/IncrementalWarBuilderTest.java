@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.deploy.IncrementalWarBuilder.WarEntry;
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class IncrementalWarBuilderTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path cacheDirectory;
+  private Path war;
+  private File webXml;
+  private File indexHtml;
+  private File libraryJar;
+  private List<WarEntry> entries;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheDirectory = tempFolder.getRoot().toPath().resolve("cache");
+    war = tempFolder.getRoot().toPath().resolve("out/app.war");
+    webXml = createFile("web.xml", "<web-app><servlet>servlet servlet servlet</servlet></web-app>");
+    indexHtml = createFile("index.html", "<html><body>hello hello hello hello</body></html>");
+    libraryJar = createFile("library.jar", "pretend this is compressed already");
+
+    entries = new ArrayList<>();
+    entries.add(WarEntry.directory("WEB-INF", 0));
+    entries.add(WarEntry.file("WEB-INF/web.xml", webXml));
+    entries.add(WarEntry.directory("WEB-INF/lib/", 0));
+    entries.add(WarEntry.file("WEB-INF/lib/library.jar", libraryJar));
+    entries.add(WarEntry.file("index.html", indexHtml));
+  }
+
+  @Test
+  public void testBuild_firstBuildCompressesEverything() throws IOException {
+    IncrementalWarBuilder builder = new IncrementalWarBuilder(cacheDirectory, 2);
+    builder.build(entries, war, new NullProgressMonitor());
+
+    assertEquals(0, builder.getReusedEntryCount());
+    assertEquals(2, builder.getCompressedEntryCount());
+    assertEquals(1, builder.getStoredEntryCount());
+    assertWarContents();
+  }
+
+  @Test
+  public void testBuild_unchangedEntriesReused() throws IOException {
+    IncrementalWarBuilder builder = new IncrementalWarBuilder(cacheDirectory, 2);
+    builder.build(entries, war, new NullProgressMonitor());
+    Files.write(indexHtml.toPath(),
+        "<html><body>changed changed changed</body></html>".getBytes(StandardCharsets.UTF_8));
+    builder.build(entries, war, new NullProgressMonitor());
+
+    assertEquals(2, builder.getReusedEntryCount());
+    assertEquals(1, builder.getCompressedEntryCount());
+    assertEquals(0, builder.getStoredEntryCount());
+    assertWarContents();
+  }
+
+  @Test
+  public void testBuild_removedEntry() throws IOException {
+    IncrementalWarBuilder builder = new IncrementalWarBuilder(cacheDirectory, 2);
+    builder.build(entries, war, new NullProgressMonitor());
+    entries.remove(1);  // WEB-INF/web.xml
+    builder.build(entries, war, new NullProgressMonitor());
+
+    try (ZipFile zip = new ZipFile(war.toFile())) {
+      assertEquals(4, zip.size());
+      assertEquals(null, zip.getEntry("WEB-INF/web.xml"));
+    }
+  }
+
+  @Test
+  public void testBuild_corruptIndexIgnored() throws IOException {
+    IncrementalWarBuilder builder = new IncrementalWarBuilder(cacheDirectory, 2);
+    builder.build(entries, war, new NullProgressMonitor());
+    Files.write(cacheDirectory.resolve("previous.war.index"),
+        "garbage".getBytes(StandardCharsets.UTF_8));
+    builder.build(entries, war, new NullProgressMonitor());
+
+    assertEquals(0, builder.getReusedEntryCount());
+    assertWarContents();
+  }
+
+  @Test
+  public void testBuild_laterBuildDoesNotChangeEarlierWar() throws IOException {
+    IncrementalWarBuilder builder = new IncrementalWarBuilder(cacheDirectory, 2);
+    builder.build(entries, war, new NullProgressMonitor());
+    Path otherWar = tempFolder.getRoot().toPath().resolve("out/other.war");
+    entries.remove(1);  // WEB-INF/web.xml
+    builder.build(entries, otherWar, new NullProgressMonitor());
+
+    assertWarContents();
+  }
+
+  @Test
+  public void testBuild_largeEntry() throws IOException {
+    StringBuilder content = new StringBuilder();
+    while (content.length() < 4 * 1024 * 1024) {
+      content.append("<p>a line of a large page</p>\n");
+    }
+    File largeHtml = createFile("large.html", content.toString());
+    entries.add(WarEntry.file("large.html", largeHtml));
+    IncrementalWarBuilder builder = new IncrementalWarBuilder(cacheDirectory, 2);
+    builder.build(entries, war, new NullProgressMonitor());
+    builder.build(entries, war, new NullProgressMonitor());
+
+    assertEquals(4, builder.getReusedEntryCount());
+    try (ZipFile zip = new ZipFile(war.toFile())) {
+      assertEquals(ZipEntry.DEFLATED, zip.getEntry("large.html").getMethod());
+      assertContent(zip, "large.html", largeHtml);
+    }
+  }
+
+  @Test
+  public void testBuild_zip64() throws IOException {
+    List<WarEntry> manyEntries = new ArrayList<>();
+    for (int i = 0; i < 0x10000; i++) {
+      manyEntries.add(WarEntry.file("file" + i + ".html", indexHtml));
+    }
+    manyEntries.add(WarEntry.file("WEB-INF/lib/library.jar", libraryJar));
+    IncrementalWarBuilder builder = new IncrementalWarBuilder(cacheDirectory, 2);
+    builder.build(manyEntries, war, new NullProgressMonitor());
+    builder.build(manyEntries, war, new NullProgressMonitor());
+
+    assertEquals(0, builder.getReusedEntryCount());
+    assertEquals(0x10000, builder.getCompressedEntryCount());
+    assertEquals(1, builder.getStoredEntryCount());
+    try (ZipFile zip = new ZipFile(war.toFile())) {
+      assertEquals(0x10001, zip.size());
+      assertEquals(ZipEntry.STORED, zip.getEntry("WEB-INF/lib/library.jar").getMethod());
+      assertContent(zip, "file65535.html", indexHtml);
+      assertContent(zip, "WEB-INF/lib/library.jar", libraryJar);
+    }
+  }
+
+  @Test
+  public void testBuild_concurrentBuildsWithSameCache() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> builds = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        final Path target = tempFolder.getRoot().toPath().resolve("out/app" + i + ".war");
+        builds.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            new IncrementalWarBuilder(cacheDirectory, 2)
+                .build(entries, target, new NullProgressMonitor());
+            return null;
+          }
+        }));
+      }
+      for (int i = 0; i < 4; i++) {
+        builds.get(i).get();
+        war = tempFolder.getRoot().toPath().resolve("out/app" + i + ".war");
+        assertWarContents();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testIsAlreadyCompressed() {
+    assertTrue(IncrementalWarBuilder.isAlreadyCompressed("WEB-INF/lib/guava.jar"));
+    assertTrue(IncrementalWarBuilder.isAlreadyCompressed("images/LOGO.PNG"));
+    assertFalse(IncrementalWarBuilder.isAlreadyCompressed("WEB-INF/web.xml"));
+    assertFalse(IncrementalWarBuilder.isAlreadyCompressed("WEB-INF/classes/Foo.class"));
+  }
+
+  @Test
+  public void testToDosTime_beforeDosEpoch() {
+    assertEquals((1 << 21) | (1 << 16), IncrementalWarBuilder.toDosTime(0));
+  }
+
+  private void assertWarContents() throws IOException {
+    try (ZipFile zip = new ZipFile(war.toFile())) {
+      assertEquals(5, zip.size());
+      assertTrue(zip.getEntry("WEB-INF/").isDirectory());
+      assertTrue(zip.getEntry("WEB-INF/lib/").isDirectory());
+      assertEquals(ZipEntry.DEFLATED, zip.getEntry("WEB-INF/web.xml").getMethod());
+      assertEquals(ZipEntry.STORED, zip.getEntry("WEB-INF/lib/library.jar").getMethod());
+      assertContent(zip, "WEB-INF/web.xml", webXml);
+      assertContent(zip, "WEB-INF/lib/library.jar", libraryJar);
+      assertContent(zip, "index.html", indexHtml);
+    }
+  }
+
+  private static void assertContent(ZipFile zip, String name, File expected) throws IOException {
+    ZipEntry entry = zip.getEntry(name);
+    assertNotNull(entry);
+    try (InputStream in = zip.getInputStream(entry)) {
+      assertEquals(new String(Files.readAllBytes(expected.toPath()), StandardCharsets.UTF_8),
+          new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8));
+    }
+  }
+
+  private File createFile(String name, String content) throws IOException {
+    File file = tempFolder.newFile(name);
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StagedArtifactStoreTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private Path storeRoot;
+  private StagedArtifactStore store;
+
+  @Before
+  public void setUp() {
+    storeRoot = tempFolder.getRoot().toPath().resolve("store");
+    store = new StagedArtifactStore(storeRoot);
+  }
+
+  @Test
+  public void testStore() throws IOException {
+    Path staging = createStaging("staging", "runtime: java7");
+    String key = StagedArtifactStore.computeKey(staging);
+
+    Path artifact = store.store(staging);
+    assertEquals(storeRoot.resolve(key), artifact);
+    assertFalse(Files.exists(staging));
+    assertTrue(Files.isRegularFile(artifact.resolve("app.yaml")));
+    assertTrue(Files.isRegularFile(artifact.resolve("WEB-INF/web.xml")));
+  }
+
+  @Test
+  public void testStore_identicalContentReused() throws IOException {
+    Path artifact1 = store.store(createStaging("staging1", "runtime: java7"));
+    Path staging2 = createStaging("staging2", "runtime: java7");
+    Path artifact2 = store.store(staging2);
+
+    assertEquals(artifact1, artifact2);
+    assertFalse(Files.exists(staging2));
+  }
+
+  @Test
+  public void testStore_differentContent() throws IOException {
+    Path artifact1 = store.store(createStaging("staging1", "runtime: java7"));
+    Path artifact2 = store.store(createStaging("staging2", "runtime: java8"));
+    assertNotEquals(artifact1, artifact2);
+  }
+
+  @Test
+  public void testComputeKey_dependsOnPaths() throws IOException {
+    Path staging1 = createStaging("staging1", "runtime: java7");
+    Path staging2 = createStaging("staging2", "runtime: java7");
+    Files.move(staging2.resolve("WEB-INF/web.xml"), staging2.resolve("WEB-INF/other.xml"));
+    assertNotEquals(StagedArtifactStore.computeKey(staging1),
+        StagedArtifactStore.computeKey(staging2));
+  }
+
+  @Test
+  public void testPrune() throws IOException {
+    long now = System.currentTimeMillis();
+    for (int i = 0; i < StagedArtifactStore.ARTIFACTS_TO_KEEP + 2; i++) {
+      Path artifact = store.store(createStaging("staging" + i, "version: " + i));
+      // artifact 0 is the most recently used one
+      Files.setLastModifiedTime(artifact, FileTime.fromMillis(now - i * 10000L));
+      store.release(artifact);
+    }
+    Files.createDirectories(storeRoot.resolve("abc.tmp123"));
+
+    store.prune();
+    assertEquals(StagedArtifactStore.ARTIFACTS_TO_KEEP, storeRoot.toFile().list().length);
+    assertFalse(Files.exists(storeRoot.resolve("abc.tmp123")));
+  }
+
+  @Test
+  public void testPrune_keepsReservedArtifacts() throws IOException {
+    long now = System.currentTimeMillis();
+    Path oldest = store.store(createStaging("oldest", "version: old"));
+    Files.setLastModifiedTime(oldest, FileTime.fromMillis(now - 100000L));
+    for (int i = 0; i < StagedArtifactStore.ARTIFACTS_TO_KEEP; i++) {
+      store.release(store.store(createStaging("staging" + i, "version: " + i)));
+    }
+
+    store.prune();
+    assertTrue(Files.isRegularFile(oldest.resolve("app.yaml")));
+
+    store.release(oldest);
+    store.prune();
+    assertFalse(Files.exists(oldest));
+  }
+
+  @Test
+  public void testPrune_keepsCopyInProgressOfReservedArtifact() throws IOException {
+    Path artifact = store.store(createStaging("staging", "runtime: java7"));
+    String key = artifact.getFileName().toString();
+    Files.createDirectories(storeRoot.resolve(key + ".tmp123"));
+    Files.createDirectories(storeRoot.resolve("abc.tmp456"));
+
+    store.prune();
+    assertTrue(Files.exists(storeRoot.resolve(key + ".tmp123")));
+    assertFalse(Files.exists(storeRoot.resolve("abc.tmp456")));
+    store.release(artifact);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRelease_notReserved() {
+    store.release(storeRoot.resolve("abc"));
+  }
+
+  @Test
+  public void testPrune_concurrentDeploys() throws Exception {
+    final int deploys = StagedArtifactStore.ARTIFACTS_TO_KEEP * 3;
+    final CyclicBarrier allStored = new CyclicBarrier(deploys);
+    final CyclicBarrier allPruned = new CyclicBarrier(deploys);
+    ExecutorService executor = Executors.newFixedThreadPool(deploys);
+    try {
+      List<Future<Path>> results = new ArrayList<>();
+      for (int i = 0; i < deploys; i++) {
+        final Path staging = createStaging("staging" + i, "version: " + i);
+        results.add(executor.submit(new Callable<Path>() {
+          @Override
+          public Path call() throws Exception {
+            // like DeployJob.deployToTargets: store, upload, release, prune
+            Path artifact = store.store(staging);
+            allStored.await(10, TimeUnit.SECONDS);
+            store.prune();
+            allPruned.await(10, TimeUnit.SECONDS);
+            // every other job has pruned while this one was still "uploading"
+            assertTrue(Files.isRegularFile(artifact.resolve("app.yaml")));
+            assertTrue(Files.isRegularFile(artifact.resolve("WEB-INF/web.xml")));
+            store.release(artifact);
+            return artifact;
+          }
+        }));
+      }
+      for (Future<Path> result : results) {
+        result.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    store.prune();
+    assertEquals(StagedArtifactStore.ARTIFACTS_TO_KEEP, storeRoot.toFile().list().length);
+  }
+
+  @Test
+  public void testPrune_noStore() throws IOException {
+    store.prune();
+    assertFalse(Files.exists(storeRoot));
+  }
+
+  private Path createStaging(String name, String appYaml) throws IOException {
+    Path staging = tempFolder.newFolder(name).toPath();
+    Files.createDirectories(staging.resolve("WEB-INF"));
+    Files.write(staging.resolve("app.yaml"), appYaml.getBytes(StandardCharsets.UTF_8));
+    Files.write(staging.resolve("WEB-INF/web.xml"), "<web-app/>".getBytes(StandardCharsets.UTF_8));
+    return staging;
+  }
+}
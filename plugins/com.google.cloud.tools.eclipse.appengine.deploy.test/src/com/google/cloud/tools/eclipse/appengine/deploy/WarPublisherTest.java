@@ -16,11 +16,18 @@
 
 package com.google.cloud.tools.eclipse.appengine.deploy;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.cloud.tools.eclipse.appengine.deploy.IncrementalWarBuilder.WarEntry;
 import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.ZipFile;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -31,6 +38,8 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jst.common.project.facet.core.JavaFacet;
 import org.eclipse.jst.j2ee.web.project.facet.WebFacetUtils;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleResource;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -79,12 +88,44 @@ public class WarPublisherTest {
   }
 
   @Test
-  public void testPublishWar() throws CoreException {
+  public void testPublishWar() throws CoreException, IOException {
     IProject project = projectCreator.getProject();
     IFile war = project.getFile("my-app.war");
     WarPublisher.publishWar(project, war.getLocation(), monitor);
 
     war.refreshLocal(IResource.DEPTH_ZERO, monitor);
     assertTrue(war.exists());
+    try (ZipFile zip = new ZipFile(war.getLocation().toFile())) {
+      assertNotNull(zip.getEntry("META-INF/MANIFEST.MF"));
+      assertNotNull(zip.getEntry("WEB-INF/web.xml"));
+    }
+  }
+
+  @Test
+  public void testPublishWar_republish() throws CoreException, IOException {
+    IProject project = projectCreator.getProject();
+    IFile war = project.getFile("my-app.war");
+    WarPublisher.publishWar(project, war.getLocation(), monitor);
+    WarPublisher.publishWar(project, war.getLocation(), monitor);
+
+    try (ZipFile zip = new ZipFile(war.getLocation().toFile())) {
+      assertNotNull(zip.getEntry("WEB-INF/web.xml"));
+    }
+  }
+
+  @Test
+  public void testCollectWarEntries_skipsFilesNotOnFileSystem() {
+    IModuleFile onDisk = mock(IModuleFile.class);
+    when(onDisk.getModuleRelativePath()).thenReturn(Path.EMPTY);
+    when(onDisk.getName()).thenReturn("index.html");
+    when(onDisk.getAdapter(File.class)).thenReturn(new File("index.html"));
+    IModuleFile missing = mock(IModuleFile.class);
+    when(missing.getModuleRelativePath()).thenReturn(Path.EMPTY);
+    when(missing.getName()).thenReturn("missing.html");
+
+    List<WarEntry> entries =
+        WarPublisher.collectWarEntries(new IModuleResource[] {onDisk, missing});
+    assertEquals(1, entries.size());
+    assertEquals("index.html", entries.get(0).getName());
   }
 }
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy.standard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.appengine.cloudsdk.CloudSdk;
+import com.google.cloud.tools.eclipse.appengine.deploy.CloudSdkStagingHelper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compares the {@code app.yaml} that {@link InProcessStandardStaging} generates with the one the
+ * App Engine SDK staging tool ({@code appcfg stage}) generates for the same application.
+ */
+public class InProcessStandardStagingParityTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final CloudSdk cloudSdk = new CloudSdk.Builder().async(false).build();
+
+  private File explodedWar;
+
+  @Before
+  public void setUp() throws IOException {
+    explodedWar = tempFolder.newFolder("exploded-war");
+    write("WEB-INF/classes/Foo.class", "class");
+    write("index.html", "<html/>");
+    write("docs/index.html", "<html/>");
+    write("css/style.css", "body {}");
+  }
+
+  @Test
+  public void testAppYamlMatchesSdk() throws IOException {
+    write("WEB-INF/web.xml", "<web-app xmlns='http://java.sun.com/xml/ns/javaee'>"
+        + "<welcome-file-list><welcome-file>index.html</welcome-file></welcome-file-list>"
+        + "</web-app>");
+    assertAppYamlMatchesSdk("<threadsafe>true</threadsafe>"
+        + "<env-variables><env-var name='MODE' value='prod' /></env-variables>");
+  }
+
+  @Test
+  public void testApplication() throws IOException {
+    assertAppYamlMatchesSdk("<application>my-app</application>");
+  }
+
+  @Test
+  public void testVersion() throws IOException {
+    assertAppYamlMatchesSdk("<version>v1</version>");
+  }
+
+  @Test
+  public void testService() throws IOException {
+    assertAppYamlMatchesSdk("<service>backend</service>");
+  }
+
+  @Test
+  public void testModule() throws IOException {
+    assertAppYamlMatchesSdk("<module>backend</module>");
+  }
+
+  @Test
+  public void testRuntime() throws IOException {
+    assertAppYamlMatchesSdk("<runtime>java8</runtime>");
+  }
+
+  @Test
+  public void testThreadsafe() throws IOException {
+    assertAppYamlMatchesSdk("<threadsafe>false</threadsafe>");
+  }
+
+  @Test
+  public void testInstanceClass() throws IOException {
+    assertAppYamlMatchesSdk("<instance-class>B2</instance-class>"
+        + "<basic-scaling><max-instances>2</max-instances></basic-scaling>");
+  }
+
+  @Test
+  public void testManualScaling() throws IOException {
+    assertAppYamlMatchesSdk("<manual-scaling><instances>3</instances></manual-scaling>");
+  }
+
+  @Test
+  public void testBasicScaling() throws IOException {
+    assertAppYamlMatchesSdk("<basic-scaling><max-instances>5</max-instances>"
+        + "<idle-timeout>10m</idle-timeout></basic-scaling>");
+  }
+
+  @Test
+  public void testInboundServices() throws IOException {
+    assertAppYamlMatchesSdk("<inbound-services><service>mail</service>"
+        + "<service>warmup</service></inbound-services>");
+  }
+
+  @Test
+  public void testEnvVariables() throws IOException {
+    assertAppYamlMatchesSdk("<env-variables><env-var name='MODE' value='prod' />"
+        + "<env-var name='QUOTE' value=\"it's\" /></env-variables>");
+  }
+
+  @Test
+  public void testPrecompilationDisabled() throws IOException {
+    assertAppYamlMatchesSdk("<precompilation-enabled>false</precompilation-enabled>");
+  }
+
+  @Test
+  public void testWarmupRequestsDisabled() throws IOException {
+    assertAppYamlMatchesSdk("<warmup-requests-enabled>false</warmup-requests-enabled>");
+  }
+
+  @Test
+  public void testSecurityConstraintsAndStaticFileSetsLeftToSdk() throws IOException {
+    write("WEB-INF/appengine-web.xml",
+        "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<threadsafe>true</threadsafe>"
+        + "<static-files><include path='/**.html' /><exclude path='/docs/**' /></static-files>"
+        + "</appengine-web-app>");
+    write("WEB-INF/web.xml", "<web-app xmlns='http://java.sun.com/xml/ns/javaee'>"
+        + "<security-constraint><web-resource-collection>"
+        + "<web-resource-name>admin</web-resource-name><url-pattern>/admin/*</url-pattern>"
+        + "</web-resource-collection>"
+        + "<auth-constraint><role-name>admin</role-name></auth-constraint>"
+        + "</security-constraint></web-app>");
+
+    File inProcessStaging = tempFolder.newFolder("in-process");
+    assertFalse(new InProcessStandardStaging().stage(explodedWar, inProcessStaging,
+        new NullProgressMonitor()));
+    assertEquals(0, inProcessStaging.list().length);
+
+    // the SDK generates the handlers and static files for these; check it honored them
+    File sdkStaging = stageWithSdk();
+    assertTrue(read(sdkStaging.toPath().resolve("app.yaml")).contains("login: admin"));
+    assertTrue(new File(sdkStaging, "__static__/index.html").exists());
+    assertFalse(new File(sdkStaging, "__static__/docs/index.html").exists());
+    assertFalse(new File(sdkStaging, "__static__/css/style.css").exists());
+  }
+
+  private void assertAppYamlMatchesSdk(String appEngineWebXmlElements) throws IOException {
+    write("WEB-INF/appengine-web.xml",
+        "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + appEngineWebXmlElements + "</appengine-web-app>");
+
+    File inProcessStaging = tempFolder.newFolder("in-process");
+    assertTrue(new InProcessStandardStaging().stage(explodedWar, inProcessStaging,
+        new NullProgressMonitor()));
+
+    File sdkStaging = stageWithSdk();
+    assertEquals(read(sdkStaging.toPath().resolve("app.yaml")),
+        read(inProcessStaging.toPath().resolve("app.yaml")));
+  }
+
+  private File stageWithSdk() throws IOException {
+    File sdkStaging = tempFolder.newFolder("sdk");
+    CloudSdkStagingHelper.stageStandard(
+        new org.eclipse.core.runtime.Path(explodedWar.getAbsolutePath()),
+        new org.eclipse.core.runtime.Path(sdkStaging.getAbsolutePath()),
+        cloudSdk, new NullProgressMonitor());
+    return sdkStaging;
+  }
+
+  private void write(String relativePath, String content) throws IOException {
+    Path file = explodedWar.toPath().resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path file) throws IOException {
+    return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy.standard;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.appengine.deploy.standard.InProcessStandardStaging.JspPrecompiler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InProcessStandardStagingTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File explodedWar;
+  private File stagingDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    explodedWar = tempFolder.newFolder("exploded-war");
+    stagingDirectory = tempFolder.newFolder("staging");
+    write("WEB-INF/appengine-web.xml",
+        "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<threadsafe>true</threadsafe><service>api</service>"
+        + "<env-variables><env-var name='MODE' value='prod' /></env-variables>"
+        + "</appengine-web-app>");
+    write("WEB-INF/web.xml", "<web-app xmlns='http://java.sun.com/xml/ns/javaee' />");
+    write("WEB-INF/classes/Foo.class", "class");
+    write("WEB-INF/lib/appengine-api-1.0-sdk-1.9.54.jar", "jar");
+    write("index.html", "<html/>");
+    write("css/style.css", "body {}");
+  }
+
+  @Test
+  public void testStage() throws IOException {
+    assertTrue(new InProcessStandardStaging().stage(explodedWar, stagingDirectory,
+        new NullProgressMonitor()));
+
+    assertTrue(new File(stagingDirectory, "WEB-INF/appengine-web.xml").isFile());
+    assertTrue(new File(stagingDirectory, "WEB-INF/classes/Foo.class").isFile());
+    assertTrue(new File(stagingDirectory, "index.html").isFile());
+    assertTrue(new File(stagingDirectory, "__static__/index.html").isFile());
+    assertTrue(new File(stagingDirectory, "__static__/css/style.css").isFile());
+    assertFalse(new File(stagingDirectory, "__static__/WEB-INF").exists());
+    assertTrue(new File(stagingDirectory, "app.yaml").isFile());
+    assertTrue(new File(stagingDirectory, "WEB-INF/appengine-generated/app.yaml").isFile());
+  }
+
+  @Test
+  public void testStage_appYaml() throws IOException {
+    new InProcessStandardStaging().stage(explodedWar, stagingDirectory, new NullProgressMonitor());
+
+    String appYaml = new String(
+        Files.readAllBytes(new File(stagingDirectory, "app.yaml").toPath()),
+        StandardCharsets.UTF_8);
+    assertTrue(appYaml.startsWith("runtime: java7\nservice: 'api'\n"));
+    assertTrue(appYaml.contains("inbound_services:\n- warmup\n"));
+    assertTrue(appYaml.contains("threadsafe: True\n"));
+    assertTrue(appYaml.contains("env_variables:\n  'MODE': 'prod'\n"));
+    assertTrue(appYaml.contains("api_version: '1.0'\n"));
+    assertTrue(appYaml.contains("- url: (/)\n  static_files: __static__\\1index.html\n"));
+    assertTrue(appYaml.endsWith("- url: /.*\n  script: unused\n  login: optional\n"
+        + "  secure: optional\n"));
+  }
+
+  @Test
+  public void testStage_unsupportedElementFallsBack() throws IOException {
+    write("WEB-INF/appengine-web.xml",
+        "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<static-files><include path='/**.png' /></static-files></appengine-web-app>");
+    assertFalse(new InProcessStandardStaging().stage(explodedWar, stagingDirectory,
+        new NullProgressMonitor()));
+    assertEquals(0, stagingDirectory.list().length);
+  }
+
+  @Test
+  public void testStage_untranslatedElementFallsBack() throws IOException {
+    write("WEB-INF/appengine-web.xml",
+        "<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<sessions-enabled>true</sessions-enabled></appengine-web-app>");
+    assertFalse(new InProcessStandardStaging().stage(explodedWar, stagingDirectory,
+        new NullProgressMonitor()));
+  }
+
+  @Test
+  public void testStage_xmlConfigurationFileFallsBack() throws IOException {
+    write("WEB-INF/cron.xml", "<cronentries />");
+    assertFalse(new InProcessStandardStaging().stage(explodedWar, stagingDirectory,
+        new NullProgressMonitor()));
+  }
+
+  @Test
+  public void testStage_securityConstraintFallsBack() throws IOException {
+    write("WEB-INF/web.xml", "<web-app xmlns='http://java.sun.com/xml/ns/javaee'>"
+        + "<security-constraint /></web-app>");
+    assertFalse(new InProcessStandardStaging().stage(explodedWar, stagingDirectory,
+        new NullProgressMonitor()));
+  }
+
+  @Test
+  public void testStage_jspWithoutPrecompilerFallsBack() throws IOException {
+    write("index.jsp", "<%= 1 %>");
+    assertFalse(new InProcessStandardStaging().stage(explodedWar, stagingDirectory,
+        new NullProgressMonitor()));
+  }
+
+  @Test
+  public void testStage_jspWithPrecompiler() throws IOException {
+    write("index.jsp", "<%= 1 %>");
+    final boolean[] called = new boolean[1];
+    JspPrecompiler precompiler = new JspPrecompiler() {
+      @Override
+      public void precompile(File war, File staging, IProgressMonitor monitor) {
+        called[0] = true;
+      }
+    };
+    assertTrue(new InProcessStandardStaging(precompiler).stage(explodedWar, stagingDirectory,
+        new NullProgressMonitor()));
+    assertTrue(called[0]);
+    assertFalse(new File(stagingDirectory, "__static__/index.jsp").exists());
+  }
+
+  @Test
+  public void testSplitJar() throws IOException {
+    Path jar = tempFolder.getRoot().toPath().resolve("big.jar");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+      for (int i = 0; i < 10; i++) {
+        out.putNextEntry(new ZipEntry("entry" + i));
+        out.write(new byte[1000]);
+        out.closeEntry();
+      }
+    }
+
+    List<Path> parts =
+        InProcessStandardStaging.splitJar(jar, stagingDirectory.toPath(), 1 /* bytes */);
+    assertEquals(10, parts.size());
+    assertEquals("big-0000.jar", parts.get(0).getFileName().toString());
+    assertEquals("big-0009.jar", parts.get(9).getFileName().toString());
+    try (ZipFile part = new ZipFile(parts.get(3).toFile())) {
+      assertEquals(1, part.size());
+      assertEquals(1000, part.getEntry("entry3").getSize());
+    }
+  }
+
+  private void write(String relativePath, String content) throws IOException {
+    Path file = explodedWar.toPath().resolve(relativePath);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
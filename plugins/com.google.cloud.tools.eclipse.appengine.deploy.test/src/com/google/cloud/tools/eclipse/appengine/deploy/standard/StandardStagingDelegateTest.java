@@ -66,7 +66,7 @@ public class StandardStagingDelegateTest {
 
   @Test
   public void testStage() throws CoreException {
-    StagingDelegate delegate = new StandardStagingDelegate();
+    StagingDelegate delegate = new StandardStagingDelegate(null /* App Engine SDK staging */);
     delegate.stage(project, stagingDirectory, safeWorkDirectory, cloudSdk,
         new NullProgressMonitor());
 
@@ -78,7 +78,7 @@ public class StandardStagingDelegateTest {
 
   @Test
   public void testGetOptionalConfigurationFilesDirectory() throws CoreException {
-    StagingDelegate delegate = new StandardStagingDelegate();
+    StagingDelegate delegate = new StandardStagingDelegate(null /* App Engine SDK staging */);
     delegate.stage(project, stagingDirectory, safeWorkDirectory, cloudSdk,
         new NullProgressMonitor());
 
@@ -203,6 +203,15 @@ public class AppEngineDeployPreferencesPanelTest {
     }
   }
 
+  @Test
+  public void testAdditionalTargetsValidator() {
+    AppEngineDeployPreferencesPanel.AdditionalTargetsValidator validator =
+        new AppEngineDeployPreferencesPanel.AdditionalTargetsValidator();
+    assertTrue(validator.validate("").isOK());
+    assertTrue(validator.validate("staging:v1, production").isOK());
+    assertThat(validator.validate(":v1").getSeverity(), is(IStatus.ERROR));
+  }
+
   private ProjectSelector getProjectSelector() {
     return CompositeUtil.findControl(deployPanel, ProjectSelector.class);
   }
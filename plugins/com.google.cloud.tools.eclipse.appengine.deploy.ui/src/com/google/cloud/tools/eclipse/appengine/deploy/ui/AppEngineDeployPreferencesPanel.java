@@ -18,6 +18,7 @@ package com.google.cloud.tools.eclipse.appengine.deploy.ui;
 
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.cloud.tools.eclipse.appengine.deploy.DeployPreferences;
+import com.google.cloud.tools.eclipse.appengine.deploy.DeployTarget;
 import com.google.cloud.tools.eclipse.appengine.deploy.ui.internal.FixedMultiValidator;
 import com.google.cloud.tools.eclipse.appengine.deploy.ui.internal.ProjectSelectorSelectionChangedListener;
 import com.google.cloud.tools.eclipse.login.IGoogleLoginService;
@@ -108,6 +109,10 @@ public abstract class AppEngineDeployPreferencesPanel extends DeployPreferencesP
 
   private Text bucket;
 
+  private Text additionalTargets;
+
+  private Button forceUploadButton;
+
   private ExpandableComposite expandableComposite;
 
   private final Image refreshIcon = SharedImages.REFRESH_IMAGE_DESCRIPTOR.createImage(getDisplay());
@@ -148,6 +153,9 @@ public abstract class AppEngineDeployPreferencesPanel extends DeployPreferencesP
 
     createAdvancedSection();
     setupTextFieldDataBinding(bucket, "bucket", new BucketNameValidator());
+    setupTextFieldDataBinding(additionalTargets, "additionalTargets",
+        new AdditionalTargetsValidator());
+    setupCheckBoxDataBinding(forceUploadButton, "forceUpload");
 
     observables.addObservablesFromContext(bindingContext, true, true);
 
@@ -425,9 +433,9 @@ public abstract class AppEngineDeployPreferencesPanel extends DeployPreferencesP
 
   private void createAdvancedSection() {
     createExpandableComposite();
-    final Composite bucketComposite = createBucketSection(expandableComposite);
+    final Composite advancedComposite = createAdvancedSettings(expandableComposite);
 
-    expandableComposite.setClient(bucketComposite);
+    expandableComposite.setClient(advancedComposite);
     expandableComposite.addExpansionListener(new ExpansionAdapter() {
       @Override
       public void expansionStateChanged(ExpansionEvent event) {
@@ -448,22 +456,38 @@ public abstract class AppEngineDeployPreferencesPanel extends DeployPreferencesP
     formToolkit.adapt(expandableComposite, true, true);
   }
 
-  private Composite createBucketSection(Composite parent) {
-    Composite bucketComposite = new Composite(parent, SWT.NONE);
+  private Composite createAdvancedSettings(Composite parent) {
+    Composite advancedComposite = new Composite(parent, SWT.NONE);
 
-    Label bucketLabel = new Label(bucketComposite, SWT.LEAD);
+    Label bucketLabel = new Label(advancedComposite, SWT.LEAD);
     bucketLabel.setText(Messages.getString("custom.bucket"));
     bucketLabel.setToolTipText(Messages.getString("tooltip.staging.bucket"));
 
-    bucket = new Text(bucketComposite, SWT.LEAD | SWT.SINGLE | SWT.BORDER);
+    bucket = new Text(advancedComposite, SWT.LEAD | SWT.SINGLE | SWT.BORDER);
     bucket.setMessage(Messages.getString("custom.bucket.hint"));
     GridData bucketData = new GridData(SWT.FILL, SWT.CENTER, true, false);
     bucket.setLayoutData(bucketData);
 
     bucket.setToolTipText(Messages.getString("tooltip.staging.bucket"));
 
-    GridLayoutFactory.fillDefaults().numColumns(2).generateLayout(bucketComposite);
-    return bucketComposite;
+    Label additionalTargetsLabel = new Label(advancedComposite, SWT.LEAD);
+    additionalTargetsLabel.setText(Messages.getString("additional.targets"));
+    additionalTargetsLabel.setToolTipText(Messages.getString("tooltip.additional.targets"));
+
+    additionalTargets = new Text(advancedComposite, SWT.LEAD | SWT.SINGLE | SWT.BORDER);
+    additionalTargets.setMessage(Messages.getString("additional.targets.hint"));
+    additionalTargets.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+    additionalTargets.setToolTipText(Messages.getString("tooltip.additional.targets"));
+
+    forceUploadButton = new Button(advancedComposite, SWT.CHECK);
+    forceUploadButton.setText(Messages.getString("force.upload"));
+    forceUploadButton.setToolTipText(Messages.getString("tooltip.force.upload"));
+    GridData forceUploadData = new GridData(SWT.BEGINNING, SWT.CENTER, false, false);
+    forceUploadData.horizontalSpan = 2;
+    forceUploadButton.setLayoutData(forceUploadData);
+
+    GridLayoutFactory.fillDefaults().numColumns(2).generateLayout(advancedComposite);
+    return advancedComposite;
   }
 
   @VisibleForTesting
@@ -578,6 +602,23 @@ public abstract class AppEngineDeployPreferencesPanel extends DeployPreferencesP
     }
   }
 
+  /**
+   * Accepts what {@link DeployTarget#parseList(String)} accepts: a list of {@code project} or
+   * {@code project:version} separated by commas or spaces.
+   */
+  @VisibleForTesting
+  static class AdditionalTargetsValidator implements IValidator {
+    @Override
+    public IStatus validate(Object input) {
+      try {
+        DeployTarget.parseList((String) input);
+        return ValidationStatus.ok();
+      } catch (IllegalArgumentException ex) {
+        return ValidationStatus.error(Messages.getString("error.additional.targets.invalid"));
+      }
+    }
+  }
+
   /**
    * Validates the {@link AccountSelector account selector} state against the panel settings.
    * Reports an error if the panel requires all values to be set, but the account selector does not
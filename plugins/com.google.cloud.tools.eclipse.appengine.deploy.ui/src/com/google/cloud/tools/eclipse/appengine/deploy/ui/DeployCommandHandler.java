@@ -20,12 +20,14 @@ import com.google.api.client.auth.oauth2.Credential;
 import com.google.cloud.tools.appengine.api.deploy.DefaultDeployConfiguration;
 import com.google.cloud.tools.eclipse.appengine.deploy.CleanupOldDeploysJob;
 import com.google.cloud.tools.eclipse.appengine.deploy.DeployJob;
+import com.google.cloud.tools.eclipse.appengine.deploy.DeployJobScheduler;
 import com.google.cloud.tools.eclipse.appengine.deploy.DeployPreferences;
 import com.google.cloud.tools.eclipse.appengine.deploy.DeployPreferencesConverter;
+import com.google.cloud.tools.eclipse.appengine.deploy.DeployTarget;
 import com.google.cloud.tools.eclipse.appengine.deploy.StagingDelegate;
 import com.google.cloud.tools.eclipse.googleapis.IGoogleApiFactory;
 import com.google.cloud.tools.eclipse.login.IGoogleLoginService;
-import com.google.cloud.tools.eclipse.sdk.ui.MessageConsoleWriterOutputLineListener;
+import com.google.cloud.tools.eclipse.sdk.ui.RateLimitedConsoleWriter;
 import com.google.cloud.tools.eclipse.ui.util.MessageConsoleUtilities;
 import com.google.cloud.tools.eclipse.ui.util.ProjectFromSelectionHelper;
 import com.google.cloud.tools.eclipse.ui.util.ServiceUtils;
@@ -36,7 +38,11 @@ import java.nio.file.Files;
 import java.text.DateFormat;
 import java.text.MessageFormat;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
@@ -47,6 +53,7 @@ import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
@@ -60,13 +67,15 @@ import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.console.ConsolePlugin;
 import org.eclipse.ui.console.IConsoleManager;
+import org.eclipse.ui.console.MessageConsole;
 import org.eclipse.ui.console.MessageConsoleStream;
 import org.eclipse.ui.handlers.HandlerUtil;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
 import org.eclipse.wst.common.project.facet.core.ProjectFacetsManager;
 
 /**
- * Command handler to deploy a web application project to App Engine.
+ * Command handler to deploy a web application project to App Engine. When several projects are
+ * selected (e.g., the services of one application), they are deployed concurrently.
  * <p>
  * It copies the project's WAR or exploded WAR to a staging directory and then executes
  * the staging and deploy operations provided by the App Engine Plugins Core Library.
@@ -76,13 +85,15 @@ public abstract class DeployCommandHandler extends AbstractHandler {
   @Override
   public Object execute(ExecutionEvent event) throws ExecutionException {
     try {
-      IProject project = ProjectFromSelectionHelper.getFirstProject(event);
-      if (project == null) {
+      List<IProject> projects = ProjectFromSelectionHelper.getProjects(event);
+      if (projects.isEmpty()) {
         throw new NullPointerException("Deploy menu enabled for non-project resources");
       }
-      IFacetedProject facetedProject = ProjectFacetsManager.create(project);
-      if (facetedProject == null) {
-        throw new NullPointerException("Deploy menu enabled for non-faceted projects");
+      for (IProject project : projects) {
+        IFacetedProject facetedProject = ProjectFacetsManager.create(project);
+        if (facetedProject == null) {
+          throw new NullPointerException("Deploy menu enabled for non-faceted projects");
+        }
       }
 
       if (PlatformUI.isWorkbenchRunning()) {
@@ -93,19 +104,33 @@ public abstract class DeployCommandHandler extends AbstractHandler {
           Job.getJobManager().join(ResourcesPlugin.FAMILY_AUTO_BUILD, null);
         }
       }
-      if (!checkProjectErrors(project)) {
-        MessageDialog.openInformation(HandlerUtil.getActiveShell(event),
-                                      Messages.getString("build.error.dialog.title"),
-                                      Messages.getString("build.error.dialog.message"));
-        return null;
+      for (IProject project : projects) {
+        if (!checkProjectErrors(project)) {
+          MessageDialog.openInformation(HandlerUtil.getActiveShell(event),
+                                        Messages.getString("build.error.dialog.title"),
+                                        Messages.getString("build.error.dialog.message"));
+          return null;
+        }
       }
 
       IGoogleLoginService loginService = ServiceUtils.getService(event, IGoogleLoginService.class);
       IGoogleApiFactory googleApiFactory = ServiceUtils.getService(event, IGoogleApiFactory.class);
-      DeployPreferencesDialog dialog = newDeployPreferencesDialog(
-          HandlerUtil.getActiveShell(event), project, loginService, googleApiFactory);
-      if (dialog.open() == Window.OK) {
-        launchDeployJob(project, dialog.getCredential());
+      // confirm the parameters of every project before starting any deploy
+      Map<IProject, Credential> credentials = new LinkedHashMap<>();
+      for (IProject project : projects) {
+        DeployPreferencesDialog dialog = newDeployPreferencesDialog(
+            HandlerUtil.getActiveShell(event), project, loginService, googleApiFactory);
+        if (dialog.open() != Window.OK) {
+          return null;
+        }
+        credentials.put(project, dialog.getCredential());
+      }
+
+      if (credentials.size() == 1) {
+        IProject project = projects.get(0);
+        launchDeployJob(project, credentials.get(project));
+      } else {
+        launchDeployJobs(credentials);
       }
       // return value must be null, reserved for future use
       return null;
@@ -133,18 +158,85 @@ public abstract class DeployCommandHandler extends AbstractHandler {
 
   private void launchDeployJob(IProject project, Credential credential)
                                                             throws IOException, ExecutionException {
+    DeployJob deploy = createDeployJob(project, credential);
+    deploy.addJobChangeListener(new JobChangeAdapter() {
+
+      @Override
+      public void done(IJobChangeEvent event) {
+        launchCleanupJob(1);
+      }
+    });
+    deploy.schedule();
+  }
+
+  /**
+   * Deploys several projects (e.g., the services of an application) concurrently, and reports the
+   * result of each in a summary console.
+   */
+  private void launchDeployJobs(Map<IProject, Credential> credentials)
+                                                            throws IOException, ExecutionException {
+    DeployJobScheduler scheduler = new DeployJobScheduler();
+    final Map<DeployJob, IProject> jobs = new LinkedHashMap<>();
+    for (Map.Entry<IProject, Credential> entry : credentials.entrySet()) {
+      DeployJob deploy = createDeployJob(entry.getKey(), entry.getValue());
+      jobs.put(deploy, entry.getKey());
+      scheduler.add(deploy);
+    }
+
+    MessageConsole summaryConsole = MessageConsoleUtilities.getMessageConsole(
+        Messages.getString("deploy.summary.console.name"), null); //$NON-NLS-1$
+    final MessageConsoleStream summaryStream = summaryConsole.newMessageStream();
+    summaryStream.println(Messages.getString("deploy.summary.started", //$NON-NLS-1$
+        jobs.size(), scheduler.getMaxParallelism()));
+
+    final AtomicInteger remaining = new AtomicInteger(jobs.size());
+    final AtomicInteger succeeded = new AtomicInteger();
+    JobChangeAdapter summaryListener = new JobChangeAdapter() {
+      @Override
+      public void done(IJobChangeEvent event) {
+        String projectName = jobs.get(event.getJob()).getName();
+        IStatus result = event.getResult();
+        if (result.isOK()) {
+          succeeded.incrementAndGet();
+          summaryStream.println(
+              Messages.getString("deploy.summary.succeeded", projectName)); //$NON-NLS-1$
+        } else if (result.getSeverity() == IStatus.CANCEL) {
+          summaryStream.println(
+              Messages.getString("deploy.summary.canceled", projectName)); //$NON-NLS-1$
+        } else {
+          summaryStream.println(Messages.getString("deploy.summary.failed", //$NON-NLS-1$
+              projectName, result.getMessage()));
+        }
+
+        if (remaining.decrementAndGet() == 0) {
+          summaryStream.println(Messages.getString("deploy.summary.finished", //$NON-NLS-1$
+              succeeded.get(), jobs.size()));
+          // work directories of all the deploys of this batch are recent; keep them together
+          launchCleanupJob(jobs.size());
+        }
+      }
+    };
+    for (DeployJob deploy : jobs.keySet()) {
+      deploy.addJobChangeListener(summaryListener);
+    }
+    scheduler.schedule();
+  }
+
+  private DeployJob createDeployJob(IProject project, Credential credential)
+                                                            throws IOException, ExecutionException {
     AnalyticsPingManager.getInstance().sendPing(
         AnalyticsEvents.APP_ENGINE_DEPLOY, AnalyticsEvents.APP_ENGINE_DEPLOY_STANDARD, null);
 
-    IPath workDirectory = createWorkDirectory();
+    IPath workDirectory = createWorkDirectory(project);
     DeployPreferences deployPreferences = new DeployPreferences(project);
     DefaultDeployConfiguration deployConfiguration = toDeployConfiguration(deployPreferences);
     boolean includeOptionalConfigurationFiles =
         deployPreferences.isIncludeOptionalConfigurationFiles();
 
-    DeployConsole messageConsole =
-        MessageConsoleUtilities.createConsole(getConsoleName(deployPreferences.getProjectId()),
-                                              new DeployConsole.Factory());
+    DeployConsole messageConsole = MessageConsoleUtilities.createConsole(
+        getConsoleName(deployPreferences.getProjectId(), project.getName()),
+        new DeployConsole.Factory());
+    RateLimitedConsoleWriter.limitSize(messageConsole);
     IConsoleManager consoleManager = ConsolePlugin.getDefault().getConsoleManager();
     consoleManager.showConsoleView(messageConsole);
     ConsoleColorProvider colorProvider = new ConsoleColorProvider();
@@ -152,13 +244,20 @@ public abstract class DeployCommandHandler extends AbstractHandler {
     MessageConsoleStream errorStream = messageConsole.newMessageStream();
     outputStream.setColor(colorProvider.getColor(IDebugUIConstants.ID_STANDARD_OUTPUT_STREAM));
     errorStream.setColor(colorProvider.getColor(IDebugUIConstants.ID_STANDARD_ERROR_STREAM));
+    RateLimitedConsoleWriter consoleWriter = new RateLimitedConsoleWriter();
 
     StagingDelegate stagingDelegate = getStagingDelegate(project);
 
+    List<DeployTarget> additionalTargets;
+    try {
+      additionalTargets = DeployTarget.parseList(deployPreferences.getAdditionalTargets());
+    } catch (IllegalArgumentException ex) {
+      throw new ExecutionException(Messages.getString("error.additional.targets.invalid"), ex);
+    }
     DeployJob deploy = new DeployJob(project, credential, workDirectory,
-        new MessageConsoleWriterOutputLineListener(outputStream),
-        new MessageConsoleWriterOutputLineListener(errorStream),
-        deployConfiguration, includeOptionalConfigurationFiles, stagingDelegate);
+        consoleWriter.newListener(outputStream), consoleWriter.newListener(errorStream),
+        deployConfiguration, includeOptionalConfigurationFiles, stagingDelegate,
+        additionalTargets, deployPreferences.isForceUpload());
     messageConsole.setJob(deploy);
     deploy.addJobChangeListener(new JobChangeAdapter() {
 
@@ -168,23 +267,23 @@ public abstract class DeployCommandHandler extends AbstractHandler {
           AnalyticsPingManager.getInstance().sendPing(AnalyticsEvents.APP_ENGINE_DEPLOY_SUCCESS,
               AnalyticsEvents.APP_ENGINE_DEPLOY_STANDARD, null);
         }
-        launchCleanupJob();
       }
     });
-    deploy.schedule();
+    return deploy;
   }
 
   protected abstract StagingDelegate getStagingDelegate(IProject project);
 
-  private static String getConsoleName(String projectId) {
+  private static String getConsoleName(String projectId, String projectName) {
     Date now = new Date();
     String nowString = DateFormat.getDateTimeInstance(DateFormat.MEDIUM,
                                                       DateFormat.MEDIUM,
                                                       Locale.getDefault())
                                  .format(now);
-    return MessageFormat.format("{0} - {1} ({2})",
+    return MessageFormat.format("{0} - {1} [{2}] ({3})",
                                 Messages.getString("deploy.console.name"),
                                 projectId,
+                                projectName,
                                 nowString);
   }
 
@@ -196,15 +295,16 @@ public abstract class DeployCommandHandler extends AbstractHandler {
     return DeployPreferencesConverter.toDeployConfiguration(deployPreferences);
   }
 
-  private static IPath createWorkDirectory() throws IOException {
+  private static IPath createWorkDirectory(IProject project) throws IOException {
+    // concurrent deploys must not share a work directory
     String now = Long.toString(System.currentTimeMillis());
-    IPath workDirectory = getTempDir().append(now);
+    IPath workDirectory = getTempDir().append(now + "-" + project.getName());
     Files.createDirectories(workDirectory.toFile().toPath());
     return workDirectory;
   }
 
-  private static void launchCleanupJob() {
-    new CleanupOldDeploysJob(getTempDir()).schedule();
+  private static void launchCleanupJob(int recentDeploys) {
+    new CleanupOldDeploysJob(getTempDir(), recentDeploys + 1).schedule();
   }
 
   private static IPath getTempDir() {
@@ -59,6 +59,34 @@ public class AppEngineDeployOutput {
     return versions.get(0).service;
   }
 
+  /**
+   * @return the number of deployed versions; {@code gcloud app deploy} reports one per service
+   */
+  public int getVersionCount() {
+    return versions.size();
+  }
+
+  /**
+   * @return version of the {@code index}-th deployed service, can be null
+   */
+  public String getVersion(int index) {
+    return versions.get(index).id;
+  }
+
+  /**
+   * @return GCP project ID of the {@code index}-th deployed service, can be null
+   */
+  public String getProject(int index) {
+    return versions.get(index).project;
+  }
+
+  /**
+   * @return the {@code index}-th deployed service, can be null
+   */
+  public String getService(int index) {
+    return versions.get(index).service;
+  }
+
   /**
    * Parse the raw JSON output of the deployment.
    *
@@ -66,9 +94,24 @@ public class AppEngineDeployOutput {
    * @throws JsonParseException if unable to extract the deploy output information needed
    */
   public static AppEngineDeployOutput parse(String jsonOutput) throws JsonParseException {
-    AppEngineDeployOutput deployOutput = new Gson().fromJson(jsonOutput, AppEngineDeployOutput.class);
+    AppEngineDeployOutput deployOutput = parseAll(jsonOutput);
+    if (deployOutput.versions.size() != 1) {
+      throw new JsonParseException("Cannot get app version: unexpected gcloud JSON output format");
+    }
+    return deployOutput;
+  }
+
+  /**
+   * Parse the raw JSON output of a deployment of one or more services.
+   *
+   * @return the output of gcloud app deploy, with at least one version
+   * @throws JsonParseException if unable to extract the deploy output information needed
+   */
+  public static AppEngineDeployOutput parseAll(String jsonOutput) throws JsonParseException {
+    AppEngineDeployOutput deployOutput =
+        new Gson().fromJson(jsonOutput, AppEngineDeployOutput.class);
     if (deployOutput == null
-        || deployOutput.versions == null || deployOutput.versions.size() != 1) {
+        || deployOutput.versions == null || deployOutput.versions.isEmpty()) {
       throw new JsonParseException("Cannot get app version: unexpected gcloud JSON output format");
     }
     return deployOutput;
@@ -48,6 +48,23 @@ public class AppEngineProjectDeployer {
   public void deploy(IPath stagingDirectory, CloudSdk cloudSdk,
                      DefaultDeployConfiguration configuration,
                      IPath optionalConfigurationFilesDirectory, IProgressMonitor monitor) {
+    deploy(computeDeployables(stagingDirectory, optionalConfigurationFilesDirectory),
+        cloudSdk, configuration, monitor);
+  }
+
+  /**
+   * Deploys only the optional configuration files (such as {@code cron.yaml}) found in {@code
+   * configurationFilesDirectory}, leaving the deployed application untouched.
+   */
+  public void deployConfigurationFiles(CloudSdk cloudSdk, DefaultDeployConfiguration configuration,
+                                       IPath configurationFilesDirectory,
+                                       IProgressMonitor monitor) {
+    deploy(computeConfigurationFiles(configurationFilesDirectory), cloudSdk, configuration,
+        monitor);
+  }
+
+  private void deploy(List<File> deployables, CloudSdk cloudSdk,
+      DefaultDeployConfiguration configuration, IProgressMonitor monitor) {
     if (monitor.isCanceled()) {
       throw new OperationCanceledException();
     }
@@ -55,8 +72,6 @@ public class AppEngineProjectDeployer {
     SubMonitor progress = SubMonitor.convert(monitor, 1);
     progress.setTaskName(Messages.getString("task.name.deploy.project")); //$NON-NLS-1$
     try {
-      List<File> deployables =
-          computeDeployables(stagingDirectory, optionalConfigurationFilesDirectory);
       configuration.setDeployables(deployables);
       CloudSdkAppEngineDeployment deployment = new CloudSdkAppEngineDeployment(cloudSdk);
       deployment.deploy(configuration);
@@ -72,13 +87,20 @@ public class AppEngineProjectDeployer {
     deployables.add(stagingDirectory.append("app.yaml").toFile()); //$NON-NLS-1$
 
     if (optionalConfigurationFilesDirectory != null) {
-      for (String configFile : APP_ENGINE_CONFIG_FILES) {
-        File file = optionalConfigurationFilesDirectory.append(configFile).toFile();
-        if (file.exists()) {
-          deployables.add(file);
-        }
-      }
+      deployables.addAll(computeConfigurationFiles(optionalConfigurationFilesDirectory));
     }
     return deployables;
   }
+
+  @VisibleForTesting
+  static List<File> computeConfigurationFiles(IPath configurationFilesDirectory) {
+    List<File> configurationFiles = new ArrayList<>();
+    for (String configFile : APP_ENGINE_CONFIG_FILES) {
+      File file = configurationFilesDirectory.append(configFile).toFile();
+      if (file.exists()) {
+        configurationFiles.add(file);
+      }
+    }
+    return configurationFiles;
+  }
 }
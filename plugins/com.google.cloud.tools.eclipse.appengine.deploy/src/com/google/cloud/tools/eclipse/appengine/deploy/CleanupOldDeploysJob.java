@@ -35,10 +35,20 @@ public class CleanupOldDeploysJob extends Job {
 
   private static final int RECENT_DIRECTORIES_TO_KEEP = 2;
   private final IPath parentTempDir;
+  private final int directoriesToKeep;
 
   public CleanupOldDeploysJob(IPath parentTempDir) {
+    this(parentTempDir, RECENT_DIRECTORIES_TO_KEEP);
+  }
+
+  /**
+   * @param directoriesToKeep number of most recent work directories to keep; must be at least the
+   *     number of deploys that just finished when several projects were deployed together
+   */
+  public CleanupOldDeploysJob(IPath parentTempDir, int directoriesToKeep) {
     super(Messages.getString("cleanup.deploy.job.name")); //$NON-NLS-1$
     this.parentTempDir = parentTempDir;
+    this.directoriesToKeep = Math.max(RECENT_DIRECTORIES_TO_KEEP, directoriesToKeep);
   }
 
   @Override
@@ -65,7 +75,7 @@ public class CleanupOldDeploysJob extends Job {
   }
 
   private void deleteDirectories(List<File> directories) throws IOException {
-    for (int i = RECENT_DIRECTORIES_TO_KEEP; i < directories.size(); ++i) {
+    for (int i = directoriesToKeep; i < directories.size(); ++i) {
       Files.walkFileTree(directories.get(i).toPath(), new DeleteAllVisitor());
     }
   }
@@ -22,7 +22,6 @@ import com.google.cloud.tools.appengine.cloudsdk.CloudSdk;
 import com.google.cloud.tools.appengine.cloudsdk.process.ProcessExitListener;
 import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
 import com.google.cloud.tools.appengine.cloudsdk.process.ProcessStartListener;
-import com.google.cloud.tools.appengine.cloudsdk.process.StringBuilderProcessOutputLineListener;
 import com.google.cloud.tools.eclipse.login.CredentialHelper;
 import com.google.cloud.tools.eclipse.sdk.CollectingLineListener;
 import com.google.cloud.tools.eclipse.ui.util.WorkbenchUtil;
@@ -34,15 +33,34 @@ import com.google.common.base.Predicate;
 import com.google.gson.JsonParseException;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
+import org.osgi.framework.FrameworkUtil;
 
 /**
  * Executes a job that deploys a project to App Engine standard or flexible environment.
@@ -54,31 +72,54 @@ import org.eclipse.core.runtime.SubMonitor;
  *  <li>deploy staged project</li>
  *  <li>launch the deployed app in browser</li>
  * </ol>
+ * If the deploy targets an explicit version and the staged files are identical to the ones of the
+ * last successful deploy of the project to the same target (see {@link DeployManifest}), the
+ * upload is skipped, or reduced to the optional configuration files if only those changed, unless
+ * the upload is forced. Only the staged files tell whether anything changed, so staging always
+ * runs.
+ * <p>
+ * If additional {@link DeployTarget}s are given, the staged project is kept in a {@link
+ * StagedArtifactStore} and deployed to all targets in parallel, so that deploying the same build
+ * to, e.g., a staging and a production project costs one staging pass. Each target is otherwise
+ * deployed like a single one, with its own manifest.
+ * <p>
  * It uses a work directory where it will create, e.g., a JSON user credential file, a WAR, a
  * directory to put exploded WAR contents, a directory to put staging results, etc.
  */
 public class DeployJob extends WorkspaceJob {
 
+  private static final Logger logger = Logger.getLogger(DeployJob.class.getName());
+
   private static final String STAGING_DIRECTORY_NAME = "staging";
   private static final String SAFE_STAGING_WORK_DIRECTORY_NAME = "staging-work";
   private static final String CREDENTIAL_FILENAME = "gcloud-credentials.json";
   private static final String ERROR_MESSAGE_PREFIX = "ERROR:";
   private static final String DEFAULT_SERVICE = "default";
+  private static final String MANIFEST_DIRECTORY_NAME = "deploy-manifests";
+  private static final String ARTIFACT_STORE_DIRECTORY_NAME = "staged-artifacts";
+  private static final int MAX_PARALLEL_TARGET_DEPLOYS = 4;
+  private static final long PROGRESS_REPORT_MILLIS = 100;
+  private static final int TARGET_WORK = 100;
+
+  /** Shared by all deploy jobs, as the store keeps the reservations of its artifacts. */
+  private static StagedArtifactStore artifactStore;
 
   //temporary way of error handling, after #439 is fixed, it'll be cleaner
-  private IStatus cloudSdkProcessStatus = Status.OK_STATUS;
-  private Process process;
+  private volatile IStatus cloudSdkProcessStatus = Status.OK_STATUS;
+  private final List<Process> processes = new ArrayList<>();
 
   private final IProject project;
   private final Credential credential;
   private final IPath workDirectory;
   private final ProcessOutputLineListener stagingStdoutLineListener;
-  private final ProcessOutputLineListener deployStdoutLineListener;
   private final ProcessOutputLineListener stderrLineListener;
   private final DefaultDeployConfiguration deployConfiguration;
   private final boolean includeOptionalConfigurationFiles;
   private final CollectingLineListener errorCollectingLineListener;
   private final StagingDelegate stager;
+  private final List<DeployTarget> additionalTargets;
+  private final boolean forceUpload;
+  private boolean credentialSaved;
 
   /**
    * @param workDirectory temporary work directory the job can safely use (e.g., for creating and
@@ -100,7 +141,26 @@ public class DeployJob extends WorkspaceJob {
       DefaultDeployConfiguration deployConfiguration,
       boolean includeOptionalConfigurationFiles,
       StagingDelegate stager) {
-    super(Messages.getString("deploy.job.name")); //$NON-NLS-1$
+    this(project, credential, workDirectory, stagingStdoutLineListener, stderrLineListener,
+        deployConfiguration, includeOptionalConfigurationFiles, stager,
+        Collections.<DeployTarget>emptyList(), false);
+  }
+
+  /**
+   * @param additionalTargets GCP projects and versions to deploy the same staged project to, in
+   *     addition to the project and version of {@code deployConfiguration}
+   * @param forceUpload if true, uploads the staged project even if the last deploy to the same
+   *     target uploaded identical files (e.g., the version may have been deleted since)
+   */
+  public DeployJob(IProject project, Credential credential, IPath workDirectory,
+      ProcessOutputLineListener stagingStdoutLineListener,
+      ProcessOutputLineListener stderrLineListener,
+      DefaultDeployConfiguration deployConfiguration,
+      boolean includeOptionalConfigurationFiles,
+      StagingDelegate stager,
+      List<DeployTarget> additionalTargets,
+      boolean forceUpload) {
+    super(Messages.getString("deploy.job.name", project.getName())); //$NON-NLS-1$
     this.project = project;
     this.credential = credential;
     this.workDirectory = workDirectory;
@@ -109,15 +169,18 @@ public class DeployJob extends WorkspaceJob {
     this.deployConfiguration = deployConfiguration;
     this.includeOptionalConfigurationFiles = includeOptionalConfigurationFiles;
     this.stager = stager;
-    deployStdoutLineListener = new StringBuilderProcessOutputLineListener();
-    errorCollectingLineListener =
-        new CollectingLineListener(new Predicate<String>() {
-                                     @Override
-                                     public boolean apply(String line) {
-                                       return line != null
-                                           && line.startsWith(ERROR_MESSAGE_PREFIX);
-                                     }
-                                   });
+    this.additionalTargets = new ArrayList<>(additionalTargets);
+    this.forceUpload = forceUpload;
+    errorCollectingLineListener = newErrorCollectingLineListener();
+  }
+
+  private static CollectingLineListener newErrorCollectingLineListener() {
+    return new CollectingLineListener(new Predicate<String>() {
+      @Override
+      public boolean apply(String line) {
+        return line != null && line.startsWith(ERROR_MESSAGE_PREFIX);
+      }
+    });
   }
 
   @Override
@@ -128,23 +191,24 @@ public class DeployJob extends WorkspaceJob {
       IPath stagingDirectory = workDirectory.append(STAGING_DIRECTORY_NAME);
       Path credentialFile = workDirectory.append(CREDENTIAL_FILENAME).toFile().toPath();
 
-      IStatus saveStatus = saveCredential(credentialFile);
-      if (saveStatus != Status.OK_STATUS) {
-        return saveStatus;
-      }
-
-      IStatus stagingStatus = stageProject(credentialFile, stagingDirectory, progress.newChild(30));
+      IStatus stagingStatus = stageProject(stagingDirectory, progress.newChild(30));
       if (stagingStatus != Status.OK_STATUS) {
         return stagingStatus;
       }
 
-      IStatus deployStatus = deployProject(credentialFile, stagingDirectory, progress.newChild(70));
-      if (deployStatus != Status.OK_STATUS) {
-        return deployStatus;
+      IPath optionalConfigurationFilesDirectory = null;
+      if (includeOptionalConfigurationFiles) {
+        optionalConfigurationFilesDirectory = stager.getOptionalConfigurationFilesDirectory();
       }
-
-      return openAppInBrowser();
+      List<DeployTarget> targets = getTargets();
+      if (targets.size() == 1) {
+        return deploy(stagingDirectory, optionalConfigurationFilesDirectory, credentialFile,
+            targets, progress.newChild(70));
+      }
+      return deployToTargets(stagingDirectory, optionalConfigurationFilesDirectory,
+          credentialFile, targets, progress.newChild(70));
     } finally {
+      errorCollectingLineListener.close();
       // todo should this be progress.done() instead?
       monitor.done();
     }
@@ -152,27 +216,37 @@ public class DeployJob extends WorkspaceJob {
 
   @Override
   protected void canceling() {
-    cloudSdkProcessStatus = Status.CANCEL_STATUS;
-    if (process != null) {
-      process.destroy();
+    synchronized (processes) {
+      cloudSdkProcessStatus = Status.CANCEL_STATUS;
+      for (Process process : processes) {
+        process.destroy();
+      }
     }
     super.canceling();
   }
 
-  private IStatus saveCredential(Path destination) {
+  /**
+   * Exports the credential for {@code gcloud}; later calls, e.g., from other targets, do nothing.
+   */
+  private synchronized IStatus saveCredential(Path destination) {
+    if (credentialSaved) {
+      return Status.OK_STATUS;
+    }
     try {
       CredentialHelper.toJsonFile(credential, destination);
+      credentialSaved = true;
       return Status.OK_STATUS;
     } catch (IOException ex) {
       return StatusUtil.error(this, Messages.getString("save.credential.failed"), ex);
     }
   }
 
-  private IStatus stageProject(Path credentialFile,
-      IPath stagingDirectory, IProgressMonitor monitor) {
+  private IStatus stageProject(IPath stagingDirectory, IProgressMonitor monitor) {
     SubMonitor progress = SubMonitor.convert(monitor, 100);
-    RecordProcessError stagingExitListener = new RecordProcessError();
-    CloudSdk cloudSdk = getCloudSdk(credentialFile, stagingStdoutLineListener, stagingExitListener);
+    RecordProcessError stagingExitListener = new RecordProcessError(errorCollectingLineListener);
+    // staging needs no credential; it is exported only when there is something to upload
+    CloudSdk cloudSdk = getCloudSdk(null, stagingStdoutLineListener, stderrLineListener,
+        errorCollectingLineListener, stagingExitListener, null);
 
     try {
       getJobManager().beginRule(project, progress.newChild(1));
@@ -190,28 +264,220 @@ public class DeployJob extends WorkspaceJob {
     }
   }
 
-  private IStatus deployProject(Path credentialFile, IPath stagingDirectory,
+  /**
+   * @return the target of {@code deployConfiguration} followed by the additional targets, without
+   *     duplicates
+   */
+  private List<DeployTarget> getTargets() {
+    Set<DeployTarget> targets = new LinkedHashSet<>();
+    targets.add(getPrimaryTarget());
+    targets.addAll(additionalTargets);
+    return new ArrayList<>(targets);
+  }
+
+  private DeployTarget getPrimaryTarget() {
+    return new DeployTarget(deployConfiguration.getProject(), deployConfiguration.getVersion());
+  }
+
+  /**
+   * Keeps the staged project in the {@link StagedArtifactStore} and deploys it from there to all
+   * {@code targets}.
+   */
+  private IStatus deployToTargets(IPath stagingDirectory,
+      IPath optionalConfigurationFilesDirectory, Path credentialFile, List<DeployTarget> targets,
       IProgressMonitor monitor) {
-    RecordProcessError deployExitListener = new RecordProcessError();
-    CloudSdk cloudSdk = getCloudSdk(credentialFile, deployStdoutLineListener, deployExitListener);
+    StagedArtifactStore artifactStore = getArtifactStore();
+    Path artifact;
+    try {
+      artifact = artifactStore.store(stagingDirectory.toFile().toPath());
+    } catch (IOException ex) {
+      return StatusUtil.error(this, Messages.getString("deploy.job.artifact.store.failed"), ex);
+    }
+    try {
+      IPath artifactDirectory = org.eclipse.core.runtime.Path.fromOSString(artifact.toString());
+      // for standard, the generated configuration files moved along with the staging directory
+      if (optionalConfigurationFilesDirectory != null
+          && stagingDirectory.isPrefixOf(optionalConfigurationFilesDirectory)) {
+        optionalConfigurationFilesDirectory = artifactDirectory.append(
+            optionalConfigurationFilesDirectory.makeRelativeTo(stagingDirectory));
+      }
+      stagingStdoutLineListener.onOutputLine(Messages.getString(
+          "deploy.job.deploying.to.targets", targets.size(), artifactDirectory.lastSegment()));
+      return deploy(artifactDirectory, optionalConfigurationFilesDirectory, credentialFile,
+          targets, monitor);
+    } finally {
+      // other deploy jobs may be uploading other artifacts of the store; prune keeps those
+      artifactStore.release(artifact);
+      try {
+        artifactStore.prune();
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Could not prune staged artifacts", ex);
+      }
+    }
+  }
+
+  /**
+   * Deploys the staged project in {@code stagedDirectory} to all {@code targets} in parallel.
+   * The deploys run on other threads; this thread passes their progress on to {@code monitor},
+   * which must not be used by other threads.
+   */
+  private IStatus deploy(IPath stagedDirectory, IPath optionalConfigurationFilesDirectory,
+      Path credentialFile, List<DeployTarget> targets, IProgressMonitor monitor) {
+    SubMonitor progress = SubMonitor.convert(monitor, targets.size() * TARGET_WORK);
+    progress.setTaskName(Messages.getString("task.name.deploy.project")); //$NON-NLS-1$
+    if (progress.isCanceled()) {
+      throw new OperationCanceledException();
+    }
+
+    DeployManifest contentManifest =
+        computeManifest(stagedDirectory, optionalConfigurationFilesDirectory, targets);
+    boolean severalTargets = targets.size() > 1;
+    List<TargetDeploy> deploys = new ArrayList<>();
+    for (DeployTarget target : targets) {
+      String prefix = severalTargets ? "[" + target + "] " : ""; //$NON-NLS-1$ //$NON-NLS-2$
+      deploys.add(new TargetDeploy(target, stagedDirectory, optionalConfigurationFilesDirectory,
+          credentialFile, contentManifest, severalTargets,
+          new TargetProgressMonitor(progress, TARGET_WORK, prefix)));
+    }
+
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(targets.size(), MAX_PARALLEL_TARGET_DEPLOYS));
+    CompletionService<IStatus> completionService = new ExecutorCompletionService<>(executor);
+    List<IStatus> statuses = new ArrayList<>();
+    try {
+      for (TargetDeploy deploy : deploys) {
+        completionService.submit(deploy);
+      }
+      while (statuses.size() < deploys.size()) {
+        Future<IStatus> result =
+            completionService.poll(PROGRESS_REPORT_MILLIS, TimeUnit.MILLISECONDS);
+        for (TargetDeploy deploy : deploys) {
+          deploy.progressReporter.report();
+        }
+        if (result != null) {
+          statuses.add(getResult(result));
+        }
+        // canceling the job destroys the gcloud processes
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return Status.CANCEL_STATUS;
+    } finally {
+      executor.shutdownNow();
+    }
+
+    if (cloudSdkProcessStatus == Status.CANCEL_STATUS) {
+      return Status.CANCEL_STATUS;
+    } else if (!severalTargets) {
+      return statuses.get(0);
+    }
+    MultiStatus result = StatusUtil.multi(this, Messages.getString("deploy.job.targets.result"));
+    for (IStatus status : statuses) {
+      result.add(status);
+    }
+    return result;
+  }
+
+  private IStatus getResult(Future<IStatus> result) throws InterruptedException {
+    try {
+      return result.get();
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof OperationCanceledException) {
+        return Status.CANCEL_STATUS;
+      }
+      return StatusUtil.error(this, String.valueOf(ex.getCause().getMessage()), ex.getCause());
+    }
+  }
+
+  /**
+   * Hashes the staged project once for all targets.
+   *
+   * @return the manifest of the staged project for the first target with an explicit version, or
+   *     {@code null} if there is none or the manifest is not worth recording
+   */
+  private DeployManifest computeManifest(IPath stagedDirectory,
+      IPath optionalConfigurationFilesDirectory, List<DeployTarget> targets) {
+    for (DeployTarget target : targets) {
+      if (target.getVersion() != null) {
+        try {
+          return DeployManifest.compute(getConfiguration(target), stagedDirectory.toFile(),
+              optionalConfigurationFilesDirectory == null
+                  ? null : optionalConfigurationFilesDirectory.toFile());
+        } catch (IOException ex) {
+          logger.log(Level.WARNING, "Could not compute deploy manifest", ex);
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  private DefaultDeployConfiguration getConfiguration(DeployTarget target) {
+    if (target.equals(getPrimaryTarget())) {
+      return deployConfiguration;
+    }
+    return target.applyTo(deployConfiguration);
+  }
+
+  private static void saveManifest(DeployManifest manifest, Path file) {
+    try {
+      manifest.save(file);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Could not save deploy manifest", ex);
+    }
+  }
+
+  /** The state of the deployed app is unknown after a failure; the next deploy must upload. */
+  private static void discardManifest(Path file) {
+    try {
+      DeployManifest.discard(file);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Could not delete deploy manifest", ex);
+    }
+  }
 
-    IPath optionalConfigurationFilesDirectory = null;
-    if (includeOptionalConfigurationFiles) {
-      optionalConfigurationFilesDirectory = stager.getOptionalConfigurationFilesDirectory();
+  /**
+   * The manifest of the target of {@code deployConfiguration} is named after the project alone,
+   * those of additional targets also after the target.
+   */
+  private Path getManifestFile(DeployTarget target) {
+    String name = project.getName();
+    if (!target.equals(getPrimaryTarget())) {
+      name += '@' + target.toString().replaceAll("[^\\w.-]", "_"); //$NON-NLS-1$ //$NON-NLS-2$
     }
+    return Platform.getStateLocation(FrameworkUtil.getBundle(DeployJob.class))
+        .append(MANIFEST_DIRECTORY_NAME).append(name + ".json") //$NON-NLS-1$
+        .toFile().toPath();
+  }
 
-    new AppEngineProjectDeployer().deploy(stagingDirectory, cloudSdk, deployConfiguration,
-        optionalConfigurationFilesDirectory, monitor);
-    return deployExitListener.getExitStatus();
+  private static synchronized StagedArtifactStore getArtifactStore() {
+    if (artifactStore == null) {
+      artifactStore = new StagedArtifactStore(
+          Platform.getStateLocation(FrameworkUtil.getBundle(DeployJob.class))
+              .append(ARTIFACT_STORE_DIRECTORY_NAME).toFile().toPath());
+    }
+    return artifactStore;
   }
 
+  /**
+   * @param errorCollector collects the error lines reported by {@code processExitListener}
+   * @param progressListener if not {@code null}, additionally receives stderr lines
+   */
   private CloudSdk getCloudSdk(Path credentialFile,
-      ProcessOutputLineListener stdoutLineListener, ProcessExitListener processExitListener) {
-    CloudSdk cloudSdk = new CloudSdk.Builder()
+      ProcessOutputLineListener stdoutLineListener, ProcessOutputLineListener stderrLineListener,
+      CollectingLineListener errorCollector, ProcessExitListener processExitListener,
+      ProcessOutputLineListener progressListener) {
+    CloudSdk.Builder cloudSdkBuilder = new CloudSdk.Builder()
         .addStdOutLineListener(stdoutLineListener)
         .addStdErrLineListener(stderrLineListener)
-        .addStdErrLineListener(errorCollectingLineListener)
-        .appCommandCredentialFile(credentialFile.toFile())
+        .addStdErrLineListener(errorCollector);
+    if (progressListener != null) {
+      cloudSdkBuilder.addStdErrLineListener(progressListener);
+    }
+    if (credentialFile != null) {
+      cloudSdkBuilder.appCommandCredentialFile(credentialFile.toFile());
+    }
+    CloudSdk cloudSdk = cloudSdkBuilder
         .startListener(new StoreProcessObjectListener())
         .exitListener(processExitListener)
         .appCommandMetricsEnvironment(CloudToolsInfo.METRICS_NAME)
@@ -221,31 +487,31 @@ public class DeployJob extends WorkspaceJob {
     return cloudSdk;
   }
 
-  private IStatus openAppInBrowser() {
-    try {
-      String rawDeployOutput = deployStdoutLineListener.toString();
-      AppEngineDeployOutput structuredOutput = AppEngineDeployOutput.parse(rawDeployOutput);
-
-      boolean promoted = deployConfiguration.getPromote();
-      String appLocation = getDeployedAppUrl(promoted, structuredOutput);
-      String project = deployConfiguration.getProject();
-      String browserTitle = Messages.getString("browser.launch.title", project);
-      WorkbenchUtil.openInBrowserInUiThread(appLocation, null, browserTitle, browserTitle);
-      return Status.OK_STATUS;
-    } catch (IndexOutOfBoundsException | JsonParseException ex)  {
-      return StatusUtil.error(this, Messages.getString("browser.launch.failed"), ex);
+  private IStatus openAppInBrowser(String projectId, String version, List<String> services) {
+    for (String service : services) {
+      openAppInBrowser(projectId, version, service);
     }
+    return Status.OK_STATUS;
+  }
+
+  private IStatus openAppInBrowser(String projectId, String version, String service) {
+    boolean promoted = deployConfiguration.getPromote();
+    String appLocation = getDeployedAppUrl(promoted, projectId, version, service);
+    String project = deployConfiguration.getProject();
+    String browserTitle = Messages.getString("browser.launch.title", project);
+    WorkbenchUtil.openInBrowserInUiThread(appLocation, null, browserTitle, browserTitle);
+    return Status.OK_STATUS;
   }
 
   /**
-   * @return the error message obtained from {@code errorCollectingLineListener()} or
-   * {@code defaultMessage}.
+   * @return the error message obtained from {@code errorCollector} or {@code defaultMessage}.
    */
-  private String getErrorMessageOrDefault(String defaultMessage) {
+  private static String getErrorMessageOrDefault(CollectingLineListener errorCollector,
+      String defaultMessage) {
     // TODO: Check the assumption that if there are error messages during staging collected via
     // the errorCollectingLineListener, the staging process will have a non-zero exitcode,
     // making it ok to use the same errorCollectingLineListener for the deploy process
-    List<String> messages = errorCollectingLineListener.getCollectedMessages();
+    List<String> messages = errorCollector.getCollectedMessages();
     if (!messages.isEmpty()) {
       return Joiner.on('\n').join(messages);
     } else {
@@ -255,9 +521,12 @@ public class DeployJob extends WorkspaceJob {
 
   @VisibleForTesting
   static String getDeployedAppUrl(boolean promoted, AppEngineDeployOutput deployOutput) {
-    String version = deployOutput.getVersion();
-    String service = deployOutput.getService();
-    String projectId = deployOutput.getProject();
+    return getDeployedAppUrl(promoted, deployOutput.getProject(), deployOutput.getVersion(),
+        deployOutput.getService());
+  }
+
+  private static String getDeployedAppUrl(boolean promoted, String projectId, String version,
+      String service) {
     boolean usingDefaultService = DEFAULT_SERVICE.equals(service);
 
     String domain = ".appspot.com";
@@ -278,25 +547,236 @@ public class DeployJob extends WorkspaceJob {
     }
   }
 
+  /**
+   * Deploys the staged project to one target, like a deploy to a single target would: the upload
+   * is skipped or reduced to the configuration files when the manifest of the last deploy to the
+   * same target allows it, the manifest is recorded and the deployed app is opened in the browser.
+   * With several targets, its output lines are prefixed with the target.
+   */
+  private final class TargetDeploy implements Callable<IStatus> {
+    private final DeployTarget target;
+    private final DefaultDeployConfiguration configuration;
+    private final IPath stagedDirectory;
+    private final IPath optionalConfigurationFilesDirectory;
+    private final Path credentialFile;
+    private final boolean severalTargets;
+    private final String prefix;
+    private final DeployManifest contentManifest;
+    private final DeployProgressReporter progressReporter;
+
+    /**
+     * @param contentManifest the manifest of the staged project for any target, or {@code null}
+     */
+    private TargetDeploy(DeployTarget target, IPath stagedDirectory,
+        IPath optionalConfigurationFilesDirectory, Path credentialFile,
+        DeployManifest contentManifest, boolean severalTargets, TargetProgressMonitor progress) {
+      this.target = target;
+      configuration = getConfiguration(target);
+      this.stagedDirectory = stagedDirectory;
+      this.optionalConfigurationFilesDirectory = optionalConfigurationFilesDirectory;
+      this.credentialFile = credentialFile;
+      this.contentManifest = contentManifest;
+      this.severalTargets = severalTargets;
+      prefix = progress.prefix;
+      progressReporter = new DeployProgressReporter(progress);
+    }
+
+    @Override
+    public IStatus call() {
+      if (cloudSdkProcessStatus == Status.CANCEL_STATUS) {
+        return Status.CANCEL_STATUS;
+      }
+      IStatus status = deploy();
+      if (!severalTargets || status.getSeverity() == IStatus.CANCEL) {
+        return status;
+      } else if (!status.isOK()) {
+        return StatusUtil.error(DeployJob.this, Messages.getString(
+            "deploy.job.target.failed", target, status.getMessage())); //$NON-NLS-1$
+      }
+      stagingStdoutLineListener.onOutputLine(
+          Messages.getString("deploy.job.target.deployed", target)); //$NON-NLS-1$
+      return Status.OK_STATUS;
+    }
+
+    private IStatus deploy() {
+      Path manifestFile = getManifestFile(target);
+      DeployManifest manifest =
+          contentManifest == null ? null : contentManifest.withTarget(configuration);
+      // the manifest of this deploy is still recorded when forced
+      DeployManifest previousManifest = forceUpload ? null : DeployManifest.load(manifestFile);
+      boolean configurationFilesOnly = false;
+      if (manifest != null && manifest.hasSameApplication(previousManifest)) {
+        if (!includeOptionalConfigurationFiles
+            || manifest.hasSameConfigurationFiles(previousManifest)) {
+          prefixed(stagingStdoutLineListener).onOutputLine(
+              Messages.getString("deploy.job.skipped.unchanged", manifest.getVersion()));
+          return openAppInBrowser(previousManifest.getDeployedProject(), manifest.getVersion(),
+              previousManifest.getDeployedServices());
+        }
+        prefixed(stagingStdoutLineListener).onOutputLine(
+            Messages.getString("deploy.job.configuration.files.only", manifest.getVersion()));
+        configurationFilesOnly = true;
+      }
+
+      IStatus saveStatus = saveCredential(credentialFile);
+      if (saveStatus != Status.OK_STATUS) {
+        return saveStatus;
+      }
+
+      // targets deploy in parallel; errors of one must not show up in the status of another
+      CollectingLineListener errorCollector = newErrorCollectingLineListener();
+      DeployOutputParser deployOutputParser = new DeployOutputParser();
+      IStatus deployStatus;
+      try {
+        RecordProcessError exitListener = new RecordProcessError(errorCollector);
+        CloudSdk cloudSdk = getCloudSdk(credentialFile, deployOutputParser,
+            prefixed(stderrLineListener), errorCollector, exitListener, progressReporter);
+        // progress goes through the reporter; the monitor belongs to the job thread
+        if (configurationFilesOnly) {
+          new AppEngineProjectDeployer().deployConfigurationFiles(cloudSdk, configuration,
+              optionalConfigurationFilesDirectory, new NullProgressMonitor());
+        } else {
+          new AppEngineProjectDeployer().deploy(stagedDirectory, cloudSdk, configuration,
+              optionalConfigurationFilesDirectory, new NullProgressMonitor());
+        }
+        deployStatus = exitListener.getExitStatus();
+      } finally {
+        errorCollector.close();
+      }
+      if (deployStatus != Status.OK_STATUS) {
+        discardManifest(manifestFile);
+        return deployStatus;
+      }
+
+      if (configurationFilesOnly) {
+        manifest.setDeployed(previousManifest.getDeployedProject(),
+            previousManifest.getDeployedServices());
+        saveManifest(manifest, manifestFile);
+        return openAppInBrowser(manifest.getDeployedProject(), manifest.getVersion(),
+            manifest.getDeployedServices());
+      }
+
+      try {
+        AppEngineDeployOutput structuredOutput = deployOutputParser.getOutput();
+        // gcloud reports one version per deployed service
+        List<String> services = new ArrayList<>();
+        for (int i = 0; i < structuredOutput.getVersionCount(); i++) {
+          services.add(structuredOutput.getService(i));
+        }
+        if (manifest != null) {
+          manifest.setDeployed(structuredOutput.getProject(), services);
+          saveManifest(manifest, manifestFile);
+        }
+        for (int i = 0; i < structuredOutput.getVersionCount(); i++) {
+          openAppInBrowser(structuredOutput.getProject(i), structuredOutput.getVersion(i),
+              structuredOutput.getService(i));
+        }
+        return Status.OK_STATUS;
+      } catch (IndexOutOfBoundsException | JsonParseException ex)  {
+        discardManifest(manifestFile);
+        return StatusUtil.error(DeployJob.this, Messages.getString("browser.launch.failed"), ex);
+      }
+    }
+
+    private ProcessOutputLineListener prefixed(ProcessOutputLineListener listener) {
+      return prefix.isEmpty() ? listener : new PrefixingLineListener(prefix, listener);
+    }
+  }
+
+  /**
+   * The share of one target in the progress of the deploy. Only {@link
+   * DeployProgressReporter#report()} uses it, and only from the job thread, so all targets can
+   * report to the monitor of the job.
+   */
+  private static final class TargetProgressMonitor extends NullProgressMonitor {
+    private final IProgressMonitor parent;
+    private final int share;
+    private final String prefix;
+    private double totalWork = 1;
+    private double worked;
+    private int reported;
+
+    private TargetProgressMonitor(IProgressMonitor parent, int share, String prefix) {
+      this.parent = parent;
+      this.share = share;
+      this.prefix = prefix;
+    }
+
+    @Override
+    public void beginTask(String name, int totalWork) {
+      this.totalWork = Math.max(1, totalWork);
+    }
+
+    @Override
+    public void worked(int work) {
+      internalWorked(work);
+    }
+
+    @Override
+    public void internalWorked(double work) {
+      worked += work;
+      int done = (int) Math.min(share, worked * share / totalWork);
+      if (done > reported) {
+        parent.worked(done - reported);
+        reported = done;
+      }
+    }
+
+    @Override
+    public void subTask(String name) {
+      parent.subTask(prefix + name);
+    }
+
+    @Override
+    public boolean isCanceled() {
+      return parent.isCanceled();
+    }
+  }
+
+  private static final class PrefixingLineListener implements ProcessOutputLineListener {
+    private final String prefix;
+    private final ProcessOutputLineListener delegate;
+
+    private PrefixingLineListener(String prefix, ProcessOutputLineListener delegate) {
+      this.prefix = prefix;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void onOutputLine(String line) {
+      delegate.onOutputLine(prefix + line);
+    }
+  }
+
   private final class StoreProcessObjectListener implements ProcessStartListener {
     @Override
-    public void onStart(Process proces) {
-      process = proces;
+    public void onStart(Process process) {
+      synchronized (processes) {
+        if (cloudSdkProcessStatus == Status.CANCEL_STATUS) {
+          process.destroy();
+        }
+        processes.add(process);
+      }
     }
   }
 
   private class RecordProcessError implements ProcessExitListener {
+    private final CollectingLineListener errorCollector;
     // Defaults to OK in case CloudSdk was not used at all (e.g., in flex staging)
     private IStatus status = Status.OK_STATUS;
 
+    private RecordProcessError(CollectingLineListener errorCollector) {
+      this.errorCollector = errorCollector;
+    }
+
     @Override
     public void onExit(int exitCode) {
       if (cloudSdkProcessStatus == Status.CANCEL_STATUS) {
         status = Status.CANCEL_STATUS;
       } else if (exitCode != 0) {
         // temporary way of error handling, after #439 is fixed, it'll be cleaner
-        String errorMessage =
-            getErrorMessageOrDefault(Messages.getString("cloudsdk.process.failed", exitCode));
+        String errorMessage = getErrorMessageOrDefault(errorCollector,
+            Messages.getString("cloudsdk.process.failed", exitCode));
         status = StatusUtil.error(this, errorMessage);
       } else {
         status = Status.OK_STATUS;
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.runtime.jobs.JobGroup;
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+
+/**
+ * Deploys several projects (typically the services of one application) side by side. Each
+ * project gets its own {@link DeployJob}, so staging and uploading of different projects overlap
+ * and the total deploy time is close to that of the slowest project. At most {@link
+ * #getMaxParallelism()} deploys run at the same time; the remaining ones wait in the queue.
+ * <p>
+ * Unlike a plain {@link JobGroup}, a failing deploy does not cancel the other ones.
+ */
+public class DeployJobScheduler {
+
+  /** Workspace preference for the maximum number of concurrent deploys. */
+  @VisibleForTesting
+  static final String PREF_MAX_PARALLELISM = "deploy.parallelism"; //$NON-NLS-1$
+  @VisibleForTesting
+  static final int DEFAULT_MAX_PARALLELISM = 4;
+
+  private final JobGroup group;
+  private final int maxParallelism;
+  private final List<Job> jobs = new ArrayList<>();
+  private boolean scheduled;
+
+  /**
+   * Creates a scheduler whose parallelism is read from the workspace preferences.
+   */
+  public DeployJobScheduler() {
+    this(getConfiguredMaxParallelism(
+        InstanceScope.INSTANCE.getNode(DeployPreferences.PREFERENCE_STORE_QUALIFIER)));
+  }
+
+  public DeployJobScheduler(int maxParallelism) {
+    Preconditions.checkArgument(maxParallelism > 0, "maxParallelism must be positive");
+    this.maxParallelism = maxParallelism;
+    group = new JobGroup(Messages.getString("deploy.scheduler.name"), //$NON-NLS-1$
+        maxParallelism, 0 /* seedJobsCount */) {
+      @Override
+      protected boolean shouldCancel(IStatus lastCompletedJobResult, int numberOfFailedJobs,
+          int numberOfCanceledJobs) {
+        return false; // services are independent; let the others finish
+      }
+    };
+  }
+
+  @VisibleForTesting
+  static int getConfiguredMaxParallelism(IEclipsePreferences preferences) {
+    return Math.max(1, preferences.getInt(PREF_MAX_PARALLELISM, DEFAULT_MAX_PARALLELISM));
+  }
+
+  public int getMaxParallelism() {
+    return maxParallelism;
+  }
+
+  /**
+   * Queues a deploy. Must be called before {@link #schedule()}.
+   */
+  public synchronized void add(Job deployJob) {
+    Preconditions.checkState(!scheduled, "deploys already scheduled");
+    deployJob.setJobGroup(group);
+    jobs.add(deployJob);
+  }
+
+  /**
+   * @return the queued deploys, in the order they were added
+   */
+  public synchronized List<Job> getJobs() {
+    return Collections.unmodifiableList(new ArrayList<>(jobs));
+  }
+
+  /**
+   * Starts all queued deploys; the group limits how many of them actually run at once.
+   */
+  public synchronized void schedule() {
+    Preconditions.checkState(!scheduled, "deploys already scheduled");
+    scheduled = true;
+    for (Job job : jobs) {
+      job.schedule();
+    }
+  }
+
+  /**
+   * Waits until all deploys have finished.
+   *
+   * @param timeoutMillis maximum time to wait; 0 to wait indefinitely
+   * @return {@code true} if all deploys finished in time
+   */
+  public boolean join(long timeoutMillis, IProgressMonitor monitor) throws InterruptedException {
+    return group.join(timeoutMillis, monitor);
+  }
+
+  /**
+   * @return the combined result of the deploys: a multi-status holding the results of those that
+   *     did not succeed, or {@code null} if not all have finished yet
+   */
+  public IStatus getResult() {
+    return group.getResult();
+  }
+
+  /**
+   * Cancels the deploys that are queued or running.
+   */
+  public void cancel() {
+    group.cancel();
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import com.google.cloud.tools.appengine.api.deploy.DefaultDeployConfiguration;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Records what a successful deploy uploaded: the target (GCP project, version and other
+ * settings that affect the outcome), the SHA-1 hashes of the staged application files and of
+ * the optional configuration files (such as {@code cron.yaml}), and the services and project that
+ * {@code gcloud app deploy} reported back.
+ * <p>
+ * Comparing the manifest of a freshly staged project against the manifest of the last successful
+ * deploy tells {@link DeployJob} whether uploading is necessary at all. Don't change the field
+ * names because Gson uses them for serialization.
+ */
+public class DeployManifest {
+
+  // target
+  private String project;
+  private String version;
+  private boolean promote;
+  private boolean stopPreviousVersion;
+  private String bucket;
+
+  // staged content: relative path -> SHA-1
+  private SortedMap<String, String> applicationFiles = new TreeMap<>();
+  private SortedMap<String, String> configurationFiles = new TreeMap<>();
+
+  // as reported by gcloud app deploy
+  private String deployedProject;
+  private List<String> deployedServices;
+
+  private DeployManifest() {
+  }
+
+  /**
+   * Computes the manifest of a staged project. Returns {@code null} if the deploy target has no
+   * explicit version, since then every deploy creates a new version and is never a no-op.
+   *
+   * @param optionalConfigurationFilesDirectory if not {@code null}, the directory where the
+   *     configuration files to deploy together are; files in this directory are recorded
+   *     separately even if it is inside {@code stagingDirectory}
+   */
+  public static DeployManifest compute(DefaultDeployConfiguration configuration,
+      File stagingDirectory, File optionalConfigurationFilesDirectory) throws IOException {
+    Preconditions.checkNotNull(configuration, "configuration is null"); //$NON-NLS-1$
+    Preconditions.checkNotNull(stagingDirectory, "stagingDirectory is null"); //$NON-NLS-1$
+    if (Strings.isNullOrEmpty(configuration.getVersion())) {
+      return null;
+    }
+
+    DeployManifest manifest = new DeployManifest();
+    manifest.setTarget(configuration);
+
+    Set<Path> configurationFilePaths = new HashSet<>();
+    if (optionalConfigurationFilesDirectory != null) {
+      for (String name : AppEngineProjectDeployer.APP_ENGINE_CONFIG_FILES) {
+        File file = new File(optionalConfigurationFilesDirectory, name);
+        if (file.isFile()) {
+          manifest.configurationFiles.put(name, hash(file.toPath()));
+          configurationFilePaths.add(file.toPath().toAbsolutePath().normalize());
+        }
+      }
+    }
+    hashDirectory(stagingDirectory.toPath(), configurationFilePaths, manifest.applicationFiles);
+    return manifest;
+  }
+
+  /**
+   * Returns the manifest of the same staged project deployed to the target of {@code
+   * configuration}, or {@code null} if the target has no explicit version. Nothing is recorded as
+   * deployed yet.
+   */
+  public DeployManifest withTarget(DefaultDeployConfiguration configuration) {
+    Preconditions.checkNotNull(configuration, "configuration is null"); //$NON-NLS-1$
+    if (Strings.isNullOrEmpty(configuration.getVersion())) {
+      return null;
+    }
+    DeployManifest manifest = new DeployManifest();
+    manifest.setTarget(configuration);
+    manifest.applicationFiles = new TreeMap<>(applicationFiles);
+    manifest.configurationFiles = new TreeMap<>(configurationFiles);
+    return manifest;
+  }
+
+  private void setTarget(DefaultDeployConfiguration configuration) {
+    project = configuration.getProject();
+    version = configuration.getVersion();
+    promote = Boolean.TRUE.equals(configuration.getPromote());
+    stopPreviousVersion = Boolean.TRUE.equals(configuration.getStopPreviousVersion());
+    bucket = configuration.getBucket();
+  }
+
+  /**
+   * Records the SHA-1 hash of every regular file under {@code root} by its relative path, using
+   * {@code /} as the separator.
+   */
+  static void hashDirectory(final Path root, final Set<Path> excluded,
+      final SortedMap<String, String> hashes) throws IOException {
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+          throws IOException {
+        if (attributes.isRegularFile() && !excluded.contains(file.toAbsolutePath().normalize())) {
+          String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+          hashes.put(relativePath, hash(file));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static String hash(Path file) throws IOException {
+    return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.sha1()).toString();
+  }
+
+  /**
+   * Returns {@code true} if {@code previous} was deployed to the same target with identical
+   * application files, i.e., uploading the application again would change nothing.
+   */
+  public boolean hasSameApplication(DeployManifest previous) {
+    return previous != null
+        && Objects.equal(project, previous.project)
+        && Objects.equal(version, previous.version)
+        && promote == previous.promote
+        && stopPreviousVersion == previous.stopPreviousVersion
+        && Objects.equal(bucket, previous.bucket)
+        && applicationFiles.equals(previous.applicationFiles)
+        && previous.deployedProject != null
+        && previous.deployedServices != null
+        && !previous.deployedServices.isEmpty();
+  }
+
+  /**
+   * Returns {@code true} if {@code previous} deployed exactly the same configuration files.
+   */
+  public boolean hasSameConfigurationFiles(DeployManifest previous) {
+    return previous != null && configurationFiles.equals(previous.configurationFiles);
+  }
+
+  public String getVersion() {
+    return version;
+  }
+
+  public String getDeployedProject() {
+    return deployedProject;
+  }
+
+  /**
+   * @return the deployed services, or an empty list if none were recorded
+   */
+  public List<String> getDeployedServices() {
+    if (deployedServices == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(deployedServices);
+  }
+
+  /**
+   * Records the GCP project and the services {@code gcloud app deploy} reported.
+   */
+  public void setDeployed(String deployedProject, List<String> deployedServices) {
+    this.deployedProject = deployedProject;
+    this.deployedServices = new ArrayList<>(deployedServices);
+  }
+
+  /**
+   * @return the manifest stored in {@code file}, or {@code null} if there is none or it cannot be
+   *     read
+   */
+  public static DeployManifest load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return new Gson().fromJson(reader, DeployManifest.class);
+    } catch (IOException | JsonParseException ex) {
+      return null;
+    }
+  }
+
+  public void save(Path file) throws IOException {
+    Files.createDirectories(file.toAbsolutePath().getParent());
+    Path temporary = Files.createTempFile(file.toAbsolutePath().getParent(), "manifest", ".tmp");
+    try {
+      try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        new Gson().toJson(this, writer);
+      }
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Deletes the manifest in {@code file}, so that the next deploy uploads everything.
+   */
+  public static void discard(Path file) throws IOException {
+    Files.deleteIfExists(file);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.gson.JsonParseException;
+
+/**
+ * Parses the JSON that {@code gcloud app deploy --format=json} writes to stdout as the lines
+ * arrive. Only the JSON document currently being read is buffered (up to {@value
+ * #MAX_DOCUMENT_LENGTH} characters); text outside of JSON documents is discarded right away, so
+ * memory use does not grow with the amount of output.
+ */
+public class DeployOutputParser implements ProcessOutputLineListener {
+
+  @VisibleForTesting
+  static final int MAX_DOCUMENT_LENGTH = 1024 * 1024;
+
+  private final StringBuilder document = new StringBuilder();
+  private int depth;
+  private boolean inString;
+  private boolean escaped;
+  private boolean overflowed;
+
+  private AppEngineDeployOutput output;
+  private JsonParseException lastError;
+
+  @Override
+  public synchronized void onOutputLine(String line) {
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (depth == 0 && c != '{') {
+        continue; // not inside a JSON object
+      }
+      append(c);
+      if (inString) {
+        if (escaped) {
+          escaped = false;
+        } else if (c == '\\') {
+          escaped = true;
+        } else if (c == '"') {
+          inString = false;
+        }
+      } else if (c == '"') {
+        inString = true;
+      } else if (c == '{' || c == '[') {
+        depth++;
+      } else if (c == '}' || c == ']') {
+        depth--;
+        if (depth == 0) {
+          completeDocument();
+        }
+      }
+    }
+    if (depth > 0) {
+      append('\n');
+    }
+  }
+
+  private void append(char c) {
+    if (document.length() < MAX_DOCUMENT_LENGTH) {
+      document.append(c);
+    } else {
+      overflowed = true;
+    }
+  }
+
+  private void completeDocument() {
+    if (overflowed) {
+      lastError = new JsonParseException("gcloud JSON output too large");
+    } else {
+      try {
+        output = AppEngineDeployOutput.parseAll(document.toString());
+      } catch (JsonParseException ex) {
+        lastError = ex;
+      }
+    }
+    document.setLength(0);
+    inString = false;
+    escaped = false;
+    overflowed = false;
+  }
+
+  /**
+   * @return the deploy output, which has at least one version
+   * @throws JsonParseException if the process wrote no parsable deploy output
+   */
+  public synchronized AppEngineDeployOutput getOutput() throws JsonParseException {
+    if (output != null) {
+      return output;
+    }
+    if (lastError != null) {
+      throw lastError;
+    }
+    throw new JsonParseException("Cannot get app version: no gcloud JSON output");
+  }
+}
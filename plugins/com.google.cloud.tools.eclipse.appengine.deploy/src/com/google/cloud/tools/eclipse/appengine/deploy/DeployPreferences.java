@@ -36,6 +36,10 @@ public class DeployPreferences {
       "include.optional.configuration.files"; // boolean
   static final String PREF_CUSTOM_BUCKET = "project.bucket";
   static final String PREF_STOP_PREVIOUS_VERSION = "project.previousVersion.stop"; // boolean
+  // comma-separated "project[:version]" list, see DeployTarget
+  static final String PREF_ADDITIONAL_TARGETS = "project.additionalTargets";
+  // upload even if the last deploy uploaded the same files, see DeployManifest
+  static final String PREF_FORCE_UPLOAD = "project.forceUpload"; // boolean
 
   public static final String DEFAULT_ACCOUNT_EMAIL = "";
   public static final String DEFAULT_PROJECT_ID = "";
@@ -44,6 +48,8 @@ public class DeployPreferences {
   public static final boolean DEFAULT_INCLUDE_OPTIONAL_CONFIGURATION_FILES = true;
   public static final String DEFAULT_CUSTOM_BUCKET = "";
   public static final boolean DEFAULT_STOP_PREVIOUS_VERSION = true;
+  public static final String DEFAULT_ADDITIONAL_TARGETS = "";
+  public static final boolean DEFAULT_FORCE_UPLOAD = false;
 
   protected final IEclipsePreferences preferenceStore;
 
@@ -54,6 +60,8 @@ public class DeployPreferences {
   private boolean stopPreviousVersion;
   private boolean includeOptionalConfigurationFiles;
   private String bucket;
+  private String additionalTargets;
+  private boolean forceUpload;
 
   public DeployPreferences(IProject project) {
     this(new ProjectScope(project).getNode(PREFERENCE_STORE_QUALIFIER));
@@ -72,6 +80,9 @@ public class DeployPreferences {
     bucket = preferenceStore.get(PREF_CUSTOM_BUCKET, DEFAULT_CUSTOM_BUCKET);
     stopPreviousVersion = preferenceStore.getBoolean(
         PREF_STOP_PREVIOUS_VERSION, DEFAULT_STOP_PREVIOUS_VERSION);
+    additionalTargets = Strings.nullToEmpty(
+        preferenceStore.get(PREF_ADDITIONAL_TARGETS, DEFAULT_ADDITIONAL_TARGETS));
+    forceUpload = preferenceStore.getBoolean(PREF_FORCE_UPLOAD, DEFAULT_FORCE_UPLOAD);
   }
 
   public void resetToDefaults() {
@@ -82,6 +93,8 @@ public class DeployPreferences {
     stopPreviousVersion = DEFAULT_STOP_PREVIOUS_VERSION;
     includeOptionalConfigurationFiles = DEFAULT_INCLUDE_OPTIONAL_CONFIGURATION_FILES;
     bucket = DEFAULT_CUSTOM_BUCKET;
+    additionalTargets = DEFAULT_ADDITIONAL_TARGETS;
+    forceUpload = DEFAULT_FORCE_UPLOAD;
   }
 
   public void save() throws BackingStoreException {
@@ -93,6 +106,8 @@ public class DeployPreferences {
         PREF_INCLUDE_OPTIONAL_CONFIGURATION_FILES, includeOptionalConfigurationFiles);
     preferenceStore.put(PREF_CUSTOM_BUCKET, Strings.nullToEmpty(bucket));
     preferenceStore.putBoolean(PREF_STOP_PREVIOUS_VERSION, stopPreviousVersion);
+    preferenceStore.put(PREF_ADDITIONAL_TARGETS, Strings.nullToEmpty(additionalTargets));
+    preferenceStore.putBoolean(PREF_FORCE_UPLOAD, forceUpload);
     preferenceStore.flush();
   }
 
@@ -152,4 +167,28 @@ public class DeployPreferences {
     this.stopPreviousVersion = stopPreviousVersion;
   }
 
+  /**
+   * @return GCP projects (and optionally versions) to deploy the same staged project to, in
+   *     addition to the project ID and version; see {@link DeployTarget#parseList(String)}
+   */
+  public String getAdditionalTargets() {
+    return additionalTargets;
+  }
+
+  public void setAdditionalTargets(String additionalTargets) {
+    this.additionalTargets = Strings.nullToEmpty(additionalTargets);
+  }
+
+  /**
+   * @return whether to upload the staged project even if the last deploy of the project to the
+   *     same target uploaded identical files, e.g., because the version was deleted meanwhile
+   */
+  public boolean isForceUpload() {
+    return forceUpload;
+  }
+
+  public void setForceUpload(boolean forceUpload) {
+    this.forceUpload = forceUpload;
+  }
+
 }
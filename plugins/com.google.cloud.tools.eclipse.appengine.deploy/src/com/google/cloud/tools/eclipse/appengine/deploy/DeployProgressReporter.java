@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Turns the progress messages {@code gcloud app deploy} writes to stderr into progress of a
+ * monitor. Progress monitors are not thread-safe, so the lines, which arrive on the thread reading
+ * stderr, only update the state of the reporter; {@link #report()} passes it on to the monitor
+ * from the thread that owns the monitor.
+ * <p>
+ * The work is split between uploading files ({@value #UPLOAD_WORK}%) and updating the service.
+ * A deploy uploads a single service, the staged {@code app.yaml}; should {@code gcloud} report
+ * more services, the later ones only update the subtask.
+ */
+public class DeployProgressReporter implements ProcessOutputLineListener {
+
+  private static final Pattern BEGIN_SERVICE =
+      Pattern.compile("Beginning deployment of service \\[(.+)\\]"); //$NON-NLS-1$
+  private static final Pattern UPLOADING =
+      Pattern.compile("Uploading \\[?(\\d+)\\]? files? to Google Cloud Storage"); //$NON-NLS-1$
+  private static final Pattern PERCENTAGE = Pattern.compile("^\\s*(\\d{1,3})%\\s*$"); //$NON-NLS-1$
+  private static final Pattern UPLOAD_DONE = Pattern.compile("File upload done"); //$NON-NLS-1$
+  private static final Pattern UPDATING_SERVICE =
+      Pattern.compile("Updating service \\[(.+?)\\]"); //$NON-NLS-1$
+  private static final Pattern DEPLOYED_SERVICE =
+      Pattern.compile("Deployed service \\[(.+?)\\] to \\[(.+?)\\]"); //$NON-NLS-1$
+
+  @VisibleForTesting
+  static final int UPLOAD_WORK = 70;
+  private static final int SERVICE_WORK = 100;
+
+  private final SubMonitor progress;
+  private final List<String> deployedServices = new ArrayList<>();
+
+  // updated by onOutputLine
+  private String currentService;
+  private int currentServiceWorked;
+  private int servicesStarted;
+  private int worked;
+  private String subTask;
+
+  // what report() passed on to the monitor so far
+  private int reportedWork;
+  private String reportedSubTask;
+
+  public DeployProgressReporter(IProgressMonitor monitor) {
+    progress = SubMonitor.convert(monitor, SERVICE_WORK);
+  }
+
+  @Override
+  public synchronized void onOutputLine(String line) {
+    Matcher matcher;
+    if ((matcher = BEGIN_SERVICE.matcher(line)).find()) {
+      beginService(matcher.group(1));
+    } else if ((matcher = UPLOADING.matcher(line)).find()) {
+      ensureServiceStarted();
+      subTask = Messages.getString("deploy.progress.uploading", //$NON-NLS-1$
+          matcher.group(1), currentService);
+    } else if ((matcher = PERCENTAGE.matcher(line)).find()) {
+      ensureServiceStarted();
+      int percentage = Math.min(100, Integer.parseInt(matcher.group(1)));
+      advanceTo(UPLOAD_WORK * percentage / 100);
+      subTask = Messages.getString("deploy.progress.upload.percentage", //$NON-NLS-1$
+          currentService, percentage);
+    } else if (UPLOAD_DONE.matcher(line).find()) {
+      ensureServiceStarted();
+      advanceTo(UPLOAD_WORK);
+    } else if ((matcher = UPDATING_SERVICE.matcher(line)).find()) {
+      if (currentService == null || !currentService.equals(matcher.group(1))) {
+        beginService(matcher.group(1));
+      }
+      advanceTo(UPLOAD_WORK);
+      subTask = Messages.getString("deploy.progress.updating", //$NON-NLS-1$
+          matcher.group(1));
+    } else if ((matcher = DEPLOYED_SERVICE.matcher(line)).find()) {
+      if (currentService == null || !currentService.equals(matcher.group(1))) {
+        beginService(matcher.group(1));
+      }
+      advanceTo(SERVICE_WORK);
+      deployedServices.add(matcher.group(1));
+    }
+  }
+
+  /**
+   * Reports the progress made since the last call to the monitor. Call it from the thread that
+   * owns the monitor.
+   */
+  public synchronized void report() {
+    if (worked > reportedWork) {
+      progress.worked(worked - reportedWork);
+      reportedWork = worked;
+    }
+    if (subTask != null && !subTask.equals(reportedSubTask)) {
+      progress.subTask(subTask);
+      reportedSubTask = subTask;
+    }
+  }
+
+  private void ensureServiceStarted() {
+    if (currentService == null) {
+      beginService("default"); //$NON-NLS-1$
+    }
+  }
+
+  private void beginService(String service) {
+    if (currentService != null) {
+      advanceTo(SERVICE_WORK); // gcloud deploys services one after another
+    }
+    currentService = service;
+    currentServiceWorked = 0;
+    servicesStarted++;
+  }
+
+  /** Records progress of the current service up to {@code work} (out of {@value #SERVICE_WORK}). */
+  private void advanceTo(int work) {
+    if (work > currentServiceWorked) {
+      if (servicesStarted == 1) {
+        worked += work - currentServiceWorked;
+      }
+      currentServiceWorked = work;
+    }
+  }
+
+  /**
+   * @return the services {@code gcloud} reported as deployed so far, in order
+   */
+  public synchronized List<String> getDeployedServices() {
+    return Collections.unmodifiableList(new ArrayList<>(deployedServices));
+  }
+}
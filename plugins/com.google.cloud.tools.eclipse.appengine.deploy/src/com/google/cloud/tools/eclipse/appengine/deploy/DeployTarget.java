@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import com.google.cloud.tools.appengine.api.deploy.DefaultDeployConfiguration;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A GCP project and, optionally, a version to deploy to. Written as {@code project} or {@code
+ * project:version}; several targets are separated by commas or whitespace.
+ */
+public class DeployTarget {
+
+  private final String projectId;
+  private final String version;
+
+  /**
+   * @param version if {@code null} or empty, {@code gcloud} generates a version
+   */
+  public DeployTarget(String projectId, String version) {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(projectId), "projectId is empty");
+    this.projectId = projectId;
+    this.version = Strings.emptyToNull(version);
+  }
+
+  public String getProjectId() {
+    return projectId;
+  }
+
+  /**
+   * @return the version, or {@code null} if {@code gcloud} generates one
+   */
+  public String getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns a copy of {@code template} that deploys to this target; other settings (promotion,
+   * bucket, etc.) are kept.
+   */
+  public DefaultDeployConfiguration applyTo(DefaultDeployConfiguration template) {
+    DefaultDeployConfiguration configuration = new DefaultDeployConfiguration();
+    configuration.setProject(projectId);
+    configuration.setVersion(version);
+    configuration.setBucket(template.getBucket());
+    configuration.setPromote(template.getPromote());
+    configuration.setStopPreviousVersion(template.getStopPreviousVersion());
+    return configuration;
+  }
+
+  /**
+   * Parses a list of targets such as {@code "my-staging:v2, my-production:v2"}.
+   *
+   * @throws IllegalArgumentException if a target has no project ID
+   */
+  public static List<DeployTarget> parseList(String targets) {
+    List<DeployTarget> result = new ArrayList<>();
+    if (targets == null) {
+      return result;
+    }
+    for (String target : Splitter.onPattern("[,\\s]+").omitEmptyStrings().split(targets)) {
+      // domain-scoped project IDs ("example.com:my-project") contain a colon themselves
+      int projectStart = 0;
+      int firstColon = target.indexOf(':');
+      if (firstColon > 0 && target.substring(0, firstColon).contains(".")) {
+        projectStart = firstColon + 1;
+      }
+      int colon = target.indexOf(':', projectStart);
+      if (colon >= 0) {
+        result.add(new DeployTarget(target.substring(0, colon), target.substring(colon + 1)));
+      } else {
+        result.add(new DeployTarget(target, null));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (!(object instanceof DeployTarget)) {
+      return false;
+    }
+    DeployTarget other = (DeployTarget) object;
+    return projectId.equals(other.projectId) && Objects.equal(version, other.version);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hashCode(projectId, version);
+  }
+
+  @Override
+  public String toString() {
+    return version == null ? projectId : projectId + ':' + version;
+  }
+}
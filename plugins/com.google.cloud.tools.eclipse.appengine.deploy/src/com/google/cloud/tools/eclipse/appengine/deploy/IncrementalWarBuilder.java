@@ -0,0 +1,839 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Builds a WAR file with work proportional to what changed since the previous build.
+ * <p>
+ * The previously built WAR is kept in a cache directory together with an index of the SHA-1
+ * content hash of every entry. An entry whose content hash is unchanged is copied from the
+ * previous WAR in its compressed form; new or changed entries are compressed in parallel; and
+ * already-compressed files (such as jars) are stored without recompressing them. File contents
+ * are streamed; only small compressed entries are held in memory.
+ * <p>
+ * Copying compressed entries requires writing the ZIP format directly, which is done only for
+ * WARs that fit in the plain ZIP format (up to 65535 entries and 4GB). Larger WARs are written
+ * with {@link ZipOutputStream}, which adds ZIP64 extensions as needed, and are not reused.
+ * <p>
+ * Builds sharing a cache directory in this JVM run one at a time.
+ */
+public class IncrementalWarBuilder {
+
+  private static final Logger logger = Logger.getLogger(IncrementalWarBuilder.class.getName());
+
+  private static final String CACHED_WAR_NAME = "previous.war";
+  private static final String CACHED_INDEX_NAME = "previous.war.index";
+
+  /** File extensions of content that is already compressed and gains nothing from deflating. */
+  private static final List<String> STORED_EXTENSIONS = Arrays.asList(
+      ".jar", ".zip", ".war", ".gz", ".tgz", ".bz2", ".png", ".jpg", ".jpeg", ".gif", ".woff",
+      ".woff2");
+
+  private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int ZIP_VERSION = 20;
+  private static final int UTF8_NAME_FLAG = 0x0800;
+  private static final int LOCAL_FILE_HEADER_SIZE = 30;
+  private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final long MAX_ZIP_SIZE = 0xFFFFFFFFL;
+  private static final int MAX_ZIP_ENTRIES = 0xFFFF;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  /** Compressed entries larger than this are kept in temporary files until they are written. */
+  private static final int MAX_IN_MEMORY_SIZE = 1024 * 1024;
+  private static final long LOCK_CHECK_MILLIS = 100;
+
+  /** Guards cache directories against concurrent builds, e.g., of two deploys of a project. */
+  private static final ConcurrentMap<Path, Lock> cacheLocks = new ConcurrentHashMap<>();
+
+  private final Path cacheDirectory;
+  private final int parallelism;
+
+  private final AtomicInteger reusedEntryCount = new AtomicInteger();
+  private final AtomicInteger compressedEntryCount = new AtomicInteger();
+  private final AtomicInteger storedEntryCount = new AtomicInteger();
+
+  /**
+   * @param cacheDirectory directory where the previous WAR and its index are kept; should be
+   *     dedicated to a single deployable for entries to be reused
+   */
+  public IncrementalWarBuilder(Path cacheDirectory) {
+    this(cacheDirectory, Runtime.getRuntime().availableProcessors());
+  }
+
+  @VisibleForTesting
+  IncrementalWarBuilder(Path cacheDirectory, int parallelism) {
+    Preconditions.checkNotNull(cacheDirectory, "cacheDirectory is null"); //$NON-NLS-1$
+    Preconditions.checkArgument(parallelism > 0, "parallelism must be positive"); //$NON-NLS-1$
+    this.cacheDirectory = cacheDirectory.toAbsolutePath().normalize();
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Writes a WAR containing {@code entries}, in order, to {@code war}. The WAR is linked to the
+   * copy kept in the cache directory where the file system allows it, and copied otherwise.
+   */
+  public void build(List<WarEntry> entries, Path war, IProgressMonitor monitor)
+      throws IOException {
+    Preconditions.checkNotNull(entries, "entries is null"); //$NON-NLS-1$
+    Preconditions.checkNotNull(war, "war is null"); //$NON-NLS-1$
+    SubMonitor progress = SubMonitor.convert(monitor, entries.size() + 1);
+
+    Lock lock = getCacheLock(cacheDirectory);
+    acquire(lock, progress);
+    try {
+      reusedEntryCount.set(0);
+      compressedEntryCount.set(0);
+      storedEntryCount.set(0);
+      buildLocked(entries, war, progress);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void buildLocked(List<WarEntry> entries, Path war, SubMonitor progress)
+      throws IOException {
+    Files.createDirectories(cacheDirectory);
+    Path cachedWar = cacheDirectory.resolve(CACHED_WAR_NAME);
+    Path cachedIndex = cacheDirectory.resolve(CACHED_INDEX_NAME);
+    Path newWar = Files.createTempFile(cacheDirectory, "war", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+    Path newIndex =
+        Files.createTempFile(cacheDirectory, "index", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+    Path spillDirectory = Files.createTempDirectory(cacheDirectory, "entries"); //$NON-NLS-1$
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    try {
+      if (fitsWithoutZip64(entries)) {
+        try (FileChannel previousWar = openPreviousWar(cachedWar, cachedIndex)) {
+          Map<String, IndexRecord> previousIndex = previousWar == null
+              ? new HashMap<String, IndexRecord>() : readIndex(cachedIndex);
+          List<IndexRecord> records = writeWar(entries, newWar, previousWar, previousIndex,
+              spillDirectory, executor, progress);
+          writeIndex(records, newIndex);
+        }
+      } else {
+        // the index stays empty: nothing in a ZIP64 WAR is reused by the next build
+        writeLargeWar(entries, newWar, progress);
+      }
+      // The previous WAR must be closed before replacing it (required on Windows). The stale
+      // index goes first so that a failure in between never pairs it with the new WAR.
+      Files.deleteIfExists(cachedIndex);
+      Files.move(newWar, cachedWar, StandardCopyOption.REPLACE_EXISTING);
+      Files.move(newIndex, cachedIndex, StandardCopyOption.REPLACE_EXISTING);
+      // The next build replaces the cached WAR by moving another file over it, so a link to it
+      // keeps pointing to this build.
+      Files.createDirectories(war.toAbsolutePath().getParent());
+      linkOrCopy(cachedWar, war);
+      progress.worked(1);
+    } finally {
+      executor.shutdownNow();
+      awaitTermination(executor);
+      Files.deleteIfExists(newWar);
+      Files.deleteIfExists(newIndex);
+      deleteDirectory(spillDirectory);
+    }
+  }
+
+  /** Number of entries copied in compressed form from the previous WAR by the last build. */
+  public int getReusedEntryCount() {
+    return reusedEntryCount.get();
+  }
+
+  /** Number of entries deflated by the last build. */
+  public int getCompressedEntryCount() {
+    return compressedEntryCount.get();
+  }
+
+  /** Number of entries stored uncompressed (excluding directories) by the last build. */
+  public int getStoredEntryCount() {
+    return storedEntryCount.get();
+  }
+
+  private static Lock getCacheLock(Path cacheDirectory) {
+    Lock lock = new ReentrantLock();
+    Lock existing = cacheLocks.putIfAbsent(cacheDirectory, lock);
+    return existing != null ? existing : lock;
+  }
+
+  private static void acquire(Lock lock, IProgressMonitor monitor) throws IOException {
+    try {
+      while (!lock.tryLock(LOCK_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for another WAR build");
+    }
+  }
+
+  /**
+   * Returns whether the WAR fits in the plain ZIP format, given that no entry is larger than its
+   * file (an entry that would grow when compressed is stored instead).
+   */
+  private static boolean fitsWithoutZip64(List<WarEntry> entries) {
+    if (entries.size() > MAX_ZIP_ENTRIES) {
+      return false;
+    }
+    long size = END_OF_CENTRAL_DIRECTORY_SIZE;
+    for (WarEntry entry : entries) {
+      int nameLength = entry.name.getBytes(StandardCharsets.UTF_8).length;
+      size += LOCAL_FILE_HEADER_SIZE + CENTRAL_DIRECTORY_HEADER_SIZE + 2L * nameLength;
+      if (!entry.isDirectory()) {
+        size += entry.file.length();
+      }
+      if (size > MAX_ZIP_SIZE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static FileChannel openPreviousWar(Path cachedWar, Path cachedIndex) throws IOException {
+    if (!Files.isRegularFile(cachedIndex)) {
+      return null;
+    }
+    try {
+      return FileChannel.open(cachedWar, StandardOpenOption.READ);
+    } catch (NoSuchFileException ex) {
+      return null;
+    }
+  }
+
+  private List<IndexRecord> writeWar(List<WarEntry> entries, Path newWar,
+      FileChannel previousWar, Map<String, IndexRecord> previousIndex, Path spillDirectory,
+      ExecutorService executor, SubMonitor progress) throws IOException {
+    // bounds the number of prepared entries held in memory while waiting to be written
+    int maxPending = parallelism * 2;
+    Deque<Future<PreparedEntry>> pending = new ArrayDeque<>();
+    try (ZipWriter writer = new ZipWriter(Files.newOutputStream(newWar))) {
+      for (WarEntry entry : entries) {
+        if (progress.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        pending.add(executor.submit(
+            new PrepareEntryTask(entry, previousWar, previousIndex, spillDirectory)));
+        if (pending.size() >= maxPending) {
+          writer.write(getResult(pending.remove()));
+          progress.worked(1);
+        }
+      }
+      while (!pending.isEmpty()) {
+        if (progress.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        writer.write(getResult(pending.remove()));
+        progress.worked(1);
+      }
+      writer.finish();
+      return writer.records;
+    } finally {
+      for (Future<PreparedEntry> future : pending) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /** Writes a WAR of any size with {@link ZipOutputStream}, one entry at a time. */
+  private void writeLargeWar(List<WarEntry> entries, Path newWar, SubMonitor progress)
+      throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(newWar), BUFFER_SIZE))) {
+      for (WarEntry entry : entries) {
+        if (progress.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        ZipEntry zipEntry = new ZipEntry(entry.name);
+        zipEntry.setTime(entry.lastModified);
+        if (entry.isDirectory()) {
+          zipEntry.setMethod(ZipEntry.STORED);
+          zipEntry.setSize(0);
+          zipEntry.setCrc(0);
+        } else if (isAlreadyCompressed(entry.name)) {
+          // a stored entry needs its size and CRC up front, so the file is read twice
+          CRC32 crc = new CRC32();
+          long size = read(entry.file.toPath(), null, crc, null);
+          zipEntry.setMethod(ZipEntry.STORED);
+          zipEntry.setSize(size);
+          zipEntry.setCrc(crc.getValue());
+          storedEntryCount.incrementAndGet();
+        } else {
+          zipEntry.setMethod(ZipEntry.DEFLATED);
+          compressedEntryCount.incrementAndGet();
+        }
+        out.putNextEntry(zipEntry);
+        if (!entry.isDirectory()) {
+          // ZipOutputStream fails a stored entry whose file changed since it was read
+          read(entry.file.toPath(), null, null, out);
+        }
+        out.closeEntry();
+        progress.worked(1);
+      }
+    }
+  }
+
+  private static void linkOrCopy(Path source, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, source);
+    } catch (UnsupportedOperationException | IOException ex) {
+      // e.g., the target is on another file system
+      logger.log(Level.FINE, "Cannot link " + target + "; copying it instead", ex); //$NON-NLS-1$
+      Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    // tasks may still be writing to the spill directory; file I/O stops when interrupted
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void deleteDirectory(Path directory) throws IOException {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        Files.deleteIfExists(file);
+      }
+    }
+    Files.deleteIfExists(directory);
+  }
+
+  /**
+   * Streams {@code file} to whichever of {@code hasher}, {@code crc} and {@code out} are not
+   * {@code null}.
+   *
+   * @return the number of bytes read
+   */
+  private static long read(Path file, Hasher hasher, CRC32 crc, OutputStream out)
+      throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
+    long size = 0;
+    try (InputStream in = Files.newInputStream(file)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        if (hasher != null) {
+          hasher.putBytes(buffer, 0, read);
+        }
+        if (crc != null) {
+          crc.update(buffer, 0, read);
+        }
+        if (out != null) {
+          out.write(buffer, 0, read);
+        }
+        size += read;
+      }
+    }
+    return size;
+  }
+
+  private static PreparedEntry getResult(Future<PreparedEntry> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while building WAR");
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof IOException) {
+        throw (IOException) ex.getCause();
+      }
+      throw new IOException(ex.getCause());
+    }
+  }
+
+  @VisibleForTesting
+  static boolean isAlreadyCompressed(String name) {
+    String lowerCaseName = name.toLowerCase(Locale.US);
+    for (String extension : STORED_EXTENSIONS) {
+      if (lowerCaseName.endsWith(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Map<String, IndexRecord> readIndex(Path index) throws IOException {
+    Map<String, IndexRecord> records = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        IndexRecord record = IndexRecord.parse(line);
+        if (record == null) {
+          // unrecognized index; rebuild everything rather than trusting any of it
+          return new HashMap<>();
+        }
+        records.put(record.name, record);
+      }
+    }
+    return records;
+  }
+
+  private static void writeIndex(List<IndexRecord> records, Path index) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(index, StandardCharsets.UTF_8)) {
+      for (IndexRecord record : records) {
+        writer.write(record.format());
+        writer.newLine();
+      }
+    }
+  }
+
+  /**
+   * Converts Java time to MS-DOS date (high 16 bits) and time (low 16 bits).
+   */
+  @VisibleForTesting
+  static int toDosTime(long time) {
+    Calendar calendar = Calendar.getInstance();
+    calendar.setTimeInMillis(time);
+    int year = calendar.get(Calendar.YEAR);
+    if (year < 1980) {
+      return (1 << 21) | (1 << 16); // 1980-01-01 00:00:00
+    }
+    return (year - 1980) << 25
+        | (calendar.get(Calendar.MONTH) + 1) << 21
+        | calendar.get(Calendar.DAY_OF_MONTH) << 16
+        | calendar.get(Calendar.HOUR_OF_DAY) << 11
+        | calendar.get(Calendar.MINUTE) << 5
+        | calendar.get(Calendar.SECOND) >> 1;
+  }
+
+  /**
+   * A file or a directory to be put in a WAR.
+   */
+  public static class WarEntry {
+    private final String name;
+    private final File file;
+    private final long lastModified;
+
+    private WarEntry(String name, File file, long lastModified) {
+      this.name = name;
+      this.file = file;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * @param name WAR-relative path of the directory, e.g., {@code WEB-INF/lib}
+     */
+    public static WarEntry directory(String name, long lastModified) {
+      Preconditions.checkArgument(!name.isEmpty(), "name is empty"); //$NON-NLS-1$
+      return new WarEntry(name.endsWith("/") ? name : name + '/', null, lastModified);
+    }
+
+    /**
+     * @param name WAR-relative path of the file, e.g., {@code WEB-INF/web.xml}
+     */
+    public static WarEntry file(String name, File file) {
+      Preconditions.checkArgument(!name.isEmpty(), "name is empty"); //$NON-NLS-1$
+      Preconditions.checkNotNull(file, "file is null"); //$NON-NLS-1$
+      return new WarEntry(name, file, file.lastModified());
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    private boolean isDirectory() {
+      return file == null;
+    }
+  }
+
+  /** Compresses (or reuses) the content of a single entry; runs on the executor. */
+  private class PrepareEntryTask implements Callable<PreparedEntry> {
+    private final WarEntry entry;
+    private final FileChannel previousWar;
+    private final Map<String, IndexRecord> previousIndex;
+    private final Path spillDirectory;
+
+    private PrepareEntryTask(WarEntry entry, FileChannel previousWar,
+        Map<String, IndexRecord> previousIndex, Path spillDirectory) {
+      this.entry = entry;
+      this.previousWar = previousWar;
+      this.previousIndex = previousIndex;
+      this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public PreparedEntry call() throws IOException {
+      int dosTime = toDosTime(entry.lastModified);
+      if (entry.isDirectory()) {
+        return new PreparedEntry(new IndexRecord(entry.name, "", ZipEntry.STORED, 0, 0, 0),
+            dosTime, new BytesData(new byte[0]));
+      }
+
+      Path file = entry.file.toPath();
+      IndexRecord previous = previousIndex.get(entry.name);
+      if (previous != null) {
+        Hasher hasher = Hashing.sha1().newHasher();
+        long size = read(file, hasher, null, null);
+        String hash = hasher.hash().toString();
+        if (previous.hash.equals(hash) && previous.size == size
+            && previous.dataOffset + previous.compressedSize <= previousWar.size()) {
+          reusedEntryCount.incrementAndGet();
+          return new PreparedEntry(previous.copyWithHash(hash), dosTime,
+              new PreviousWarData(previousWar, previous.dataOffset));
+        }
+      }
+
+      // The hash, the CRC and the compressed data all come from a single read so that they
+      // agree even if the file changes meanwhile.
+      Hasher hasher = Hashing.sha1().newHasher();
+      CRC32 crc = new CRC32();
+      if (!isAlreadyCompressed(entry.name)) {
+        boolean spill = Files.size(file) > MAX_IN_MEMORY_SIZE;
+        Path spillFile = null;
+        ByteArrayOutputStream bytes = null;
+        OutputStream sink;
+        if (spill) {
+          spillFile = Files.createTempFile(spillDirectory, "entry", null); //$NON-NLS-1$
+          sink = new BufferedOutputStream(Files.newOutputStream(spillFile), BUFFER_SIZE);
+        } else {
+          bytes = new ByteArrayOutputStream();
+          sink = bytes;
+        }
+        CountingOutputStream deflated = new CountingOutputStream(sink);
+        Deflater deflater =
+            new Deflater(Deflater.DEFAULT_COMPRESSION, true /* nowrap: raw ZIP data */);
+        long size;
+        try (OutputStream out = new DeflaterOutputStream(deflated, deflater, BUFFER_SIZE)) {
+          size = read(file, hasher, crc, out);
+        } finally {
+          deflater.end();
+        }
+        if (deflated.getCount() < size) {
+          compressedEntryCount.incrementAndGet();
+          IndexRecord record = new IndexRecord(entry.name, hasher.hash().toString(),
+              ZipEntry.DEFLATED, crc.getValue(), deflated.getCount(), size);
+          EntryData data = spill ? new SpilledData(spillFile) : new BytesData(bytes.toByteArray());
+          return new PreparedEntry(record, dosTime, data);
+        }
+        if (spill) {
+          Files.delete(spillFile);
+        }
+        storedEntryCount.incrementAndGet();
+        IndexRecord record = new IndexRecord(entry.name, hasher.hash().toString(),
+            ZipEntry.STORED, crc.getValue(), size, size);
+        return new PreparedEntry(record, dosTime, new SourceFileData(file));
+      }
+
+      long size = read(file, hasher, crc, null);
+      storedEntryCount.incrementAndGet();
+      IndexRecord record = new IndexRecord(entry.name, hasher.hash().toString(),
+          ZipEntry.STORED, crc.getValue(), size, size);
+      return new PreparedEntry(record, dosTime, new SourceFileData(file));
+    }
+  }
+
+  /** The data of an entry in the form it is written to the WAR. */
+  private abstract static class EntryData {
+    /** Writes the {@code record.compressedSize} bytes of data of the entry to {@code out}. */
+    abstract void writeTo(OutputStream out, IndexRecord record) throws IOException;
+  }
+
+  /** Data held in memory. */
+  private static class BytesData extends EntryData {
+    private final byte[] bytes;
+
+    private BytesData(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    void writeTo(OutputStream out, IndexRecord record) throws IOException {
+      out.write(bytes);
+    }
+  }
+
+  /** Compressed data kept in a temporary file, which is deleted once written. */
+  private static class SpilledData extends EntryData {
+    private final Path file;
+
+    private SpilledData(Path file) {
+      this.file = file;
+    }
+
+    @Override
+    void writeTo(OutputStream out, IndexRecord record) throws IOException {
+      read(file, null, null, out);
+      Files.delete(file);
+    }
+  }
+
+  /** The raw data of an entry of the previous WAR. */
+  private static class PreviousWarData extends EntryData {
+    private final FileChannel previousWar;
+    private final long dataOffset;
+
+    private PreviousWarData(FileChannel previousWar, long dataOffset) {
+      this.previousWar = previousWar;
+      this.dataOffset = dataOffset;
+    }
+
+    @Override
+    void writeTo(OutputStream out, IndexRecord record) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      long position = dataOffset;
+      long end = dataOffset + record.compressedSize;
+      while (position < end) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        int read = previousWar.read(buffer, position);
+        if (read < 0) {
+          throw new IOException("Cached WAR is truncated");
+        }
+        out.write(buffer.array(), 0, read);
+        position += read;
+      }
+    }
+  }
+
+  /** Uncompressed data streamed from the file of the entry when it is written. */
+  private static class SourceFileData extends EntryData {
+    private final Path file;
+
+    private SourceFileData(Path file) {
+      this.file = file;
+    }
+
+    @Override
+    void writeTo(OutputStream out, IndexRecord record) throws IOException {
+      // the header is already written, so the file must not have changed since it was read
+      CRC32 crc = new CRC32();
+      CountingOutputStream counter = new CountingOutputStream(out);
+      read(file, null, crc, counter);
+      if (counter.getCount() != record.size || crc.getValue() != record.crc) {
+        throw new IOException(file + " changed while the WAR was being built");
+      }
+    }
+  }
+
+  private static class PreparedEntry {
+    private final IndexRecord record;
+    private final int dosTime;
+    private final EntryData data;
+
+    private PreparedEntry(IndexRecord record, int dosTime, EntryData data) {
+      this.record = record;
+      this.dosTime = dosTime;
+      this.data = data;
+    }
+  }
+
+  /** Everything needed to copy an entry out of a WAR without decompressing it. */
+  private static class IndexRecord {
+    private final String name;
+    private final String hash;
+    private final int method;
+    private final long crc;
+    private final long compressedSize;
+    private final long size;
+    private int dosTime;
+    private long headerOffset;
+    private long dataOffset;
+
+    private IndexRecord(String name, String hash, int method, long crc, long compressedSize,
+        long size) {
+      this.name = name;
+      this.hash = hash;
+      this.method = method;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+
+    private IndexRecord copyWithHash(String newHash) {
+      return new IndexRecord(name, newHash, method, crc, compressedSize, size);
+    }
+
+    private String format() {
+      return hash + '\t' + method + '\t' + crc + '\t' + compressedSize + '\t' + size + '\t'
+          + dataOffset + '\t' + name;
+    }
+
+    private static IndexRecord parse(String line) {
+      String[] fields = line.split("\t", 7); //$NON-NLS-1$
+      if (fields.length != 7) {
+        return null;
+      }
+      try {
+        IndexRecord record = new IndexRecord(fields[6], fields[0], Integer.parseInt(fields[1]),
+            Long.parseLong(fields[2]), Long.parseLong(fields[3]), Long.parseLong(fields[4]));
+        record.dataOffset = Long.parseLong(fields[5]);
+        return record;
+      } catch (NumberFormatException ex) {
+        return null;
+      }
+    }
+  }
+
+  /** Minimal ZIP writer that accepts entry data in its final (possibly deflated) form. */
+  private static class ZipWriter implements AutoCloseable {
+    private final OutputStream out;
+    private final List<IndexRecord> records = new ArrayList<>();
+    private final Map<String, byte[]> encodedNames = new HashMap<>();
+    private long offset;
+
+    private ZipWriter(OutputStream out) {
+      this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    private void write(PreparedEntry entry) throws IOException {
+      IndexRecord record = entry.record;
+      byte[] name = record.name.getBytes(StandardCharsets.UTF_8);
+      encodedNames.put(record.name, name);
+      record.dosTime = entry.dosTime;
+      record.headerOffset = offset;
+      record.dataOffset = offset + LOCAL_FILE_HEADER_SIZE + name.length;
+
+      writeInt(LOCAL_FILE_HEADER_SIGNATURE);
+      writeShort(ZIP_VERSION);
+      writeShort(UTF8_NAME_FLAG);
+      writeShort(record.method);
+      writeInt(record.dosTime);
+      writeInt((int) record.crc);
+      writeInt((int) record.compressedSize);
+      writeInt((int) record.size);
+      writeShort(name.length);
+      writeShort(0); // extra field length
+      writeBytes(name);
+      entry.data.writeTo(out, record);
+      offset += record.compressedSize;
+      checkSize();
+      records.add(record);
+    }
+
+    private void finish() throws IOException {
+      long centralDirectoryOffset = offset;
+      for (IndexRecord record : records) {
+        byte[] name = encodedNames.get(record.name);
+        writeInt(CENTRAL_DIRECTORY_SIGNATURE);
+        writeShort(ZIP_VERSION); // version made by
+        writeShort(ZIP_VERSION); // version needed to extract
+        writeShort(UTF8_NAME_FLAG);
+        writeShort(record.method);
+        writeInt(record.dosTime);
+        writeInt((int) record.crc);
+        writeInt((int) record.compressedSize);
+        writeInt((int) record.size);
+        writeShort(name.length);
+        writeShort(0); // extra field length
+        writeShort(0); // comment length
+        writeShort(0); // disk number start
+        writeShort(0); // internal attributes
+        writeInt(0); // external attributes
+        writeInt((int) record.headerOffset);
+        writeBytes(name);
+      }
+      long centralDirectorySize = offset - centralDirectoryOffset;
+      checkSize();
+
+      writeInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+      writeShort(0); // number of this disk
+      writeShort(0); // disk where central directory starts
+      writeShort(records.size());
+      writeShort(records.size());
+      writeInt((int) centralDirectorySize);
+      writeInt((int) centralDirectoryOffset);
+      writeShort(0); // comment length
+      out.flush();
+    }
+
+    private void checkSize() throws IOException {
+      if (offset > MAX_ZIP_SIZE) {
+        throw new IOException("WAR is too large to write without ZIP64 extensions");
+      }
+    }
+
+    private void writeShort(int value) throws IOException {
+      out.write(value & 0xFF);
+      out.write((value >>> 8) & 0xFF);
+      offset += 2;
+    }
+
+    private void writeInt(int value) throws IOException {
+      writeShort(value & 0xFFFF);
+      writeShort((value >>> 16) & 0xFFFF);
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+      out.write(bytes);
+      offset += bytes.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy;
+
+import com.google.cloud.tools.eclipse.util.io.DeleteAllVisitor;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps staged applications by the SHA-1 of their content, so that one staging result can be
+ * deployed to several targets (and again later) without staging it again. A stored artifact is
+ * a directory named after its content hash; it must be treated as read-only.
+ * <p>
+ * Several deploys may use the same store at once. Each {@link #store} reserves the returned
+ * artifact until it is {@link #release released}, and {@link #prune} never deletes a reserved
+ * artifact. Reservations are kept by the instance, so concurrent deploys to the same directory
+ * must share one instance.
+ */
+public class StagedArtifactStore {
+
+  private static final Logger logger = Logger.getLogger(StagedArtifactStore.class.getName());
+
+  @VisibleForTesting
+  static final int ARTIFACTS_TO_KEEP = 3;
+  private static final String TEMPORARY_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+  /** Number of reservations of each artifact; guards deletions. */
+  private final Map<Path, Integer> reservations = new HashMap<>();
+
+  private final Path root;
+
+  public StagedArtifactStore(Path root) {
+    this.root = Preconditions.checkNotNull(root).toAbsolutePath().normalize();
+  }
+
+  /**
+   * Moves {@code stagingDirectory} into the store. If an artifact with identical content is
+   * already stored, {@code stagingDirectory} is deleted and the existing artifact is returned
+   * instead. The artifact is reserved until {@link #release} is called with it.
+   *
+   * @return the directory of the stored artifact
+   */
+  public Path store(Path stagingDirectory) throws IOException {
+    String key = computeKey(stagingDirectory);
+    Files.createDirectories(root);
+    Path artifact = root.resolve(key);
+    reserve(artifact);
+    try {
+      storeReserved(stagingDirectory, key, artifact);
+      return artifact;
+    } catch (IOException | RuntimeException ex) {
+      release(artifact);
+      throw ex;
+    }
+  }
+
+  private void storeReserved(Path stagingDirectory, String key, Path artifact)
+      throws IOException {
+    if (Files.isDirectory(artifact)) {
+      markUsed(artifact);
+      delete(stagingDirectory);
+      return;
+    }
+
+    try {
+      Files.move(stagingDirectory, artifact, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      // different file systems; copy next to the destination and rename there
+      Path temporary = Files.createTempDirectory(root, key + TEMPORARY_SUFFIX);
+      try {
+        copy(stagingDirectory, temporary);
+        Files.move(temporary, artifact, StandardCopyOption.ATOMIC_MOVE);
+      } catch (FileAlreadyExistsException | DirectoryNotEmptyException alreadyStored) {
+        delete(temporary);
+      }
+      delete(stagingDirectory);
+    } catch (FileAlreadyExistsException | DirectoryNotEmptyException ex) {
+      delete(stagingDirectory); // stored concurrently
+    }
+    markUsed(artifact);
+  }
+
+  /**
+   * Ends a reservation of an artifact returned by {@link #store}.
+   */
+  public void release(Path artifact) {
+    Path key = artifact.toAbsolutePath().normalize();
+    synchronized (reservations) {
+      Integer count = reservations.get(key);
+      Preconditions.checkState(count != null, "%s is not reserved", artifact); //$NON-NLS-1$
+      if (count == 1) {
+        reservations.remove(key);
+      } else {
+        reservations.put(key, count - 1);
+      }
+    }
+  }
+
+  private void reserve(Path artifact) {
+    synchronized (reservations) {
+      Integer count = reservations.get(artifact);
+      reservations.put(artifact, count == null ? 1 : count + 1);
+    }
+  }
+
+  /**
+   * Deletes all but the {@link #ARTIFACTS_TO_KEEP} most recently used artifacts, as well as
+   * leftovers of interrupted copies. Reserved artifacts, and copies in progress for them, are
+   * never deleted.
+   */
+  public void prune() throws IOException {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    List<Path> artifacts = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        int temporarySuffix = name.indexOf(TEMPORARY_SUFFIX);
+        if (temporarySuffix >= 0) {
+          deleteUnlessReserved(path, root.resolve(name.substring(0, temporarySuffix)));
+        } else if (Files.isDirectory(path)) {
+          artifacts.add(path);
+        }
+      }
+    }
+    Collections.sort(artifacts, new Comparator<Path>() {
+      @Override
+      public int compare(Path path1, Path path2) {
+        try {
+          return Files.getLastModifiedTime(path2).compareTo(Files.getLastModifiedTime(path1));
+        } catch (IOException ex) {
+          return 0;
+        }
+      }
+    });
+    for (int i = ARTIFACTS_TO_KEEP; i < artifacts.size(); i++) {
+      try {
+        deleteUnlessReserved(artifacts.get(i), artifacts.get(i));
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Could not delete staged artifact " + artifacts.get(i), ex);
+      }
+    }
+  }
+
+  /**
+   * Deletes {@code path} unless {@code artifact} is reserved. The check and the deletion are
+   * atomic with respect to {@link #store}, which reserves before it looks for the artifact.
+   */
+  private void deleteUnlessReserved(Path path, Path artifact) throws IOException {
+    synchronized (reservations) {
+      if (!reservations.containsKey(artifact)) {
+        delete(path);
+      }
+    }
+  }
+
+  /**
+   * @return the SHA-1 of the relative paths and contents of all files under {@code directory}
+   */
+  @VisibleForTesting
+  static String computeKey(Path directory) throws IOException {
+    SortedMap<String, String> hashes = new TreeMap<>();
+    DeployManifest.hashDirectory(directory, Collections.<Path>emptySet(), hashes);
+    Hasher hasher = Hashing.sha1().newHasher();
+    for (Map.Entry<String, String> entry : hashes.entrySet()) {
+      hasher.putString(entry.getKey(), StandardCharsets.UTF_8).putByte((byte) 0);
+      hasher.putString(entry.getValue(), StandardCharsets.UTF_8).putByte((byte) '\n');
+    }
+    return hasher.hash().toString();
+  }
+
+  private static void markUsed(Path artifact) throws IOException {
+    Files.setLastModifiedTime(artifact, FileTime.fromMillis(System.currentTimeMillis()));
+  }
+
+  private static void delete(Path directory) throws IOException {
+    if (Files.exists(directory)) {
+      Files.walkFileTree(directory, new DeleteAllVisitor());
+    }
+  }
+
+  private static void copy(final Path source, final Path destination) throws IOException {
+    Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+          throws IOException {
+        Files.createDirectories(destination.resolve(source.relativize(directory).toString()));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+          throws IOException {
+        Files.copy(file, destination.resolve(source.relativize(file).toString()),
+            StandardCopyOption.COPY_ATTRIBUTES);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+}
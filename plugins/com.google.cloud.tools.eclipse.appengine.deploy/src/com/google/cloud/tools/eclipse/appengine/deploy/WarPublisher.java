@@ -16,22 +16,40 @@
 
 package com.google.cloud.tools.eclipse.appengine.deploy;
 
+import com.google.cloud.tools.eclipse.appengine.deploy.IncrementalWarBuilder.WarEntry;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jst.j2ee.internal.deployables.J2EEFlexProjDeployable;
 import org.eclipse.wst.common.componentcore.ComponentCore;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
 import org.eclipse.wst.server.core.util.PublishHelper;
+import org.osgi.framework.FrameworkUtil;
 
 /**
  * Writes a WAR file of a project, or the exploded contents of it to a destination directory.
  */
 public class WarPublisher {
 
+  private static final Logger logger = Logger.getLogger(WarPublisher.class.getName());
+
   /**
    * It does a smart export, i.e. considers the resources to be copied and if the destination
    * directory already contains resources those will be deleted if they are not part of the exploded
@@ -42,6 +60,10 @@ public class WarPublisher {
     publish(project, destination, true /* exploded */, monitor);
   }
 
+  /**
+   * Writes a WAR incrementally, reusing the compressed entries of the WAR previously built for the
+   * same project (see {@link IncrementalWarBuilder}).
+   */
   public static void publishWar(IProject project, IPath destination, IProgressMonitor monitor)
       throws CoreException {
     publish(project, destination, false /* exploded */, monitor);
@@ -59,14 +81,66 @@ public class WarPublisher {
     SubMonitor progress = SubMonitor.convert(monitor, 100);
     progress.setTaskName(Messages.getString("task.name.publish.war"));
 
-    PublishHelper publishHelper = new PublishHelper(null);
     J2EEFlexProjDeployable deployable =
         new J2EEFlexProjDeployable(project, ComponentCore.createComponent(project));
 
     if (exploded) {
+      PublishHelper publishHelper = new PublishHelper(null);
       publishHelper.publishSmart(deployable.members(), destination, progress.newChild(100));
     } else {
-      publishHelper.publishZip(deployable.members(), destination, progress.newChild(100));
+      IModuleResource[] members = deployable.members();
+      IncrementalWarBuilder builder = new IncrementalWarBuilder(
+          getWarCacheDirectory(project).toFile().toPath());
+      try {
+        builder.build(collectWarEntries(members), destination.toFile().toPath(),
+            progress.newChild(100));
+      } catch (IOException ex) {
+        throw new CoreException(
+            StatusUtil.error(WarPublisher.class, Messages.getString("war.publishing.failed"), ex));
+      }
+    }
+  }
+
+  private static IPath getWarCacheDirectory(IProject project) {
+    return Platform.getStateLocation(FrameworkUtil.getBundle(WarPublisher.class))
+        .append("war-cache").append(project.getName()); //$NON-NLS-1$
+  }
+
+  /**
+   * Flattens module resources into WAR entries in the same order {@link PublishHelper#publishZip}
+   * would write them. Module files that cannot be found on the file system are left out.
+   */
+  @VisibleForTesting
+  static List<WarEntry> collectWarEntries(IModuleResource[] resources) {
+    List<WarEntry> entries = new ArrayList<>();
+    collectWarEntries(resources, entries);
+    return entries;
+  }
+
+  private static void collectWarEntries(IModuleResource[] resources, List<WarEntry> entries) {
+    for (IModuleResource resource : resources) {
+      String name = resource.getModuleRelativePath().append(resource.getName()).toPortableString();
+      if (resource instanceof IModuleFolder) {
+        IContainer folder = resource.getAdapter(IContainer.class);
+        long timestamp = folder == null ? 0 : folder.getLocalTimeStamp();
+        entries.add(WarEntry.directory(name, timestamp == IResource.NULL_STAMP ? 0 : timestamp));
+        collectWarEntries(((IModuleFolder) resource).members(), entries);
+      } else if (resource instanceof IModuleFile) {
+        File file = toFile((IModuleFile) resource);
+        if (file == null) {
+          logger.warning("Skipping " + name + ": not found on the file system");
+          continue;
+        }
+        entries.add(WarEntry.file(name, file));
+      }
+    }
+  }
+
+  private static File toFile(IModuleFile moduleFile) {
+    IFile file = moduleFile.getAdapter(IFile.class);
+    if (file != null && file.getLocation() != null) {
+      return file.getLocation().toFile();
     }
+    return moduleFile.getAdapter(File.class);
   }
 }
@@ -0,0 +1,556 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.deploy.standard;
+
+import com.google.cloud.tools.eclipse.appengine.deploy.CloudSdkStagingHelper;
+import com.google.cloud.tools.eclipse.appengine.deploy.Messages;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.SubMonitor;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Stages an exploded WAR for App Engine standard inside the IDE process, producing the same
+ * layout as the App Engine SDK staging tool run by {@link CloudSdkStagingHelper#stageStandard}:
+ * the application files, static files under {@code __static__}, jars larger than {@value
+ * #MAX_JAR_SIZE} bytes split into smaller jars, and a generated {@code app.yaml} both at the
+ * top and in {@code WEB-INF/appengine-generated}. Files are hard-linked from the exploded WAR
+ * where the file system allows it, so staging does not write a second copy of the application.
+ * <p>
+ * Only applications whose configuration is fully understood are staged in-process; {@link
+ * #stage} returns {@code false} for anything else (e.g., XML configuration files that need
+ * conversion to YAML, security constraints in {@code web.xml}, custom static or resource file
+ * sets, or JSPs without a {@link JspPrecompiler}), so that callers can fall back to the SDK tool.
+ */
+public class InProcessStandardStaging {
+
+  private static final Logger logger = Logger.getLogger(InProcessStandardStaging.class.getName());
+
+  /** Jars larger than this are split, like the SDK tool does with jar splitting enabled. */
+  @VisibleForTesting
+  static final long MAX_JAR_SIZE = 10 * 1024 * 1024;
+
+  private static final String STATIC_DIRECTORY_NAME = "__static__";
+  private static final String APP_YAML = "app.yaml";
+  private static final String DEFAULT_RUNTIME = "java7";
+  private static final String API_JAR_PREFIX = "appengine-api-1.0-sdk";
+
+  /** XML configuration files that the SDK tool converts to YAML. */
+  private static final List<String> XML_CONFIGURATION_FILES = Collections.unmodifiableList(
+      Arrays.asList("cron.xml", "queue.xml", "dos.xml", "dispatch.xml", "datastore-indexes.xml",
+          "datastore-indexes-auto.xml", "backends.xml"));
+
+  /**
+   * {@code appengine-web.xml} elements that {@link #generateAppYaml} translates. Applications with
+   * any other element are left to the SDK tool, as it may emit something for them.
+   */
+  private static final List<String> SUPPORTED_ELEMENTS = Collections.unmodifiableList(
+      Arrays.asList("application", "version", "service", "module", "runtime", "threadsafe",
+          "instance-class", "manual-scaling", "basic-scaling", "inbound-services",
+          "env-variables", "precompilation-enabled", "warmup-requests-enabled"));
+
+  /**
+   * Hook to precompile JSPs into the staging directory. Without one, applications with JSPs are
+   * left to the SDK staging tool.
+   */
+  public interface JspPrecompiler {
+    /**
+     * Compiles the JSPs of {@code explodedWar} into classes (and, if needed, a generated {@code
+     * web.xml}) under {@code stagingDirectory}, which already contains the application files.
+     */
+    void precompile(File explodedWar, File stagingDirectory, IProgressMonitor monitor)
+        throws IOException;
+  }
+
+  private final JspPrecompiler jspPrecompiler;
+
+  public InProcessStandardStaging() {
+    this(null);
+  }
+
+  /**
+   * @param jspPrecompiler precompiles JSPs; may be {@code null}
+   */
+  public InProcessStandardStaging(JspPrecompiler jspPrecompiler) {
+    this.jspPrecompiler = jspPrecompiler;
+  }
+
+  /**
+   * @return {@code true} if {@code explodedWar} was staged; {@code false} if the application
+   *     needs the SDK staging tool, in which case {@code stagingDirectory} is left untouched
+   * @throws IOException if staging failed; {@code stagingDirectory} may be partially written
+   */
+  public boolean stage(File explodedWar, File stagingDirectory, IProgressMonitor monitor)
+      throws IOException {
+    Preconditions.checkNotNull(explodedWar, "explodedWar is null"); //$NON-NLS-1$
+    Preconditions.checkNotNull(stagingDirectory, "stagingDirectory is null"); //$NON-NLS-1$
+    if (monitor.isCanceled()) {
+      throw new OperationCanceledException();
+    }
+
+    Document appEngineWebXml = parse(new File(explodedWar, "WEB-INF/appengine-web.xml"));
+    List<String> staticFiles = new ArrayList<>();
+    String unsupportedReason = checkSupported(explodedWar, appEngineWebXml, staticFiles);
+    if (unsupportedReason != null) {
+      logger.log(Level.FINE, "Using the App Engine SDK to stage: " + unsupportedReason);
+      return false;
+    }
+
+    SubMonitor progress = SubMonitor.convert(monitor, 100);
+    progress.setTaskName(Messages.getString("task.name.stage.project")); //$NON-NLS-1$
+
+    copyApplication(explodedWar.toPath(), stagingDirectory.toPath(), progress.newChild(60));
+    copyStaticFiles(explodedWar.toPath(), staticFiles,
+        stagingDirectory.toPath().resolve(STATIC_DIRECTORY_NAME), progress.newChild(20));
+    if (jspPrecompiler != null && containsJsp(explodedWar.toPath())) {
+      jspPrecompiler.precompile(explodedWar, stagingDirectory, progress.newChild(10));
+    }
+
+    String appYaml = generateAppYaml(appEngineWebXml, getWelcomeFiles(explodedWar), staticFiles,
+        hasApiJar(explodedWar));
+    Path generatedDirectory = stagingDirectory.toPath().resolve(
+        CloudSdkStagingHelper.STANDARD_STAGING_GENERATED_FILES_DIRECTORY);
+    Files.createDirectories(generatedDirectory);
+    byte[] appYamlBytes = appYaml.getBytes(StandardCharsets.UTF_8);
+    Files.write(generatedDirectory.resolve(APP_YAML), appYamlBytes);
+    Files.write(stagingDirectory.toPath().resolve(APP_YAML), appYamlBytes);
+    progress.worked(10);
+    return true;
+  }
+
+  /**
+   * @param staticFiles receives the WAR-relative paths of static files
+   * @return why the application cannot be staged in-process, or {@code null} if it can
+   */
+  @VisibleForTesting
+  String checkSupported(File explodedWar, Document appEngineWebXml, List<String> staticFiles)
+      throws IOException {
+    if (appEngineWebXml == null) {
+      return "missing or malformed appengine-web.xml";
+    }
+    for (Element element : childElements(appEngineWebXml.getDocumentElement())) {
+      if (!SUPPORTED_ELEMENTS.contains(element.getLocalName())) {
+        return "unsupported appengine-web.xml element: " + element.getLocalName();
+      }
+    }
+    File webInf = new File(explodedWar, "WEB-INF");
+    for (String configurationFile : XML_CONFIGURATION_FILES) {
+      if (new File(webInf, configurationFile).exists()) {
+        return configurationFile + " needs conversion";
+      }
+    }
+    File webXml = new File(webInf, "web.xml");
+    if (webXml.exists()) {
+      Document webXmlDocument = parse(webXml);
+      if (webXmlDocument == null) {
+        return "malformed web.xml";
+      }
+      if (webXmlDocument.getElementsByTagNameNS("*", "security-constraint").getLength() > 0) {
+        return "web.xml has security constraints";
+      }
+    }
+    if (jspPrecompiler == null && containsJsp(explodedWar.toPath())) {
+      return "JSPs need precompilation";
+    }
+    staticFiles.addAll(collectStaticFiles(explodedWar.toPath()));
+    return null;
+  }
+
+  /** Static files are, by default, all files outside {@code WEB-INF} except JSPs. */
+  private static List<String> collectStaticFiles(final Path root) throws IOException {
+    final List<String> staticFiles = new ArrayList<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+        if (directory.equals(root.resolve("WEB-INF"))) {
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        if (attributes.isRegularFile() && !isJsp(file)) {
+          staticFiles.add(toRelativePath(root, file));
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    Collections.sort(staticFiles);
+    return staticFiles;
+  }
+
+  private static boolean containsJsp(Path root) throws IOException {
+    final boolean[] found = new boolean[1];
+    Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        if (isJsp(file)) {
+          found[0] = true;
+          return FileVisitResult.TERMINATE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return found[0];
+  }
+
+  private static boolean isJsp(Path file) {
+    String name = file.getFileName().toString().toLowerCase(Locale.US);
+    return name.endsWith(".jsp") || name.endsWith(".jspx");
+  }
+
+  private static void copyApplication(final Path source, final Path destination,
+      final SubMonitor progress) throws IOException {
+    progress.setWorkRemaining(1000);
+    Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+          throws IOException {
+        checkCanceled(progress);
+        Files.createDirectories(destination.resolve(source.relativize(directory).toString()));
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+          throws IOException {
+        checkCanceled(progress);
+        Path target = destination.resolve(source.relativize(file).toString());
+        if (isLibraryJar(source, file) && attributes.size() > MAX_JAR_SIZE) {
+          splitJar(file, target.getParent(), MAX_JAR_SIZE);
+        } else {
+          linkOrCopy(file, target);
+        }
+        progress.setWorkRemaining(1000);
+        progress.worked(1);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static void copyStaticFiles(Path source, List<String> staticFiles, Path destination,
+      SubMonitor progress) throws IOException {
+    progress.setWorkRemaining(staticFiles.size());
+    for (String staticFile : staticFiles) {
+      checkCanceled(progress);
+      Path target = destination.resolve(staticFile);
+      Files.createDirectories(target.getParent());
+      linkOrCopy(source.resolve(staticFile), target);
+      progress.worked(1);
+    }
+  }
+
+  private static boolean isLibraryJar(Path root, Path file) {
+    return file.getParent().equals(root.resolve("WEB-INF/lib"))
+        && file.getFileName().toString().toLowerCase(Locale.US).endsWith(".jar");
+  }
+
+  private static void linkOrCopy(Path source, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try {
+      Files.createLink(target, source);
+    } catch (IOException | UnsupportedOperationException | SecurityException ex) {
+      Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+    }
+  }
+
+  /**
+   * Splits a jar into jars named {@code <name>-0000.jar}, {@code <name>-0001.jar}, etc. in
+   * {@code directory}, each holding at most about {@code maxSize} bytes of compressed entries.
+   */
+  @VisibleForTesting
+  static List<Path> splitJar(Path jar, Path directory, long maxSize) throws IOException {
+    String fileName = jar.getFileName().toString();
+    String baseName = fileName.substring(0, fileName.length() - ".jar".length());
+    List<Path> parts = new ArrayList<>();
+    ZipOutputStream out = null;
+    CountingOutputStream counter = null;
+    try (ZipInputStream in = new ZipInputStream(Files.newInputStream(jar))) {
+      byte[] buffer = new byte[8192];
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null) {
+        if (out == null || counter.getCount() >= maxSize) {
+          if (out != null) {
+            out.close();
+          }
+          Path part = directory.resolve(String.format("%s-%04d.jar", baseName, parts.size()));
+          parts.add(part);
+          counter = new CountingOutputStream(
+              new BufferedOutputStream(Files.newOutputStream(part)));
+          out = new ZipOutputStream(counter);
+        }
+        ZipEntry copy = new ZipEntry(entry.getName());
+        copy.setTime(entry.getTime());
+        out.putNextEntry(copy);
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+          out.write(buffer, 0, read);
+        }
+        out.closeEntry();
+      }
+    } finally {
+      if (out != null) {
+        out.close();
+      }
+    }
+    return parts;
+  }
+
+  private static List<String> getWelcomeFiles(File explodedWar) {
+    Document webXml = parse(new File(explodedWar, "WEB-INF/web.xml"));
+    List<String> welcomeFiles = new ArrayList<>();
+    if (webXml != null) {
+      NodeList nodes = webXml.getElementsByTagNameNS("*", "welcome-file");
+      for (int i = 0; i < nodes.getLength(); i++) {
+        welcomeFiles.add(nodes.item(i).getTextContent().trim());
+      }
+    }
+    if (welcomeFiles.isEmpty()) {
+      welcomeFiles.add("index.html");
+      welcomeFiles.add("index.jsp");
+    }
+    return welcomeFiles;
+  }
+
+  private static boolean hasApiJar(File explodedWar) {
+    String[] libraries = new File(explodedWar, "WEB-INF/lib").list();
+    if (libraries != null) {
+      for (String library : libraries) {
+        if (library.startsWith(API_JAR_PREFIX) && library.endsWith(".jar")) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Translates {@code appengine-web.xml} to {@code app.yaml} in the format of the SDK tool.
+   */
+  @VisibleForTesting
+  static String generateAppYaml(Document appEngineWebXml, List<String> welcomeFiles,
+      List<String> staticFiles, boolean hasApiJar) {
+    Element root = appEngineWebXml.getDocumentElement();
+    StringBuilder yaml = new StringBuilder();
+
+    String application = getText(root, "application");
+    if (application != null) {
+      yaml.append("application: ").append(quote(application)).append('\n');
+    }
+    String runtime = getText(root, "runtime");
+    yaml.append("runtime: ").append(runtime != null ? runtime : DEFAULT_RUNTIME).append('\n');
+    String version = getText(root, "version");
+    if (version != null) {
+      yaml.append("version: ").append(quote(version)).append('\n');
+    }
+    String service = getText(root, "service");
+    String module = getText(root, "module");
+    if (service != null) {
+      yaml.append("service: ").append(quote(service)).append('\n');
+    } else if (module != null) {
+      yaml.append("module: ").append(quote(module)).append('\n');
+    }
+    String instanceClass = getText(root, "instance-class");
+    if (instanceClass != null) {
+      yaml.append("instance_class: ").append(instanceClass).append('\n');
+    }
+
+    Element manualScaling = getChild(root, "manual-scaling");
+    if (manualScaling != null) {
+      yaml.append("manual_scaling:\n");
+      yaml.append("  instances: ").append(getText(manualScaling, "instances")).append('\n');
+    }
+    Element basicScaling = getChild(root, "basic-scaling");
+    if (basicScaling != null) {
+      yaml.append("basic_scaling:\n");
+      yaml.append("  max_instances: ").append(getText(basicScaling, "max-instances"))
+          .append('\n');
+      String idleTimeout = getText(basicScaling, "idle-timeout");
+      if (idleTimeout != null) {
+        yaml.append("  idle_timeout: ").append(idleTimeout).append('\n');
+      }
+    }
+
+    List<String> inboundServices = new ArrayList<>();
+    Element inboundServicesElement = getChild(root, "inbound-services");
+    if (inboundServicesElement != null) {
+      for (Element serviceElement : childElements(inboundServicesElement)) {
+        inboundServices.add(serviceElement.getTextContent().trim());
+      }
+    }
+    if (!"false".equals(getText(root, "warmup-requests-enabled"))
+        && !inboundServices.contains("warmup")) {
+      inboundServices.add("warmup");
+    }
+    if (!inboundServices.isEmpty()) {
+      yaml.append("inbound_services:\n");
+      for (String inboundService : inboundServices) {
+        yaml.append("- ").append(inboundService).append('\n');
+      }
+    }
+
+    if (!"false".equals(getText(root, "precompilation-enabled"))) {
+      yaml.append("derived_file_type:\n");
+      yaml.append("- java_precompiled\n");
+    }
+    if ("true".equals(getText(root, "threadsafe"))) {
+      yaml.append("threadsafe: True\n");
+    }
+    yaml.append("auto_id_policy: default\n");
+
+    Element environmentVariables = getChild(root, "env-variables");
+    if (environmentVariables != null && !childElements(environmentVariables).isEmpty()) {
+      yaml.append("env_variables:\n");
+      for (Element variable : childElements(environmentVariables)) {
+        yaml.append("  ").append(quote(variable.getAttribute("name"))).append(": ")
+            .append(quote(variable.getAttribute("value"))).append('\n');
+      }
+    }
+
+    yaml.append("api_version: ").append(quote(hasApiJar ? "1.0" : "none")).append('\n');
+
+    yaml.append("handlers:\n");
+    for (String welcomeFile : welcomeFiles) {
+      if (staticFiles.contains(welcomeFile)) {
+        appendStaticHandler(yaml, "(/)", "__static__\\1" + welcomeFile,
+            "__static__/" + welcomeFile);
+      }
+      if (hasStaticWelcomeFileInSubdirectory(staticFiles, welcomeFile)) {
+        appendStaticHandler(yaml, "(/.*/)", "__static__\\1" + welcomeFile,
+            "__static__/.*/" + escapeRegex(welcomeFile));
+      }
+    }
+    if (!staticFiles.isEmpty()) {
+      appendStaticHandler(yaml, "(/.*)", "__static__\\1", "__static__/.*");
+    }
+    yaml.append("- url: /.*\n");
+    yaml.append("  script: unused\n");
+    yaml.append("  login: optional\n");
+    yaml.append("  secure: optional\n");
+    return yaml.toString();
+  }
+
+  private static boolean hasStaticWelcomeFileInSubdirectory(List<String> staticFiles,
+      String welcomeFile) {
+    for (String staticFile : staticFiles) {
+      if (staticFile.endsWith("/" + welcomeFile)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void appendStaticHandler(StringBuilder yaml, String url, String staticFiles,
+      String upload) {
+    yaml.append("- url: ").append(url).append('\n');
+    yaml.append("  static_files: ").append(staticFiles).append('\n');
+    yaml.append("  upload: ").append(upload).append('\n');
+    yaml.append("  require_matching_file: True\n");
+    yaml.append("  login: optional\n");
+    yaml.append("  secure: optional\n");
+  }
+
+  private static String escapeRegex(String text) {
+    return text.replaceAll("([\\\\.\\[\\]{}()*+?^$|])", "\\\\$1"); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static String quote(String value) {
+    return "'" + value.replace("'", "''") + "'";
+  }
+
+  private static Document parse(File xml) {
+    if (!xml.isFile()) {
+      return null;
+    }
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setExpandEntityReferences(false);
+      try (InputStream in = Files.newInputStream(xml.toPath())) {
+        return factory.newDocumentBuilder().parse(in);
+      }
+    } catch (IOException | SAXException | ParserConfigurationException ex) {
+      logger.log(Level.FINE, "Unable to parse " + xml, ex);
+      return null;
+    }
+  }
+
+  private static List<Element> childElements(Element parent) {
+    List<Element> elements = new ArrayList<>();
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (child.getNodeType() == Node.ELEMENT_NODE) {
+        elements.add((Element) child);
+      }
+    }
+    return elements;
+  }
+
+  private static Element getChild(Element parent, String localName) {
+    for (Element child : childElements(parent)) {
+      if (localName.equals(child.getLocalName())) {
+        return child;
+      }
+    }
+    return null;
+  }
+
+  private static String getText(Element parent, String localName) {
+    Element child = getChild(parent, localName);
+    return child == null ? null : child.getTextContent().trim();
+  }
+
+  private static String toRelativePath(Path root, Path file) {
+    return root.relativize(file).toString().replace(File.separatorChar, '/');
+  }
+
+  private static void checkCanceled(IProgressMonitor monitor) {
+    if (monitor.isCanceled()) {
+      throw new OperationCanceledException();
+    }
+  }
+}
@@ -22,7 +22,12 @@ import com.google.cloud.tools.eclipse.appengine.deploy.StagingDelegate;
 import com.google.cloud.tools.eclipse.appengine.deploy.CloudSdkStagingHelper;
 import com.google.cloud.tools.eclipse.appengine.deploy.Messages;
 import com.google.cloud.tools.eclipse.appengine.deploy.WarPublisher;
+import com.google.cloud.tools.eclipse.util.io.DeleteAllVisitor;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
@@ -32,10 +37,29 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 
+/**
+ * Stages with {@link InProcessStandardStaging} when the application allows it, and otherwise with
+ * the App Engine SDK staging tool (see {@link CloudSdkStagingHelper#stageStandard}). No JSP
+ * precompiler is provided, so applications with JSPs are always staged by the SDK tool.
+ */
 public class StandardStagingDelegate implements StagingDelegate {
 
+  private static final Logger logger = Logger.getLogger(StandardStagingDelegate.class.getName());
+
+  private final InProcessStandardStaging inProcessStaging;
   private IPath optionalConfigurationFilesDirectory;
 
+  public StandardStagingDelegate() {
+    this(new InProcessStandardStaging());
+  }
+
+  /**
+   * @param inProcessStaging if {@code null}, always stages with the App Engine SDK staging tool
+   */
+  public StandardStagingDelegate(InProcessStandardStaging inProcessStaging) {
+    this.inProcessStaging = inProcessStaging;
+  }
+
   @Override
   public IStatus stage(IProject project, IPath stagingDirectory, IPath safeWorkDirectory,
       CloudSdk cloudSdk, IProgressMonitor monitor) {
@@ -43,8 +67,10 @@ public class StandardStagingDelegate implements StagingDelegate {
 
     try {
       WarPublisher.publishExploded(project, safeWorkDirectory, subMonitor.newChild(40));
-      CloudSdkStagingHelper.stageStandard(
-          safeWorkDirectory, stagingDirectory, cloudSdk, subMonitor.newChild(60));
+      if (!stageInProcess(safeWorkDirectory, stagingDirectory, subMonitor.newChild(50))) {
+        CloudSdkStagingHelper.stageStandard(
+            safeWorkDirectory, stagingDirectory, cloudSdk, subMonitor.newChild(10));
+      }
 
       optionalConfigurationFilesDirectory =
           stagingDirectory.append(CloudSdkStagingHelper.STANDARD_STAGING_GENERATED_FILES_DIRECTORY);
@@ -58,6 +84,27 @@ public class StandardStagingDelegate implements StagingDelegate {
     }
   }
 
+  private boolean stageInProcess(IPath explodedWarDirectory, IPath stagingDirectory,
+      IProgressMonitor monitor) {
+    if (inProcessStaging == null) {
+      return false;
+    }
+    try {
+      return inProcessStaging.stage(
+          explodedWarDirectory.toFile(), stagingDirectory.toFile(), monitor);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "In-process staging failed; using the App Engine SDK", ex);
+      try {
+        if (stagingDirectory.toFile().exists()) {
+          Files.walkFileTree(stagingDirectory.toFile().toPath(), new DeleteAllVisitor());
+        }
+      } catch (IOException cleanupException) {
+        logger.log(Level.WARNING, "Could not clean up " + stagingDirectory, cleanupException);
+      }
+      return false;
+    }
+  }
+
   @Override
   public IPath getOptionalConfigurationFilesDirectory() {
     return optionalConfigurationFilesDirectory;
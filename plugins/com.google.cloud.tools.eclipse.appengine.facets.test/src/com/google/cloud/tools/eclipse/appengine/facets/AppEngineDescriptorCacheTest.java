@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.facets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class AppEngineDescriptorCacheTest {
+
+  @Rule public TestProjectCreator projectCreator = new TestProjectCreator();
+
+  private final AppEngineDescriptorCache cache = new AppEngineDescriptorCache();
+  private IFile descriptorFile;
+
+  @Before
+  public void setUp() throws CoreException {
+    ResourcesPlugin.getWorkspace().addResourceChangeListener(cache,
+        IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE
+            | IResourceChangeEvent.PRE_DELETE);
+    descriptorFile = projectCreator.getProject().getFile("appengine-web.xml");
+    write("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<service>api</service><runtime>java8</runtime></appengine-web-app>");
+  }
+
+  @After
+  public void tearDown() {
+    ResourcesPlugin.getWorkspace().removeResourceChangeListener(cache);
+  }
+
+  @Test
+  public void testGet() throws CoreException, IOException, SAXException {
+    AppEngineDescriptorCache.Snapshot snapshot = cache.get(descriptorFile);
+    assertEquals("api", snapshot.getServiceId());
+    assertEquals("java8", snapshot.getRuntime());
+    assertTrue(snapshot.isJava8());
+    assertTrue(snapshot.getEnvironment().isEmpty());
+  }
+
+  @Test
+  public void testGet_parsedOnce() throws CoreException, IOException, SAXException {
+    assertSame(cache.get(descriptorFile), cache.get(descriptorFile));
+  }
+
+  @Test
+  public void testGet_fileChanged() throws CoreException, IOException, SAXException {
+    cache.get(descriptorFile);
+    write("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'/>");
+    AppEngineDescriptorCache.Snapshot snapshot = cache.get(descriptorFile);
+    assertNull(snapshot.getServiceId());
+    assertFalse(snapshot.isJava8());
+  }
+
+  @Test
+  public void testGet_malformed() throws CoreException, IOException {
+    write("<appengine-web-app");
+    for (int i = 0; i < 2; i++) {
+      try {
+        cache.get(descriptorFile);
+        fail("malformed XML");
+      } catch (SAXException ex) {
+        assertTrue(ex.getMessage().contains("appengine-web.xml"));
+      }
+    }
+  }
+
+  @Test
+  public void testChangeDropsEntry() throws CoreException, IOException, SAXException {
+    cache.get(descriptorFile);
+    assertTrue(cache.isCached(descriptorFile));
+    descriptorFile.delete(true, null);
+    assertFalse(cache.isCached(descriptorFile));
+  }
+
+  @Test
+  public void testProjectCloseDropsEntry() throws CoreException, IOException, SAXException {
+    cache.get(descriptorFile);
+    projectCreator.getProject().close(null);
+    assertFalse(cache.isCached(descriptorFile));
+  }
+
+  private void write(String contents) throws CoreException {
+    ByteArrayInputStream in =
+        new ByteArrayInputStream(contents.getBytes(StandardCharsets.UTF_8));
+    if (descriptorFile.exists()) {
+      descriptorFile.setContents(in, true, false, null);
+    } else {
+      descriptorFile.create(in, true, null);
+    }
+  }
+}
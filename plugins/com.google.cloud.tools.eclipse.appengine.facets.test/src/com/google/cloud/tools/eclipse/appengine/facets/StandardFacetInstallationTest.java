@@ -25,6 +25,7 @@ import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.List;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
@@ -48,6 +49,7 @@ public class StandardFacetInstallationTest {
   private List<IProject> projects;
 
   @Rule public TestProjectCreator projectCreator = new TestProjectCreator();
+  @Rule public TestProjectCreator projectCreator2 = new TestProjectCreator();
 
   @After
   public void tearDown() throws CoreException {
@@ -114,6 +116,25 @@ public class StandardFacetInstallationTest {
     assertEmptyFile(webXml);
   }
 
+  @Test
+  public void testInstallAppEngineFacets() throws CoreException {
+    IProject project1 = projectCreator.getProject();
+    IProject project2 = projectCreator2.getProject();
+    IFacetedProject facetedProject1 = ProjectFacetsManager.create(project1);
+    IFacetedProject facetedProject2 = ProjectFacetsManager.create(project2);
+
+    AppEngineStandardFacet.installAppEngineFacets(
+        Arrays.asList(facetedProject1, facetedProject2), true, null);
+    assertTrue(AppEngineStandardFacet.hasFacet(facetedProject1));
+    assertTrue(AppEngineStandardFacet.hasFacet(facetedProject2));
+
+    ProjectUtils.waitForProjects(project1, project2); // runtimes are added via a Job, so wait.
+    assertTrue(AppEngineStandardFacet.isAppEngineStandardRuntime(
+        facetedProject1.getPrimaryRuntime()));
+    assertTrue(AppEngineStandardFacet.isAppEngineStandardRuntime(
+        facetedProject2.getPrimaryRuntime()));
+  }
+
   private static void createFolders(IContainer parent, IPath path) throws CoreException {
     if (!path.isEmpty()) {
       IFolder folder = parent.getFolder(new Path(path.segment(0)));
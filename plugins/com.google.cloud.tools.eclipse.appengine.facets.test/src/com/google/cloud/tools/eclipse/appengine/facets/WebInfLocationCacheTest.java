@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.facets;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WebInfLocationCacheTest {
+
+  @Mock private IProject project;
+  @Mock private IFile componentFile;
+  @Mock private IFile projectFile;
+  @Mock private IFolder webRoot;
+  @Mock private IFolder webInf;
+
+  private final WebInfLocationCache cache = new WebInfLocationCache();
+
+  @Before
+  public void setUp() {
+    when(project.getFile(WebInfLocationCache.COMPONENT_FILE)).thenReturn(componentFile);
+    when(project.getFile(".project")).thenReturn(projectFile);
+    when(componentFile.getModificationStamp()).thenReturn(1L);
+    when(projectFile.getModificationStamp()).thenReturn(1L);
+    when(webInf.getParent()).thenReturn(webRoot);
+    when(webRoot.exists()).thenReturn(true);
+  }
+
+  @Test
+  public void testLookup_notCached() {
+    assertFalse(cache.lookup(project).isKnown());
+  }
+
+  @Test
+  public void testLookup() {
+    cache.put(project, webInf);
+    WebInfLocationCache.Location location = cache.lookup(project);
+    assertTrue(location.isKnown());
+    assertSame(webInf, location.getWebInf());
+  }
+
+  @Test
+  public void testLookup_noComponent() {
+    cache.put(project, null);
+    WebInfLocationCache.Location location = cache.lookup(project);
+    assertTrue(location.isKnown());
+    assertNull(location.getWebInf());
+  }
+
+  @Test
+  public void testLookup_componentChanged() {
+    cache.put(project, webInf);
+    when(componentFile.getModificationStamp()).thenReturn(2L);
+    assertFalse(cache.lookup(project).isKnown());
+  }
+
+  @Test
+  public void testLookup_projectDescriptionChanged() {
+    cache.put(project, null);
+    when(projectFile.getModificationStamp()).thenReturn(2L);
+    assertFalse(cache.lookup(project).isKnown());
+  }
+
+  @Test
+  public void testLookup_webRootRemoved() {
+    cache.put(project, webInf);
+    when(webRoot.exists()).thenReturn(false);
+    assertFalse(cache.lookup(project).isKnown());
+  }
+}
@@ -23,6 +23,7 @@ import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.appengine.facets.WebProjectUtil;
 import com.google.cloud.tools.eclipse.test.util.ThreadDumpingWatchdog;
 import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.eclipse.core.resources.IFolder;
@@ -45,6 +46,10 @@ public class AppEngineStandardProjectConvertJobTest {
   public final TestProjectCreator projectCreator =
       new TestProjectCreator().withFacetVersions(JavaFacet.VERSION_1_7);
 
+  @Rule
+  public final TestProjectCreator otherProjectCreator =
+      new TestProjectCreator().withFacetVersions(JavaFacet.VERSION_1_7);
+
   @Test
   public void testAppEngineFacetAdded() throws CoreException, InterruptedException {
     IProject project = projectCreator.getProject();
@@ -69,4 +74,21 @@ public class AppEngineStandardProjectConvertJobTest {
       assertFalse(sourcePath.isPrefixOf(webInfPath));
     }
   }
+
+  @Test
+  public void testAppEngineFacetAddedToAllProjects() throws CoreException, InterruptedException {
+    IFacetedProject facetedProject = ProjectFacetsManager.create(projectCreator.getProject());
+    IFacetedProject otherFacetedProject =
+        ProjectFacetsManager.create(otherProjectCreator.getProject());
+    Job convertJob = new AppEngineStandardProjectConvertJob(
+        Arrays.asList(facetedProject, otherFacetedProject));
+    convertJob.schedule();
+    convertJob.join();
+
+    assertTrue(convertJob.getResult().isOK());
+    assertTrue(AppEngineStandardFacet.hasFacet(facetedProject));
+    assertTrue(AppEngineStandardFacet.hasFacet(otherFacetedProject));
+    IFolder otherWebInf = WebProjectUtil.getWebInfDirectory(otherProjectCreator.getProject());
+    assertTrue(otherWebInf.exists(Path.fromPortableString("appengine-web.xml")));
+  }
 }
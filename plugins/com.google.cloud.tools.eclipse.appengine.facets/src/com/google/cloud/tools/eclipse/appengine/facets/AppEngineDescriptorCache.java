@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.facets;
+
+import com.google.cloud.tools.appengine.AppEngineDescriptor;
+import com.google.cloud.tools.appengine.api.AppEngineException;
+import com.google.common.annotations.VisibleForTesting;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.xml.sax.SAXException;
+
+/**
+ * Parses each {@code appengine-web.xml} once per modification and shares the result. Parsed
+ * descriptors are kept per file with the file's modification stamp, so an edit is picked up by
+ * the next {@link #get} even before the resource change notification that drops the old entry
+ * arrives.
+ */
+public class AppEngineDescriptorCache implements IResourceChangeListener {
+
+  private static AppEngineDescriptorCache instance;
+
+  /** The values read from an {@code appengine-web.xml}. */
+  public static final class Snapshot {
+    private final long modificationStamp;
+    private final String serviceId;
+    private final String runtime;
+    private final boolean java8;
+    private final Map<String, String> environment;
+    /** Set if the file is not well-formed XML. */
+    private final String parseError;
+
+    private Snapshot(long modificationStamp, AppEngineDescriptor descriptor)
+        throws AppEngineException {
+      this.modificationStamp = modificationStamp;
+      serviceId = descriptor.getServiceId();
+      runtime = descriptor.getRuntime();
+      java8 = descriptor.isJava8();
+      Map<String, String> variables = descriptor.getEnvironment();
+      environment = variables == null ? Collections.<String, String>emptyMap()
+          : Collections.unmodifiableMap(new HashMap<>(variables));
+      parseError = null;
+    }
+
+    private Snapshot(long modificationStamp, String parseError) {
+      this.modificationStamp = modificationStamp;
+      serviceId = null;
+      runtime = null;
+      java8 = false;
+      environment = Collections.emptyMap();
+      this.parseError = parseError;
+    }
+
+    /** Returns the {@code <service>} or {@code <module>} ID, or {@code null} if not set. */
+    public String getServiceId() {
+      return serviceId;
+    }
+
+    /** Returns the {@code <runtime>}, or {@code null} if not set. */
+    public String getRuntime() {
+      return runtime;
+    }
+
+    public boolean isJava8() {
+      return java8;
+    }
+
+    /** Returns the {@code <env-variables>}. */
+    public Map<String, String> getEnvironment() {
+      return environment;
+    }
+  }
+
+  private final Map<IFile, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+  /** Returns the shared cache, which follows changes in the workspace. */
+  public static synchronized AppEngineDescriptorCache getInstance() {
+    if (instance == null) {
+      instance = new AppEngineDescriptorCache();
+      ResourcesPlugin.getWorkspace().addResourceChangeListener(instance,
+          IResourceChangeEvent.POST_CHANGE | IResourceChangeEvent.PRE_CLOSE
+              | IResourceChangeEvent.PRE_DELETE);
+    }
+    return instance;
+  }
+
+  @VisibleForTesting
+  AppEngineDescriptorCache() {}
+
+  /**
+   * Returns the values of {@code descriptorFile}, parsing it only if it changed since last time.
+   *
+   * @throws SAXException if the file is not well-formed XML
+   * @throws CoreException if the file cannot be read
+   */
+  public Snapshot get(IFile descriptorFile) throws CoreException, IOException, SAXException {
+    long stamp = descriptorFile.getModificationStamp();
+    Snapshot snapshot = snapshots.get(descriptorFile);
+    if (snapshot == null || snapshot.modificationStamp != stamp) {
+      snapshot = parse(descriptorFile, stamp);
+      snapshots.put(descriptorFile, snapshot);
+    }
+    if (snapshot.parseError != null) {
+      throw new SAXException(snapshot.parseError);
+    }
+    return snapshot;
+  }
+
+  private static Snapshot parse(IFile descriptorFile, long stamp)
+      throws CoreException, IOException {
+    try (InputStream contents = descriptorFile.getContents()) {
+      return new Snapshot(stamp, AppEngineDescriptor.parse(contents));
+    } catch (SAXException | AppEngineException ex) {
+      return new Snapshot(stamp, descriptorFile.getFullPath() + ": " + ex.getMessage());
+    }
+  }
+
+  @VisibleForTesting
+  boolean isCached(IFile descriptorFile) {
+    return snapshots.containsKey(descriptorFile);
+  }
+
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    if (snapshots.isEmpty()) {
+      return;
+    }
+    IResource resource = event.getResource();
+    IResourceDelta delta = event.getDelta();
+    for (Iterator<IFile> iterator = snapshots.keySet().iterator(); iterator.hasNext();) {
+      IFile file = iterator.next();
+      if (resource != null) {
+        // a project is closed or deleted
+        if (resource.equals(file.getProject())) {
+          iterator.remove();
+        }
+      } else if (delta != null) {
+        IResourceDelta fileDelta = delta.findMember(file.getFullPath());
+        if (fileDelta != null && (fileDelta.getKind() != IResourceDelta.CHANGED
+            || (fileDelta.getFlags() & ~IResourceDelta.MARKERS) != 0)) {
+          iterator.remove(); // not just a marker change
+        }
+      }
+    }
+  }
+}
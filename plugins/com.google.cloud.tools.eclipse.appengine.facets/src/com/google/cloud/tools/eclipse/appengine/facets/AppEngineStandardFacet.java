@@ -24,13 +24,20 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.ILock;
@@ -285,6 +292,76 @@ public class AppEngineStandardFacet {
     }
   }
 
+  /**
+   * Installs the App Engine standard facet on many projects at once. Unlike calling {@link
+   * #installAppEngineFacet} for each project, this runs as a single workspace operation, so
+   * builds and resource change notifications happen once at the end; and App Engine runtimes are
+   * then installed to all the projects by a single job.
+   *
+   * @param facetedProjects the faceted projects receiving the App Engine facet
+   * @param installDependentFacets true if the facets required by the App Engine facet should be
+   *        installed, false otherwise
+   * @param monitor the progress monitor
+   * @throws CoreException if installing to any of the projects fails; the facet is still
+   *     installed to the other projects
+   */
+  public static void installAppEngineFacets(Collection<IFacetedProject> facetedProjects,
+      final boolean installDependentFacets, IProgressMonitor monitor) throws CoreException {
+    final List<IFacetedProject> projects = new ArrayList<>(facetedProjects);
+    // always lock in the same order to avoid deadlocks with concurrent bulk installs
+    Collections.sort(projects, new Comparator<IFacetedProject>() {
+      @Override
+      public int compare(IFacetedProject project1, IFacetedProject project2) {
+        return project1.getProject().getName().compareTo(project2.getProject().getName());
+      }
+    });
+
+    List<ILock> locks = new ArrayList<>();
+    try {
+      for (IFacetedProject project : projects) {
+        locks.add(acquireLock(project.getProject()));
+      }
+
+      final MultiStatus failures = StatusUtil.multi(AppEngineStandardFacet.class,
+          "Unable to install the App Engine standard facet");
+      IWorkspaceRunnable runnable = new IWorkspaceRunnable() {
+        @Override
+        public void run(IProgressMonitor monitor) throws CoreException {
+          SubMonitor progress = SubMonitor.convert(monitor, projects.size());
+          StandardFacetInstallDelegate.beginBulkInstall();
+          try {
+            for (IFacetedProject project : projects) {
+              if (progress.isCanceled()) {
+                throw new OperationCanceledException();
+              }
+              try {
+                // locks are reentrant, so this doesn't block on the lock we hold
+                installAppEngineFacet(project, installDependentFacets, progress.newChild(1));
+              } catch (CoreException ex) {
+                failures.add(ex.getStatus());
+              }
+            }
+          } finally {
+            // projects that got the facet before a cancellation still need their runtimes
+            List<IFacetedProject> installed = StandardFacetInstallDelegate.endBulkInstall();
+            if (!installed.isEmpty()) {
+              StandardFacetInstallDelegate.installAppEngineRuntimes(installed);
+            }
+          }
+        }
+      };
+      ResourcesPlugin.getWorkspace().run(runnable, ResourcesPlugin.getWorkspace().getRoot(),
+          IWorkspace.AVOID_UPDATE, monitor);
+      if (!failures.isOK()) {
+        throw new CoreException(failures);
+      }
+    } finally {
+      for (ILock lock : locks) {
+        lock.release();
+      }
+    }
+  }
+
   /**
    * If App Engine runtimes exist in the workspace, add them to the list of targeted runtimes
    * of <code>project</code>. Otherwise create a new App Engine runtime and add it to the list
@@ -16,10 +16,8 @@
 
 package com.google.cloud.tools.eclipse.appengine.facets;
 
-import com.google.cloud.tools.appengine.AppEngineDescriptor;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.logging.Logger;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
@@ -49,8 +47,9 @@ public class AppEngineStandardJre7ProjectFacetDetector extends ProjectFacetDetec
       logger.fine("skipping " + projectName + ": no appengine-web.xml found");
       return;
     }
-    try (InputStream content = appEngineWebXml.getContents()) {
-      AppEngineDescriptor descriptor = AppEngineDescriptor.parse(content);
+    try {
+      AppEngineDescriptorCache.Snapshot descriptor =
+          AppEngineDescriptorCache.getInstance().get(appEngineWebXml);
       progress.worked(1);
       if (descriptor.getRuntime() != null && !"java7".equals(descriptor.getRuntime())) {
         logger.fine("skipping " + projectName + ": appengine-web.xml is not java7");
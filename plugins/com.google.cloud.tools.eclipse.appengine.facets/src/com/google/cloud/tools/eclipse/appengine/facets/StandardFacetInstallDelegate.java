@@ -18,9 +18,14 @@ package com.google.cloud.tools.eclipse.appengine.facets;
 
 import com.google.cloud.tools.eclipse.util.Templates;
 import com.google.cloud.tools.eclipse.util.io.ResourceUtils;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
 import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -42,6 +47,12 @@ public class StandardFacetInstallDelegate extends AppEngineFacetInstallDelegate
   private static final String JSDT_FACET_ID = "wst.jsdt.web";
   private static final int MAX_JSDT_CHECK_RETRIES = 100;
 
+  /**
+   * While a bulk install runs on this thread, the projects whose App Engine runtimes are to be
+   * installed once it is done; {@code null} otherwise.
+   */
+  private static final ThreadLocal<List<IFacetedProject>> bulkInstall = new ThreadLocal<>();
+
   @Override
   public void execute(IProject project,
                       IProjectFacetVersion version,
@@ -54,10 +65,42 @@ public class StandardFacetInstallDelegate extends AppEngineFacetInstallDelegate
 
   private void installAppEngineRuntimes(IProject project) throws CoreException {
     IFacetedProject facetedProject = ProjectFacetsManager.create(project);
+    List<IFacetedProject> deferred = bulkInstall.get();
+    if (deferred != null) {
+      deferred.add(facetedProject);
+      return;
+    }
+    installAppEngineRuntimes(Collections.singletonList(facetedProject));
+  }
+
+  /**
+   * Defers installing App Engine runtimes for the projects that get the facet on this thread until
+   * {@link #endBulkInstall()}.
+   */
+  static void beginBulkInstall() {
+    Preconditions.checkState(bulkInstall.get() == null, "Bulk install already in progress");
+    bulkInstall.set(new ArrayList<IFacetedProject>());
+  }
+
+  /**
+   * Ends deferring runtime installation on this thread.
+   *
+   * @return the projects whose App Engine runtimes still need to be installed
+   */
+  static List<IFacetedProject> endBulkInstall() {
+    List<IFacetedProject> deferred = bulkInstall.get();
+    Preconditions.checkState(deferred != null, "No bulk install in progress");
+    bulkInstall.remove();
+    return deferred;
+  }
 
+  /**
+   * Installs App Engine runtimes to the given projects in a single job.
+   */
+  static void installAppEngineRuntimes(List<IFacetedProject> facetedProjects) {
     // Modifying targeted runtimes while installing/uninstalling facets is not allowed,
     // so schedule a job as a workaround.
-    Job installJob = new AppEngineRuntimeInstallJob(facetedProject);
+    Job installJob = new AppEngineRuntimeInstallJob(facetedProjects);
     // Schedule immediately so that it doesn't go into the SLEEPING state. Ensuring the job is
     // active is necessary for unit testing.
     installJob.schedule();
@@ -69,12 +112,20 @@ public class StandardFacetInstallDelegate extends AppEngineFacetInstallDelegate
 
   private static class AppEngineRuntimeInstallJob extends Job {
 
-    private IFacetedProject facetedProject;
+    private List<IFacetedProject> facetedProjects;
 
-    private AppEngineRuntimeInstallJob(IFacetedProject facetedProject) {
+    private AppEngineRuntimeInstallJob(List<IFacetedProject> facetedProjects) {
       super(Messages.getString("appengine.install.runtime.to.project", // $NON-NLS$
-          facetedProject.getProject().getName()));
-      this.facetedProject = facetedProject;
+          Joiner.on(", ").join(getNames(facetedProjects)))); //$NON-NLS-1$
+      this.facetedProjects = facetedProjects;
+    }
+
+    private static List<String> getNames(List<IFacetedProject> facetedProjects) {
+      List<String> names = new ArrayList<>();
+      for (IFacetedProject facetedProject : facetedProjects) {
+        names.add(facetedProject.getProject().getName());
+      }
+      return names;
     }
 
     /**
@@ -89,8 +140,15 @@ public class StandardFacetInstallDelegate extends AppEngineFacetInstallDelegate
     private void waitUntilJsdtIsFixedFacet(IProgressMonitor monitor) throws InterruptedException {
       try {
         IProjectFacet jsdtFacet = ProjectFacetsManager.getProjectFacet(JSDT_FACET_ID);
+        // one budget for all projects, as their ConvertJobs run concurrently
+        List<IFacetedProject> pending = new ArrayList<>(facetedProjects);
         for (int times = 0; !monitor.isCanceled() && times < MAX_JSDT_CHECK_RETRIES; times++) {
-          if (facetedProject.isFixedProjectFacet(jsdtFacet)) {
+          for (int i = pending.size() - 1; i >= 0; i--) {
+            if (pending.get(i).isFixedProjectFacet(jsdtFacet)) {
+              pending.remove(i);
+            }
+          }
+          if (pending.isEmpty()) {
             return;
           }
           Thread.sleep(100 /* ms */);
@@ -109,11 +167,18 @@ public class StandardFacetInstallDelegate extends AppEngineFacetInstallDelegate
         if (monitor.isCanceled()) {
           return Status.CANCEL_STATUS;
         }
-        AppEngineStandardFacet.installAllAppEngineRuntimes(facetedProject, monitor);
-        return Status.OK_STATUS;
+        SubMonitor progress = SubMonitor.convert(monitor, facetedProjects.size());
+        IStatus status = null;
+        for (IFacetedProject facetedProject : facetedProjects) {
+          try {
+            AppEngineStandardFacet.installAllAppEngineRuntimes(facetedProject,
+                progress.newChild(1));
+          } catch (CoreException ex) {
+            status = StatusUtil.merge(status, ex.getStatus());
+          }
+        }
+        return status == null ? Status.OK_STATUS : status;
 
-      } catch (CoreException ex) {
-        return ex.getStatus();
       } catch (InterruptedException ex) {
         return Status.CANCEL_STATUS;
       } finally {
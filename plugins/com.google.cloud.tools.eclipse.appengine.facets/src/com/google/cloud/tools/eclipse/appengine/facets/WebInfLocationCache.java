@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.facets;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.ResourcesPlugin;
+
+/**
+ * Remembers where the WTP component model of a project puts <code>WEB-INF</code>, so the model is
+ * not built again on every lookup. An entry is valid as long as the component file (which also
+ * holds the deployment assembly) and the project description are unchanged; their modification
+ * stamps are compared on each lookup, so changes made earlier in the same workspace operation are
+ * seen too.
+ */
+class WebInfLocationCache implements IResourceChangeListener {
+
+  static final String COMPONENT_FILE = ".settings/org.eclipse.wst.common.component";
+  private static final String PROJECT_FILE = ".project";
+
+  private static WebInfLocationCache instance;
+
+  /** The result of a {@link #lookup}. */
+  static final class Location {
+    private static final Location UNKNOWN = new Location(false, null);
+
+    private final boolean known;
+    private final IFolder webInf;
+
+    private Location(boolean known, IFolder webInf) {
+      this.known = known;
+      this.webInf = webInf;
+    }
+
+    /**
+     * Returns {@code false} if the location is not cached, and must be read from the component
+     * model.
+     */
+    boolean isKnown() {
+      return known;
+    }
+
+    /**
+     * Returns the <code>WEB-INF</code> from the component model, or {@code null} if it is not
+     * {@link #isKnown() known} or the project is not a virtual component.
+     */
+    IFolder getWebInf() {
+      return webInf;
+    }
+  }
+
+  private static final class Entry {
+    private final long componentStamp;
+    private final long projectStamp;
+    private final Location location;
+
+    private Entry(long componentStamp, long projectStamp, Location location) {
+      this.componentStamp = componentStamp;
+      this.projectStamp = projectStamp;
+      this.location = location;
+    }
+  }
+
+  private final Map<IProject, Entry> entries = new ConcurrentHashMap<>();
+
+  static synchronized WebInfLocationCache getInstance() {
+    if (instance == null) {
+      instance = new WebInfLocationCache();
+      ResourcesPlugin.getWorkspace().addResourceChangeListener(instance,
+          IResourceChangeEvent.PRE_CLOSE | IResourceChangeEvent.PRE_DELETE);
+    }
+    return instance;
+  }
+
+  /**
+   * Returns the cached location of the <code>WEB-INF</code> from the component model, which is
+   * not {@link Location#isKnown() known} if it has to be read again.
+   */
+  Location lookup(IProject project) {
+    Entry entry = entries.get(project);
+    if (entry == null || entry.componentStamp != getStamp(project, COMPONENT_FILE)
+        || entry.projectStamp != getStamp(project, PROJECT_FILE)) {
+      return Location.UNKNOWN;
+    }
+    IFolder webInf = entry.location.getWebInf();
+    if (webInf != null && !webInf.getParent().exists()) {
+      // the web root was removed
+      entries.remove(project);
+      return Location.UNKNOWN;
+    }
+    return entry.location;
+  }
+
+  /**
+   * Remembers the <code>WEB-INF</code> from the component model, or {@code null} if the project
+   * is not a virtual component.
+   */
+  void put(IProject project, IFolder webInf) {
+    entries.put(project, new Entry(getStamp(project, COMPONENT_FILE),
+        getStamp(project, PROJECT_FILE), new Location(true, webInf)));
+  }
+
+  private static long getStamp(IProject project, String path) {
+    return project.getFile(path).getModificationStamp();
+  }
+
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    if (event.getResource() instanceof IProject) {
+      entries.remove(event.getResource());
+    }
+  }
+}
@@ -54,12 +54,25 @@ public class WebProjectUtil {
    */
   public static IFolder getWebInfDirectory(IProject project) {
     // Try to obtain the directory as if it was a Dynamic Web Project
-    IVirtualComponent component = ComponentCore.createComponent(project);
-    if (component != null && component.exists()) {
-      IVirtualFolder root = component.getRootFolder();
-      // the root should exist, but the WEB-INF may not yet exist
-      if (root.exists()) {
-        return (IFolder) root.getFolder(WEB_INF).getUnderlyingFolder();
+    WebInfLocationCache cache = WebInfLocationCache.getInstance();
+    WebInfLocationCache.Location cached = cache.lookup(project);
+    if (cached.isKnown()) {
+      if (cached.getWebInf() != null) {
+        return cached.getWebInf();
+      }
+    } else {
+      IVirtualComponent component = ComponentCore.createComponent(project);
+      if (component != null && component.exists()) {
+        IVirtualFolder root = component.getRootFolder();
+        // the root should exist, but the WEB-INF may not yet exist
+        if (root.exists()) {
+          IFolder webInf = (IFolder) root.getFolder(WEB_INF).getUnderlyingFolder();
+          cache.put(project, webInf);
+          return webInf;
+        }
+        // not cached: the root may be created without changing the component
+      } else {
+        cache.put(project, null);
       }
     }
     // Otherwise it's seemingly fair game
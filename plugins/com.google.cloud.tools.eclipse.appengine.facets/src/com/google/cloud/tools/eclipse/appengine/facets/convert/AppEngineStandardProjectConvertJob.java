@@ -16,10 +16,20 @@
 
 package com.google.cloud.tools.eclipse.appengine.facets.convert;
 
-import com.google.cloud.tools.eclipse.appengine.compat.GpeMigrator;
+import com.google.cloud.tools.eclipse.appengine.compat.GpeWorkspaceMigrator;
 import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.appengine.facets.Messages;
+import com.google.cloud.tools.eclipse.util.ProjectDescriptionEditor;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -30,32 +40,69 @@ import org.eclipse.wst.common.project.facet.core.IFacetedProject;
 
 public class AppEngineStandardProjectConvertJob extends Job {
 
-  private final IFacetedProject facetedProject;
+  private final List<IFacetedProject> facetedProjects;
 
   public AppEngineStandardProjectConvertJob(IFacetedProject facetedProject) {
+    this(Collections.singletonList(facetedProject));
+  }
+
+  /**
+   * Converts several projects at once; builds and App Engine runtime installation then happen
+   * once for all of them.
+   */
+  public AppEngineStandardProjectConvertJob(Collection<IFacetedProject> facetedProjects) {
     super("App Engine Standard Project Conversion Job");
-    this.facetedProject = facetedProject;
+    Preconditions.checkArgument(!facetedProjects.isEmpty(), "no projects to convert");
+    this.facetedProjects = new ArrayList<>(facetedProjects);
   }
 
   @Override
-  protected IStatus run(IProgressMonitor monitor) {
-    SubMonitor subMonitor = SubMonitor.convert(monitor, 100);
+  protected IStatus run(final IProgressMonitor monitor) {
+    // Convert as one batch so that .project is written once, with a single resource delta and
+    // build at the end.
+    final List<IProject> projects = new ArrayList<>();
+    for (IFacetedProject facetedProject : facetedProjects) {
+      projects.add(facetedProject.getProject());
+    }
+    IWorkspaceRunnable convert = new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor batchMonitor) throws CoreException {
+        SubMonitor subMonitor = SubMonitor.convert(batchMonitor, 100);
 
-    try {
-      // Updating project before installing App Engine facet to avoid
-      // https://github.com/GoogleCloudPlatform/google-cloud-eclipse/issues/1155.
-      GpeMigrator.removeObsoleteGpeRemnants(facetedProject, subMonitor.newChild(20));
-
-      if (!monitor.isCanceled()) {
-        AppEngineStandardFacet.installAppEngineFacet(facetedProject,
-            true /* install Java and Web facets too (safe even if already installed) */,
-            subMonitor.newChild(80));
+        // Updating project before installing App Engine facet to avoid
+        // https://github.com/GoogleCloudPlatform/google-cloud-eclipse/issues/1155.
+        // The GPE nature removal is written right away rather than at the end of the batch.
+        GpeWorkspaceMigrator.migrate(projects, subMonitor.newChild(20));
+        // broadcast the changes now, so WTP reloads the facet metadata rewritten by the
+        // migration before the facets are installed
+        ResourcesPlugin.getWorkspace().checkpoint(false /* no build */);
+
+        if (monitor.isCanceled()) {
+          return;
+        }
+        if (facetedProjects.size() == 1) {
+          AppEngineStandardFacet.installAppEngineFacet(facetedProjects.get(0),
+              true /* install Java and Web facets too (safe even if already installed) */,
+              subMonitor.newChild(80));
+        } else {
+          AppEngineStandardFacet.installAppEngineFacets(facetedProjects,
+              true /* install Java and Web facets too (safe even if already installed) */,
+              subMonitor.newChild(80));
+        }
       }
+    };
 
+    try {
+      ProjectDescriptionEditor.batch(projects, convert, monitor);
       return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
     } catch (CoreException ex) {
-      String project = facetedProject.getProject().getName();
-      return StatusUtil.error(this, Messages.getString("project.conversion.error", project), ex);
+      List<String> names = new ArrayList<>();
+      for (IProject project : projects) {
+        names.add(project.getName());
+      }
+      String message =
+          Messages.getString("project.conversion.error", Joiner.on(", ").join(names));
+      return StatusUtil.error(this, message, ex);
     }
   }
 }
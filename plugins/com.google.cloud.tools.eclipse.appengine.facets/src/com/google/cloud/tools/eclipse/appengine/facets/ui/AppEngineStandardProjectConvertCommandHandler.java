@@ -20,6 +20,8 @@ import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.appengine.facets.convert.AppEngineStandardProjectConvertJob;
 import com.google.cloud.tools.eclipse.sdk.ui.preferences.CloudSdkPrompter;
 import com.google.cloud.tools.eclipse.ui.util.ProjectFromSelectionHelper;
+import java.util.ArrayList;
+import java.util.List;
 import org.eclipse.core.commands.AbstractHandler;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
@@ -37,8 +39,8 @@ public class AppEngineStandardProjectConvertCommandHandler extends AbstractHandl
   public Object execute(ExecutionEvent event) throws ExecutionException {
     Shell shell = HandlerUtil.getActiveShellChecked(event);
     try {
-      IProject project = ProjectFromSelectionHelper.getFirstProject(event);
-      if (project == null) {
+      List<IProject> projects = ProjectFromSelectionHelper.getProjects(event);
+      if (projects.isEmpty()) {
         throw new NullPointerException("Convert menu enabled for non-project resources");
       }
 
@@ -48,14 +50,19 @@ public class AppEngineStandardProjectConvertCommandHandler extends AbstractHandl
         return null;
       }
 
-      IFacetedProject facetedProject = ProjectFacetsManager.create(project,
-          true /* convert to faceted project if necessary */, null /* no monitor here */);
-      if (AppEngineStandardFacet.hasFacet(facetedProject)) {
-        throw new IllegalStateException("Convert menu enabled for App Engine projects");
+      List<IFacetedProject> facetedProjects = new ArrayList<>();
+      for (IProject project : projects) {
+        IFacetedProject facetedProject = ProjectFacetsManager.create(project,
+            true /* convert to faceted project if necessary */, null /* no monitor here */);
+        if (AppEngineStandardFacet.hasFacet(facetedProject)) {
+          throw new IllegalStateException("Convert menu enabled for App Engine projects");
+        }
+        facetedProjects.add(facetedProject);
       }
 
+      // a multi-selection is converted by one job, which builds and installs runtimes once
       AppEngineStandardProjectConvertJob job =
-          new AppEngineStandardProjectConvertJob(facetedProject);
+          new AppEngineStandardProjectConvertJob(facetedProjects);
       job.setUser(true);
       job.schedule();
     } catch (CoreException ex) {
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.cloud.tools.eclipse.appengine.localserver.server.DevAppServerLogEntry.Severity;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import org.junit.Test;
+
+public class DevAppServerLogStoreTest {
+
+  private final DevAppServerLogStore store = new DevAppServerLogStore();
+  private final ProcessOutputLineListener listener = store.newListener();
+
+  @Test
+  public void testJavaLoggingRecord() {
+    listener.onOutputLine(
+        "Apr 05, 2017 9:25:17 PM com.google.appengine.tools.development.AbstractModule startup");
+    listener.onOutputLine("WARNING: Module instance default is running at http://localhost:7979/");
+
+    assertEquals(1, store.size());
+    DevAppServerLogEntry entry = store.get(0);
+    assertEquals(Severity.WARNING, entry.getSeverity());
+    assertEquals("com.google.appengine.tools.development.AbstractModule", entry.getLogger());
+    assertEquals(new GregorianCalendar(2017, Calendar.APRIL, 5, 21, 25, 17).getTime(),
+        entry.getTimestamp());
+    assertEquals("Apr 05, 2017 9:25:17 PM com.google.appengine.tools.development.AbstractModule"
+        + " startup\nWARNING: Module instance default is running at http://localhost:7979/",
+        entry.getText());
+  }
+
+  @Test
+  public void testJavaLoggingHeaderWithoutLevel() {
+    listener.onOutputLine("Apr 05, 2017 12:05:01 AM com.example.Foo bar");
+    listener.onOutputLine("no level");
+
+    assertEquals(2, store.size());
+    assertEquals(Severity.UNKNOWN, store.get(0).getSeverity());
+    assertEquals("com.example.Foo", store.get(0).getLogger());
+    assertEquals(new GregorianCalendar(2017, Calendar.APRIL, 5, 0, 5, 1).getTime(),
+        store.get(0).getTimestamp());
+    assertEquals("no level", store.get(1).getText());
+  }
+
+  @Test
+  public void testPythonRecord() {
+    listener.onOutputLine("ERROR    2016-11-03 21:11:24,117 module.py:788] default: "
+        + "\"GET / HTTP/1.1\" 500 1046 request_id=abc-123");
+
+    DevAppServerLogEntry entry = store.get(0);
+    assertEquals(Severity.ERROR, entry.getSeverity());
+    assertEquals("module.py:788", entry.getLogger());
+    assertEquals("abc-123", entry.getRequestId());
+    Calendar expected = new GregorianCalendar(2016, Calendar.NOVEMBER, 3, 21, 11, 24);
+    expected.set(Calendar.MILLISECOND, 117);
+    assertEquals(expected.getTime(), entry.getTimestamp());
+  }
+
+  @Test
+  public void testStackTraceBelongsToPrecedingEntry() {
+    listener.onOutputLine("Apr 05, 2017 9:25:17 PM com.example.Servlet doGet");
+    listener.onOutputLine("SEVERE: Request failed requestId=r1");
+    listener.onOutputLine("java.lang.IllegalStateException");
+    listener.onOutputLine("\tat com.example.Servlet.doGet(Servlet.java:12)");
+    listener.onOutputLine("Caused by: java.io.IOException");
+
+    assertEquals(4, store.size());
+    assertEquals(Severity.UNKNOWN, store.get(1).getSeverity());
+    assertNull(store.get(1).getRequestId());
+    assertEquals(Severity.UNKNOWN, store.get(2).getSeverity());
+    List<DevAppServerLogEntry> request = store.query(null, "r1", 10);
+    assertEquals(1, request.size());
+    assertEquals(0, request.get(0).getIndex());
+  }
+
+  @Test
+  public void testIndentedLinesInheritSeverityAndRequest() {
+    listener.onOutputLine("Apr 05, 2017 9:25:17 PM com.example.Servlet doGet");
+    listener.onOutputLine("SEVERE: Request failed requestId=r1");
+    listener.onOutputLine("\tat com.example.Servlet.doGet(Servlet.java:12)");
+
+    DevAppServerLogEntry entry = store.get(1);
+    assertEquals(Severity.ERROR, entry.getSeverity());
+    assertEquals("r1", entry.getRequestId());
+    assertEquals(2, store.query(Severity.ERROR, "r1", 10).size());
+  }
+
+  @Test
+  public void testQuery_bySeverity() {
+    for (int i = 0; i < 100; i++) {
+      store.add(0, i % 10 == 0 ? Severity.ERROR : Severity.INFO, null, null, "line " + i);
+    }
+    store.add(0, Severity.CRITICAL, null, null, "critical");
+
+    List<DevAppServerLogEntry> errors = store.query(Severity.ERROR, null, 100);
+    assertEquals(11, errors.size());
+    assertEquals("line 0", errors.get(0).getText());
+    assertEquals("line 90", errors.get(9).getText());
+    assertEquals("critical", errors.get(10).getText());
+  }
+
+  @Test
+  public void testQuery_limitKeepsMostRecent() {
+    for (int i = 0; i < 100; i++) {
+      store.add(0, i % 2 == 0 ? Severity.ERROR : Severity.WARNING, null, null, "line " + i);
+    }
+
+    List<DevAppServerLogEntry> entries = store.query(Severity.WARNING, null, 3);
+    assertEquals(3, entries.size());
+    assertEquals("line 97", entries.get(0).getText());
+    assertEquals("line 99", entries.get(2).getText());
+
+    entries = store.query(null, null, 2);
+    assertEquals("line 98", entries.get(0).getText());
+    assertEquals("line 99", entries.get(1).getText());
+  }
+
+  @Test
+  public void testQuery_byRequestAndSeverity() {
+    store.add(0, Severity.INFO, null, "r1", "r1 info");
+    store.add(0, Severity.ERROR, null, "r2", "r2 error");
+    store.add(0, Severity.ERROR, null, "r1", "r1 error");
+
+    assertEquals(2, store.query(null, "r1", 10).size());
+    List<DevAppServerLogEntry> entries = store.query(Severity.WARNING, "r1", 10);
+    assertEquals(1, entries.size());
+    assertEquals("r1 error", entries.get(0).getText());
+    assertTrue(store.query(null, "unknown", 10).isEmpty());
+  }
+
+  @Test
+  public void testManyChunks() {
+    int count = DevAppServerLogStore.CHUNK_SIZE * 3 + 5;
+    for (int i = 0; i < count; i++) {
+      store.add(0, Severity.INFO, "logger", "r" + (i % 7), "entry \u00e9 " + i);
+    }
+
+    assertEquals(count, store.size());
+    DevAppServerLogEntry entry = store.get(DevAppServerLogStore.CHUNK_SIZE * 2 + 1);
+    assertEquals("entry \u00e9 " + (DevAppServerLogStore.CHUNK_SIZE * 2 + 1), entry.getText());
+    assertEquals("logger", entry.getLogger());
+    assertEquals(count / 7 + 1, store.query(null, "r0", count).size());
+  }
+
+  @Test
+  public void testOldestChunksDropped() {
+    DevAppServerLogStore boundedStore = new DevAppServerLogStore(2);
+    int count = DevAppServerLogStore.CHUNK_SIZE * 3 + 5;
+    for (int i = 0; i < count; i++) {
+      Severity severity = i % 2 == 0 ? Severity.ERROR : Severity.INFO;
+      boundedStore.add(0, severity, "logger" + i / DevAppServerLogStore.CHUNK_SIZE,
+          "r" + i / 2, "entry " + i);
+    }
+
+    assertEquals(count, boundedStore.size());
+    assertEquals(DevAppServerLogStore.CHUNK_SIZE * 2, boundedStore.getDroppedCount());
+    DevAppServerLogEntry oldest = boundedStore.get(DevAppServerLogStore.CHUNK_SIZE * 2);
+    assertEquals("entry " + DevAppServerLogStore.CHUNK_SIZE * 2, oldest.getText());
+    assertEquals("logger2", oldest.getLogger());
+    assertEquals("logger3", boundedStore.get(count - 1).getLogger());
+    assertEquals("r" + (count - 1) / 2, boundedStore.get(count - 1).getRequestId());
+
+    List<DevAppServerLogEntry> all = boundedStore.query(null, null, count);
+    assertEquals(DevAppServerLogStore.CHUNK_SIZE + 5, all.size());
+    assertEquals(oldest.getText(), all.get(0).getText());
+    List<DevAppServerLogEntry> errors = boundedStore.query(Severity.ERROR, null, count);
+    assertEquals(DevAppServerLogStore.CHUNK_SIZE / 2 + 3, errors.size());
+    assertEquals(oldest.getText(), errors.get(0).getText());
+    assertTrue(boundedStore.query(null, "r0", 10).isEmpty());
+    assertEquals(2, boundedStore.query(null, "r" + (count - 2) / 2, 10).size());
+  }
+
+  @Test
+  public void testOldestChunksDropped_symbolsInUseKept() {
+    DevAppServerLogStore boundedStore = new DevAppServerLogStore(2);
+    int count = DevAppServerLogStore.CHUNK_SIZE * 5;
+    for (int i = 0; i < count; i++) {
+      // a logger and a request that last for the whole session, and short-lived ones
+      boolean longLived = i % 100 == 0;
+      boundedStore.add(0, Severity.INFO, longLived ? "main" : "logger" + i / 1000,
+          longLived ? "session" : "r" + i / 10, "entry " + i);
+    }
+
+    int oldest = boundedStore.getDroppedCount();
+    assertEquals(DevAppServerLogStore.CHUNK_SIZE * 3, oldest);
+    for (int i = oldest; i < count; i++) {
+      DevAppServerLogEntry entry = boundedStore.get(i);
+      assertEquals("entry " + i, entry.getText());
+      assertEquals(i % 100 == 0 ? "main" : "logger" + i / 1000, entry.getLogger());
+      assertEquals(i % 100 == 0 ? "session" : "r" + i / 10, entry.getRequestId());
+    }
+    List<DevAppServerLogEntry> session = boundedStore.query(null, "session", count);
+    int firstSessionEntry = (oldest + 99) / 100 * 100;
+    assertEquals((count - firstSessionEntry + 99) / 100, session.size());
+    assertEquals("entry " + firstSessionEntry, session.get(0).getText());
+    assertTrue(boundedStore.query(null, "r0", 10).isEmpty());
+  }
+
+  @Test
+  public void testOldestChunksDropped_forgottenSymbolUsedAgain() {
+    DevAppServerLogStore boundedStore = new DevAppServerLogStore(1);
+    for (int i = 0; i < DevAppServerLogStore.CHUNK_SIZE; i++) {
+      boundedStore.add(0, Severity.INFO, "first", "r1", "entry " + i);
+    }
+    boundedStore.add(0, Severity.INFO, "second", "r2", "dropped the first chunk");
+    boundedStore.add(0, Severity.INFO, "first", "r1", "r1 again");
+
+    assertEquals("second", boundedStore.get(DevAppServerLogStore.CHUNK_SIZE).getLogger());
+    assertEquals("first", boundedStore.get(DevAppServerLogStore.CHUNK_SIZE + 1).getLogger());
+    List<DevAppServerLogEntry> entries = boundedStore.query(null, "r1", 10);
+    assertEquals(1, entries.size());
+    assertEquals("r1 again", entries.get(0).getText());
+    assertEquals(1, boundedStore.query(null, "r2", 10).size());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGet_droppedEntry() {
+    DevAppServerLogStore boundedStore = new DevAppServerLogStore(1);
+    for (int i = 0; i <= DevAppServerLogStore.CHUNK_SIZE; i++) {
+      boundedStore.add(0, Severity.INFO, null, null, "entry " + i);
+    }
+    boundedStore.get(0);
+  }
+
+  @Test
+  public void testRecordedOutput() throws IOException {
+    for (String line : DevAppServerOutputClassifierTest.readRecordedOutput()) {
+      listener.onOutputLine(line);
+    }
+    List<DevAppServerLogEntry> warnings = store.query(Severity.WARNING, null, 100);
+    assertEquals(4, warnings.size());
+    assertEquals("WARNING  2016-11-03 21:11:26,402 instance.py:285] "
+        + "Instance process terminated unexpectedly", warnings.get(3).getText());
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the cost per line of {@link DevAppServerOutputClassifier} with that of the regular
+ * expressions it replaced, over recorded dev_appserver output. Not a test; run it as a Java
+ * application.
+ */
+public class DevAppServerOutputClassifierBenchmark {
+
+  private static final int WARM_UP_ITERATIONS = 20000;
+  private static final int MEASURED_ITERATIONS = 50000;
+
+  private static final Pattern[] PATTERNS = {
+      Pattern.compile("INFO .*Starting module \"(?<service>[^\"]+)\" running at: "
+          + "(?<url>http://.+:(?<port>[0-9]+))$"),
+      Pattern.compile("INFO: Module instance (?<service>[\\w\\d\\-]+) is running at "
+          + "(?<url>http://.+:(?<port>[0-9]+)/)$"),
+      Pattern.compile("INFO .*Starting admin server at: (?<url>http://.+:(?<port>[0-9]+))$"),
+      Pattern.compile("INFO: The admin console is running at "
+          + "(?<url>http://.+:(?<port>[0-9]+))/_ah/admin$")};
+
+  // keeps the JIT from discarding the work
+  private static int sink;
+
+  public static void main(String[] args) throws IOException {
+    final List<String> lines = DevAppServerOutputClassifierTest.readRecordedOutput();
+    for (int round = 0; round < 2; round++) {
+      boolean report = round == 1;
+      measure("regular expressions", lines, report, new Runnable() {
+        @Override
+        public void run() {
+          for (String line : lines) {
+            sink += classifyWithPatterns(line);
+          }
+        }
+      });
+      measure("classifier", lines, report, new Runnable() {
+        @Override
+        public void run() {
+          for (String line : lines) {
+            sink += DevAppServerOutputClassifier.classify(line).kind.ordinal();
+          }
+        }
+      });
+    }
+    System.out.println("(" + sink + ")");
+  }
+
+  private static int classifyWithPatterns(String line) {
+    if (line.endsWith("Dev App Server is now running")
+        || line.endsWith(".Server:main: Started")
+        || line.equals("Traceback (most recent call last):")
+        || line.contains("Error: A fatal exception has occurred. Program will exit")) {
+      return 1;
+    }
+    for (int i = 0; i < PATTERNS.length; i++) {
+      if (PATTERNS[i].matcher(line).matches()) {
+        return i + 2;
+      }
+    }
+    return 0;
+  }
+
+  private static void measure(String name, List<String> lines, boolean report,
+      Runnable pass) {
+    for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+      pass.run();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+      pass.run();
+    }
+    long elapsed = System.nanoTime() - start;
+    if (report) {
+      System.out.printf("%-20s %8.1f ns/line%n", name,
+          (double) elapsed / MEASURED_ITERATIONS / lines.size());
+    }
+  }
+}
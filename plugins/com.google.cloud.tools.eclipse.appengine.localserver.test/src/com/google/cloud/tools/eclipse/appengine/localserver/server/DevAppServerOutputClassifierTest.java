@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class DevAppServerOutputClassifierTest {
+
+  // the regular expressions DevAppServerOutputListener used to match lines one after another
+  private static final Pattern MODULE_STARTED = Pattern.compile(
+      "INFO .*Starting module \"(?<service>[^\"]+)\" running at: "
+      + "(?<url>http://.+:(?<port>[0-9]+))$");
+  private static final Pattern ADMIN_STARTED = Pattern.compile(
+      "INFO .*Starting admin server at: (?<url>http://.+:(?<port>[0-9]+))$");
+  private static final Pattern MODULE_RUNNING = Pattern.compile(
+      "INFO: Module instance (?<service>[\\w\\d\\-]+) is running at "
+      + "(?<url>http://.+:(?<port>[0-9]+)/)$");
+  private static final Pattern ADMIN_RUNNING = Pattern.compile(
+      "INFO: The admin console is running at "
+      + "(?<url>http://.+:(?<port>[0-9]+))/_ah/admin$");
+
+  @Test
+  public void testClassify_devAppServer1() {
+    assertModule("default", "http://localhost:7979/", 7979,
+        "INFO: Module instance default is running at http://localhost:7979/");
+    assertAdmin("http://localhost:7979", 7979,
+        "INFO: The admin console is running at http://localhost:7979/_ah/admin");
+    assertEquals(DevAppServerOutputClassifier.Kind.STARTED,
+        DevAppServerOutputClassifier.classify("INFO: Dev App Server is now running").kind);
+  }
+
+  @Test
+  public void testClassify_devAppServer2() {
+    assertModule("my-service", "http://localhost:8081", 8081, "INFO     2016-11-03 21:11:21,959 "
+        + "dispatcher.py:197] Starting module \"my-service\" running at: http://localhost:8081");
+    assertAdmin("http://localhost:43679", 43679, "INFO     2016-11-03 21:11:21,959 "
+        + "admin_server.py:116] Starting admin server at: http://localhost:43679");
+  }
+
+  @Test
+  public void testClassify_stateChanges() {
+    assertEquals(DevAppServerOutputClassifier.Kind.STARTED,
+        DevAppServerOutputClassifier.classify(
+            "2017-04-05 21:25:17.123:INFO:oejs.Server:main: Started").kind);
+    assertEquals(DevAppServerOutputClassifier.Kind.STOPPED,
+        DevAppServerOutputClassifier.classify("Traceback (most recent call last):").kind);
+    assertEquals(DevAppServerOutputClassifier.Kind.FATAL_ERROR,
+        DevAppServerOutputClassifier.classify(
+            "Error: A fatal exception has occurred. Program will exit.").kind);
+    assertEquals(DevAppServerOutputClassifier.Kind.FATAL_ERROR,
+        DevAppServerOutputClassifier.classify(
+            "INFO: Error: A fatal exception has occurred. Program will exit.").kind);
+  }
+
+  @Test
+  public void testClassify_malformedUrls() {
+    assertEquals(DevAppServerOutputClassifier.NONE, DevAppServerOutputClassifier.classify(
+        "INFO: Module instance default is running at http://localhost:7979"));
+    assertEquals(DevAppServerOutputClassifier.NONE, DevAppServerOutputClassifier.classify(
+        "INFO: Module instance default is running at https://localhost:7979/"));
+    assertEquals(DevAppServerOutputClassifier.NONE, DevAppServerOutputClassifier.classify(
+        "INFO  Starting admin server at: http://localhost:"));
+    assertEquals(DevAppServerOutputClassifier.NONE, DevAppServerOutputClassifier.classify(
+        "INFO  Starting admin server at: http://:8000"));
+    assertEquals(DevAppServerOutputClassifier.NONE, DevAppServerOutputClassifier.classify(
+        "INFO  Starting admin server at: http://localhost:80a"));
+    assertEquals(DevAppServerOutputClassifier.NONE, DevAppServerOutputClassifier.classify(
+        "INFO  Starting module \"\" running at: http://localhost:8080"));
+  }
+
+  @Test
+  public void testClassify_portTooLarge() {
+    DevAppServerOutputClassifier.Event event = DevAppServerOutputClassifier.classify(
+        "INFO  Starting admin server at: http://localhost:99999999999");
+    assertEquals(DevAppServerOutputClassifier.Kind.ADMIN, event.kind);
+    assertEquals(0, event.port);
+  }
+
+  @Test
+  public void testClassify_agreesWithRegularExpressions() throws IOException {
+    for (String line : readRecordedOutput()) {
+      assertAgreesWithRegularExpressions(line);
+    }
+  }
+
+  @Test
+  public void testClassify_agreesWithRegularExpressionsOnUnusualLines() {
+    String[] lines = {
+        "INFO Starting admin server at: http://localhost:8000",
+        "xINFO  Starting admin server at: http://localhost:8000",
+        "INFO  Starting module \"a\" Starting module \"b\" running at: http://localhost:1",
+        "INFO  Starting module \"a b\" running at: http://localhost:1 Starting admin server at: "
+            + "http://localhost:2",
+        "INFO  Starting module \"\" running at: http://localhost:1 Starting admin server at: "
+            + "http://localhost:2",
+        "INFO  Starting module \"a\u2028b\" running at: http://localhost:1",
+        "INFO \u2028 Starting module \"a\" running at: http://localhost:1",
+        "INFO  Starting admin server at: http://local\u2028host:8000",
+        "INFO  Starting admin server at: http://localhost:99999999999",
+        "INFO  Starting admin server at: http://localhost:2147483648",
+        "INFO  Starting admin server at: http://localhost:2147483647",
+        "INFO: Module instance d\u00e9faut is running at http://localhost:8080/",
+        "INFO: Module instance a is running at http://localhost:8080/ is running at "
+            + "http://localhost:8081/",
+        "INFO: Module instance default is running at http://h:1/Error: A fatal exception has "
+            + "occurred. Program will exit:2/",
+        "INFO: The admin console is running at http://h:1/_ah/admin Error: A fatal exception "
+            + "has occurred. Program will exit/_ah/admin",
+        "INFO: The admin console is running at http://localhost:8080/_ah/admin/_ah/admin",
+        "INFO  Dev App Server is now running",
+        "INFO  Starting admin server at: http://localhost:8000.Server:main: Started",
+        "Traceback (most recent call last):",
+        " Traceback (most recent call last):",
+        "",
+    };
+    for (String line : lines) {
+      assertAgreesWithRegularExpressions(line);
+    }
+  }
+
+  /** Checks that the classifier finds what DevAppServerOutputListener used to find. */
+  private static void assertAgreesWithRegularExpressions(String line) {
+    DevAppServerOutputClassifier.Event event = DevAppServerOutputClassifier.classify(line);
+    Matcher matcher;
+    if (line.endsWith("Dev App Server is now running")
+        || line.endsWith(".Server:main: Started")) {
+      assertEquals(line, DevAppServerOutputClassifier.Kind.STARTED, event.kind);
+    } else if (line.equals("Traceback (most recent call last):")) {
+      assertEquals(line, DevAppServerOutputClassifier.Kind.STOPPED, event.kind);
+    } else if (line.contains("Error: A fatal exception has occurred. Program will exit")) {
+      assertEquals(line, DevAppServerOutputClassifier.Kind.FATAL_ERROR, event.kind);
+    } else if ((matcher = MODULE_STARTED.matcher(line)).matches()
+        || (matcher = MODULE_RUNNING.matcher(line)).matches()) {
+      assertModule(matcher.group("service"), matcher.group("url"),
+          parseInt(matcher.group("port"), 0), line);
+    } else if ((matcher = ADMIN_STARTED.matcher(line)).matches()
+        || (matcher = ADMIN_RUNNING.matcher(line)).matches()) {
+      assertAdmin(matcher.group("url"), parseInt(matcher.group("port"), 0), line);
+    } else {
+      assertEquals(line, DevAppServerOutputClassifier.Kind.NONE, event.kind);
+    }
+  }
+
+  // what DevAppServerOutputListener did with the port
+  private static int parseInt(String numeric, int defaultValue) {
+    try {
+      return Integer.parseInt(numeric);
+    } catch (NumberFormatException ex) {
+      return defaultValue;
+    }
+  }
+
+  private static void assertModule(String service, String url, int port, String line) {
+    DevAppServerOutputClassifier.Event event = DevAppServerOutputClassifier.classify(line);
+    assertEquals(line, DevAppServerOutputClassifier.Kind.MODULE, event.kind);
+    assertEquals(service, event.service);
+    assertEquals(url, event.url);
+    assertEquals(port, event.port);
+  }
+
+  private static void assertAdmin(String url, int port, String line) {
+    DevAppServerOutputClassifier.Event event = DevAppServerOutputClassifier.classify(line);
+    assertEquals(line, DevAppServerOutputClassifier.Kind.ADMIN, event.kind);
+    assertEquals(url, event.url);
+    assertEquals(port, event.port);
+  }
+
+  static List<String> readRecordedOutput() throws IOException {
+    List<String> lines = new ArrayList<>();
+    try (InputStream in =
+            DevAppServerOutputClassifierTest.class.getResourceAsStream("devappserver-output.log");
+        BufferedReader reader =
+            new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lines.add(line);
+      }
+    }
+    return lines;
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.appengine.api.devserver.DefaultRunConfiguration;
+import com.google.cloud.tools.appengine.cloudsdk.CloudSdk;
+import com.google.cloud.tools.appengine.cloudsdk.CloudSdkAppEngineDevServer1;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+public class DevAppServerStandbyTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final Path javaHome = Paths.get("/jdk");
+  private final Path javaSdk = Paths.get("/sdk/java");
+  private DefaultRunConfiguration configuration;
+  private File service;
+
+  @Before
+  public void setUp() throws IOException {
+    service = tempFolder.newFolder("service");
+    writeDescriptor("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'/>");
+    configuration = new DefaultRunConfiguration();
+    configuration.setServices(Collections.singletonList(service));
+  }
+
+  @Test
+  public void testComputeArguments() {
+    configuration.setHost("localhost");
+    configuration.setPort(8080);
+    assertEquals(Arrays.asList("--address=localhost", "--port=8080", "--allow_remote_shutdown",
+        "--disable_update_check", service.toPath().toString()),
+        DevAppServerStandby.computeArguments(configuration));
+  }
+
+  @After
+  public void tearDown() {
+    DevAppServerStandby.discardAll();
+  }
+
+  @Test
+  public void testCanServe() {
+    configuration.setHost("localhost");
+    configuration.setPort(8080);
+    configuration.setAutomaticRestart(true);
+    assertTrue(DevAppServerStandby.canServe(configuration));
+  }
+
+  @Test
+  public void testCanServe_jvmFlags() {
+    configuration.setJvmFlags(Arrays.asList("-Xmx1g"));
+    assertFalse(DevAppServerStandby.canServe(configuration));
+  }
+
+  @Test
+  public void testCanServe_adminPort() {
+    configuration.setAdminPort(8000);
+    assertFalse(DevAppServerStandby.canServe(configuration));
+  }
+
+  @Test
+  public void testComputeSpec_java7() {
+    configuration.setAutomaticRestart(true);
+    List<String> jvmArguments =
+        DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration).getJvmArguments();
+    assertEquals("-Dappengine.fullscan.seconds=1", jvmArguments.get(0));
+    assertTrue(jvmArguments.get(1).startsWith("-javaagent:"));
+    assertTrue(jvmArguments.get(1).endsWith("appengine-agent.jar"));
+    assertFalse(jvmArguments.contains("-Duse_jetty9_runtime=true"));
+  }
+
+  @Test
+  public void testComputeSpec_java8() throws IOException {
+    writeDescriptor("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<runtime>java8</runtime></appengine-web-app>");
+    List<String> jvmArguments =
+        DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration).getJvmArguments();
+    assertTrue(jvmArguments.contains("-Duse_jetty9_runtime=true"));
+    assertFalse(jvmArguments.get(0).startsWith("-javaagent:"));
+  }
+
+  @Test
+  public void testComputeSpec_noDescriptor() throws IOException {
+    Files.delete(service.toPath().resolve("WEB-INF/appengine-web.xml"));
+    assertNull(DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration));
+  }
+
+  @Test
+  public void testSpecEquality() throws IOException {
+    DevAppServerStandby.Spec spec =
+        DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration);
+    assertEquals(spec, DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration));
+
+    writeDescriptor("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<env-variables><env-var name='MODE' value='dev' /></env-variables>"
+        + "</appengine-web-app>");
+    assertNotEquals(spec, DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration));
+  }
+
+  @Test
+  public void testSameAsCloudSdk_java7() throws Exception {
+    configuration.setHost("localhost");
+    configuration.setPort(8080);
+    configuration.setAutomaticRestart(true);
+    assertSameAsCloudSdk();
+  }
+
+  @Test
+  public void testSameAsCloudSdk_java8() throws Exception {
+    writeDescriptor("<appengine-web-app xmlns='http://appengine.google.com/ns/1.0'>"
+        + "<runtime>java8</runtime>"
+        + "<env-variables><env-var name='MODE' value='dev' /></env-variables>"
+        + "</appengine-web-app>");
+    configuration.setPort(8080);
+    assertSameAsCloudSdk();
+  }
+
+  /**
+   * Checks that a standby starts the dev server the way {@link CloudSdkAppEngineDevServer1} does
+   * for the configuration.
+   */
+  @SuppressWarnings("unchecked")
+  private void assertSameAsCloudSdk() throws Exception {
+    assertTrue(DevAppServerStandby.canServe(configuration));
+    CloudSdk cloudSdk = mock(CloudSdk.class);
+    when(cloudSdk.getJavaAppEngineSdkPath()).thenReturn(javaSdk);
+    new CloudSdkAppEngineDevServer1(cloudSdk).run(configuration);
+
+    ArgumentCaptor<List> jvmArguments = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<List> arguments = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<Map> environment = ArgumentCaptor.forClass(Map.class);
+    verify(cloudSdk).runDevAppServer1Command(jvmArguments.capture(), arguments.capture(),
+        environment.capture());
+
+    DevAppServerStandby.Spec spec =
+        DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration);
+    // CloudSdk adds the SDK root itself, together with the class path and main class
+    List<String> expectedJvmArguments = new ArrayList<>();
+    for (String argument : spec.getJvmArguments()) {
+      if (!argument.startsWith("-Dappengine.sdk.root=")) {
+        expectedJvmArguments.add(argument);
+      }
+    }
+    assertEquals(jvmArguments.getValue(), expectedJvmArguments);
+    assertEquals(arguments.getValue(), DevAppServerStandby.computeArguments(configuration));
+    assertEquals(environment.getValue(), spec.getEnvironment());
+  }
+
+  @Test
+  public void testTake_noneReady() {
+    DevAppServerStandby.Spec spec =
+        DevAppServerStandby.computeSpec(javaHome, javaSdk, configuration);
+    assertNull(DevAppServerStandby.take(spec));
+  }
+
+  @Test
+  public void testStart_writesLauncherJar() throws IOException {
+    Path state = tempFolder.newFolder("state").toPath();
+    Path currentJavaHome = Paths.get(System.getProperty("java.home"));
+    DevAppServerStandby standby = DevAppServerStandby.start(
+        DevAppServerStandby.computeSpec(currentJavaHome, javaSdk, configuration), state);
+    standby.discard();
+
+    try (JarFile jar = new JarFile(state.resolve(DevAppServerStandby.STANDBY_JAR).toFile())) {
+      String entryName = DevAppServerStandbyMain.class.getName().replace('.', '/') + ".class";
+      assertTrue(jar.getEntry(entryName).getSize() > 0);
+    }
+  }
+
+  private void writeDescriptor(String contents) throws IOException {
+    Path descriptor = service.toPath().resolve("WEB-INF/appengine-web.xml");
+    Files.createDirectories(descriptor.getParent());
+    Files.write(descriptor, contents.getBytes(StandardCharsets.UTF_8));
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.eclipse.wst.server.core.util.PublishHelper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class LinkedWarPublisherTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private File workspace;
+  private File published;
+  private LinkedWarPublisher publisher;
+
+  private File indexHtml;
+  private File webXml;
+  private IModuleFile indexHtmlResource;
+  private IModuleFile webXmlResource;
+  private IModuleFile appEngineWebXmlResource;
+  private IModuleFolder webInfResource;
+  private IModuleResource[] resources;
+
+  @Before
+  public void setUp() throws IOException, CoreException {
+    workspace = tempFolder.newFolder("workspace");
+    published = new File(tempFolder.newFolder("server"), "module");
+    assumeTrue(LinkedWarPublisher.isSupported(toPath(published.getParentFile())));
+    publisher = new LinkedWarPublisher(toPath(published));
+
+    indexHtml = createFile("index.html", "<html/>");
+    webXml = createFile("WEB-INF/web.xml", "<web-app/>");
+    indexHtmlResource = mockFile(org.eclipse.core.runtime.Path.EMPTY, indexHtml);
+    webXmlResource = mockFile(new org.eclipse.core.runtime.Path("WEB-INF"), webXml);
+    // a generated file that is not in the local file system
+    appEngineWebXmlResource = mockGeneratedFile(new org.eclipse.core.runtime.Path("WEB-INF"),
+        "appengine-web.xml", "<appengine-web-app/>");
+    webInfResource = mockFolder(org.eclipse.core.runtime.Path.EMPTY, "WEB-INF",
+        webXmlResource, appEngineWebXmlResource);
+    resources = new IModuleResource[] {indexHtmlResource, webInfResource};
+  }
+
+  @Test
+  public void testPublishFull() throws IOException {
+    assertOk(publisher.publishFull(resources, new NullProgressMonitor()));
+
+    assertTrue(publisher.isPublishedAsLinks());
+    assertLinkedTo(indexHtml, "index.html");
+    assertLinkedTo(webXml, "WEB-INF/web.xml");
+    Path appEngineWebXml = published.toPath().resolve("WEB-INF/appengine-web.xml");
+    assertFalse(Files.isSymbolicLink(appEngineWebXml));
+    assertEquals("<appengine-web-app/>", read(appEngineWebXml));
+    assertFalse(Files.isSymbolicLink(published.toPath().resolve("WEB-INF")));
+  }
+
+  @Test
+  public void testPublishFull_savedChangeSeenWithoutPublish() throws IOException {
+    assertOk(publisher.publishFull(resources, new NullProgressMonitor()));
+    write(indexHtml, "<html>changed</html>");
+
+    assertEquals("<html>changed</html>", read(published.toPath().resolve("index.html")));
+  }
+
+  @Test
+  public void testPublishDelta() throws IOException, CoreException {
+    assertOk(publisher.publishFull(resources, new NullProgressMonitor()));
+
+    File addedFile = createFile("WEB-INF/added.txt", "added");
+    IModuleFile addedResource =
+        mockFile(new org.eclipse.core.runtime.Path("WEB-INF"), addedFile);
+    IModuleFile changedGenerated = mockGeneratedFile(new org.eclipse.core.runtime.Path("WEB-INF"),
+        "appengine-web.xml", "<appengine-web-app>changed</appengine-web-app>");
+    IModuleResourceDelta webInfDelta = mockDelta(IModuleResourceDelta.NO_CHANGE, webInfResource,
+        mockDelta(IModuleResourceDelta.ADDED, addedResource),
+        mockDelta(IModuleResourceDelta.CHANGED, changedGenerated),
+        mockDelta(IModuleResourceDelta.CHANGED, webXmlResource));
+    IModuleResourceDelta[] deltas = new IModuleResourceDelta[] {
+        mockDelta(IModuleResourceDelta.REMOVED, indexHtmlResource), webInfDelta};
+    assertOk(publisher.publishDelta(deltas, new NullProgressMonitor()));
+
+    assertTrue(publisher.isPublishedAsLinks());
+    assertFalse(Files.exists(published.toPath().resolve("index.html"), LinkOption.NOFOLLOW_LINKS));
+    assertTrue("removed file must stay in the workspace", indexHtml.isFile());
+    assertLinkedTo(addedFile, "WEB-INF/added.txt");
+    assertLinkedTo(webXml, "WEB-INF/web.xml");
+    assertEquals("<appengine-web-app>changed</appengine-web-app>",
+        read(published.toPath().resolve("WEB-INF/appengine-web.xml")));
+  }
+
+  @Test
+  public void testPublishDelta_removedFolder() throws IOException {
+    assertOk(publisher.publishFull(resources, new NullProgressMonitor()));
+
+    IModuleResourceDelta[] deltas = new IModuleResourceDelta[] {
+        mockDelta(IModuleResourceDelta.REMOVED, webInfResource)};
+    assertOk(publisher.publishDelta(deltas, new NullProgressMonitor()));
+
+    assertFalse(published.toPath().resolve("WEB-INF").toFile().exists());
+    assertTrue("removed folder must stay in the workspace", webXml.isFile());
+    assertEquals("<web-app/>", read(webXml.toPath()));
+  }
+
+  @Test
+  public void testDelete() throws IOException {
+    assertOk(publisher.publishFull(resources, new NullProgressMonitor()));
+    assertOk(publisher.delete(new NullProgressMonitor()));
+
+    assertFalse(publisher.isPublishedAsLinks());
+    assertFalse(published.exists());
+    assertEquals("<html/>", read(indexHtml.toPath()));
+    assertEquals("<web-app/>", read(webXml.toPath()));
+  }
+
+  @Test
+  public void testDelete_copies() throws IOException {
+    Files.createDirectories(published.toPath());
+    write(new File(published, "index.html"), "<html/>");
+
+    assertOk(publisher.delete(new NullProgressMonitor()));
+    assertFalse(published.exists());
+  }
+
+  @Test
+  public void testSwitchFromLinksToCopies() throws IOException {
+    assertOk(publisher.publishFull(resources, new NullProgressMonitor()));
+
+    // what LocalAppEnginePublishOperation does before copying into a module published as links
+    assertTrue(publisher.isPublishedAsLinks());
+    assertOk(publisher.delete(new NullProgressMonitor()));
+    assertOk(new PublishHelper(null).publishFull(resources, toPath(published),
+        new NullProgressMonitor()));
+
+    assertFalse(publisher.isPublishedAsLinks());
+    Path publishedIndexHtml = published.toPath().resolve("index.html");
+    assertFalse(Files.isSymbolicLink(publishedIndexHtml));
+    assertFalse(Files.isSymbolicLink(published.toPath().resolve("WEB-INF/web.xml")));
+    write(publishedIndexHtml.toFile(), "<html>overwritten</html>");
+    assertEquals("<html/>", read(indexHtml.toPath()));
+  }
+
+  @Test
+  public void testSwitchFromCopiesToLinks() throws IOException {
+    assertOk(new PublishHelper(null).publishFull(resources, toPath(published),
+        new NullProgressMonitor()));
+    assertFalse(publisher.isPublishedAsLinks());
+
+    assertOk(publisher.publishFull(resources, new NullProgressMonitor()));
+    assertTrue(publisher.isPublishedAsLinks());
+    assertLinkedTo(indexHtml, "index.html");
+  }
+
+  private void assertLinkedTo(File source, String relativePath) throws IOException {
+    Path path = published.toPath().resolve(relativePath);
+    assertTrue(relativePath + " should be a link", Files.isSymbolicLink(path));
+    assertEquals(source.toPath().toAbsolutePath(), Files.readSymbolicLink(path));
+  }
+
+  private static void assertOk(IStatus[] statuses) {
+    assertEquals(0, statuses.length);
+  }
+
+  private File createFile(String relativePath, String content) throws IOException {
+    File file = new File(workspace, relativePath);
+    Files.createDirectories(file.getParentFile().toPath());
+    write(file, content);
+    return file;
+  }
+
+  private static void write(File file, String content) throws IOException {
+    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String read(Path path) throws IOException {
+    return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+  }
+
+  private static IPath toPath(File file) {
+    return new org.eclipse.core.runtime.Path(file.getAbsolutePath());
+  }
+
+  private static IModuleFile mockFile(IPath relativePath, File file) {
+    IModuleFile resource = mock(IModuleFile.class);
+    when(resource.getName()).thenReturn(file.getName());
+    when(resource.getModuleRelativePath()).thenReturn(relativePath);
+    when(resource.getAdapter(File.class)).thenReturn(file);
+    when(resource.getModificationStamp()).thenReturn(file.lastModified());
+    return resource;
+  }
+
+  private static IModuleFile mockGeneratedFile(IPath relativePath, String name,
+      final String content) throws CoreException {
+    IFile file = mock(IFile.class);
+    when(file.getName()).thenReturn(name);
+    when(file.getContents()).thenAnswer(new Answer<InputStream>() {
+      @Override
+      public InputStream answer(InvocationOnMock invocation) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+      }
+    });
+    IModuleFile resource = mock(IModuleFile.class);
+    when(resource.getName()).thenReturn(name);
+    when(resource.getModuleRelativePath()).thenReturn(relativePath);
+    when(resource.getAdapter(IFile.class)).thenReturn(file);
+    return resource;
+  }
+
+  private static IModuleFolder mockFolder(IPath relativePath, String name,
+      IModuleResource... members) {
+    IModuleFolder resource = mock(IModuleFolder.class);
+    when(resource.getName()).thenReturn(name);
+    when(resource.getModuleRelativePath()).thenReturn(relativePath);
+    when(resource.members()).thenReturn(members);
+    return resource;
+  }
+
+  private static IModuleResourceDelta mockDelta(int kind, IModuleResource resource,
+      IModuleResourceDelta... children) {
+    IModuleResourceDelta delta = mock(IModuleResourceDelta.class);
+    when(delta.getKind()).thenReturn(kind);
+    when(delta.getModuleResource()).thenReturn(resource);
+    when(delta.getAffectedChildren()).thenReturn(children);
+    return delta;
+  }
+}
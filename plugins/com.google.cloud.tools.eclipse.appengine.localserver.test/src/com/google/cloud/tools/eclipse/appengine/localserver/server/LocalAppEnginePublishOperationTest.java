@@ -19,16 +19,20 @@ package com.google.cloud.tools.eclipse.appengine.localserver.server;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
 
 import com.google.cloud.tools.eclipse.test.util.ThreadDumpingWatchdog;
 import com.google.cloud.tools.eclipse.test.util.project.ProjectUtils;
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.ui.console.MessageConsoleStream;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IServer;
 import org.eclipse.wst.server.core.IServerType;
@@ -115,4 +119,31 @@ public class LocalAppEnginePublishOperationTest {
     assertTrue(new File(webInf, "lib/servlet-2.5.jar").isFile());
     assertTrue(new File(webInf, "lib/sox-shared.jar").isFile());
   }
+
+  @Test
+  public void testAutoPublishHeldByCoalescer_serverStillNeedsPublish() throws CoreException {
+    IServerType serverType =
+        ServerCore.findServerType("com.google.cloud.tools.eclipse.appengine.standard.server");
+    IServerWorkingCopy serverWorkingCopy =
+        serverType.createServer(getClass().getName(), null, null);
+    serverWorkingCopy.modifyModules(new IModule[] {serverModule}, null, null);
+    server = serverWorkingCopy.saveAll(true, null);
+    assertTrue("publish failed", server.publish(IServer.PUBLISH_CLEAN, null).isOK());
+    assertEquals(IServer.PUBLISH_STATE_NONE, server.getServerPublishState());
+
+    LocalAppEngineServerBehaviour serverBehaviour =
+        server.getAdapter(LocalAppEngineServerBehaviour.class);
+    PublishCoalescer coalescer =
+        new PublishCoalescer(server, mock(MessageConsoleStream.class), 60000, 60000);
+    coalescer.start(mock(IWorkspace.class));
+    serverBehaviour.publishCoalescer = coalescer;
+    try {
+      List<IModule[]> modules = Collections.singletonList(new IModule[] {serverModule});
+      assertTrue(serverBehaviour.publish(IServer.PUBLISH_AUTO, modules, null, null).isOK());
+      assertEquals(IServer.PUBLISH_STATE_INCREMENTAL, server.getServerPublishState());
+    } finally {
+      coalescer.stop();
+      serverBehaviour.publishCoalescer = null;
+    }
+  }
 }
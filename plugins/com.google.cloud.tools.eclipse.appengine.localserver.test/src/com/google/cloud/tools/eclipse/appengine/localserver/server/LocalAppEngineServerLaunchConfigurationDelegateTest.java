@@ -276,6 +276,20 @@ public class LocalAppEngineServerLaunchConfigurationDelegateTest {
         .getAttribute(eq(IJavaLaunchConfigurationConstants.ATTR_VM_ARGUMENTS), anyString());
   }
 
+  @Test
+  public void testGenerateRunConfiguration_serveWithoutPublish() throws CoreException {
+    when(launchConfiguration.getAttribute(eq(IJavaLaunchConfigurationConstants.ATTR_VM_ARGUMENTS),
+        anyString())).thenReturn("a");
+    when(serverBehavior.isServeWithoutPublish()).thenReturn(true);
+
+    DefaultRunConfiguration config = new LocalAppEngineServerLaunchConfigurationDelegate()
+        .generateServerRunConfiguration(launchConfiguration, server, ILaunchManager.RUN_MODE);
+
+    assertEquals(
+        Arrays.asList("a", LocalAppEngineServerLaunchConfigurationDelegate.JETTY_ALLOW_LINKS_FLAG),
+        config.getJvmFlags());
+  }
+
 
   @Test
   public void testGenerateRunConfiguration_restart_run() throws CoreException {
@@ -54,6 +54,8 @@ public class ModuleUtilsTest {
   public void setUpMocks() {
     IProject project = Mockito.mock(IProject.class);
     Mockito.when(module.getProject()).thenReturn(project);
+    // WebProjectUtil caches the WEB-INF location against the stamps of the project's settings
+    Mockito.when(project.getFile(Mockito.anyString())).thenReturn(Mockito.mock(IFile.class));
     IFolder webapp = Mockito.mock(IFolder.class);
     Mockito.when(project.getFolder("src/main/webapp")).thenReturn(webapp);
     Mockito.when(webapp.exists()).thenReturn(true);
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.ui.console.MessageConsoleStream;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.IServer.IOperationListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PublishCoalescerTest {
+
+  @Mock private IServer server;
+  @Mock private IWorkspace workspace;
+  @Mock private IModule module;
+  @Mock private IProject project;
+  @Mock private IResourceChangeEvent event;
+  @Mock private IResourceDelta delta;
+  @Mock private MessageConsoleStream console;
+
+  @Before
+  public void setUp() {
+    when(server.getModules()).thenReturn(new IModule[] {module});
+    when(module.getProject()).thenReturn(project);
+    when(project.getFullPath()).thenReturn(new Path("/project"));
+    when(event.getDelta()).thenReturn(delta);
+    when(delta.findMember(new Path("/project"))).thenReturn(mock(IResourceDelta.class));
+  }
+
+  @Test
+  public void testRequestPublish_notStarted() {
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 50, 1000);
+    assertFalse(coalescer.requestPublish());
+  }
+
+  @Test
+  public void testStartAndStop() {
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 50, 1000);
+    coalescer.start(workspace);
+    verify(workspace).addResourceChangeListener(coalescer, IResourceChangeEvent.POST_CHANGE);
+    coalescer.stop();
+    verify(workspace).removeResourceChangeListener(coalescer);
+    assertFalse(coalescer.requestPublish());
+  }
+
+  @Test
+  public void testBurstOfRequestsPublishesOnce() throws InterruptedException {
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 100, 5000);
+    coalescer.start(workspace);
+    for (int i = 0; i < 10; i++) {
+      assertTrue(coalescer.requestPublish());
+      coalescer.resourceChanged(event);
+    }
+    coalescer.join();
+    verifyPublished(1);
+    verify(console).println(
+        "[Publishing 10 automatic publish requests and 10 resource changes at once]");
+  }
+
+  @Test
+  public void testClosedConsole() throws InterruptedException {
+    when(console.isClosed()).thenReturn(true);
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 50, 1000);
+    coalescer.start(workspace);
+    coalescer.requestPublish();
+    coalescer.join();
+    verifyPublished(1);
+    verify(console, never()).println(anyString());
+  }
+
+  @Test
+  public void testChangesDelayPublish() throws InterruptedException {
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 200, 5000);
+    coalescer.start(workspace);
+    coalescer.requestPublish();
+    for (int i = 0; i < 5; i++) {
+      Thread.sleep(50);
+      coalescer.resourceChanged(event);
+    }
+    verifyPublished(0);
+    coalescer.join();
+    verifyPublished(1);
+  }
+
+  @Test
+  public void testContinuousChangesPublishAfterMaxDelay() throws InterruptedException {
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 1000, 200);
+    coalescer.start(workspace);
+    coalescer.requestPublish();
+    long end = System.currentTimeMillis() + 600;
+    while (System.currentTimeMillis() < end) {
+      coalescer.resourceChanged(event);
+      Thread.sleep(20);
+    }
+    coalescer.stop();
+    verifyPublished(1);
+  }
+
+  @Test
+  public void testChangesOnlyDoNotPublish() throws InterruptedException {
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 50, 1000);
+    coalescer.start(workspace);
+    coalescer.resourceChanged(event);
+    Thread.sleep(200);
+    coalescer.join();
+    verifyPublished(0);
+  }
+
+  @Test
+  public void testUnrelatedChangesDoNotDelayPublish() throws InterruptedException {
+    when(event.getDelta()).thenReturn(mock(IResourceDelta.class));
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 100, 5000);
+    coalescer.start(workspace);
+    coalescer.requestPublish();
+    long end = System.currentTimeMillis() + 600;
+    while (System.currentTimeMillis() < end) {
+      coalescer.resourceChanged(event);
+      Thread.sleep(20);
+    }
+    verifyPublished(1);
+  }
+
+  @Test
+  public void testStopDropsPendingRequests() throws InterruptedException {
+    PublishCoalescer coalescer = new PublishCoalescer(server, console, 100, 1000);
+    coalescer.start(workspace);
+    coalescer.requestPublish();
+    coalescer.stop();
+    Thread.sleep(300);
+    verifyPublished(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void verifyPublished(int count) {
+    verify(server, times(count)).publish(eq(IServer.PUBLISH_INCREMENTAL),
+        (List<IModule[]>) isNull(), (IAdaptable) isNull(), (IOperationListener) isNull());
+  }
+}
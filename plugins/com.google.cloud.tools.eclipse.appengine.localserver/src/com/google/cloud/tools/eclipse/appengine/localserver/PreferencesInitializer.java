@@ -22,9 +22,13 @@ import org.eclipse.core.runtime.preferences.DefaultScope;
 public class PreferencesInitializer extends AbstractPreferenceInitializer {
 
   public static final String LAUNCH_BROWSER = "launchBrowser";
+  public static final String SERVE_WITHOUT_PUBLISH = "serveWithoutPublish";
+  public static final String DEV_SERVER_STANDBY = "devServerStandby";
 
   @Override
   public void initializeDefaultPreferences() {
     DefaultScope.INSTANCE.getNode(Activator.PLUGIN_ID).putBoolean(LAUNCH_BROWSER, true);
+    DefaultScope.INSTANCE.getNode(Activator.PLUGIN_ID).putBoolean(SERVE_WITHOUT_PUBLISH, false);
+    DefaultScope.INSTANCE.getNode(Activator.PLUGIN_ID).putBoolean(DEV_SERVER_STANDBY, false);
   }
 }
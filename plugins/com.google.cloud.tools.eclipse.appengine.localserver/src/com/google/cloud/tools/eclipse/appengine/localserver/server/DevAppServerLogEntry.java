@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+/**
+ * An entry of a {@link DevAppServerLogStore}: one message logged by the dev server or the
+ * application, possibly spanning several lines.
+ */
+public class DevAppServerLogEntry {
+
+  /** Severities of both {@code java.util.logging} and Python logging, from least severe. */
+  public enum Severity {
+    UNKNOWN, DEBUG, INFO, WARNING, ERROR, CRITICAL;
+
+    /**
+     * @return the severity of a {@code java.util.logging} or Python level name, or {@code null}
+     *     if {@code level} is not a level name
+     */
+    static Severity fromLevel(String level) {
+      switch (level) {
+        case "FINEST": //$NON-NLS-1$
+        case "FINER": //$NON-NLS-1$
+        case "FINE": //$NON-NLS-1$
+        case "CONFIG": //$NON-NLS-1$
+        case "DEBUG": //$NON-NLS-1$
+          return DEBUG;
+        case "INFO": //$NON-NLS-1$
+          return INFO;
+        case "WARNING": //$NON-NLS-1$
+          return WARNING;
+        case "SEVERE": //$NON-NLS-1$
+        case "ERROR": //$NON-NLS-1$
+          return ERROR;
+        case "CRITICAL": //$NON-NLS-1$
+          return CRITICAL;
+        default:
+          return null;
+      }
+    }
+  }
+
+  private final int index;
+  private final long timestamp;
+  private final Severity severity;
+  private final String logger;
+  private final String requestId;
+  private final String text;
+
+  DevAppServerLogEntry(int index, long timestamp, Severity severity, String logger,
+      String requestId, String text) {
+    this.index = index;
+    this.timestamp = timestamp;
+    this.severity = severity;
+    this.logger = logger;
+    this.requestId = requestId;
+    this.text = text;
+  }
+
+  /**
+   * @return the position of this entry in its store
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return the local time the entry was logged, or {@code null} if unknown
+   */
+  public Date getTimestamp() {
+    if (timestamp == 0) {
+      return null;
+    }
+    // timestamps are stored as yyyyMMddHHmmssSSS
+    Calendar calendar = new GregorianCalendar(
+        (int) (timestamp / 10000000000000L), (int) (timestamp / 100000000000L % 100) - 1,
+        (int) (timestamp / 1000000000L % 100), (int) (timestamp / 10000000L % 100),
+        (int) (timestamp / 100000L % 100), (int) (timestamp / 1000L % 100));
+    calendar.set(Calendar.MILLISECOND, (int) (timestamp % 1000));
+    return calendar.getTime();
+  }
+
+  public Severity getSeverity() {
+    return severity;
+  }
+
+  /**
+   * @return the logger (a Java class or Python source location), or {@code null} if unknown
+   */
+  public String getLogger() {
+    return logger;
+  }
+
+  /**
+   * @return the ID of the request the entry was logged for, or {@code null} if unknown
+   */
+  public String getRequestId() {
+    return requestId;
+  }
+
+  /**
+   * @return the text of the entry as it was written to the console
+   */
+  public String getText() {
+    return text;
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import com.google.cloud.tools.eclipse.appengine.localserver.server.DevAppServerLogEntry.Severity;
+
+/**
+ * Splits the output of a dev server process into log entries. Recognizes the two-line records of
+ * {@code java.util.logging}:
+ * <pre>
+ * Apr 05, 2017 9:25:17 PM com.google.appengine.tools.development.AbstractModule startup
+ * INFO: Module instance default is running at http://localhost:8080/
+ * </pre>
+ * and the records of the Python devappserver:
+ * <pre>
+ * INFO     2016-11-03 21:11:24,117 module.py:788] default: "GET / HTTP/1.1" 200 1046
+ * </pre>
+ * Indented lines, such as stack traces, belong to the preceding entry's severity and request.
+ * Dev servers do not log request IDs themselves; they are taken from {@code request_id=} or
+ * {@code requestId=} in messages logged by the application.
+ * <p>
+ * Not thread-safe: use one parser per output stream.
+ */
+class DevAppServerLogParser {
+
+  interface Sink {
+    /**
+     * @param timestamp the time encoded as yyyyMMddHHmmssSSS, or {@code 0} if unknown
+     */
+    void add(long timestamp, Severity severity, String logger, String requestId, String text);
+  }
+
+  private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+      "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"}; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+  private static final String[] REQUEST_ID_KEYS = {"request_id=", "requestId="}; //$NON-NLS-1$ //$NON-NLS-2$
+
+  private final Sink sink;
+
+  // a java.util.logging header line waiting for its message line
+  private String pendingHeader;
+  private long pendingTimestamp;
+  private String pendingLogger;
+
+  private long lastTimestamp;
+  private Severity lastSeverity = Severity.UNKNOWN;
+  private String lastRequestId;
+
+  DevAppServerLogParser(Sink sink) {
+    this.sink = sink;
+  }
+
+  void parseLine(String line) {
+    if (pendingHeader != null) {
+      String header = pendingHeader;
+      pendingHeader = null;
+      Severity severity = parseJavaLoggingLevel(line);
+      if (severity != null) {
+        emit(pendingTimestamp, severity, pendingLogger, findRequestId(line),
+            header + '\n' + line);
+        return;
+      }
+      emit(pendingTimestamp, Severity.UNKNOWN, pendingLogger, null, header);
+    }
+    if (!parseJavaLoggingHeader(line) && !parsePythonRecord(line)) {
+      if (!line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t'
+          || line.startsWith("Caused by: "))) { //$NON-NLS-1$
+        emit(lastTimestamp, lastSeverity, null, lastRequestId, line);
+      } else {
+        emit(lastTimestamp, Severity.UNKNOWN, null, findRequestId(line), line);
+      }
+    }
+  }
+
+  private void emit(long timestamp, Severity severity, String logger, String requestId,
+      String text) {
+    lastTimestamp = timestamp;
+    lastSeverity = severity;
+    lastRequestId = requestId;
+    sink.add(timestamp, severity, logger, requestId, text);
+  }
+
+  /** Parses "Apr 05, 2017 9:25:17 PM class method". */
+  private boolean parseJavaLoggingHeader(String line) {
+    if (line.length() < 25 || line.charAt(3) != ' ' || line.charAt(6) != ',') {
+      return false;
+    }
+    int month = 0;
+    while (month < MONTHS.length && !line.startsWith(MONTHS[month])) {
+      month++;
+    }
+    int day = parseNumber(line, 4, 6);
+    int year = parseNumber(line, 8, 12);
+    int hourEnd = line.indexOf(':', 13);
+    if (month == MONTHS.length || day < 0 || year < 0 || line.charAt(7) != ' '
+        || line.charAt(12) != ' ' || hourEnd < 0 || hourEnd > 15
+        || line.length() < hourEnd + 13) {
+      return false;
+    }
+    int hour = parseNumber(line, 13, hourEnd);
+    int minute = parseNumber(line, hourEnd + 1, hourEnd + 3);
+    int second = parseNumber(line, hourEnd + 4, hourEnd + 6);
+    boolean am = line.startsWith(" AM ", hourEnd + 6); //$NON-NLS-1$
+    boolean pm = line.startsWith(" PM ", hourEnd + 6); //$NON-NLS-1$
+    if (hour < 1 || hour > 12 || minute < 0 || second < 0 || line.charAt(hourEnd + 3) != ':'
+        || !(am || pm)) {
+      return false;
+    }
+    hour = hour % 12 + (pm ? 12 : 0);
+    int loggerStart = hourEnd + 10;
+    int loggerEnd = line.indexOf(' ', loggerStart);
+    pendingHeader = line;
+    pendingTimestamp = encode(year, month + 1, day, hour, minute, second, 0);
+    pendingLogger = line.substring(loggerStart, loggerEnd < 0 ? line.length() : loggerEnd);
+    return true;
+  }
+
+  /** Parses "LEVEL: message". */
+  private static Severity parseJavaLoggingLevel(String line) {
+    int colon = line.indexOf(": "); //$NON-NLS-1$
+    if (colon < 4 || colon > 7) {
+      return null;
+    }
+    return Severity.fromLevel(line.substring(0, colon));
+  }
+
+  /** Parses "LEVEL    2016-11-03 21:11:24,117 module.py:788] message". */
+  private boolean parsePythonRecord(String line) {
+    int levelEnd = line.indexOf(' ');
+    if (levelEnd < 4 || levelEnd > 8) {
+      return false;
+    }
+    Severity severity = Severity.fromLevel(line.substring(0, levelEnd));
+    int dateStart = levelEnd;
+    while (dateStart < line.length() && line.charAt(dateStart) == ' ') {
+      dateStart++;
+    }
+    if (severity == null || line.length() < dateStart + 25) {
+      return false;
+    }
+    int year = parseNumber(line, dateStart, dateStart + 4);
+    int month = parseNumber(line, dateStart + 5, dateStart + 7);
+    int day = parseNumber(line, dateStart + 8, dateStart + 10);
+    int hour = parseNumber(line, dateStart + 11, dateStart + 13);
+    int minute = parseNumber(line, dateStart + 14, dateStart + 16);
+    int second = parseNumber(line, dateStart + 17, dateStart + 19);
+    int millisecond = parseNumber(line, dateStart + 20, dateStart + 23);
+    int loggerEnd = line.indexOf("] ", dateStart + 24); //$NON-NLS-1$
+    if (year < 0 || month < 0 || day < 0 || hour < 0 || minute < 0 || second < 0
+        || millisecond < 0 || line.charAt(dateStart + 23) != ' ' || loggerEnd < 0) {
+      return false;
+    }
+    String message = line.substring(loggerEnd + 2);
+    emit(encode(year, month, day, hour, minute, second, millisecond), severity,
+        line.substring(dateStart + 24, loggerEnd), findRequestId(message), line);
+    return true;
+  }
+
+  /**
+   * @return the value of the decimal digits between {@code start} and {@code end}, or {@code -1}
+   *     if there are other characters
+   */
+  private static int parseNumber(String line, int start, int end) {
+    if (start >= end || end > line.length()) {
+      return -1;
+    }
+    int value = 0;
+    for (int i = start; i < end; i++) {
+      char c = line.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private static long encode(int year, int month, int day, int hour, int minute, int second,
+      int millisecond) {
+    return ((((year * 100L + month) * 100 + day) * 100 + hour) * 100 + minute) * 100000
+        + second * 1000 + millisecond;
+  }
+
+  private static String findRequestId(String message) {
+    for (String key : REQUEST_ID_KEYS) {
+      int start = message.indexOf(key);
+      if (start >= 0) {
+        start += key.length();
+        int end = start;
+        while (end < message.length() && isRequestIdCharacter(message.charAt(end))) {
+          end++;
+        }
+        if (end > start) {
+          return message.substring(start, end);
+        }
+      }
+    }
+    return null;
+  }
+
+  private static boolean isRequestIdCharacter(char c) {
+    return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' || c == ':';
+  }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.cloud.tools.eclipse.appengine.localserver.server.DevAppServerLogEntry.Severity;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the output of a dev server session as structured log entries that can be filtered by
+ * severity and request without scanning the whole output. Entries are stored in columnar chunks
+ * of {@value #CHUNK_SIZE} entries: timestamps, severities, interned loggers and request IDs, and
+ * the UTF-8 encoded text each in their own array. An inverted index maps every severity and
+ * every request ID to the positions of its entries.
+ * <p>
+ * At most {@value #MAX_CHUNKS} chunks are kept; when another one is needed, the oldest chunk is
+ * dropped together with the loggers and request IDs that only its entries used.
+ */
+public class DevAppServerLogStore {
+
+  @VisibleForTesting
+  static final int CHUNK_SIZE = 8192;
+  private static final int MAX_CHUNKS = 32;
+
+  private static final int NO_SYMBOL = -1;
+
+  private final List<Chunk> chunks = new ArrayList<>();
+  // loggers and request IDs, each stored once
+  private final SymbolTable loggers = new SymbolTable();
+  private final SymbolTable requests = new SymbolTable();
+
+  private final IntList[] severityIndex = new IntList[Severity.values().length];
+  private final Map<Integer, IntList> requestIndex = new HashMap<>();
+  private final int maximumChunks;
+  // index of the oldest entry kept; entries before it were dropped
+  private int firstIndex;
+  private int size;
+
+  public DevAppServerLogStore() {
+    this(MAX_CHUNKS);
+  }
+
+  @VisibleForTesting
+  DevAppServerLogStore(int maximumChunks) {
+    Preconditions.checkArgument(maximumChunks > 0, "maximumChunks must be positive");
+    this.maximumChunks = maximumChunks;
+    for (int i = 0; i < severityIndex.length; i++) {
+      severityIndex[i] = new IntList();
+    }
+  }
+
+  /**
+   * Returns a listener that adds the lines of one output stream of the dev server to this store.
+   * Each stream needs its own listener, as the lines of a log entry must not be interleaved
+   * with the lines of another stream.
+   */
+  public ProcessOutputLineListener newListener() {
+    DevAppServerLogParser.Sink sink = new DevAppServerLogParser.Sink() {
+      @Override
+      public void add(long timestamp, Severity severity, String logger, String requestId,
+          String text) {
+        DevAppServerLogStore.this.add(timestamp, severity, logger, requestId, text);
+      }
+    };
+    final DevAppServerLogParser parser = new DevAppServerLogParser(sink);
+    return new ProcessOutputLineListener() {
+      @Override
+      public void onOutputLine(String line) {
+        parser.parseLine(line);
+      }
+    };
+  }
+
+  @VisibleForTesting
+  synchronized void add(long timestamp, Severity severity, String logger, String requestId,
+      String text) {
+    if (size % CHUNK_SIZE == 0) {
+      if (!chunks.isEmpty()) {
+        chunks.get(chunks.size() - 1).trim();
+      }
+      if (chunks.size() == maximumChunks) {
+        dropOldestChunk();
+      }
+      chunks.add(new Chunk());
+    }
+    int requestSymbol = requests.intern(requestId, size);
+    chunks.get(chunks.size() - 1).add(timestamp, severity, loggers.intern(logger, size),
+        requestSymbol, text);
+
+    severityIndex[severity.ordinal()].add(size);
+    if (requestSymbol != NO_SYMBOL) {
+      IntList postings = requestIndex.get(requestSymbol);
+      if (postings == null) {
+        postings = new IntList();
+        requestIndex.put(requestSymbol, postings);
+      }
+      postings.add(size);
+    }
+    size++;
+  }
+
+  private void dropOldestChunk() {
+    chunks.remove(0);
+    firstIndex += CHUNK_SIZE;
+    for (IntList postings : severityIndex) {
+      postings.removeBelow(firstIndex);
+    }
+
+    // symbols keep their IDs, so the kept chunks need no change
+    loggers.forgetUnusedBelow(firstIndex);
+    requests.forgetUnusedBelow(firstIndex);
+    for (Iterator<Map.Entry<Integer, IntList>> iterator = requestIndex.entrySet().iterator();
+        iterator.hasNext();) {
+      Map.Entry<Integer, IntList> entry = iterator.next();
+      if (requests.contains(entry.getKey())) {
+        entry.getValue().removeBelow(firstIndex);
+      } else {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * @return the number of entries added, including the dropped ones; entries are indexed in the
+   *     order they were added
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of the oldest entries that were dropped to bound memory; their indexes
+   *     are below this number
+   */
+  public synchronized int getDroppedCount() {
+    return firstIndex;
+  }
+
+  public synchronized DevAppServerLogEntry get(int index) {
+    Preconditions.checkElementIndex(index, size);
+    Preconditions.checkArgument(index >= firstIndex, "entry %s was dropped", index);
+    Chunk chunk = chunk(index);
+    int i = index % CHUNK_SIZE;
+    return new DevAppServerLogEntry(index, chunk.timestamps[i],
+        Severity.values()[chunk.severities[i]], loggers.get(chunk.loggers[i]),
+        requests.get(chunk.requests[i]), chunk.getText(i));
+  }
+
+  private Chunk chunk(int index) {
+    return chunks.get((index - firstIndex) / CHUNK_SIZE);
+  }
+
+  /**
+   * Returns the most recent of the kept entries that are at least as severe as
+   * {@code minimumSeverity} and belong to the request {@code requestId}.
+   *
+   * @param minimumSeverity if {@code null}, entries of all severities match
+   * @param requestId if {@code null}, entries of all requests match
+   * @param limit the maximum number of entries to return
+   * @return the matching entries, oldest first
+   */
+  public synchronized List<DevAppServerLogEntry> query(Severity minimumSeverity,
+      String requestId, int limit) {
+    Preconditions.checkArgument(limit >= 0, "limit is negative");
+    int[] matches;
+    if (requestId != null) {
+      IntList postings = requestIndex.get(requests.find(requestId));
+      matches = postings == null
+          ? new int[0] : filterBySeverity(postings, minimumSeverity, limit);
+    } else if (minimumSeverity != null) {
+      matches = mergeSeverities(minimumSeverity, limit);
+    } else {
+      matches = new int[Math.min(limit, size - firstIndex)];
+      for (int i = 0; i < matches.length; i++) {
+        matches[i] = size - matches.length + i;
+      }
+    }
+
+    List<DevAppServerLogEntry> entries = new ArrayList<>(matches.length);
+    for (int index : matches) {
+      entries.add(get(index));
+    }
+    return entries;
+  }
+
+  /** Returns the last {@code limit} postings of entries at least {@code minimumSeverity}. */
+  private int[] filterBySeverity(IntList postings, Severity minimumSeverity, int limit) {
+    int[] matches = new int[Math.min(limit, postings.size)];
+    int count = 0;
+    for (int i = postings.size - 1; i >= 0 && count < matches.length; i--) {
+      int index = postings.values[i];
+      if (minimumSeverity == null
+          || chunk(index).severities[index % CHUNK_SIZE]
+              >= minimumSeverity.ordinal()) {
+        matches[matches.length - 1 - count++] = index;
+      }
+    }
+    return Arrays.copyOfRange(matches, matches.length - count, matches.length);
+  }
+
+  /** Returns the last {@code limit} entries that are at least {@code minimumSeverity}. */
+  private int[] mergeSeverities(Severity minimumSeverity, int limit) {
+    // each of the last matching entries is among the last ones of its own severity
+    int total = 0;
+    for (int i = minimumSeverity.ordinal(); i < severityIndex.length; i++) {
+      total += Math.min(limit, severityIndex[i].size);
+    }
+    int[] candidates = new int[total];
+    int count = 0;
+    for (int i = minimumSeverity.ordinal(); i < severityIndex.length; i++) {
+      IntList postings = severityIndex[i];
+      int length = Math.min(limit, postings.size);
+      System.arraycopy(postings.values, postings.size - length, candidates, count, length);
+      count += length;
+    }
+    Arrays.sort(candidates);
+    return Arrays.copyOfRange(candidates, Math.max(0, total - limit), total);
+  }
+
+  /** One block of entries, stored column by column. */
+  private static class Chunk {
+    private final long[] timestamps = new long[CHUNK_SIZE];
+    private final byte[] severities = new byte[CHUNK_SIZE];
+    private final int[] loggers = new int[CHUNK_SIZE];
+    private final int[] requests = new int[CHUNK_SIZE];
+    // the text of entry i is text[textOffsets[i]] to text[textOffsets[i + 1]]
+    private final int[] textOffsets = new int[CHUNK_SIZE + 1];
+    private byte[] text = new byte[64 * 1024];
+    private int size;
+
+    private void add(long timestamp, Severity severity, int logger, int request,
+        String entryText) {
+      timestamps[size] = timestamp;
+      severities[size] = (byte) severity.ordinal();
+      loggers[size] = logger;
+      requests[size] = request;
+      byte[] bytes = entryText.getBytes(StandardCharsets.UTF_8);
+      int offset = textOffsets[size];
+      if (offset + bytes.length > text.length) {
+        text = Arrays.copyOf(text, Math.max(text.length * 2, offset + bytes.length));
+      }
+      System.arraycopy(bytes, 0, text, offset, bytes.length);
+      size++;
+      textOffsets[size] = offset + bytes.length;
+    }
+
+    private String getText(int i) {
+      return new String(text, textOffsets[i], textOffsets[i + 1] - textOffsets[i],
+          StandardCharsets.UTF_8);
+    }
+
+    /** Releases the unused part of the text column once the chunk is full. */
+    private void trim() {
+      text = Arrays.copyOf(text, textOffsets[size]);
+    }
+  }
+
+  /**
+   * Gives each symbol an ID that does not change while the symbol is in use. The IDs of symbols
+   * only used by dropped entries are forgotten; since most symbols stop being used in the order
+   * they were first used, the table drops its oldest slots and keeps the ID of the first slot.
+   */
+  private static class SymbolTable {
+    // symbol ID - base is the slot of the symbol in these lists; forgotten symbols are null
+    private final List<String> symbols = new ArrayList<>();
+    private final IntList lastUses = new IntList();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private int base;
+
+    /** Returns the ID of {@code symbol}, noting that entry {@code index} uses it. */
+    private int intern(String symbol, int index) {
+      if (symbol == null) {
+        return NO_SYMBOL;
+      }
+      Integer id = ids.get(symbol);
+      if (id == null) {
+        id = base + symbols.size();
+        symbols.add(symbol);
+        lastUses.add(index);
+        ids.put(symbol, id);
+      } else {
+        lastUses.values[id - base] = index;
+      }
+      return id;
+    }
+
+    /** @return the ID of {@code symbol}, or {@code null} if it is not in use */
+    private Integer find(String symbol) {
+      return ids.get(symbol);
+    }
+
+    private String get(int id) {
+      return id == NO_SYMBOL ? null : symbols.get(id - base);
+    }
+
+    private boolean contains(int id) {
+      return id >= base && symbols.get(id - base) != null;
+    }
+
+    /** Forgets the symbols that are only used by entries below {@code firstIndex}. */
+    private void forgetUnusedBelow(int firstIndex) {
+      for (int slot = 0; slot < symbols.size(); slot++) {
+        String symbol = symbols.get(slot);
+        if (symbol != null && lastUses.values[slot] < firstIndex) {
+          ids.remove(symbol);
+          symbols.set(slot, null);
+        }
+      }
+      int forgotten = 0;
+      while (forgotten < symbols.size() && symbols.get(forgotten) == null) {
+        forgotten++;
+      }
+      symbols.subList(0, forgotten).clear();
+      lastUses.removeFirst(forgotten);
+      base += forgotten;
+    }
+  }
+
+  /** A growable list of {@code int} values without boxing. */
+  private static class IntList {
+    private int[] values = new int[16];
+    private int size;
+
+    private void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    /** Removes the values below {@code value}; the values are in ascending order. */
+    private void removeBelow(int value) {
+      int first = 0;
+      while (first < size && values[first] < value) {
+        first++;
+      }
+      removeFirst(first);
+    }
+
+    private void removeFirst(int count) {
+      System.arraycopy(values, count, values, 0, size - count);
+      size -= count;
+    }
+  }
+}
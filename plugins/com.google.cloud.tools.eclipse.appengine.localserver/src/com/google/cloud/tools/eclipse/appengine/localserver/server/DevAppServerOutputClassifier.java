@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+/**
+ * Recognizes the dev_appserver output lines that change the state of the server or announce
+ * ports, exactly like the regular expressions that {@link
+ * LocalAppEngineServerBehaviour.DevAppServerOutputListener} used to match one after another, but
+ * without their cost: lines are dispatched on fixed markers, and only the few candidate lines are
+ * scanned further. For the formats recognized, see {@link
+ * LocalAppEngineServerBehaviour.DevAppServerOutputListener}.
+ */
+class DevAppServerOutputClassifier {
+
+  enum Kind {
+    /** The line is of no interest. */
+    NONE,
+    /** The server is ready to serve requests. */
+    STARTED,
+    /** The server has failed. */
+    STOPPED,
+    /** The Java process has exited, so the Python process must be terminated. */
+    FATAL_ERROR,
+    /** A module has started; the service, URL and port are known. */
+    MODULE,
+    /** The admin server has started; the URL and port are known. */
+    ADMIN
+  }
+
+  /** The result of classifying a line. */
+  static class Event {
+    final Kind kind;
+    final String service;
+    final String url;
+    /** The port of {@link #url}, or {@code 0} if it does not fit in an {@code int}. */
+    final int port;
+
+    private Event(Kind kind, String service, String url, int port) {
+      this.kind = kind;
+      this.service = service;
+      this.url = url;
+      this.port = port;
+    }
+  }
+
+  static final Event NONE = new Event(Kind.NONE, null, null, 0);
+  private static final Event STARTED = new Event(Kind.STARTED, null, null, 0);
+  private static final Event STOPPED = new Event(Kind.STOPPED, null, null, 0);
+  private static final Event FATAL_ERROR = new Event(Kind.FATAL_ERROR, null, null, 0);
+
+  // devappserver2 prefixes the messages with a header like
+  // "INFO     2017-01-31 21:00:40,700 dispatcher.py:197] "
+  private static final String DEVAPPSERVER2_PREFIX = "INFO "; //$NON-NLS-1$
+  private static final String MODULE_STARTED = "Starting module \""; //$NON-NLS-1$
+  private static final String MODULE_STARTED_URL = "\" running at: "; //$NON-NLS-1$
+  private static final String ADMIN_STARTED = "Starting admin server at: "; //$NON-NLS-1$
+
+  private static final String DEVAPPSERVER1_PREFIX = "INFO: "; //$NON-NLS-1$
+  private static final String MODULE_RUNNING = "INFO: Module instance "; //$NON-NLS-1$
+  private static final String MODULE_RUNNING_URL = " is running at "; //$NON-NLS-1$
+  private static final String ADMIN_RUNNING =
+      "INFO: The admin console is running at "; //$NON-NLS-1$
+  private static final String ADMIN_RUNNING_SUFFIX = "/_ah/admin"; //$NON-NLS-1$
+
+  private static final String FATAL_EXCEPTION =
+      "Error: A fatal exception has occurred. Program will exit"; //$NON-NLS-1$
+  private static final String URL_SCHEME = "http://"; //$NON-NLS-1$
+
+  /**
+   * Classifies {@code line}, checking the same things in the same order as the listener did.
+   */
+  static Event classify(String line) {
+    if (line.endsWith("Dev App Server is now running")) { //$NON-NLS-1$
+      // App Engine Standard (v1)
+      return STARTED;
+    } else if (line.endsWith(".Server:main: Started")) { //$NON-NLS-1$
+      // App Engine Flexible (v2)
+      return STARTED;
+    } else if (line.equals("Traceback (most recent call last):")) { //$NON-NLS-1$
+      return STOPPED;
+    } else if (line.contains(FATAL_EXCEPTION)) {
+      return FATAL_ERROR;
+    }
+    Event event = matchModuleStarted(line);
+    if (event == null) {
+      event = matchModuleRunning(line);
+    }
+    if (event == null) {
+      event = matchAdminStarted(line);
+    }
+    if (event == null) {
+      event = matchAdminRunning(line);
+    }
+    return event == null ? NONE : event;
+  }
+
+  // INFO .*Starting module "(?<service>[^"]+)" running at: (?<url>http://.+:(?<port>[0-9]+))$
+  private static Event matchModuleStarted(String line) {
+    // like the greedy .*, prefer the last occurrence that matches
+    for (int index = line.lastIndexOf(MODULE_STARTED); index >= DEVAPPSERVER2_PREFIX.length();
+        index = line.lastIndexOf(MODULE_STARTED, index - 1)) {
+      if (!matchesDevAppServer2Header(line, index)) {
+        continue;
+      }
+      int serviceStart = index + MODULE_STARTED.length();
+      int serviceEnd = line.indexOf('"', serviceStart);
+      if (serviceEnd > serviceStart && line.startsWith(MODULE_STARTED_URL, serviceEnd)) {
+        int urlStart = serviceEnd + MODULE_STARTED_URL.length();
+        if (isPortUrl(line, urlStart, line.length())) {
+          return new Event(Kind.MODULE, line.substring(serviceStart, serviceEnd),
+              line.substring(urlStart), parsePort(line, line.length()));
+        }
+      }
+    }
+    return null;
+  }
+
+  // INFO .*Starting admin server at: (?<url>http://.+:(?<port>[0-9]+))$
+  private static Event matchAdminStarted(String line) {
+    for (int index = line.lastIndexOf(ADMIN_STARTED); index >= DEVAPPSERVER2_PREFIX.length();
+        index = line.lastIndexOf(ADMIN_STARTED, index - 1)) {
+      int urlStart = index + ADMIN_STARTED.length();
+      if (matchesDevAppServer2Header(line, index) && isPortUrl(line, urlStart, line.length())) {
+        return new Event(Kind.ADMIN, null, line.substring(urlStart),
+            parsePort(line, line.length()));
+      }
+    }
+    return null;
+  }
+
+  /** Checks that {@code line} starts with the header matched by {@code INFO .*}. */
+  private static boolean matchesDevAppServer2Header(String line, int end) {
+    return line.startsWith(DEVAPPSERVER2_PREFIX)
+        && !containsLineTerminator(line, DEVAPPSERVER2_PREFIX.length(), end);
+  }
+
+  // INFO: Module instance (?<service>[\w\d\-]+) is running at (?<url>http://.+:(?<port>[0-9]+)/)$
+  private static Event matchModuleRunning(String line) {
+    if (!line.startsWith(MODULE_RUNNING) || !line.endsWith("/")) { //$NON-NLS-1$
+      return null;
+    }
+    int serviceEnd = MODULE_RUNNING.length();
+    while (serviceEnd < line.length() && isServiceIdCharacter(line.charAt(serviceEnd))) {
+      serviceEnd++;
+    }
+    int urlStart = serviceEnd + MODULE_RUNNING_URL.length();
+    if (serviceEnd > MODULE_RUNNING.length() && line.startsWith(MODULE_RUNNING_URL, serviceEnd)
+        && isPortUrl(line, urlStart, line.length() - 1)) {
+      return new Event(Kind.MODULE, line.substring(MODULE_RUNNING.length(), serviceEnd),
+          line.substring(urlStart), parsePort(line, line.length() - 1));
+    }
+    return null;
+  }
+
+  // INFO: The admin console is running at (?<url>http://.+:(?<port>[0-9]+))/_ah/admin$
+  private static Event matchAdminRunning(String line) {
+    if (!line.startsWith(ADMIN_RUNNING) || !line.endsWith(ADMIN_RUNNING_SUFFIX)) {
+      return null;
+    }
+    int urlEnd = line.length() - ADMIN_RUNNING_SUFFIX.length();
+    if (isPortUrl(line, ADMIN_RUNNING.length(), urlEnd)) {
+      return new Event(Kind.ADMIN, null, line.substring(ADMIN_RUNNING.length(), urlEnd),
+          parsePort(line, urlEnd));
+    }
+    return null;
+  }
+
+  private static boolean isServiceIdCharacter(char c) {
+    // \w without UNICODE_CHARACTER_CLASS
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+        || c == '_' || c == '-';
+  }
+
+  /**
+   * Checks that {@code line} holds {@code http://.+:[0-9]+} exactly between {@code start} and
+   * {@code end}.
+   */
+  private static boolean isPortUrl(String line, int start, int end) {
+    if (start > end || !line.startsWith(URL_SCHEME, start)) {
+      return false;
+    }
+    int colon = line.lastIndexOf(':', end - 1);
+    if (colon <= start + URL_SCHEME.length() || colon == end - 1) {
+      return false;
+    }
+    for (int i = colon + 1; i < end; i++) {
+      char c = line.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return !containsLineTerminator(line, start + URL_SCHEME.length(), colon);
+  }
+
+  /**
+   * Parses the digits of the port that ends at {@code end}, as checked by {@link #isPortUrl}.
+   *
+   * @return the port, or {@code 0} if it does not fit in an {@code int}, like the listener's
+   *     {@code Integer.parseInt} fallback
+   */
+  private static int parsePort(String line, int end) {
+    int start = line.lastIndexOf(':', end - 1) + 1;
+    long port = 0;
+    for (int i = start; i < end; i++) {
+      port = port * 10 + (line.charAt(i) - '0');
+      if (port > Integer.MAX_VALUE) {
+        return 0;
+      }
+    }
+    return (int) port;
+  }
+
+  /**
+   * Checks for the line terminators, which {@code .} does not match, between {@code start} and
+   * {@code end}.
+   */
+  private static boolean containsLineTerminator(String line, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = line.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
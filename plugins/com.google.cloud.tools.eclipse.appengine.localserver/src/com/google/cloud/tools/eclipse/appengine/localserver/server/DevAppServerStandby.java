@@ -0,0 +1,376 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import com.google.cloud.tools.appengine.AppEngineDescriptor;
+import com.google.cloud.tools.appengine.api.AppEngineException;
+import com.google.cloud.tools.appengine.api.devserver.RunConfiguration;
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessExitListener;
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.xml.sax.SAXException;
+
+/**
+ * A devappserver1 JVM started ahead of a launch. The JVM runs the App Engine agent and loads the
+ * dev server classes, then waits in {@link DevAppServerStandbyMain} until {@link #attach} hands
+ * it the dev server arguments, including the application directories. This takes JVM startup and
+ * SDK loading out of the time between a launch and the dev server being ready.
+ * <p>
+ * The JVM arguments and environment are fixed when the JVM starts, so a standby can only serve a
+ * launch with an equal {@link Spec}. They are the ones {@code CloudSdkAppEngineDevServer1} uses,
+ * which limits standbys to configurations that set nothing but the services, host, port and
+ * automatic restart (see {@link #canServe}). Standbys are shared by all servers, with at most one
+ * per spec, that is per Java home, runtime and environment.
+ */
+class DevAppServerStandby {
+
+  private static final Logger logger = Logger.getLogger(DevAppServerStandby.class.getName());
+
+  @VisibleForTesting
+  static final String STANDBY_JAR = "dev-server-standby.jar"; //$NON-NLS-1$
+
+  /** What a dev server JVM is started with. */
+  static final class Spec {
+    private final Path javaHome;
+    private final Path javaSdkPath;
+    private final List<String> jvmArguments;
+    private final Map<String, String> environment;
+
+    @VisibleForTesting
+    Spec(Path javaHome, Path javaSdkPath, List<String> jvmArguments,
+        Map<String, String> environment) {
+      this.javaHome = javaHome;
+      this.javaSdkPath = javaSdkPath;
+      this.jvmArguments = Collections.unmodifiableList(new ArrayList<>(jvmArguments));
+      this.environment = Collections.unmodifiableMap(new HashMap<>(environment));
+    }
+
+    @VisibleForTesting
+    List<String> getJvmArguments() {
+      return jvmArguments;
+    }
+
+    @VisibleForTesting
+    Map<String, String> getEnvironment() {
+      return environment;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Spec)) {
+        return false;
+      }
+      Spec spec = (Spec) other;
+      return javaHome.equals(spec.javaHome) && javaSdkPath.equals(spec.javaSdkPath)
+          && jvmArguments.equals(spec.jvmArguments) && environment.equals(spec.environment);
+    }
+
+    @Override
+    public int hashCode() {
+      return jvmArguments.hashCode() ^ javaHome.hashCode();
+    }
+  }
+
+  /** The properties of a {@link RunConfiguration} that a standby can serve. */
+  private static final Set<String> SUPPORTED_PROPERTIES = ImmutableSet.of(
+      "getServices", "getHost", "getPort", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+      "getAutomaticRestart"); //$NON-NLS-1$
+
+  /** The standby JVMs that are ready, by how they were started. */
+  private static final Map<Spec, DevAppServerStandby> standbys = new HashMap<>();
+
+  private final Process process;
+
+  private DevAppServerStandby(Process process) {
+    this.process = process;
+  }
+
+  /**
+   * Returns whether a standby can run the dev server for {@code configuration}. Any property
+   * beyond the services, host, port and automatic restart would have the Cloud SDK library add
+   * arguments that a standby does not know about.
+   */
+  static boolean canServe(RunConfiguration configuration) {
+    for (Method getter : RunConfiguration.class.getMethods()) {
+      if (getter.getParameterTypes().length > 0
+          || SUPPORTED_PROPERTIES.contains(getter.getName())) {
+        continue;
+      }
+      try {
+        if (getter.invoke(configuration) != null) {
+          return false;
+        }
+      } catch (ReflectiveOperationException ex) {
+        logger.log(Level.FINE, "Cannot read " + getter.getName(), ex); //$NON-NLS-1$
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes how devappserver1 is started for {@code configuration}, which a standby
+   * {@link #canServe can serve}.
+   *
+   * @param javaSdkPath the App Engine Java SDK in the Cloud SDK
+   * @return the spec, or {@code null} if the services' {@code appengine-web.xml} cannot be read
+   */
+  static Spec computeSpec(Path javaHome, Path javaSdkPath, RunConfiguration configuration) {
+    boolean sandboxed = true;
+    Map<String, String> environment = new HashMap<>();
+    for (File service : configuration.getServices()) {
+      Path descriptorFile = service.toPath().resolve("WEB-INF/appengine-web.xml"); //$NON-NLS-1$
+      try (InputStream in = Files.newInputStream(descriptorFile)) {
+        AppEngineDescriptor descriptor = AppEngineDescriptor.parse(in);
+        if (descriptor.isJava8()) {
+          sandboxed = false;
+        }
+        Map<String, String> variables = descriptor.getEnvironment();
+        if (variables != null) {
+          environment.putAll(variables);
+        }
+      } catch (IOException | SAXException | AppEngineException ex) {
+        logger.log(Level.FINE, "Cannot read " + descriptorFile, ex); //$NON-NLS-1$
+        return null;
+      }
+    }
+
+    List<String> jvmArguments = new ArrayList<>();
+    if (Boolean.TRUE.equals(configuration.getAutomaticRestart())) {
+      jvmArguments.add("-Dappengine.fullscan.seconds=1"); //$NON-NLS-1$
+    }
+    if (sandboxed) {
+      jvmArguments.add("-javaagent:" //$NON-NLS-1$
+          + javaSdkPath.resolve("agent/appengine-agent.jar").toAbsolutePath()); //$NON-NLS-1$
+    } else {
+      jvmArguments.add("-Duse_jetty9_runtime=true"); //$NON-NLS-1$
+      jvmArguments.add("-D--enable_all_permissions=true"); //$NON-NLS-1$
+    }
+    jvmArguments.add("-Dappengine.sdk.root=" + javaSdkPath.toAbsolutePath()); //$NON-NLS-1$
+    return new Spec(javaHome, javaSdkPath, jvmArguments, environment);
+  }
+
+  /** Returns the dev server arguments for {@code configuration}. */
+  @VisibleForTesting
+  static List<String> computeArguments(RunConfiguration configuration) {
+    List<String> arguments = new ArrayList<>();
+    if (configuration.getHost() != null) {
+      arguments.add("--address=" + configuration.getHost()); //$NON-NLS-1$
+    }
+    if (configuration.getPort() != null) {
+      arguments.add("--port=" + configuration.getPort()); //$NON-NLS-1$
+    }
+    arguments.add("--allow_remote_shutdown"); //$NON-NLS-1$
+    arguments.add("--disable_update_check"); //$NON-NLS-1$
+    for (File service : configuration.getServices()) {
+      arguments.add(service.toPath().toString());
+    }
+    return arguments;
+  }
+
+  /**
+   * Removes the standby started with {@code spec} from the ready ones.
+   *
+   * @return the standby, or {@code null} if none is ready
+   */
+  static DevAppServerStandby take(Spec spec) {
+    synchronized (standbys) {
+      DevAppServerStandby standby = standbys.remove(spec);
+      if (standby != null && !standby.isAlive()) {
+        return null;
+      }
+      return standby;
+    }
+  }
+
+  /**
+   * Starts a standby JVM for {@code spec}, unless one is ready already.
+   *
+   * @param stateDirectory where the standby launcher is kept
+   */
+  static void prepare(Spec spec, Path stateDirectory) throws IOException {
+    synchronized (standbys) {
+      DevAppServerStandby standby = standbys.get(spec);
+      if (standby == null || !standby.isAlive()) {
+        standbys.put(spec, start(spec, stateDirectory));
+      }
+    }
+  }
+
+  /** Stops all standby JVMs that are ready. */
+  static void discardAll() {
+    synchronized (standbys) {
+      for (DevAppServerStandby standby : standbys.values()) {
+        standby.discard();
+      }
+      standbys.clear();
+    }
+  }
+
+  /**
+   * Starts a standby JVM.
+   *
+   * @param stateDirectory where the standby launcher is kept
+   */
+  @VisibleForTesting
+  static DevAppServerStandby start(Spec spec, Path stateDirectory) throws IOException {
+    List<String> command = new ArrayList<>();
+    command.add(getJavaExecutable(spec.javaHome).toString());
+    command.addAll(spec.jvmArguments);
+    command.add("-cp"); //$NON-NLS-1$
+    Path toolsJar = spec.javaSdkPath.resolve("lib/appengine-tools-api.jar"); //$NON-NLS-1$
+    command.add(toolsJar.toAbsolutePath() + File.pathSeparator
+        + writeLauncherJar(stateDirectory));
+    command.add(DevAppServerStandbyMain.class.getName());
+
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.environment().putAll(spec.environment);
+    return new DevAppServerStandby(builder.start());
+  }
+
+  private static Path getJavaExecutable(Path javaHome) {
+    Path java = javaHome.resolve("bin/java.exe"); //$NON-NLS-1$
+    return Files.exists(java) ? java : javaHome.resolve("bin/java"); //$NON-NLS-1$
+  }
+
+  private static synchronized Path writeLauncherJar(Path directory) throws IOException {
+    Path jar = directory.resolve(STANDBY_JAR);
+    Files.createDirectories(directory);
+    Path temporary = Files.createTempFile(directory, "standby", ".jar"); //$NON-NLS-1$ //$NON-NLS-2$
+    String entryName =
+        DevAppServerStandbyMain.class.getName().replace('.', '/') + ".class"; //$NON-NLS-1$
+    try (InputStream classFile =
+            DevAppServerStandbyMain.class.getResourceAsStream("/" + entryName); //$NON-NLS-1$
+        JarOutputStream out = new JarOutputStream(Files.newOutputStream(temporary))) {
+      Preconditions.checkState(classFile != null, "Cannot find %s", entryName);
+      out.putNextEntry(new JarEntry(entryName));
+      copy(classFile, out);
+      out.closeEntry();
+    }
+    // replaced every time, so the launcher matches the running version of the plugin
+    return Files.move(temporary, jar, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void copy(InputStream in, OutputStream out) throws IOException {
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+  }
+
+  boolean isAlive() {
+    try {
+      process.exitValue();
+      return false;
+    } catch (IllegalThreadStateException ex) {
+      return true;
+    }
+  }
+
+  /**
+   * Starts the dev server in the standby JVM, reporting its output and exit to the listeners the
+   * way {@code CloudSdk} does for the processes it starts.
+   */
+  Process attach(List<String> arguments, List<ProcessOutputLineListener> stdoutListeners,
+      List<ProcessOutputLineListener> stderrListeners, final ProcessExitListener exitListener)
+      throws IOException {
+    try (Writer writer =
+        new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+      for (String argument : arguments) {
+        writer.write(argument);
+        writer.write('\n');
+      }
+      writer.write('\n');
+    }
+    final Thread stdout = pump(process.getInputStream(), stdoutListeners, "stdout"); //$NON-NLS-1$
+    final Thread stderr = pump(process.getErrorStream(), stderrListeners, "stderr"); //$NON-NLS-1$
+    Thread waiter = new Thread("Dev server standby exit") { //$NON-NLS-1$
+      @Override
+      public void run() {
+        try {
+          int exitCode = process.waitFor();
+          stdout.join();
+          stderr.join();
+          exitListener.onExit(exitCode);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+    waiter.setDaemon(true);
+    waiter.start();
+    return process;
+  }
+
+  private static Thread pump(final InputStream stream,
+      final List<ProcessOutputLineListener> listeners, String name) {
+    Thread thread = new Thread("Dev server standby " + name) { //$NON-NLS-1$
+      @Override
+      public void run() {
+        try (BufferedReader reader =
+            new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            for (ProcessOutputLineListener listener : listeners) {
+              listener.onOutputLine(line);
+            }
+          }
+        } catch (IOException ex) {
+          logger.log(Level.FINE, "Dev server output closed", ex); //$NON-NLS-1$
+        }
+      }
+    };
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /** Stops the standby JVM; closing its stdin makes it exit without starting a dev server. */
+  void discard() {
+    try {
+      process.getOutputStream().close();
+    } catch (IOException ex) {
+      process.destroy();
+    }
+  }
+}
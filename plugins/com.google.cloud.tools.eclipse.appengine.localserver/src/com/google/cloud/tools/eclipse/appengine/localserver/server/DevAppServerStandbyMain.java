@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of a dev server JVM kept in standby by {@link DevAppServerStandby}. It loads the
+ * dev server classes and then waits for the dev server arguments on stdin, one per line and ended
+ * by an empty line, before handing over to {@code DevAppServerMain}. The JVM exits if stdin is
+ * closed first.
+ * <p>
+ * Runs in the dev server JVM, next to the App Engine SDK; it must not use anything but the JRE.
+ */
+public final class DevAppServerStandbyMain {
+
+  static final String DEV_APP_SERVER_MAIN =
+      "com.google.appengine.tools.development.DevAppServerMain"; //$NON-NLS-1$
+
+  private static final String[] PRELOADED_CLASSES = {
+      "com.google.appengine.tools.development.DevAppServerFactory", //$NON-NLS-1$
+      "com.google.appengine.tools.development.DevAppServerImpl", //$NON-NLS-1$
+      "com.google.appengine.tools.development.JettyContainerService", //$NON-NLS-1$
+      "com.google.appengine.tools.development.jetty9.JettyContainerService", //$NON-NLS-1$
+      "com.google.appengine.tools.development.ApiProxyLocalImpl", //$NON-NLS-1$
+  };
+
+  public static void main(String[] args) throws IOException, ReflectiveOperationException {
+    Method main = Class.forName(DEV_APP_SERVER_MAIN).getMethod("main", String[].class);
+    ClassLoader loader = DevAppServerStandbyMain.class.getClassLoader();
+    for (String className : PRELOADED_CLASSES) {
+      try {
+        Class.forName(className, false, loader);
+      } catch (ClassNotFoundException | LinkageError ex) {
+        // not in this SDK version
+      }
+    }
+
+    BufferedReader in =
+        new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    List<String> devServerArgs = new ArrayList<>();
+    String line;
+    while ((line = in.readLine()) != null && !line.isEmpty()) {
+      devServerArgs.add(line);
+    }
+    if (line == null) {
+      return; // no longer needed
+    }
+
+    try {
+      main.invoke(null, (Object) devServerArgs.toArray(new String[devServerArgs.size()]));
+    } catch (InvocationTargetException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw ex;
+    }
+  }
+
+  private DevAppServerStandbyMain() {}
+}
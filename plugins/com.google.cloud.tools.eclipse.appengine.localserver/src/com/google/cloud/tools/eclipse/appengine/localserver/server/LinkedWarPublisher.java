@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.eclipse.wst.server.core.util.PublishHelper;
+
+/**
+ * Publishes a module as a virtual exploded WAR: a tree of real directories whose files are
+ * symbolic links to the module's files in the workspace, such as the web content folder and the
+ * Java output folders. Saved changes to existing files are then seen by the dev server without
+ * publishing; only added and removed files need work. Files that are not backed by a local file,
+ * such as generated descriptors, are copied.
+ * <p>
+ * Directories are never linked, only files, so deleting the published tree can never reach into
+ * the workspace. A marker file next to the published tree records that it consists of links.
+ */
+class LinkedWarPublisher {
+
+  private static final Logger logger = Logger.getLogger(LinkedWarPublisher.class.getName());
+
+  private static final String MARKER_SUFFIX = ".linked"; //$NON-NLS-1$
+
+  private static Boolean linksSupported;
+
+  private final Path directory;
+  private final Path marker;
+
+  LinkedWarPublisher(IPath directory) {
+    this.directory = directory.toFile().toPath();
+    marker = this.directory.resolveSibling(this.directory.getFileName() + MARKER_SUFFIX);
+  }
+
+  /**
+   * @return {@code true} if symbolic links can be created in {@code baseDirectory}; this is not
+   *     the case on Windows without the privilege to create them
+   */
+  static synchronized boolean isSupported(IPath baseDirectory) {
+    if (linksSupported == null) {
+      Path base = baseDirectory.toFile().toPath();
+      Path target = base.resolve(".link-test-target"); //$NON-NLS-1$
+      Path link = base.resolve(".link-test"); //$NON-NLS-1$
+      try {
+        Files.createDirectories(base);
+        Files.deleteIfExists(link);
+        Files.write(target, new byte[0]);
+        Files.createSymbolicLink(link, target);
+        linksSupported = true;
+      } catch (IOException | UnsupportedOperationException | SecurityException ex) {
+        logger.log(Level.INFO,
+            "Cannot create symbolic links; modules will be copied", ex); //$NON-NLS-1$
+        linksSupported = false;
+      } finally {
+        try {
+          Files.deleteIfExists(link);
+          Files.deleteIfExists(target);
+        } catch (IOException ex) {
+          logger.log(Level.FINE, "Could not clean up " + base, ex); //$NON-NLS-1$
+        }
+      }
+    }
+    return linksSupported;
+  }
+
+  /**
+   * @return {@code true} if the module was last published as links
+   */
+  boolean isPublishedAsLinks() {
+    return Files.exists(marker);
+  }
+
+  /**
+   * Removes the published module, whether it consists of links or of copies.
+   */
+  IStatus[] delete(IProgressMonitor monitor) {
+    List<IStatus> statuses = new ArrayList<>();
+    File published = directory.toFile();
+    if (published.exists()) {
+      addAll(statuses, PublishHelper.deleteDirectory(published, monitor));
+    }
+    try {
+      Files.deleteIfExists(marker);
+    } catch (IOException ex) {
+      statuses.add(StatusUtil.error(this, "Could not delete " + marker, ex));
+    }
+    return statuses.toArray(new IStatus[statuses.size()]);
+  }
+
+  /**
+   * Replaces the published module with links to {@code resources}.
+   */
+  IStatus[] publishFull(IModuleResource[] resources, IProgressMonitor monitor) {
+    List<IStatus> statuses = new ArrayList<>();
+    addAll(statuses, delete(monitor));
+    try {
+      Files.createDirectories(directory);
+      Files.write(marker, new byte[0]);
+    } catch (IOException ex) {
+      statuses.add(StatusUtil.error(this, "Could not create " + directory, ex));
+      return statuses.toArray(new IStatus[statuses.size()]);
+    }
+    for (IModuleResource resource : resources) {
+      if (monitor.isCanceled()) {
+        break;
+      }
+      add(resource, statuses);
+    }
+    return statuses.toArray(new IStatus[statuses.size()]);
+  }
+
+  /**
+   * Applies {@code deltas} to the published links: links are added and removed, but changed
+   * files need no work unless they were copied.
+   */
+  IStatus[] publishDelta(IModuleResourceDelta[] deltas, IProgressMonitor monitor) {
+    List<IStatus> statuses = new ArrayList<>();
+    for (IModuleResourceDelta delta : deltas) {
+      if (monitor.isCanceled()) {
+        break;
+      }
+      applyDelta(delta, statuses, monitor);
+    }
+    return statuses.toArray(new IStatus[statuses.size()]);
+  }
+
+  private void applyDelta(IModuleResourceDelta delta, List<IStatus> statuses,
+      IProgressMonitor monitor) {
+    IModuleResource resource = delta.getModuleResource();
+    Path path = resolve(resource);
+    switch (delta.getKind()) {
+      case IModuleResourceDelta.ADDED:
+        add(resource, statuses);
+        break;
+      case IModuleResourceDelta.REMOVED:
+        if (resource instanceof IModuleFolder) {
+          addAll(statuses, PublishHelper.deleteDirectory(path.toFile(), monitor));
+        } else {
+          deleteFile(path, statuses);
+        }
+        break;
+      case IModuleResourceDelta.CHANGED:
+        if (resource instanceof IModuleFile && !Files.isSymbolicLink(path)) {
+          add(resource, statuses); // a copy, or a file that replaced a folder
+        }
+        for (IModuleResourceDelta child : delta.getAffectedChildren()) {
+          applyDelta(child, statuses, monitor);
+        }
+        break;
+      default:
+        for (IModuleResourceDelta child : delta.getAffectedChildren()) {
+          applyDelta(child, statuses, monitor);
+        }
+        break;
+    }
+  }
+
+  private void add(IModuleResource resource, List<IStatus> statuses) {
+    Path path = resolve(resource);
+    try {
+      if (resource instanceof IModuleFolder) {
+        Files.createDirectories(path);
+        for (IModuleResource member : ((IModuleFolder) resource).members()) {
+          add(member, statuses);
+        }
+      } else if (resource instanceof IModuleFile) {
+        Files.createDirectories(path.getParent());
+        Files.deleteIfExists(path);
+        Path source = getLocalFile((IModuleFile) resource);
+        if (source != null) {
+          Files.createSymbolicLink(path, source.toAbsolutePath());
+        } else {
+          copy((IModuleFile) resource, path);
+        }
+      }
+    } catch (IOException | CoreException ex) {
+      statuses.add(StatusUtil.error(this, "Could not publish " + path, ex));
+    }
+  }
+
+  private static void copy(IModuleFile moduleFile, Path path) throws IOException, CoreException {
+    IFile file = (IFile) moduleFile.getAdapter(IFile.class);
+    if (file == null) {
+      throw new IOException("No content for " + moduleFile.getModuleRelativePath());
+    }
+    try (InputStream in = file.getContents()) {
+      Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * @return the file in the local file system that backs {@code moduleFile}, or {@code null}
+   */
+  private static Path getLocalFile(IModuleFile moduleFile) {
+    IFile file = (IFile) moduleFile.getAdapter(IFile.class);
+    if (file != null) {
+      IPath location = file.getLocation();
+      return location == null ? null : location.toFile().toPath();
+    }
+    File localFile = (File) moduleFile.getAdapter(File.class);
+    return localFile == null ? null : localFile.toPath();
+  }
+
+  private void deleteFile(Path path, List<IStatus> statuses) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException ex) {
+      statuses.add(StatusUtil.error(this, "Could not delete " + path, ex));
+    }
+  }
+
+  private Path resolve(IModuleResource resource) {
+    return directory.resolve(resource.getModuleRelativePath().append(resource.getName())
+        .toString());
+  }
+
+  private static void addAll(List<IStatus> statuses, IStatus[] array) {
+    for (IStatus status : array) {
+      statuses.add(status);
+    }
+  }
+}
@@ -17,10 +17,17 @@
 package com.google.cloud.tools.eclipse.appengine.localserver.server;
 
 import com.google.cloud.tools.eclipse.jst.server.core.BasePublishOperation;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
 import org.eclipse.wst.server.core.model.IModuleResource;
 import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.eclipse.wst.server.core.model.ServerBehaviourDelegate;
 
 /**
  * Handles the publishing operations for the App Engine development server.
@@ -70,4 +77,35 @@ public class LocalAppEnginePublishOperation extends BasePublishOperation {
     return false;
   }
 
+  /**
+   * Publishes a web module by copying, or as a {@link LinkedWarPublisher virtual exploded WAR}
+   * when {@link LocalAppEngineServerBehaviour#isServeWithoutPublish() serving without publish}.
+   */
+  @Override
+  protected void publishDir(IModule module2, List<IStatus> statuses, IProgressMonitor monitor)
+      throws CoreException {
+    LinkedWarPublisher publisher =
+        new LinkedWarPublisher(getModuleDeployDirectory(module2));
+    boolean serveWithoutPublish = server.isServeWithoutPublish();
+    if (!serveWithoutPublish) {
+      if (publisher.isPublishedAsLinks()) {
+        // never copy into links: that would overwrite the files in the workspace
+        statuses.addAll(Arrays.asList(publisher.delete(monitor)));
+        kind = IServer.PUBLISH_FULL;
+      }
+      super.publishDir(module2, statuses, monitor);
+      return;
+    }
+
+    if (deltaKind == ServerBehaviourDelegate.REMOVED) {
+      statuses.addAll(Arrays.asList(publisher.delete(monitor)));
+    } else if (kind == IServer.PUBLISH_CLEAN || kind == IServer.PUBLISH_FULL
+        || !publisher.isPublishedAsLinks()) {
+      statuses.addAll(Arrays.asList(publisher.publishFull(getResources(module), monitor)));
+    } else {
+      statuses.addAll(Arrays.asList(
+          publisher.publishDelta(getPublishedResourceDelta(module), monitor)));
+    }
+  }
+
 }
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.eclipse.appengine.localserver.server;
 
+import com.google.cloud.tools.eclipse.jst.server.core.ConcurrentPublishOperation;
 import java.util.List;
 
 import org.eclipse.wst.server.core.IModule;
@@ -37,12 +38,15 @@ public class LocalAppEnginePublishTaskDelegate extends PublishTaskDelegate {
     LocalAppEngineServerBehaviour gaeServer =
         (LocalAppEngineServerBehaviour) server.loadAdapter(LocalAppEngineServerBehaviour.class, null);
 
-    List<PublishOperation> tasks = Lists.newArrayList();
+    List<LocalAppEnginePublishOperation> tasks = Lists.newArrayList();
     for (int i = 0; i < modules.size(); i++) {
       IModule[] module = (IModule[]) modules.get(i);
       tasks.add(new LocalAppEnginePublishOperation(gaeServer, kind, module, (Integer) kindList.get(i)));
     }
 
-    return tasks.toArray(new PublishOperation[tasks.size()]);
+    // publish independent web modules, and the files of full publishes, in parallel
+    int threads = Runtime.getRuntime().availableProcessors();
+    return new PublishOperation[] {new ConcurrentPublishOperation("Publish to server",
+        "Publish modules to App Engine Development Server", tasks, threads)};
   }
 }
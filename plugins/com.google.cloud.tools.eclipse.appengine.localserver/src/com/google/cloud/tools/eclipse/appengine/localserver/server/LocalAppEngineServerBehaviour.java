@@ -29,28 +29,36 @@ import com.google.cloud.tools.appengine.cloudsdk.process.ProcessStartListener;
 import com.google.cloud.tools.appengine.cloudsdk.serialization.CloudSdkVersion;
 import com.google.cloud.tools.eclipse.appengine.localserver.Activator;
 import com.google.cloud.tools.eclipse.appengine.localserver.Messages;
-import com.google.cloud.tools.eclipse.sdk.ui.MessageConsoleWriterOutputLineListener;
+import com.google.cloud.tools.eclipse.appengine.localserver.PreferencesInitializer;
+import com.google.cloud.tools.eclipse.sdk.ui.RateLimitedConsoleWriter;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.nio.file.Path;
+import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.ui.console.MessageConsoleStream;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IServer;
@@ -74,15 +82,6 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
     boolean isInUse(InetAddress addr, int port);
   }
 
-  /** Parse the numeric string. Return {@code defaultValue} if non-numeric. */
-  private static int parseInt(String numeric, int defaultValue) {
-    try {
-      return Integer.parseInt(numeric);
-    } catch (NumberFormatException ex) {
-      return defaultValue;
-    }
-  }
-
   public static final String SERVER_PORT_ATTRIBUTE_NAME = "appEngineDevServerPort"; //$NON-NLS-1$
   public static final String ADMIN_HOST_ATTRIBUTE_NAME = "appEngineDevServerAdminHost"; //$NON-NLS-1$
   public static final String ADMIN_PORT_ATTRIBUTE_NAME = "appEngineDevServerAdminPort"; //$NON-NLS-1$
@@ -114,6 +113,24 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
   @VisibleForTesting
   Map<String, String> moduleToUrlMap = new LinkedHashMap<>();
 
+  private volatile DevAppServerLogStore logStore = new DevAppServerLogStore();
+
+  /** Coalesces automatic publishes while the dev server restarts on changes; may be null. */
+  @VisibleForTesting
+  volatile PublishCoalescer publishCoalescer;
+  /** Whether modules are linked rather than copied until the server stops; null if undecided. */
+  private volatile Boolean serveWithoutPublish;
+  /** Guards the publish state of the superclass, which publish operations use concurrently. */
+  private final Object publishLock = new Object();
+
+  private List<ProcessOutputLineListener> stdoutListeners;
+  private List<ProcessOutputLineListener> stderrListeners;
+
+  /** How to start the standby for the next launch, or {@code null} if there should be none. */
+  private DevAppServerStandby.Spec nextStandbySpec;
+  private long launchStartTime;
+  private boolean launchedFromStandby;
+
   public LocalAppEngineServerBehaviour () {
     localAppEngineStartListener = new LocalAppEngineStartListener();
     localAppEngineExitListener = new LocalAppEngineExitListener();
@@ -149,10 +166,43 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
         devProcess = null;
       }
       devServer = null;
+      stopPublishCoalescer();
+      serveWithoutPublish = null;
       setServerState(IServer.STATE_STOPPED);
     }
   }
 
+  @Override
+  public void dispose() {
+    stopPublishCoalescer();
+    synchronized (this) {
+      nextStandbySpec = null;
+    }
+    super.dispose();
+  }
+
+  @Override
+  public IStatus publish(int kind, List<IModule[]> modules, IProgressMonitor monitor,
+      IAdaptable info) throws CoreException {
+    PublishCoalescer coalescer = publishCoalescer;
+    if (kind == IServer.PUBLISH_AUTO && coalescer != null && coalescer.requestPublish()) {
+      // published in one go once the current burst of changes is over; until then the server
+      // must not look synchronized
+      synchronized (publishLock) {
+        setServerPublishState(IServer.PUBLISH_STATE_INCREMENTAL);
+      }
+      return Status.OK_STATUS;
+    }
+    return super.publish(kind, modules, monitor, info);
+  }
+
+  private void stopPublishCoalescer() {
+    PublishCoalescer coalescer = publishCoalescer;
+    publishCoalescer = null;
+    if (coalescer != null) {
+      coalescer.stop();
+    }
+  }
 
   @Override
   public IStatus canStop() {
@@ -164,26 +214,34 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
   }
 
   /**
-   * Convenience method allowing access to protected method in superclass.
+   * Convenience method allowing access to protected method in superclass. Safe to call from the
+   * concurrent publish operations.
    */
   @Override
   protected IModuleResourceDelta[] getPublishedResourceDelta(IModule[] module) {
-    return super.getPublishedResourceDelta(module);
+    synchronized (publishLock) {
+      return super.getPublishedResourceDelta(module);
+    }
   }
 
   /**
-   * Convenience method allowing access to protected method in superclass.
+   * Convenience method allowing access to protected method in superclass. Safe to call from the
+   * concurrent publish operations.
    */
   @Override
   protected IModuleResource[] getResources(IModule[] module) {
-    return super.getResources(module);
+    synchronized (publishLock) {
+      return super.getResources(module);
+    }
   }
 
   /**
    * Returns runtime base directory. Uses temp directory.
    */
   public IPath getRuntimeBaseDirectory() {
-    return getTempDirectory(false);
+    synchronized (publishLock) {
+      return getTempDirectory(false);
+    }
   }
 
   /**
@@ -194,10 +252,31 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
   }
 
   /**
-   * Convenience accessor to protected member in superclass.
+   * Returns {@code true} if modules are published as links to the files in the workspace rather
+   * than as copies. This requires devappserver1 and a file system with symbolic links. It is
+   * decided once, when first needed, and kept until the server stops, so that the launch and the
+   * publishes of a server run agree even if the preference changes in between.
+   */
+  public boolean isServeWithoutPublish() {
+    Boolean decided = serveWithoutPublish;
+    if (decided == null) {
+      decided = !LocalAppEngineServerLaunchConfigurationDelegate.DEV_APPSERVER2
+          && Platform.getPreferencesService().getBoolean(Activator.PLUGIN_ID,
+              PreferencesInitializer.SERVE_WITHOUT_PUBLISH, false, null)
+          && LinkedWarPublisher.isSupported(getRuntimeBaseDirectory());
+      serveWithoutPublish = decided;
+    }
+    return decided;
+  }
+
+  /**
+   * Convenience accessor to protected member in superclass. Safe to call from the concurrent
+   * publish operations.
    */
   public final void setModulePublishState2(IModule[] module, int state) {
-    setModulePublishState(module, state);
+    synchronized (publishLock) {
+      setModulePublishState(module, state);
+    }
   }
 
   @Override
@@ -281,6 +360,13 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
     return adminPort;
   }
 
+  /**
+   * Returns the log of the current or last run of this server.
+   */
+  public DevAppServerLogStore getLogStore() {
+    return logStore;
+  }
+
   /**
    * @return a short pithy description of this server suitable for use in UI elements
    */
@@ -299,12 +385,14 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
   /**
    * Starts the development server.
    *
+   * @param mode the launch mode
    * @param console the stream (Eclipse console) to send development server process output to
    */
-  void startDevServer(DefaultRunConfiguration devServerRunConfiguration,
+  void startDevServer(String mode, DefaultRunConfiguration devServerRunConfiguration,
       Path javaHomePath, MessageConsoleStream outputStream, MessageConsoleStream errorStream)
       throws CoreException {
-    
+    launchStartTime = System.nanoTime();
+
     PortChecker portInUse = new PortChecker() {
       @Override
       public boolean isInUse(InetAddress addr, int port) {
@@ -338,31 +426,117 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
     // Create dev app server instance
     initializeDevServer(outputStream, errorStream, javaHomePath);
 
+    if (Boolean.TRUE.equals(devServerRunConfiguration.getAutomaticRestart())) {
+      // every publish makes the dev server restart, so publish once per burst of changes
+      stopPublishCoalescer();
+      publishCoalescer = new PublishCoalescer(getServer(), outputStream);
+      publishCoalescer.start(ResourcesPlugin.getWorkspace());
+    }
+
     // Run server
     try {
-      devServer.run(devServerRunConfiguration);
+      launchedFromStandby = ILaunchManager.RUN_MODE.equals(mode)
+          && startFromStandby(devServerRunConfiguration, javaHomePath);
+      if (!launchedFromStandby) {
+        devServer.run(devServerRunConfiguration);
+      }
     } catch (AppEngineException ex) {
       Activator.logError("Error starting server: " + ex.getMessage()); //$NON-NLS-1$
       stop(true);
     }
   }
 
+  /**
+   * Starts the dev server in a standby JVM if there is one that was started the same way, and
+   * arranges for a standby to be ready for the next launch.
+   *
+   * @return {@code true} if the dev server was started, {@code false} if it still has to be
+   */
+  private synchronized boolean startFromStandby(DefaultRunConfiguration configuration,
+      Path javaHomePath) {
+    nextStandbySpec = null;
+    if (!isStandbyEnabled()) {
+      DevAppServerStandby.discardAll();
+      return false;
+    } else if (!isDevAppServer1() || !DevAppServerStandby.canServe(configuration)) {
+      return false;
+    }
+    Path javaSdkPath = cloudSdk.getSdkPath()
+        .resolve("platform/google_appengine/google/appengine/tools/java"); //$NON-NLS-1$
+    DevAppServerStandby.Spec spec =
+        DevAppServerStandby.computeSpec(javaHomePath, javaSdkPath, configuration);
+    if (spec == null) {
+      return false;
+    }
+    nextStandbySpec = spec;
+
+    DevAppServerStandby warm = DevAppServerStandby.take(spec);
+    if (warm == null) {
+      return false;
+    }
+    try {
+      Process process = warm.attach(DevAppServerStandby.computeArguments(configuration),
+          stdoutListeners, stderrListeners, localAppEngineExitListener);
+      localAppEngineStartListener.onStart(process);
+      return true;
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Cannot start dev server in standby JVM", ex); //$NON-NLS-1$
+      warm.discard();
+      return false;
+    }
+  }
+
+  /** Starts a standby JVM for the next launch, if the last launch asked for one. */
+  private synchronized void prepareStandby() {
+    if (nextStandbySpec == null || Activator.getDefault() == null) {
+      return;
+    }
+    try {
+      Path stateDirectory = Activator.getDefault().getStateLocation().toFile().toPath();
+      DevAppServerStandby.prepare(nextStandbySpec, stateDirectory);
+    } catch (IOException ex) {
+      logger.log(Level.WARNING, "Cannot start standby dev server JVM", ex); //$NON-NLS-1$
+    }
+  }
+
+  private void logLaunchTime() {
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launchStartTime);
+    String jvm = launchedFromStandby ? "standby JVM" : "new JVM"; //$NON-NLS-1$ //$NON-NLS-2$
+    String message = "Dev server ready {0,number,#} ms after launch ({1})"; //$NON-NLS-1$
+    logger.info(MessageFormat.format(message, elapsed, jvm));
+  }
+
+  private static boolean isStandbyEnabled() {
+    return Platform.getPreferencesService().getBoolean(Activator.PLUGIN_ID,
+        PreferencesInitializer.DEV_SERVER_STANDBY, false, null);
+  }
+
   private static int ifNull(Integer value, int defaultValue) {
     return value != null ? value : defaultValue;
   }
 
   private void initializeDevServer(MessageConsoleStream stdout, MessageConsoleStream stderr,
       Path javaHomePath) {
-    MessageConsoleWriterOutputLineListener stdoutListener =
-        new MessageConsoleWriterOutputLineListener(stdout);
-    MessageConsoleWriterOutputLineListener stderrListener =
-        new MessageConsoleWriterOutputLineListener(stderr);
+    // one writer for both streams, so their lines show in the order they came
+    RateLimitedConsoleWriter consoleWriter = new RateLimitedConsoleWriter();
+    ProcessOutputLineListener stdoutListener = consoleWriter.newListener(stdout);
+    ProcessOutputLineListener stderrListener = consoleWriter.newListener(stderr);
+
+    logStore = new DevAppServerLogStore();
 
     // dev_appserver output goes to stderr
-    cloudSdk = new CloudSdk.Builder()
-        .javaHome(javaHomePath)
-        .addStdOutLineListener(stdoutListener).addStdErrLineListener(stderrListener)
-        .addStdErrLineListener(serverOutputListener)
+    stdoutListeners = Arrays.<ProcessOutputLineListener>asList(stdoutListener,
+        logStore.newListener());
+    stderrListeners = Arrays.<ProcessOutputLineListener>asList(stderrListener,
+        serverOutputListener, logStore.newListener());
+    CloudSdk.Builder builder = new CloudSdk.Builder().javaHome(javaHomePath);
+    for (ProcessOutputLineListener listener : stdoutListeners) {
+      builder.addStdOutLineListener(listener);
+    }
+    for (ProcessOutputLineListener listener : stderrListeners) {
+      builder.addStdErrLineListener(listener);
+    }
+    cloudSdk = builder
         .startListener(localAppEngineStartListener)
         .exitListener(localAppEngineExitListener)
         .async(true)
@@ -390,7 +564,11 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
       logger.log(Level.FINE, "Process exit: code=" + exitCode); //$NON-NLS-1$
       devServer = null;
       devProcess = null;
+      stopPublishCoalescer();
+      serveWithoutPublish = null;
       setServerState(IServer.STATE_STOPPED);
+      // have a dev server JVM ready for the next launch
+      prepareStandby();
     }
   }
 
@@ -414,56 +592,47 @@ public class LocalAppEngineServerBehaviour extends ServerBehaviourDelegate
     // <<HEADER>> Starting module "default" running at: http://localhost:8080
     // <<HEADER>> Starting admin server at: http://localhost:8000
     // where <<HEADER>> = INFO 2017-01-31 21:00:40,700 dispatcher.py:197]
-    
-    // devappserver2 patterns
-    private final Pattern moduleStartedPattern = Pattern.compile(
-        "INFO .*Starting module \"(?<service>[^\"]+)\" running at: (?<url>http://.+:(?<port>[0-9]+))$");
-    private final Pattern adminStartedPattern =
-        Pattern.compile("INFO .*Starting admin server at: (?<url>http://.+:(?<port>[0-9]+))$");
-
-    // devappserver1 patterns
-    private final Pattern moduleRunningPattern = Pattern.compile(
-        "INFO: Module instance (?<service>[\\w\\d\\-]+) is running at (?<url>http://.+:(?<port>[0-9]+)/)$");
-    private final Pattern adminRunningPattern =
-        Pattern.compile("INFO: The admin console is running at (?<url>http://.+:(?<port>[0-9]+))/_ah/admin$");
-      
+    //
+    // DevAppServer1 outputs the following:
+    // INFO: Module instance default is running at http://localhost:8080/
+    // INFO: The admin console is running at http://localhost:8080/_ah/admin
+
     private int serverPortCandidate = 0;
 
     @Override
     public void onOutputLine(String line) {
-      Matcher matcher;
-      if (line.endsWith("Dev App Server is now running")) { //$NON-NLS-1$
-        // App Engine Standard (v1)
-        setServerState(IServer.STATE_STARTED);
-      } else if (line.endsWith(".Server:main: Started")) { //$NON-NLS-1$
-        // App Engine Flexible (v2)
-        setServerState(IServer.STATE_STARTED);
-      } else if (line.equals("Traceback (most recent call last):")) { //$NON-NLS-1$
-        // An error occurred
-        setServerState(IServer.STATE_STOPPED);
-      } else if (line.contains("Error: A fatal exception has occurred. Program will exit")) { //$NON-NLS-1$
-        // terminate the Python process
-        stop(false);
-      } else if ((matcher = moduleStartedPattern.matcher(line)).matches()
-          || (matcher = moduleRunningPattern.matcher(line)).matches()) {
-        String serviceId = matcher.group("service");
-        String url = matcher.group("url");
-        moduleToUrlMap.put(serviceId, url);
-        String portString = matcher.group("port");
-        int port = parseInt(portString, 0);
-        if (port > 0 && (serverPortCandidate == 0 || "default".equals(serviceId))) { // $NON-NLS-1$
-          serverPortCandidate = port;
-        }
-      } else if ((matcher = adminStartedPattern.matcher(line)).matches()
-          || (matcher = adminRunningPattern.matcher(line)).matches()) {
-        int port = parseInt(matcher.group("port"), 0);
-        if (port > 0 && adminPort <= 0) {
-          adminPort = port;
-        }
-        // Admin comes after other modules, so no more module URLs
-        if (serverPort <= 0) {
-          serverPort = serverPortCandidate;
-        }
+      DevAppServerOutputClassifier.Event event = DevAppServerOutputClassifier.classify(line);
+      switch (event.kind) {
+        case STARTED:
+          logLaunchTime();
+          setServerState(IServer.STATE_STARTED);
+          break;
+        case STOPPED:
+          // An error occurred
+          setServerState(IServer.STATE_STOPPED);
+          break;
+        case FATAL_ERROR:
+          // terminate the Python process
+          stop(false);
+          break;
+        case MODULE:
+          moduleToUrlMap.put(event.service, event.url);
+          if (event.port > 0
+              && (serverPortCandidate == 0 || "default".equals(event.service))) { // $NON-NLS-1$
+            serverPortCandidate = event.port;
+          }
+          break;
+        case ADMIN:
+          if (event.port > 0 && adminPort <= 0) {
+            adminPort = event.port;
+          }
+          // Admin comes after other modules, so no more module URLs
+          if (serverPort <= 0) {
+            serverPort = serverPortCandidate;
+          }
+          break;
+        default:
+          break;
       }
     }
   }
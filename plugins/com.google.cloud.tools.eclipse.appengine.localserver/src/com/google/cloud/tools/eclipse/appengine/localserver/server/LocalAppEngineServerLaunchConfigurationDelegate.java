@@ -26,6 +26,7 @@ import com.google.cloud.tools.eclipse.appengine.localserver.Messages;
 import com.google.cloud.tools.eclipse.appengine.localserver.PreferencesInitializer;
 import com.google.cloud.tools.eclipse.appengine.localserver.ui.LocalAppEngineConsole;
 import com.google.cloud.tools.eclipse.appengine.localserver.ui.StaleResourcesStatusHandler;
+import com.google.cloud.tools.eclipse.sdk.ui.RateLimitedConsoleWriter;
 import com.google.cloud.tools.eclipse.ui.util.MessageConsoleUtilities;
 import com.google.cloud.tools.eclipse.ui.util.WorkbenchUtil;
 import com.google.cloud.tools.eclipse.usagetracker.AnalyticsEvents;
@@ -98,6 +99,10 @@ public class LocalAppEngineServerLaunchConfigurationDelegate
     extends AbstractJavaLaunchConfigurationDelegate {
 
   static final boolean DEV_APPSERVER2 = false;
+
+  @VisibleForTesting
+  static final String JETTY_ALLOW_LINKS_FLAG =
+      "-Dorg.mortbay.util.FileResource.checkAliases=false"; //$NON-NLS-1$
   
   private static final Logger logger =
       Logger.getLogger(LocalAppEngineServerLaunchConfigurationDelegate.class.getName());
@@ -280,7 +285,14 @@ public class LocalAppEngineServerLaunchConfigurationDelegate
     // TODO: apiPort?
     // vmArguments is exactly as supplied by the user in the dialog box
     String vmArgumentString = getVMArguments(configuration);
-    List<String> vmArguments = Arrays.asList(DebugPlugin.parseArguments(vmArgumentString));
+    List<String> vmArguments =
+        new ArrayList<>(Arrays.asList(DebugPlugin.parseArguments(vmArgumentString)));
+    LocalAppEngineServerBehaviour serverBehaviour = (LocalAppEngineServerBehaviour)
+        server.loadAdapter(LocalAppEngineServerBehaviour.class, null /* monitor */);
+    if (serverBehaviour != null && serverBehaviour.isServeWithoutPublish()) {
+      // Jetty refuses to serve static files through symbolic links unless told otherwise
+      vmArguments.add(JETTY_ALLOW_LINKS_FLAG);
+    }
     if (!vmArguments.isEmpty()) {
       devServerRunConfiguration.setJvmFlags(vmArguments);
     }
@@ -428,6 +440,8 @@ public class LocalAppEngineServerLaunchConfigurationDelegate
         MessageConsoleUtilities.findOrCreateConsole(configuration.getName(),
             new LocalAppEngineConsole.Factory(serverBehaviour));
     console.clearConsole();
+    // long dev server sessions must not fill the heap with console output
+    RateLimitedConsoleWriter.limitSize(console);
     console.activate();
     MessageConsoleStream outputStream = console.newMessageStream();
     MessageConsoleStream errorStream = console.newMessageStream();
@@ -456,7 +470,7 @@ public class LocalAppEngineServerLaunchConfigurationDelegate
       IVMInstall vmInstall = JavaRuntime.getVMInstall(javaProject);
       
       String javaHome = vmInstall.getInstallLocation().getAbsolutePath();
-      serverBehaviour.startDevServer(devServerRunConfiguration, Paths.get(javaHome),
+      serverBehaviour.startDevServer(mode, devServerRunConfiguration, Paths.get(javaHome),
           outputStream, errorStream);
     } catch (CoreException ex) {
       launch.terminate();
@@ -16,10 +16,9 @@
 
 package com.google.cloud.tools.eclipse.appengine.localserver.server;
 
-import com.google.cloud.tools.appengine.AppEngineDescriptor;
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineDescriptorCache;
 import com.google.cloud.tools.eclipse.appengine.facets.WebProjectUtil;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.Set;
@@ -48,9 +47,9 @@ public class ModuleUtils {
     IFile descriptorFile =
         WebProjectUtil.findInWebInf(module.getProject(), new Path("appengine-web.xml"));
     if (descriptorFile != null) {
-      try (InputStream contents = descriptorFile.getContents()) {
-        AppEngineDescriptor descriptor = AppEngineDescriptor.parse(contents);
-        String serviceId = descriptor.getServiceId();
+      try {
+        String serviceId =
+            AppEngineDescriptorCache.getInstance().get(descriptorFile).getServiceId();
         if (serviceId != null) {
           return serviceId;
         }
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.server;
+
+import com.google.cloud.tools.eclipse.appengine.localserver.Messages;
+import com.google.common.annotations.VisibleForTesting;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.console.MessageConsoleStream;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+
+/**
+ * Turns a burst of automatic publish requests into a single incremental publish. A save of many
+ * files, a refactoring or a branch switch makes WTP request one publish after another, and with
+ * automatic restart each publish makes the dev server restart. Requests are held until the
+ * projects of the server's modules have seen no resource changes for a quiet period (but no longer
+ * than a maximum delay), and then one publish covers them all. Each such publish is announced in
+ * the server console, with the number of requests and changes it covers.
+ */
+class PublishCoalescer implements IResourceChangeListener {
+
+  @VisibleForTesting
+  static final long DEFAULT_QUIET_PERIOD = 1000;
+  @VisibleForTesting
+  static final long DEFAULT_MAX_DELAY = 10000;
+
+  private final IServer server;
+  private final MessageConsoleStream console;
+  private final long quietPeriod;
+  private final long maxDelay;
+  private final Job publishJob;
+
+  // all guarded by this
+  private int pendingRequests;
+  private int resourceEvents;
+  private long burstStart;
+  private long lastActivity;
+  private boolean publishScheduled;
+  private IWorkspace workspace;
+
+  /**
+   * @param console the server console, where coalesced publishes are announced
+   */
+  PublishCoalescer(IServer server, MessageConsoleStream console) {
+    this(server, console, DEFAULT_QUIET_PERIOD, DEFAULT_MAX_DELAY);
+  }
+
+  @VisibleForTesting
+  PublishCoalescer(IServer server, MessageConsoleStream console, long quietPeriod,
+      long maxDelay) {
+    this.server = server;
+    this.console = console;
+    this.quietPeriod = quietPeriod;
+    this.maxDelay = maxDelay;
+    publishJob = new Job("Publish coalesced changes") { //$NON-NLS-1$
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        publishIfQuiet();
+        return Status.OK_STATUS;
+      }
+    };
+    publishJob.setSystem(true);
+  }
+
+  /** Starts watching {@code workspace} for changes to the server's projects. */
+  synchronized void start(IWorkspace workspace) {
+    this.workspace = workspace;
+    workspace.addResourceChangeListener(this, IResourceChangeEvent.POST_CHANGE);
+  }
+
+  /** Stops watching the workspace and drops requests that are still held. */
+  void stop() {
+    synchronized (this) {
+      if (workspace != null) {
+        workspace.removeResourceChangeListener(this);
+        workspace = null;
+      }
+      pendingRequests = 0;
+      resourceEvents = 0;
+      burstStart = 0;
+    }
+    publishJob.cancel();
+  }
+
+  /**
+   * Holds an automatic publish request until the current burst of changes is over.
+   *
+   * @return {@code true} if the request was taken over, {@code false} if the caller should
+   *     publish itself because the coalescer was stopped
+   */
+  synchronized boolean requestPublish() {
+    if (workspace == null) {
+      return false;
+    }
+    noteActivity();
+    pendingRequests++;
+    schedulePublish();
+    return true;
+  }
+
+  @Override
+  public void resourceChanged(IResourceChangeEvent event) {
+    if (affectsServer(event.getDelta())) {
+      synchronized (this) {
+        noteActivity();
+        resourceEvents++;
+        schedulePublish();
+      }
+    }
+  }
+
+  private boolean affectsServer(IResourceDelta delta) {
+    if (delta == null) {
+      return false;
+    }
+    for (IModule module : server.getModules()) {
+      IProject project = module.getProject();
+      if (project != null && delta.findMember(project.getFullPath()) != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void noteActivity() {
+    long now = System.currentTimeMillis();
+    if (burstStart == 0 || (pendingRequests == 0 && now - lastActivity > quietPeriod)) {
+      burstStart = now; // a new burst of changes
+    }
+    lastActivity = now;
+  }
+
+  private void schedulePublish() {
+    if (pendingRequests > 0 && !publishScheduled) {
+      publishScheduled = true;
+      long delay = Math.min(quietPeriod, burstStart + maxDelay - lastActivity);
+      publishJob.schedule(Math.max(0, delay));
+    }
+  }
+
+  private void publishIfQuiet() {
+    int requests;
+    int events;
+    synchronized (this) {
+      publishScheduled = false;
+      if (pendingRequests == 0) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      long quietIn = lastActivity + quietPeriod - now;
+      long deadlineIn = burstStart + maxDelay - now;
+      if (quietIn > 0 && deadlineIn > 0) {
+        // still changing: wait for the quiet period, but do not hold changes forever
+        publishScheduled = true;
+        publishJob.schedule(Math.min(quietIn, deadlineIn));
+        return;
+      }
+      requests = pendingRequests;
+      events = resourceEvents;
+      pendingRequests = 0;
+      resourceEvents = 0;
+      burstStart = 0;
+    }
+    if (!console.isClosed()) {
+      console.println(Messages.getString("PUBLISH_COALESCED", requests, events)); //$NON-NLS-1$
+    }
+    server.publish(IServer.PUBLISH_INCREMENTAL, null, null, null);
+  }
+
+  /** Waits until no publish is scheduled or running. */
+  @VisibleForTesting
+  void join() throws InterruptedException {
+    boolean scheduled;
+    do {
+      publishJob.join();
+      synchronized (this) {
+        scheduled = publishScheduled;
+      }
+    } while (scheduled);
+  }
+}
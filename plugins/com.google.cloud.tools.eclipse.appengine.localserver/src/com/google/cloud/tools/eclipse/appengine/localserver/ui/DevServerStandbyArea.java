@@ -0,0 +1,31 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.ui;
+
+import com.google.cloud.tools.eclipse.appengine.localserver.PreferencesInitializer;
+import com.google.cloud.tools.eclipse.preferences.areas.FieldEditorWrapper;
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.swt.widgets.Composite;
+
+public class DevServerStandbyArea extends FieldEditorWrapper<BooleanFieldEditor> {
+  @Override
+  protected BooleanFieldEditor createFieldEditor(Composite container) {
+    return new BooleanFieldEditor(PreferencesInitializer.DEV_SERVER_STANDBY,
+        "Keep a dev server JVM ready for the next launch (run mode)",
+        container);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.ui;
+
+import com.google.cloud.tools.eclipse.appengine.localserver.Messages;
+import com.google.cloud.tools.eclipse.appengine.localserver.server.DevAppServerLogEntry;
+import com.google.cloud.tools.eclipse.appengine.localserver.server.DevAppServerLogStore;
+import com.google.cloud.tools.eclipse.appengine.localserver.server.LocalAppEngineServerBehaviour;
+import com.google.cloud.tools.eclipse.appengine.ui.AppEngineImages;
+import com.google.cloud.tools.eclipse.ui.util.MessageConsoleUtilities;
+import java.util.List;
+import org.eclipse.jface.action.Action;
+import org.eclipse.jface.window.Window;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+
+/**
+ * Shows the dev server log entries of a {@link LocalAppEngineConsole} that have some minimum
+ * severity or belong to some request in a separate console.
+ */
+class FilterLogAction extends Action {
+
+  /** The maximum number of entries to show; the most recent ones are shown. */
+  private static final int MAX_ENTRIES = 10000;
+
+  private final LocalAppEngineConsole console;
+  private final Shell shell;
+
+  FilterLogAction(LocalAppEngineConsole console, Shell shell) {
+    super(Messages.getString("LOG_FILTER_ACTION")); //$NON-NLS-1$
+    this.console = console;
+    this.shell = shell;
+    setToolTipText(Messages.getString("LOG_FILTER_ACTION_TOOLTIP")); //$NON-NLS-1$
+    setImageDescriptor(AppEngineImages.appEngine(16));
+  }
+
+  @Override
+  public void run() {
+    LocalAppEngineServerBehaviour serverBehaviour = console.getServerBehaviourDelegate();
+    if (serverBehaviour == null) {
+      return;
+    }
+    DevAppServerLogStore logStore = serverBehaviour.getLogStore();
+    int droppedCount = logStore.getDroppedCount();
+    LogFilterDialog dialog = new LogFilterDialog(shell, droppedCount);
+    if (dialog.open() != Window.OK) {
+      return;
+    }
+
+    List<DevAppServerLogEntry> entries =
+        logStore.query(dialog.getMinimumSeverity(), dialog.getRequestId(), MAX_ENTRIES);
+    StringBuilder text = new StringBuilder();
+    if (droppedCount > 0) {
+      text.append(Messages.getString("LOG_FILTER_DROPPED", droppedCount)) //$NON-NLS-1$
+          .append('\n');
+    }
+    if (entries.size() == MAX_ENTRIES) {
+      text.append(Messages.getString("LOG_FILTER_TRUNCATED", MAX_ENTRIES)) //$NON-NLS-1$
+          .append('\n');
+    }
+    for (DevAppServerLogEntry entry : entries) {
+      text.append(entry.getText()).append('\n');
+    }
+
+    String name = Messages.getString("LOG_FILTER_CONSOLE_NAME", console.getName()); //$NON-NLS-1$
+    MessageConsole filtered =
+        MessageConsoleUtilities.getMessageConsole(name, AppEngineImages.appEngine(16), true);
+    MessageConsoleStream stream = filtered.newMessageStream();
+    stream.print(text.toString());
+  }
+}
@@ -32,7 +32,8 @@ import org.eclipse.wst.server.ui.internal.ImageResource;
 import org.eclipse.wst.server.ui.internal.Messages;
 
 /**
- * Adds a stop button for the App Engine runtime to the {@link LocalAppEngineConsole}
+ * Adds a stop button for the App Engine runtime and a log filter button to the
+ * {@link LocalAppEngineConsole}
  */
 @SuppressWarnings("restriction") // For ImageResource, Messages
 public class LocalAppEngineConsolePageParticipant implements IConsolePageParticipant {
@@ -57,6 +58,8 @@ public class LocalAppEngineConsolePageParticipant implements IConsolePagePartici
     // contribute to toolbar
     IActionBars actionBars = page.getSite().getActionBars();
     configureToolBar(actionBars.getToolBarManager());
+    actionBars.getToolBarManager().appendToGroup(IConsoleConstants.OUTPUT_GROUP,
+        new FilterLogAction(this.console, page.getSite().getShell()));
 
     LocalAppEngineServerBehaviour serverBehaviour = this.console.getServerBehaviourDelegate();
     if (serverBehaviour != null) {
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.appengine.localserver.ui;
+
+import com.google.cloud.tools.eclipse.appengine.localserver.Messages;
+import com.google.cloud.tools.eclipse.appengine.localserver.server.DevAppServerLogEntry.Severity;
+import com.google.common.base.Strings;
+import org.eclipse.jface.dialogs.Dialog;
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Text;
+
+/**
+ * Asks for the minimum severity and the request ID of the dev server log entries to show.
+ */
+class LogFilterDialog extends Dialog {
+
+  // the severities to choose from; null stands for all entries
+  private static final Severity[] SEVERITIES = {null, Severity.DEBUG, Severity.INFO,
+      Severity.WARNING, Severity.ERROR, Severity.CRITICAL};
+
+  private final int droppedCount;
+
+  private Combo severityCombo;
+  private Text requestIdText;
+
+  private Severity minimumSeverity;
+  private String requestId;
+
+  /**
+   * @param droppedCount the number of the oldest log entries that are no longer kept
+   */
+  LogFilterDialog(Shell parentShell, int droppedCount) {
+    super(parentShell);
+    this.droppedCount = droppedCount;
+  }
+
+  @Override
+  protected void configureShell(Shell shell) {
+    super.configureShell(shell);
+    shell.setText(Messages.getString("LOG_FILTER_DIALOG_TITLE")); //$NON-NLS-1$
+  }
+
+  @Override
+  protected Control createDialogArea(Composite parent) {
+    Composite container = (Composite) super.createDialogArea(parent);
+
+    Label severityLabel = new Label(container, SWT.LEAD);
+    severityLabel.setText(Messages.getString("LOG_FILTER_SEVERITY")); //$NON-NLS-1$
+    severityCombo = new Combo(container, SWT.READ_ONLY | SWT.DROP_DOWN);
+    for (Severity severity : SEVERITIES) {
+      severityCombo.add(severity == null
+          ? Messages.getString("LOG_FILTER_ALL_SEVERITIES") //$NON-NLS-1$
+          : severity.name());
+    }
+    severityCombo.select(0);
+
+    Label requestIdLabel = new Label(container, SWT.LEAD);
+    requestIdLabel.setText(Messages.getString("LOG_FILTER_REQUEST_ID")); //$NON-NLS-1$
+    requestIdText = new Text(container, SWT.SINGLE | SWT.BORDER);
+    requestIdText.setMessage(Messages.getString("LOG_FILTER_ALL_REQUESTS")); //$NON-NLS-1$
+    GridDataFactory.fillDefaults().grab(true, false).hint(250, SWT.DEFAULT)
+        .applyTo(requestIdText);
+
+    if (droppedCount > 0) {
+      Label droppedLabel = new Label(container, SWT.WRAP);
+      droppedLabel.setText(
+          Messages.getString("LOG_FILTER_DROPPED", droppedCount)); //$NON-NLS-1$
+      GridDataFactory.fillDefaults().span(2, 1).hint(250, SWT.DEFAULT).applyTo(droppedLabel);
+    }
+
+    GridLayoutFactory.swtDefaults().numColumns(2).generateLayout(container);
+    return container;
+  }
+
+  @Override
+  protected void okPressed() {
+    minimumSeverity = SEVERITIES[severityCombo.getSelectionIndex()];
+    requestId = Strings.emptyToNull(requestIdText.getText().trim());
+    super.okPressed();
+  }
+
+  /**
+   * @return the minimum severity, or {@code null} for all severities
+   */
+  Severity getMinimumSeverity() {
+    return minimumSeverity;
+  }
+
+  /**
+   * @return the request ID, or {@code null} for all requests
+   */
+  String getRequestId() {
+    return requestId;
+  }
+}
@@ -199,6 +199,21 @@ abstract public class CreateAppEngineWtpProjectTest {
     assertFalse(hasJUnit4Classpath(project));
   }
 
+  @Test
+  public void testDeferConfiguration() throws InvocationTargetException, CoreException,
+      OperationCanceledException, InterruptedException {
+    CreateAppEngineWtpProject creator = newCreateAppEngineWtpProject();
+    creator.setDeferConfiguration(true);
+    creator.execute(monitor);
+    assertEquals("HelloAppEngine.java", creator.getMostImportant().getName());
+    assertNotNull(creator.configurationJob);
+
+    creator.configurationJob.join(180000 /* 3 minutes */, monitor);
+    assertTrue(creator.configurationJob.getResult().isOK());
+    assertTrue(hasJUnit4Classpath(project));
+    assertCorrectOutputPathForJavaTestSource();
+  }
+
   private static boolean hasJUnit4Classpath(IProject project) throws JavaModelException {
     IJavaProject javaProject = JavaCore.create(project);
     for (IClasspathEntry entry : javaProject.getRawClasspath()) {
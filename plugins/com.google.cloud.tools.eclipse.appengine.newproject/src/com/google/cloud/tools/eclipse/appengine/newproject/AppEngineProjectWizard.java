@@ -91,6 +91,8 @@ public abstract class AppEngineProjectWizard extends Wizard implements INewWizar
     IAdaptable uiInfoAdapter = WorkspaceUndoUtil.getUIInfoAdapter(getShell());
     CreateAppEngineWtpProject runnable =
         getAppEngineProjectCreationOperation(config, uiInfoAdapter);
+    // open the project as soon as its files exist; Maven and libraries are set up in background
+    runnable.setDeferConfiguration(true);
 
     try {
       boolean fork = true;
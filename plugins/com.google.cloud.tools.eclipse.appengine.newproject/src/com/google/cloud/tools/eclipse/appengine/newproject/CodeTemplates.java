@@ -17,8 +17,11 @@
 package com.google.cloud.tools.eclipse.appengine.newproject;
 
 import com.google.cloud.tools.eclipse.util.Templates;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -26,7 +29,6 @@ import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
@@ -209,8 +211,9 @@ public class CodeTemplates {
 
     IFile child = parent.getFile(new Path(name));
     if (!child.exists()) {
-      Templates.createFileContent(child.getLocation().toString(), template, values);
-      child.refreshLocal(IResource.DEPTH_ZERO, monitor);
+      // render in memory and create through the workspace; no separate refresh needed
+      boolean force = true;
+      child.create(Templates.renderFileContent(template, values), force, monitor);
     }
     return child;
   }
@@ -222,8 +225,12 @@ public class CodeTemplates {
 
     IFile child = parent.getFile(new Path(name));
     if (!child.exists()) {
-      Templates.copyFileContent(child.getLocation().toString(), name);
-      child.refreshLocal(IResource.DEPTH_ZERO, monitor);
+      boolean force = true;
+      try (InputStream content = Templates.getFileContent(name)) {
+        child.create(content, force, monitor);
+      } catch (IOException ex) {
+        throw new CoreException(StatusUtil.error(CodeTemplates.class, ex.getMessage()));
+      }
     }
   }
 
@@ -18,6 +18,8 @@ package com.google.cloud.tools.eclipse.appengine.newproject;
 
 import com.google.cloud.tools.eclipse.appengine.libraries.BuildPath;
 import com.google.cloud.tools.eclipse.util.ClasspathUtil;
+import com.google.cloud.tools.eclipse.util.ProjectDescriptionEditor;
+import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import com.google.common.annotations.VisibleForTesting;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URI;
@@ -28,13 +30,16 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
 import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IAccessRule;
@@ -45,6 +50,7 @@ import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.internal.core.ClasspathEntry;
 import org.eclipse.jdt.junit.JUnitCore;
 import org.eclipse.jst.j2ee.classpathdep.UpdateClasspathAttributeUtil;
+import org.eclipse.jst.j2ee.refactor.listeners.J2EEElementChangedListener;
 import org.eclipse.m2e.core.MavenPlugin;
 import org.eclipse.m2e.core.project.ResolverConfiguration;
 import org.eclipse.ui.actions.WorkspaceModifyOperation;
@@ -62,10 +68,14 @@ public abstract class CreateAppEngineWtpProject extends WorkspaceModifyOperation
   private final AppEngineProjectConfig config;
   private final IAdaptable uiInfoAdapter;
   private IFile mostImportant = null;
+  private boolean deferConfiguration = false;
 
   @VisibleForTesting
   Job deployAssemblyEntryRemoveJob;
 
+  @VisibleForTesting
+  Job configurationJob;
+
   public abstract void addAppEngineFacet(IProject newProject, IProgressMonitor monitor)
       throws CoreException;
 
@@ -89,6 +99,16 @@ public abstract class CreateAppEngineWtpProject extends WorkspaceModifyOperation
     return mostImportant;
   }
 
+  /**
+   * Whether to configure the build path (Maven or JUnit, App Engine libraries, and test source
+   * settings) in a background job once the project exists, rather than as part of this
+   * operation. The operation then only creates the project files and facets, so the project can
+   * be opened right away, without waiting for Maven or network access.
+   */
+  public void setDeferConfiguration(boolean deferConfiguration) {
+    this.deferConfiguration = deferConfiguration;
+  }
+
   protected CreateAppEngineWtpProject(AppEngineProjectConfig config,
       IAdaptable uiInfoAdapter) {
     if (config == null) {
@@ -101,7 +121,7 @@ public abstract class CreateAppEngineWtpProject extends WorkspaceModifyOperation
   @Override
   public void execute(IProgressMonitor monitor) throws InvocationTargetException, CoreException {
     IWorkspace workspace = ResourcesPlugin.getWorkspace();
-    IProject newProject = config.getProject();
+    final IProject newProject = config.getProject();
     URI location = config.getEclipseProjectLocationUri();
 
     String name = newProject.getName();
@@ -113,22 +133,85 @@ public abstract class CreateAppEngineWtpProject extends WorkspaceModifyOperation
     CreateProjectOperation operation = new CreateProjectOperation(description, operationLabel);
     try {
       operation.execute(subMonitor.newChild(10), uiInfoAdapter);
-      mostImportant = createAndConfigureProjectContent(newProject, config, subMonitor.newChild(80));
     } catch (ExecutionException ex) {
       throw new InvocationTargetException(ex);
     }
 
-    addAppEngineFacet(newProject, subMonitor.newChild(4));
+    // Set up the project as one batch so that .project is written once, with a single
+    // resource delta and build at the end.
+    IWorkspaceRunnable setUp = new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        SubMonitor progress = SubMonitor.convert(monitor, 90);
+        mostImportant = createAndConfigureProjectContent(newProject, config,
+            progress.newChild(80));
+
+        addAppEngineFacet(newProject, progress.newChild(4));
+
+        if (!deferConfiguration) {
+          configureBuildPath(newProject, progress.newChild(6));
+        }
+      }
+    };
+    ProjectDescriptionEditor.batch(newProject, setUp, subMonitor.newChild(90));
+
+    if (deferConfiguration) {
+      configurationJob = new ConfigurationJob(newProject);
+      configurationJob.schedule();
+    }
+  }
 
+  private void configureBuildPath(IProject newProject, IProgressMonitor monitor)
+      throws CoreException {
+    SubMonitor progress = SubMonitor.convert(monitor, 6);
     if (config.getUseMaven()) {
-      enableMavenNature(newProject, subMonitor.newChild(2));
+      enableMavenNature(newProject, progress.newChild(2));
     } else {
-      addJunit4ToClasspath(newProject, subMonitor.newChild(2));
+      addJunit4ToClasspath(newProject, progress.newChild(2));
     }
 
-    BuildPath.addLibraries(newProject, config.getAppEngineLibraries(), subMonitor.newChild(2));
+    BuildPath.addLibraries(newProject, config.getAppEngineLibraries(), progress.newChild(2));
+
+    fixTestSourceDirectorySettings(newProject, progress.newChild(2));
+  }
+
+  /** Configures the build path of a new project in the background. */
+  private class ConfigurationJob extends Job {
+    private final IProject newProject;
+
+    private ConfigurationJob(IProject newProject) {
+      super(Messages.getString("project.configuration.job", newProject.getName())); //$NON-NLS-1$
+      this.newProject = newProject;
+      setRule(ResourcesPlugin.getWorkspace().getRoot());
+    }
 
-    fixTestSourceDirectorySettings(newProject, subMonitor.newChild(2));
+    /**
+     * Mark this job as a component update job, like the other jobs that finish setting up the
+     * project. Useful for our tests to ensure project configuration is complete.
+     */
+    @Override
+    public boolean belongsTo(Object family) {
+      return J2EEElementChangedListener.PROJECT_COMPONENT_UPDATE_JOB_FAMILY.equals(family);
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      IWorkspaceRunnable configure = new IWorkspaceRunnable() {
+        @Override
+        public void run(IProgressMonitor monitor) throws CoreException {
+          configureBuildPath(newProject, monitor);
+        }
+      };
+      try {
+        ProjectDescriptionEditor.batch(newProject, configure, monitor);
+        return Status.OK_STATUS;
+      } catch (OperationCanceledException ex) {
+        return Status.CANCEL_STATUS;
+      } catch (CoreException ex) {
+        return StatusUtil.error(this,
+            Messages.getString("project.configuration.failed", newProject.getName()), ex);
+      }
+    }
   }
 
   private void fixTestSourceDirectorySettings(IProject newProject, IProgressMonitor monitor)
@@ -16,17 +16,15 @@
 
 package com.google.cloud.tools.eclipse.appengine.standard.java8;
 
-import com.google.cloud.tools.appengine.AppEngineDescriptor;
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineDescriptorCache;
 import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.appengine.facets.WebProjectUtil;
+import com.google.cloud.tools.eclipse.util.ProjectDescriptionEditor;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import org.eclipse.core.resources.ICommand;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IProjectDescription;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.wst.common.project.facet.core.IFacetedProject;
@@ -90,9 +88,7 @@ public class AppEngineStandardFacetChangeListener implements IFacetedProjectList
   }
 
   private static boolean isJava8(IFile descriptor) throws IOException, CoreException, SAXException {
-    try (InputStream input = descriptor.getContents()) {
-      return AppEngineDescriptor.parse(input).isJava8();
-    }
+    return AppEngineDescriptorCache.getInstance().get(descriptor).isJava8();
   }
 
   /**
@@ -101,22 +97,8 @@ public class AppEngineStandardFacetChangeListener implements IFacetedProjectList
    */
   private void addAppEngineWebBuilder(IProject project) {
     try {
-      IProjectDescription projectDescription = project.getDescription();
-      ICommand[] commands = projectDescription.getBuildSpec();
-      for (int i = 0; i < commands.length; i++) {
-        if (AppEngineWebBuilder.BUILDER_ID.equals(commands[i].getBuilderName())) {
-          return;
-        }
-      }
-      ICommand[] newCommands = new ICommand[commands.length + 1];
-      // Add it after other builders.
-      System.arraycopy(commands, 0, newCommands, 0, commands.length);
-      // add builder to project
-      ICommand command = projectDescription.newCommand();
-      command.setBuilderName(AppEngineWebBuilder.BUILDER_ID);
-      newCommands[commands.length] = command;
-      projectDescription.setBuildSpec(newCommands);
-      project.setDescription(projectDescription, null);
+      ProjectDescriptionEditor.edit(project).addBuilder(AppEngineWebBuilder.BUILDER_ID)
+          .apply(null);
       logger.finer(project + ": added AppEngineWebBuilder");
     } catch (CoreException ex) {
       logger.log(Level.SEVERE, "Unable to add builder for " + project, ex);
@@ -129,23 +111,12 @@ public class AppEngineStandardFacetChangeListener implements IFacetedProjectList
    */
   private void removeAppEngineWebBuilder(IProject project) {
     try {
-      IProjectDescription projectDescription = project.getDescription();
-      ICommand[] commands = projectDescription.getBuildSpec();
-      for (int i = 0; i < commands.length; i++) {
-        if (AppEngineWebBuilder.BUILDER_ID.equals(commands[i].getBuilderName())) {
-          ICommand[] newCommands = new ICommand[commands.length - 1];
-          System.arraycopy(commands, 0, newCommands, 0, i);
-          System.arraycopy(commands, i + 1, newCommands, i, commands.length - i - 1);
-          projectDescription.setBuildSpec(newCommands);
-          project.setDescription(projectDescription, null);
-          logger.finer(project + ": removed AppEngineWebBuilder");
-          return;
-        }
-      }
+      ProjectDescriptionEditor.edit(project).removeBuilder(AppEngineWebBuilder.BUILDER_ID)
+          .apply(null);
+      logger.finer(project + ": removed AppEngineWebBuilder");
     } catch (CoreException ex) {
       logger.log(Level.SEVERE, "Unable to remove builder for " + project, ex);
     }
-
   }
 
   /**
@@ -16,13 +16,12 @@
 
 package com.google.cloud.tools.eclipse.appengine.standard.java8;
 
-import com.google.cloud.tools.appengine.AppEngineDescriptor;
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineDescriptorCache;
 import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.appengine.facets.FacetUtil;
 import com.google.cloud.tools.eclipse.appengine.facets.WebProjectUtil;
 import com.google.cloud.tools.eclipse.util.status.StatusUtil;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.logging.Logger;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.runtime.CoreException;
@@ -50,8 +49,9 @@ public class AppEngineStandardJre8ProjectFacetDetector extends ProjectFacetDetec
       return;
     }
     progress.worked(1);
-    try (InputStream content = appEngineWebXml.getContents()) {
-      AppEngineDescriptor descriptor = AppEngineDescriptor.parse(content);
+    try {
+      AppEngineDescriptorCache.Snapshot descriptor =
+          AppEngineDescriptorCache.getInstance().get(appEngineWebXml);
       progress.worked(1);
       if (!descriptor.isJava8()) {
         logger.fine("skipping " + projectName + ": appengine-web.xml is not java8");
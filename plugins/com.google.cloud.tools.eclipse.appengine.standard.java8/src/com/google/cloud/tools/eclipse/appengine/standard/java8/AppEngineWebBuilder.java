@@ -16,12 +16,11 @@
 
 package com.google.cloud.tools.eclipse.appengine.standard.java8;
 
-import com.google.cloud.tools.appengine.AppEngineDescriptor;
+import com.google.cloud.tools.eclipse.appengine.facets.AppEngineDescriptorCache;
 import com.google.cloud.tools.eclipse.appengine.facets.AppEngineStandardFacet;
 import com.google.cloud.tools.eclipse.appengine.facets.WebProjectUtil;
 import com.google.cloud.tools.eclipse.util.MavenUtils;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -80,8 +79,9 @@ public class AppEngineWebBuilder extends IncrementalProjectBuilder {
 
   private void checkRuntimeElement(IFacetedProject project, IFile appEngineWebDescriptor,
       IProgressMonitor monitor) {
-    try (InputStream input = appEngineWebDescriptor.getContents()) {
-      boolean hasJava8Runtime = AppEngineDescriptor.parse(input).isJava8();
+    try {
+      boolean hasJava8Runtime =
+          AppEngineDescriptorCache.getInstance().get(appEngineWebDescriptor).isJava8();
       boolean hasAppEngineJava8Facet =
           project.hasProjectFacet(AppEngineStandardFacetChangeListener.APP_ENGINE_STANDARD_JRE8);
       // if not the same, then we update the facet to match the appengine-web.xml
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.eclipse.dataflow.core.launcher.options;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.cloud.tools.eclipse.dataflow.core.launcher.options.ClassFilePipelineOptionsScanner.ScannedMethod;
+import com.google.cloud.tools.eclipse.dataflow.core.project.MajorVersion;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ClassFilePipelineOptionsScanner}.
+ */
+public class ClassFilePipelineOptionsScannerTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Retention(RetentionPolicy.RUNTIME)
+  @interface Label {
+    String value();
+    String[] tags() default {};
+    int weight() default 0;
+  }
+
+  interface SampleOptions {
+    @Label(value = "first", tags = {"a", "b"}, weight = 2)
+    String getFirst();
+
+    void setFirst(String first);
+
+    boolean isSecond();
+  }
+
+  static class NotAnInterface {}
+
+  private File jar;
+
+  @Before
+  public void setUp() throws IOException {
+    jar = tempFolder.newFile("options.jar");
+    try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+      addClass(out, SampleOptions.class);
+      addClass(out, NotAnInterface.class);
+      out.putNextEntry(new ZipEntry("Broken.class"));
+      out.write("not a class file".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+  }
+
+  @Test
+  public void testScanJar() throws IOException {
+    Map<String, List<ScannedMethod>> interfaces = ClassFilePipelineOptionsScanner.scanJar(jar);
+
+    assertEquals(ImmutableSet.of(SampleOptions.class.getName()), interfaces.keySet());
+    List<ScannedMethod> methods = interfaces.get(SampleOptions.class.getName());
+    assertEquals(3, methods.size());
+
+    ScannedMethod getFirst = methods.get(0);
+    assertEquals("getFirst", getFirst.getName());
+    String labelName = Label.class.getName().replace('$', '.');
+    assertEquals(ImmutableSet.of(labelName), getFirst.getAnnotations().keySet());
+    Map<String, Object> label = getFirst.getAnnotations().get(labelName);
+    assertEquals("first", label.get("value"));
+    assertArrayEquals(new String[] {"a", "b"}, (String[]) label.get("tags"));
+    assertFalse(label.containsKey("weight"));
+
+    assertEquals("setFirst", methods.get(1).getName());
+    assertTrue(methods.get(1).getAnnotations().isEmpty());
+    assertEquals("isSecond", methods.get(2).getName());
+  }
+
+  @Test
+  public void testGetProperties() {
+    Set<PipelineOptionsProperty> properties = new ClassFilePipelineOptionsScanner()
+        .getProperties(jar, SampleOptions.class.getName(), MajorVersion.TWO);
+
+    Set<String> names = new HashSet<>();
+    for (PipelineOptionsProperty property : properties) {
+      names.add(property.getName());
+      assertFalse(property.isRequired());
+    }
+    assertEquals(ImmutableSet.of("first", "second"), names);
+  }
+
+  @Test
+  public void testGetProperties_unknownType() {
+    assertNull(new ClassFilePipelineOptionsScanner()
+        .getProperties(jar, NotAnInterface.class.getName(), MajorVersion.TWO));
+  }
+
+  private static void addClass(ZipOutputStream out, Class<?> clazz) throws IOException {
+    String path = clazz.getName().replace('.', '/') + ".class";
+    out.putNextEntry(new ZipEntry(path));
+    try (InputStream in = clazz.getClassLoader().getResourceAsStream(path)) {
+      ByteStreams.copy(in, out);
+    }
+    out.closeEntry();
+  }
+}
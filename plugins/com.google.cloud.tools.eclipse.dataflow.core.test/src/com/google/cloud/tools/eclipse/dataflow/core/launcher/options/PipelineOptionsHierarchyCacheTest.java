@@ -0,0 +1,326 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.cloud.tools.eclipse.dataflow.core.launcher.options;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.eclipse.dataflow.core.project.MajorVersion;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.IType;
+import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link PipelineOptionsHierarchyCache}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PipelineOptionsHierarchyCacheTest {
+  @Mock private IJavaProject project;
+  @Mock private IType rootType;
+  @Mock private ITypeHierarchy typeHierarchy;
+
+  private final IProgressMonitor monitor = new NullProgressMonitor();
+  private final PipelineOptionsHierarchyCache cache = new PipelineOptionsHierarchyCache();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @Before
+  public void setUp() throws Exception {
+    when(project.getElementType()).thenReturn(IJavaElement.JAVA_PROJECT);
+    when(project.findType(PipelineOptionsNamespaces.rootType(MajorVersion.ONE)))
+        .thenReturn(rootType);
+    when(rootType.exists()).thenReturn(true);
+    when(rootType.newTypeHierarchy(any(IProgressMonitor.class))).thenReturn(typeHierarchy);
+    when(typeHierarchy.exists()).thenReturn(true);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testGetHierarchy_reused() throws Exception {
+    JavaProjectPipelineOptionsHierarchy hierarchy =
+        cache.getHierarchy(project, MajorVersion.ONE, monitor);
+    assertSame(hierarchy, cache.getHierarchy(project, MajorVersion.ONE, monitor));
+
+    verify(rootType, times(1)).newTypeHierarchy(any(IProgressMonitor.class));
+    verify(typeHierarchy, never()).refresh(any(IProgressMonitor.class));
+  }
+
+  @Test
+  public void testGetHierarchy_refreshedWhenTypesChange() throws Exception {
+    JavaProjectPipelineOptionsHierarchy hierarchy =
+        cache.getHierarchy(project, MajorVersion.ONE, monitor);
+    ArgumentCaptor<ITypeHierarchyChangedListener> listener =
+        ArgumentCaptor.forClass(ITypeHierarchyChangedListener.class);
+    verify(typeHierarchy).addTypeHierarchyChangedListener(listener.capture());
+
+    listener.getValue().typeHierarchyChanged(typeHierarchy);
+    assertSame(hierarchy, cache.getHierarchy(project, MajorVersion.ONE, monitor));
+    assertSame(hierarchy, cache.getHierarchy(project, MajorVersion.ONE, monitor));
+
+    verify(typeHierarchy, times(1)).refresh(monitor);
+    verify(rootType, times(1)).newTypeHierarchy(any(IProgressMonitor.class));
+  }
+
+  @Test
+  public void testGetHierarchy_recomputedForOtherVersion() throws Exception {
+    IType otherRootType = mock(IType.class);
+    when(otherRootType.exists()).thenReturn(true);
+    when(otherRootType.newTypeHierarchy(any(IProgressMonitor.class)))
+        .thenReturn(mock(ITypeHierarchy.class));
+    when(project.findType(PipelineOptionsNamespaces.rootType(MajorVersion.TWO)))
+        .thenReturn(otherRootType);
+
+    JavaProjectPipelineOptionsHierarchy hierarchy =
+        cache.getHierarchy(project, MajorVersion.ONE, monitor);
+    assertNotSame(hierarchy, cache.getHierarchy(project, MajorVersion.TWO, monitor));
+    verify(typeHierarchy).removeTypeHierarchyChangedListener(
+        any(ITypeHierarchyChangedListener.class));
+  }
+
+  @Test
+  public void testGetHierarchy_projectsComputedConcurrently() throws Exception {
+    final CountDownLatch otherProjectDone = new CountDownLatch(1);
+    final boolean[] waitedForOtherProject = new boolean[1];
+    when(rootType.newTypeHierarchy(any(IProgressMonitor.class))).thenAnswer(
+        new Answer<ITypeHierarchy>() {
+          @Override
+          public ITypeHierarchy answer(InvocationOnMock invocation) throws InterruptedException {
+            waitedForOtherProject[0] = otherProjectDone.await(10, TimeUnit.SECONDS);
+            return typeHierarchy;
+          }
+        });
+    Future<JavaProjectPipelineOptionsHierarchy> slowHierarchy = getHierarchyInBackground();
+
+    IJavaProject otherProject = mockProject(mock(ITypeHierarchy.class));
+    cache.getHierarchy(otherProject, MajorVersion.ONE, monitor);
+    otherProjectDone.countDown();
+
+    slowHierarchy.get();
+    assertTrue(waitedForOtherProject[0]);
+  }
+
+  @Test
+  public void testGetHierarchy_computedOnceForConcurrentCallers() throws Exception {
+    final CountDownLatch computing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    when(rootType.newTypeHierarchy(any(IProgressMonitor.class))).thenAnswer(
+        new Answer<ITypeHierarchy>() {
+          @Override
+          public ITypeHierarchy answer(InvocationOnMock invocation) throws InterruptedException {
+            computing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return typeHierarchy;
+          }
+        });
+    Future<JavaProjectPipelineOptionsHierarchy> first = getHierarchyInBackground();
+    assertTrue(computing.await(10, TimeUnit.SECONDS));
+    Future<JavaProjectPipelineOptionsHierarchy> second = getHierarchyInBackground();
+    Thread.sleep(50); // lets the second caller find the computation in progress
+    release.countDown();
+
+    assertSame(first.get(), second.get());
+    verify(rootType, times(1)).newTypeHierarchy(any(IProgressMonitor.class));
+  }
+
+  @Test
+  public void testGetHierarchy_canceledCallerDoesNotCancelComputation() throws Exception {
+    final CountDownLatch computing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    when(rootType.newTypeHierarchy(any(IProgressMonitor.class))).thenAnswer(
+        new Answer<ITypeHierarchy>() {
+          @Override
+          public ITypeHierarchy answer(InvocationOnMock invocation) throws InterruptedException {
+            computing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return typeHierarchy;
+          }
+        });
+    IProgressMonitor firstMonitor = new NullProgressMonitor();
+    Future<JavaProjectPipelineOptionsHierarchy> first = getHierarchyInBackground(firstMonitor);
+    assertTrue(computing.await(10, TimeUnit.SECONDS));
+    Future<JavaProjectPipelineOptionsHierarchy> second = getHierarchyInBackground(monitor);
+    Thread.sleep(50); // lets the second caller find the computation in progress
+    firstMonitor.setCanceled(true);
+    try {
+      first.get();
+      fail("first caller not canceled");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof OperationCanceledException);
+    }
+    release.countDown();
+
+    assertNotNull(second.get());
+    verify(rootType, times(1)).newTypeHierarchy(any(IProgressMonitor.class));
+    verify(typeHierarchy, never()).removeTypeHierarchyChangedListener(
+        any(ITypeHierarchyChangedListener.class));
+  }
+
+  @Test
+  public void testGetHierarchy_abandonedComputationCanceled() throws Exception {
+    final CountDownLatch computing = new CountDownLatch(1);
+    final IProgressMonitor[] computationMonitor = new IProgressMonitor[1];
+    when(rootType.newTypeHierarchy(any(IProgressMonitor.class))).thenAnswer(
+        new Answer<ITypeHierarchy>() {
+          @Override
+          public ITypeHierarchy answer(InvocationOnMock invocation) throws InterruptedException {
+            if (computationMonitor[0] == null) {
+              // the first computation runs until it is canceled
+              computationMonitor[0] = (IProgressMonitor) invocation.getArguments()[0];
+              computing.countDown();
+              while (!computationMonitor[0].isCanceled()) {
+                Thread.sleep(10);
+              }
+            }
+            return typeHierarchy;
+          }
+        });
+    IProgressMonitor canceledMonitor = new NullProgressMonitor();
+    Future<JavaProjectPipelineOptionsHierarchy> abandoned =
+        getHierarchyInBackground(canceledMonitor);
+    assertTrue(computing.await(10, TimeUnit.SECONDS));
+    canceledMonitor.setCanceled(true);
+    try {
+      abandoned.get();
+      fail("caller not canceled");
+    } catch (ExecutionException ex) {
+      assertTrue(ex.getCause() instanceof OperationCanceledException);
+    }
+
+    assertNotNull(cache.getHierarchy(project, MajorVersion.ONE, monitor));
+    assertTrue(computationMonitor[0].isCanceled());
+    verify(rootType, times(2)).newTypeHierarchy(any(IProgressMonitor.class));
+  }
+
+  @Test
+  public void testElementChanged_discardsHierarchyBeingComputed() throws Exception {
+    final CountDownLatch computing = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    when(rootType.newTypeHierarchy(any(IProgressMonitor.class))).thenAnswer(
+        new Answer<ITypeHierarchy>() {
+          @Override
+          public ITypeHierarchy answer(InvocationOnMock invocation) throws InterruptedException {
+            computing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return typeHierarchy;
+          }
+        });
+    Future<JavaProjectPipelineOptionsHierarchy> computed = getHierarchyInBackground();
+    assertTrue(computing.await(10, TimeUnit.SECONDS));
+    cache.elementChanged(projectChanged(IJavaElementDelta.F_CLASSPATH_CHANGED));
+    release.countDown();
+
+    JavaProjectPipelineOptionsHierarchy hierarchy = computed.get();
+    verify(typeHierarchy).removeTypeHierarchyChangedListener(
+        any(ITypeHierarchyChangedListener.class));
+    assertNotSame(hierarchy, cache.getHierarchy(project, MajorVersion.ONE, monitor));
+  }
+
+  @Test
+  public void testElementChanged_classpathChangeDiscardsHierarchy() throws Exception {
+    JavaProjectPipelineOptionsHierarchy hierarchy =
+        cache.getHierarchy(project, MajorVersion.ONE, monitor);
+
+    cache.elementChanged(projectChanged(IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED));
+
+    verify(typeHierarchy).removeTypeHierarchyChangedListener(
+        any(ITypeHierarchyChangedListener.class));
+    assertNotSame(hierarchy, cache.getHierarchy(project, MajorVersion.ONE, monitor));
+    verify(rootType, times(2)).newTypeHierarchy(any(IProgressMonitor.class));
+  }
+
+  @Test
+  public void testElementChanged_contentChangeKeepsHierarchy() throws Exception {
+    JavaProjectPipelineOptionsHierarchy hierarchy =
+        cache.getHierarchy(project, MajorVersion.ONE, monitor);
+
+    cache.elementChanged(projectChanged(IJavaElementDelta.F_CHILDREN));
+
+    assertSame(hierarchy, cache.getHierarchy(project, MajorVersion.ONE, monitor));
+    verify(rootType, times(1)).newTypeHierarchy(any(IProgressMonitor.class));
+  }
+
+  private Future<JavaProjectPipelineOptionsHierarchy> getHierarchyInBackground() {
+    return getHierarchyInBackground(monitor);
+  }
+
+  private Future<JavaProjectPipelineOptionsHierarchy> getHierarchyInBackground(
+      final IProgressMonitor callerMonitor) {
+    return executor.submit(new Callable<JavaProjectPipelineOptionsHierarchy>() {
+      @Override
+      public JavaProjectPipelineOptionsHierarchy call() throws Exception {
+        return cache.getHierarchy(project, MajorVersion.ONE, callerMonitor);
+      }
+    });
+  }
+
+  private static IJavaProject mockProject(ITypeHierarchy hierarchy) throws Exception {
+    IJavaProject javaProject = mock(IJavaProject.class);
+    IType type = mock(IType.class);
+    when(javaProject.findType(PipelineOptionsNamespaces.rootType(MajorVersion.ONE)))
+        .thenReturn(type);
+    when(type.exists()).thenReturn(true);
+    when(type.newTypeHierarchy(any(IProgressMonitor.class))).thenReturn(hierarchy);
+    when(hierarchy.exists()).thenReturn(true);
+    return javaProject;
+  }
+
+  private ElementChangedEvent projectChanged(int flags) {
+    IJavaElementDelta projectDelta = mock(IJavaElementDelta.class);
+    when(projectDelta.getElement()).thenReturn(project);
+    when(projectDelta.getKind()).thenReturn(IJavaElementDelta.CHANGED);
+    when(projectDelta.getFlags()).thenReturn(flags);
+    IJavaElementDelta modelDelta = mock(IJavaElementDelta.class);
+    when(modelDelta.getAffectedChildren()).thenReturn(new IJavaElementDelta[] {projectDelta});
+    return new ElementChangedEvent(modelDelta, ElementChangedEvent.POST_CHANGE);
+  }
+}
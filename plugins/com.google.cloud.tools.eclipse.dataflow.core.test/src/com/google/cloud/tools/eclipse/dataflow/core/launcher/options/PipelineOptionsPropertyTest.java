@@ -26,6 +26,7 @@ import static org.mockito.Mockito.when;
 
 import com.google.cloud.tools.eclipse.dataflow.core.project.MajorVersion;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import org.eclipse.jdt.core.IAnnotation;
 import org.eclipse.jdt.core.IMemberValuePair;
@@ -36,6 +37,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 import java.util.Collections;
+import java.util.Map;
 
 /** Tests for {@link PipelineOptionsProperty}. */
 @RunWith(Parameterized.class)
@@ -318,4 +320,42 @@ public class PipelineOptionsPropertyTest {
 
     assertNull(property.getDescription());
   }
+
+  @Test
+  public void testFromClassFileMethodOnNonGetterMethodReturnsNull() {
+    assertNull(PipelineOptionsProperty.fromClassFileMethod(
+        "doFoo", Collections.<String, Map<String, Object>>emptyMap(), version));
+  }
+
+  @Test
+  public void testFromClassFileMethodWithAnnotations() {
+    Map<String, Map<String, Object>> annotations = ImmutableMap.of(
+        PipelineOptionsNamespaces.validationRequired(version),
+        ImmutableMap.<String, Object>of("groups", new String[] {"GroupOne", "GroupTwo"}),
+        PipelineOptionsNamespaces.defaultProvider(version) + ".String",
+        ImmutableMap.<String, Object>of("value", "bar"),
+        PipelineOptionsNamespaces.descriptionAnnotation(version),
+        ImmutableMap.<String, Object>of("value", "The foo"));
+
+    PipelineOptionsProperty property =
+        PipelineOptionsProperty.fromClassFileMethod("getFoo", annotations, version);
+
+    assertEquals("foo", property.getName());
+    assertTrue(property.isRequired());
+    assertTrue(property.isDefaultProvided());
+    assertEquals(ImmutableSet.of("GroupOne", "GroupTwo"), property.getGroups());
+    assertEquals("The foo", property.getDescription());
+  }
+
+  @Test
+  public void testFromClassFileMethodWithoutAnnotations() {
+    PipelineOptionsProperty property = PipelineOptionsProperty.fromClassFileMethod(
+        "isFoo", Collections.<String, Map<String, Object>>emptyMap(), version);
+
+    assertEquals("foo", property.getName());
+    assertFalse(property.isRequired());
+    assertFalse(property.isDefaultProvided());
+    assertTrue(property.getGroups().isEmpty());
+    assertNull(property.getDescription());
+  }
 }
@@ -16,6 +16,7 @@
 
 package com.google.cloud.tools.eclipse.dataflow.core;
 
+import com.google.cloud.tools.eclipse.dataflow.core.launcher.options.PipelineOptionsHierarchyCache;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
@@ -47,6 +48,7 @@ public class DataflowCorePlugin extends Plugin {
 
   @Override
   public void stop(BundleContext context) throws Exception {
+    PipelineOptionsHierarchyCache.shutdown();
     plugin = null;
     super.stop(context);
   }
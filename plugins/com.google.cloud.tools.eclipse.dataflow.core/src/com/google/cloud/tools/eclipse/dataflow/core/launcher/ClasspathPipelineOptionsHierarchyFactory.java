@@ -21,6 +21,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import com.google.cloud.tools.eclipse.dataflow.core.DataflowCorePlugin;
 import com.google.cloud.tools.eclipse.dataflow.core.launcher.options.JavaProjectPipelineOptionsHierarchy;
 import com.google.cloud.tools.eclipse.dataflow.core.launcher.options.PipelineOptionsHierarchy;
+import com.google.cloud.tools.eclipse.dataflow.core.launcher.options.PipelineOptionsHierarchyCache;
 import com.google.cloud.tools.eclipse.dataflow.core.project.MajorVersion;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -29,7 +30,8 @@ import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A Factory that creates instances of {@link PipelineOptionsHierarchy} based on the classpath of
- * the project, or an {@link EmptyPipelineOptionsHierarchy} if no project is provided.
+ * the project, or an {@link EmptyPipelineOptionsHierarchy} if no project is provided. Project
+ * hierarchies are shared through the {@link PipelineOptionsHierarchyCache}.
  */
 public class ClasspathPipelineOptionsHierarchyFactory implements PipelineOptionsHierarchyFactory {
   /**
@@ -51,8 +53,8 @@ public class ClasspathPipelineOptionsHierarchyFactory implements PipelineOptions
         JavaProjectPipelineOptionsHierarchy.class.getSimpleName(),
         project);
     try {
-      return new JavaProjectPipelineOptionsHierarchy(
-          javaProject.getJavaProject(), version, monitor);
+      return PipelineOptionsHierarchyCache.getInstance()
+          .getHierarchy(javaProject.getJavaProject(), version, monitor);
     } catch (JavaModelException e) {
       DataflowCorePlugin.logError(e,
           "Error while constructing Pipeline Options Hierarchy for project %s", project.getName());
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.dataflow.core.launcher.options;
+
+import com.google.cloud.tools.eclipse.dataflow.core.DataflowCorePlugin;
+import com.google.cloud.tools.eclipse.dataflow.core.project.MajorVersion;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads the methods of the interfaces in a jar, with their runtime-visible annotations, straight
+ * from the class files. This is much faster than going through the Java model for the hundreds of
+ * {@code PipelineOptions} interfaces in the Dataflow and Beam SDK jars. What is read from a jar is
+ * cached by the SHA-1 of the jar, so each jar is only scanned once, even when several projects use
+ * it.
+ */
+class ClassFilePipelineOptionsScanner {
+  private static final ClassFilePipelineOptionsScanner INSTANCE =
+      new ClassFilePipelineOptionsScanner();
+
+  /** How many jars both the scanned interfaces and the jar fingerprints are kept for. */
+  private static final int MAX_CACHED_JARS = 32;
+
+  private static final int ACC_INTERFACE = 0x0200;
+  private static final int ACC_SYNTHETIC = 0x1000;
+  private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+  /** The interfaces read from each jar by their binary name, keyed by the SHA-1 of the jar. */
+  private final Cache<String, Map<String, List<ScannedMethod>>> interfacesBySha1 =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_JARS).build();
+
+  /** The last computed SHA-1 of each jar, so that unchanged jars are not hashed again. */
+  private final Cache<File, JarFingerprint> fingerprints =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_JARS).build();
+
+  static ClassFilePipelineOptionsScanner getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Returns the properties of the named interface in the given jar, or {@code null} if the jar
+   * cannot be read or has no such interface.
+   *
+   * @param typeName the binary name of the interface, as returned by
+   *     {@code IType.getFullyQualifiedName()}
+   */
+  Set<PipelineOptionsProperty> getProperties(
+      File jar, String typeName, MajorVersion majorVersion) {
+    List<ScannedMethod> methods = getInterfaces(jar).get(typeName);
+    if (methods == null) {
+      return null;
+    }
+    ImmutableSet.Builder<PipelineOptionsProperty> properties = ImmutableSet.builder();
+    for (ScannedMethod method : methods) {
+      PipelineOptionsProperty property = PipelineOptionsProperty.fromClassFileMethod(
+          method.getName(), method.getAnnotations(), majorVersion);
+      if (property != null) {
+        properties.add(property);
+      }
+    }
+    return properties.build();
+  }
+
+  private Map<String, List<ScannedMethod>> getInterfaces(final File jar) {
+    try {
+      return interfacesBySha1.get(sha1(jar), new Callable<Map<String, List<ScannedMethod>>>() {
+        @Override
+        public Map<String, List<ScannedMethod>> call() throws IOException {
+          return scanJar(jar);
+        }
+      });
+    } catch (IOException | ExecutionException e) {
+      DataflowCorePlugin.logWarning(e, "Could not read PipelineOptions types from %s", jar);
+      return ImmutableMap.of();
+    }
+  }
+
+  private String sha1(File jar) throws IOException {
+    long length = jar.length();
+    long lastModified = jar.lastModified();
+    JarFingerprint fingerprint = fingerprints.getIfPresent(jar);
+    if (fingerprint == null || fingerprint.length != length
+        || fingerprint.lastModified != lastModified) {
+      fingerprint =
+          new JarFingerprint(length, lastModified, Files.hash(jar, Hashing.sha1()).toString());
+      fingerprints.put(jar, fingerprint);
+    }
+    return fingerprint.sha1;
+  }
+
+  /**
+   * Reads the methods of all interfaces in the jar, keyed by the binary name of the interface.
+   * Class files that cannot be parsed are skipped.
+   */
+  @VisibleForTesting
+  static Map<String, List<ScannedMethod>> scanJar(File jar) throws IOException {
+    Map<String, List<ScannedMethod>> interfaces = new HashMap<>();
+    try (ZipFile zip = new ZipFile(jar)) {
+      Enumeration<? extends ZipEntry> entries = zip.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(".class") || name.endsWith("-info.class")) {
+          continue;
+        }
+        try (InputStream input = zip.getInputStream(entry)) {
+          readInterface(new DataInputStream(new BufferedInputStream(input)), interfaces);
+        } catch (IOException | RuntimeException e) {
+          DataflowCorePlugin.logWarning(e, "Could not read class file %s in %s", name, jar);
+        }
+      }
+    }
+    return interfaces;
+  }
+
+  /**
+   * Reads a class file, adding its methods to {@code interfaces} if it is an interface. Reading
+   * stops as soon as the class turns out not to be an interface.
+   */
+  private static void readInterface(DataInputStream in, Map<String, List<ScannedMethod>> interfaces)
+      throws IOException {
+    if (in.readInt() != 0xCAFEBABE) {
+      throw new IOException("Not a class file");
+    }
+    ByteStreams.skipFully(in, 4); // minor and major version
+
+    int constantCount = in.readUnsignedShort();
+    String[] utf8 = new String[constantCount];
+    int[] classNames = new int[constantCount];
+    for (int i = 1; i < constantCount; i++) {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case 1: // Utf8
+          utf8[i] = in.readUTF();
+          break;
+        case 7: // Class
+          classNames[i] = in.readUnsignedShort();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          ByteStreams.skipFully(in, 2);
+          break;
+        case 15: // MethodHandle
+          ByteStreams.skipFully(in, 3);
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          ByteStreams.skipFully(in, 4);
+          break;
+        case 5: // Long
+        case 6: // Double
+          ByteStreams.skipFully(in, 8);
+          i++; // takes up two entries
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+
+    int accessFlags = in.readUnsignedShort();
+    if ((accessFlags & ACC_INTERFACE) == 0) {
+      return;
+    }
+    String typeName = utf8[classNames[in.readUnsignedShort()]].replace('/', '.');
+    ByteStreams.skipFully(in, 2); // super class
+    ByteStreams.skipFully(in, 2 * in.readUnsignedShort()); // super interfaces
+
+    int fieldCount = in.readUnsignedShort();
+    for (int i = 0; i < fieldCount; i++) {
+      ByteStreams.skipFully(in, 6); // access flags, name and descriptor
+      skipAttributes(in);
+    }
+
+    int methodCount = in.readUnsignedShort();
+    ImmutableList.Builder<ScannedMethod> methods = ImmutableList.builder();
+    for (int i = 0; i < methodCount; i++) {
+      int methodFlags = in.readUnsignedShort();
+      String methodName = utf8[in.readUnsignedShort()];
+      ByteStreams.skipFully(in, 2); // descriptor
+      Map<String, Map<String, Object>> annotations = ImmutableMap.of();
+      int attributeCount = in.readUnsignedShort();
+      for (int j = 0; j < attributeCount; j++) {
+        String attributeName = utf8[in.readUnsignedShort()];
+        long length = in.readInt() & 0xFFFFFFFFL;
+        if (RUNTIME_VISIBLE_ANNOTATIONS.equals(attributeName)) {
+          annotations = readAnnotations(in, utf8);
+        } else {
+          ByteStreams.skipFully(in, length);
+        }
+      }
+      // like the Java model, leave out synthetic methods such as bridges
+      if ((methodFlags & ACC_SYNTHETIC) == 0) {
+        methods.add(new ScannedMethod(methodName, annotations));
+      }
+    }
+    interfaces.put(typeName, methods.build());
+  }
+
+  private static void skipAttributes(DataInputStream in) throws IOException {
+    int attributeCount = in.readUnsignedShort();
+    for (int i = 0; i < attributeCount; i++) {
+      ByteStreams.skipFully(in, 2); // name
+      ByteStreams.skipFully(in, in.readInt() & 0xFFFFFFFFL);
+    }
+  }
+
+  private static Map<String, Map<String, Object>> readAnnotations(
+      DataInputStream in, String[] utf8) throws IOException {
+    Map<String, Map<String, Object>> annotations = new LinkedHashMap<>();
+    int annotationCount = in.readUnsignedShort();
+    for (int i = 0; i < annotationCount; i++) {
+      String descriptor = utf8[in.readUnsignedShort()];
+      annotations.put(toAnnotationName(descriptor), readAnnotationMembers(in, utf8));
+    }
+    return annotations;
+  }
+
+  /**
+   * Reads the members of an annotation. Only String and String array values are kept, as those
+   * are the only ones {@link PipelineOptionsProperty} uses.
+   */
+  private static Map<String, Object> readAnnotationMembers(DataInputStream in, String[] utf8)
+      throws IOException {
+    Map<String, Object> members = new LinkedHashMap<>();
+    int memberCount = in.readUnsignedShort();
+    for (int i = 0; i < memberCount; i++) {
+      String memberName = utf8[in.readUnsignedShort()];
+      Object value = readElementValue(in, utf8);
+      if (value != null) {
+        members.put(memberName, value);
+      }
+    }
+    return members;
+  }
+
+  private static Object readElementValue(DataInputStream in, String[] utf8) throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case 's':
+        return utf8[in.readUnsignedShort()];
+      case 'B':
+      case 'C':
+      case 'D':
+      case 'F':
+      case 'I':
+      case 'J':
+      case 'S':
+      case 'Z':
+      case 'c':
+        ByteStreams.skipFully(in, 2);
+        return null;
+      case 'e':
+        ByteStreams.skipFully(in, 4); // enum type and constant name
+        return null;
+      case '@':
+        ByteStreams.skipFully(in, 2); // annotation type
+        readAnnotationMembers(in, utf8);
+        return null;
+      case '[':
+        int count = in.readUnsignedShort();
+        List<String> strings = new ArrayList<>(count);
+        boolean allStrings = true;
+        for (int i = 0; i < count; i++) {
+          Object value = readElementValue(in, utf8);
+          if (value instanceof String) {
+            strings.add((String) value);
+          } else {
+            allStrings = false;
+          }
+        }
+        return allStrings ? strings.toArray(new String[count]) : null;
+      default:
+        throw new IOException("Unknown annotation element tag " + (char) tag);
+    }
+  }
+
+  /**
+   * Turns a descriptor such as {@code Lcom/example/Outer$Inner;} into the name the Java model
+   * gives the annotation, {@code com.example.Outer.Inner}.
+   */
+  private static String toAnnotationName(String descriptor) {
+    return descriptor.substring(1, descriptor.length() - 1).replace('/', '.').replace('$', '.');
+  }
+
+  /**
+   * A method of an interface read from a class file.
+   */
+  @VisibleForTesting
+  static class ScannedMethod {
+    private final String name;
+    private final Map<String, Map<String, Object>> annotations;
+
+    private ScannedMethod(String name, Map<String, Map<String, Object>> annotations) {
+      this.name = name;
+      this.annotations = annotations;
+    }
+
+    String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the members of the runtime-visible annotations of the method, keyed by annotation
+     * name. Member values are Strings or String arrays.
+     */
+    Map<String, Map<String, Object>> getAnnotations() {
+      return annotations;
+    }
+  }
+
+  private static class JarFingerprint {
+    private final long length;
+    private final long lastModified;
+    private final String sha1;
+
+    private JarFingerprint(long length, long lastModified, String sha1) {
+      this.length = length;
+      this.lastModified = lastModified;
+      this.sha1 = sha1;
+    }
+  }
+}
@@ -23,6 +23,7 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Ordering;
+import java.io.File;
 import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.HashMap;
@@ -34,16 +35,21 @@ import java.util.NavigableMap;
 import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IMethod;
+import org.eclipse.jdt.core.IPackageFragmentRoot;
 import org.eclipse.jdt.core.IType;
 import org.eclipse.jdt.core.ITypeHierarchy;
+import org.eclipse.jdt.core.ITypeHierarchyChangedListener;
 import org.eclipse.jdt.core.JavaModelException;
 
 /**
  * A {@link PipelineOptionsHierarchy} that uses an {@code ITypeHierarchy} as the source of the
- * {@code PipelineOptionsHierarchy}.
+ * {@code PipelineOptionsHierarchy}. Instances are safe to share between threads.
  */
 public class JavaProjectPipelineOptionsHierarchy implements PipelineOptionsHierarchy {
 
@@ -58,6 +64,20 @@ public class JavaProjectPipelineOptionsHierarchy implements PipelineOptionsHiera
    */
   private final Map<String, PipelineOptionsType> knownTypes;
 
+  /**
+   * Set when a type in the hierarchy has changed since the hierarchy was last computed. Only
+   * tracked while the hierarchy is held by a {@link PipelineOptionsHierarchyCache}.
+   */
+  private volatile boolean stale;
+
+  private final ITypeHierarchyChangedListener changeListener =
+      new ITypeHierarchyChangedListener() {
+        @Override
+        public void typeHierarchyChanged(ITypeHierarchy typeHierarchy) {
+          stale = true;
+        }
+      };
+
   /**
    * Creates a new {@link JavaProjectPipelineOptionsHierarchy}. This can be a long-running method,
    * as it fetches the type hierarchy of the provided project.
@@ -83,8 +103,45 @@ public class JavaProjectPipelineOptionsHierarchy implements PipelineOptionsHiera
     this.knownTypes = new HashMap<>();
   }
 
+  MajorVersion getMajorVersion() {
+    return majorVersion;
+  }
+
+  /**
+   * Starts listening for changes to the types of the hierarchy. While listened to, JDT keeps
+   * track of the changes so that {@link #refreshIfChanged} can update the hierarchy
+   * incrementally; call {@link #stopTracking} once the hierarchy is no longer used.
+   */
+  void startTracking() {
+    hierarchy.addTypeHierarchyChangedListener(changeListener);
+  }
+
+  void stopTracking() {
+    hierarchy.removeTypeHierarchyChangedListener(changeListener);
+  }
+
+  /**
+   * Returns {@code false} if the root {@code PipelineOptions} type of the hierarchy no longer
+   * exists, in which case the hierarchy cannot be refreshed.
+   */
+  boolean exists() {
+    return hierarchy.exists();
+  }
+
+  /**
+   * Brings the hierarchy up to date if any of its types have changed since it was computed, and
+   * forgets the {@link PipelineOptionsType PipelineOptionsTypes} created from the old hierarchy.
+   */
+  synchronized void refreshIfChanged(IProgressMonitor monitor) throws JavaModelException {
+    if (stale) {
+      stale = false;
+      hierarchy.refresh(monitor);
+      knownTypes.clear();
+    }
+  }
+
   @Override
-  public PipelineOptionsType getPipelineOptionsType(String typeName) {
+  public synchronized PipelineOptionsType getPipelineOptionsType(String typeName) {
     try {
       IType namedType = project.findType(typeName);
       if (namedType == null) {
@@ -106,7 +163,7 @@ public class JavaProjectPipelineOptionsHierarchy implements PipelineOptionsHiera
   }
 
   @Override
-  public Map<String, PipelineOptionsType> getAllPipelineOptionsTypes() {
+  public synchronized Map<String, PipelineOptionsType> getAllPipelineOptionsTypes() {
     IType[] types = hierarchy.getAllInterfaces();
 
     for (IType type : types) {
@@ -119,8 +176,8 @@ public class JavaProjectPipelineOptionsHierarchy implements PipelineOptionsHiera
       }
     }
 
-    // Return a view of all the known types.
-    return Collections.unmodifiableMap(knownTypes);
+    // Return a copy of all the known types; the hierarchy may be shared and refreshed later.
+    return Collections.unmodifiableMap(new HashMap<>(knownTypes));
   }
 
   @Override
@@ -210,6 +267,15 @@ public class JavaProjectPipelineOptionsHierarchy implements PipelineOptionsHiera
   }
 
   private Set<PipelineOptionsProperty> getProperties(IType optionsType) {
+    // Reading binary types through the Java model is slow; read their class files instead.
+    File jar = getArchive(optionsType);
+    if (jar != null) {
+      Set<PipelineOptionsProperty> properties = ClassFilePipelineOptionsScanner.getInstance()
+          .getProperties(jar, optionsType.getFullyQualifiedName(), majorVersion);
+      if (properties != null) {
+        return properties;
+      }
+    }
     try {
       ImmutableSet.Builder<PipelineOptionsProperty> propertiesBuilder = ImmutableSet.builder();
       for (IMethod method : optionsType.getMethods()) {
@@ -226,6 +292,24 @@ public class JavaProjectPipelineOptionsHierarchy implements PipelineOptionsHiera
     }
   }
 
+  /**
+   * Returns the jar a binary type comes from, or {@code null} if the type is a source type or does
+   * not come from a jar.
+   */
+  private static File getArchive(IType type) {
+    if (!type.isBinary()) {
+      return null;
+    }
+    IPackageFragmentRoot root =
+        (IPackageFragmentRoot) type.getAncestor(IJavaElement.PACKAGE_FRAGMENT_ROOT);
+    if (root == null || !root.isArchive()) {
+      return null;
+    }
+    IResource resource = root.getResource();
+    IPath location = resource != null ? resource.getLocation() : root.getPath();
+    return location != null ? location.toFile() : null;
+  }
+
   private static class PipelineOptionsTypeWeightOrdering extends Ordering<PipelineOptionsType> {
     @Override
     public int compare(PipelineOptionsType o1, PipelineOptionsType o2) {
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.dataflow.core.launcher.options;
+
+import com.google.cloud.tools.eclipse.dataflow.core.project.MajorVersion;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.IJobChangeEvent;
+import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.core.IJavaElementDelta;
+import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.JavaModelException;
+
+/**
+ * Holds one {@link JavaProjectPipelineOptionsHierarchy} per Java project, so that computing the
+ * type hierarchy of {@code PipelineOptions} over the project classpath is only done once. Cached
+ * hierarchies are refreshed incrementally when their types change, and are discarded when the
+ * classpath of their project changes or the project is closed or removed.
+ * <p>
+ * Hierarchies of different projects are computed concurrently, each in a system job with its own
+ * progress monitor; callers asking for a project whose hierarchy is being computed wait for that
+ * computation instead of starting another. A canceled caller stops waiting without affecting the
+ * others, and the computation is only canceled once no caller waits for it anymore.
+ */
+public class PipelineOptionsHierarchyCache implements IElementChangedListener {
+  private static PipelineOptionsHierarchyCache instance;
+
+  /** How often a caller waiting for another's computation checks its own monitor. */
+  private static final long CANCELATION_CHECK_MILLIS = 100;
+
+  private final ConcurrentMap<IJavaProject, HierarchyComputation> hierarchies =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Returns the shared cache, which listens to the Java model until {@link #shutdown()}.
+   */
+  public static synchronized PipelineOptionsHierarchyCache getInstance() {
+    if (instance == null) {
+      instance = new PipelineOptionsHierarchyCache();
+      JavaCore.addElementChangedListener(instance, ElementChangedEvent.POST_CHANGE);
+    }
+    return instance;
+  }
+
+  /**
+   * Stops listening to the Java model and discards the shared cache, if any.
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      JavaCore.removeElementChangedListener(instance);
+      instance.clear();
+      instance = null;
+    }
+  }
+
+  @VisibleForTesting
+  PipelineOptionsHierarchyCache() {}
+
+  /**
+   * Returns the hierarchy of the {@code PipelineOptions} types of the given major version in the
+   * project, computing it if it is not cached yet. This can be a long-running method.
+   *
+   * @throws IllegalArgumentException if the project has no {@code PipelineOptions} type
+   */
+  public JavaProjectPipelineOptionsHierarchy getHierarchy(
+      IJavaProject project, MajorVersion version, IProgressMonitor monitor)
+      throws JavaModelException {
+    while (true) {
+      HierarchyComputation computation = hierarchies.get(project);
+      if (computation == null) {
+        HierarchyComputation created = new HierarchyComputation(project, version);
+        computation = hierarchies.putIfAbsent(project, created);
+        if (computation == null) {
+          computation = created;
+          created.schedule();
+        }
+      }
+      if (!computation.addWaiter()) {
+        continue; // its last waiter abandoned it just now
+      }
+
+      JavaProjectPipelineOptionsHierarchy hierarchy;
+      try {
+        hierarchy = await(computation.result, monitor);
+      } catch (ExecutionException ex) {
+        hierarchies.remove(project, computation);
+        Throwable cause = ex.getCause();
+        if (cause instanceof OperationCanceledException && !monitor.isCanceled()) {
+          continue; // the computation was canceled, but this caller still wants it
+        }
+        Throwables.propagateIfPossible(cause, JavaModelException.class);
+        throw new IllegalStateException(cause);
+      } finally {
+        computation.removeWaiter();
+      }
+      if (hierarchy.getMajorVersion() == version && hierarchy.exists()) {
+        hierarchy.refreshIfChanged(monitor);
+        return hierarchy;
+      }
+      if (hierarchies.remove(project, computation)) {
+        hierarchy.stopTracking();
+      }
+    }
+  }
+
+  /**
+   * Waits for {@code future} to complete, unless {@code monitor} is canceled.
+   */
+  private static JavaProjectPipelineOptionsHierarchy await(
+      Future<JavaProjectPipelineOptionsHierarchy> future, IProgressMonitor monitor)
+      throws ExecutionException {
+    try {
+      while (true) {
+        if (monitor.isCanceled()) {
+          throw new OperationCanceledException();
+        }
+        try {
+          return future.get(CANCELATION_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+          // check the monitor again
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationCanceledException();
+    }
+  }
+
+  @Override
+  public void elementChanged(ElementChangedEvent event) {
+    if (hierarchies.isEmpty()) {
+      return;
+    }
+    for (IJavaElementDelta delta : event.getDelta().getAffectedChildren()) {
+      IJavaElement element = delta.getElement();
+      if (element.getElementType() == IJavaElement.JAVA_PROJECT && isClasspathChange(delta)) {
+        discard((IJavaProject) element);
+      }
+    }
+  }
+
+  private static boolean isClasspathChange(IJavaElementDelta delta) {
+    int classpathFlags = IJavaElementDelta.F_CLOSED
+        | IJavaElementDelta.F_CLASSPATH_CHANGED
+        | IJavaElementDelta.F_RESOLVED_CLASSPATH_CHANGED;
+    return delta.getKind() == IJavaElementDelta.REMOVED
+        || (delta.getFlags() & classpathFlags) != 0;
+  }
+
+  private void discard(IJavaProject project) {
+    HierarchyComputation computation = hierarchies.remove(project);
+    if (computation != null) {
+      // a hierarchy still being computed is stopped by its computation
+      stopTracking(computation.result);
+    }
+  }
+
+  private static void stopTracking(Future<JavaProjectPipelineOptionsHierarchy> future) {
+    if (!future.isDone() || future.isCancelled()) {
+      return;
+    }
+    try {
+      future.get().stopTracking();
+    } catch (ExecutionException | InterruptedException ex) {
+      // the computation failed, so there is nothing to stop
+    }
+  }
+
+  private void clear() {
+    for (IJavaProject project : hierarchies.keySet()) {
+      discard(project);
+    }
+  }
+
+  /**
+   * Computes the hierarchy of a project and holds the callers waiting for it.
+   */
+  private class HierarchyComputation extends Job {
+    private final IJavaProject project;
+    private final MajorVersion version;
+    private final SettableFuture<JavaProjectPipelineOptionsHierarchy> result =
+        SettableFuture.create();
+    private int waiters; // guarded by this
+
+    private HierarchyComputation(IJavaProject project, MajorVersion version) {
+      super("Compute PipelineOptions hierarchy of " + project.getElementName()); //$NON-NLS-1$
+      this.project = project;
+      this.version = version;
+      setSystem(true);
+      addJobChangeListener(new JobChangeAdapter() {
+        @Override
+        public void done(IJobChangeEvent event) {
+          // no effect unless the job was canceled before it ran
+          result.setException(new OperationCanceledException());
+        }
+      });
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+      try {
+        JavaProjectPipelineOptionsHierarchy hierarchy =
+            new JavaProjectPipelineOptionsHierarchy(project, version, monitor);
+        hierarchy.startTracking();
+        if (!result.set(hierarchy) || hierarchies.get(project) != this) {
+          // Abandoned by its waiters, or the project changed while we computed the hierarchy,
+          // so it may be out of date.
+          hierarchy.stopTracking();
+        }
+        return Status.OK_STATUS;
+      } catch (OperationCanceledException ex) {
+        result.setException(ex);
+        return Status.CANCEL_STATUS;
+      } catch (JavaModelException | RuntimeException ex) {
+        result.setException(ex);
+        return Status.OK_STATUS; // reported to the waiters
+      }
+    }
+
+    /**
+     * @return {@code false} if the computation was abandoned, in which case the caller must not
+     *     wait for it
+     */
+    private synchronized boolean addWaiter() {
+      if (result.isCancelled()) {
+        return false;
+      }
+      waiters++;
+      return true;
+    }
+
+    /**
+     * Cancels the computation if the last waiter leaves before it is done.
+     */
+    private void removeWaiter() {
+      synchronized (this) {
+        if (--waiters > 0 || !result.cancel(false)) {
+          return;
+        }
+      }
+      hierarchies.remove(project, this);
+      cancel();
+    }
+  }
+}
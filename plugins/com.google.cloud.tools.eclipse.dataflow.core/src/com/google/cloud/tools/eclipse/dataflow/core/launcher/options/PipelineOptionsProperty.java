@@ -26,6 +26,7 @@ import org.eclipse.jdt.core.IMethod;
 import org.eclipse.jdt.core.JavaModelException;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -88,6 +89,50 @@ public class PipelineOptionsProperty {
         requirement.getGroups(), descriptionValue);
   }
 
+  /**
+   * Creates the property of a method read from a class file, or returns {@code null} if the
+   * method is not a getter. This mirrors {@link #fromMethod} for binary types.
+   *
+   * @param annotations the members of the annotations of the method, keyed by annotation name as
+   *     the Java model names them; member values are Strings or String arrays
+   */
+  static PipelineOptionsProperty fromClassFileMethod(String methodName,
+      Map<String, Map<String, Object>> annotations, MajorVersion majorVersion) {
+    String propertyName = getPropertyName(methodName);
+    if (propertyName == null) {
+      return null;
+    }
+    boolean required = false;
+    Set<String> groups = ImmutableSet.of();
+    Map<String, Object> requiredMembers =
+        annotations.get(PipelineOptionsNamespaces.validationRequired(majorVersion));
+    if (requiredMembers != null) {
+      required = true;
+      Object groupsValue =
+          requiredMembers.get(PipelineOptionsNamespaces.validationRequiredGroupField(majorVersion));
+      if (groupsValue instanceof String[]) {
+        groups = ImmutableSet.copyOf((String[]) groupsValue);
+      }
+    }
+
+    boolean defaultProvided = false;
+    for (String annotationName : annotations.keySet()) {
+      if (annotationName.contains(PipelineOptionsNamespaces.defaultProvider(majorVersion))) {
+        defaultProvided = true;
+        break;
+      }
+    }
+
+    String descriptionValue = null;
+    Map<String, Object> descriptionMembers =
+        annotations.get(PipelineOptionsNamespaces.descriptionAnnotation(majorVersion));
+    if (descriptionMembers != null && descriptionMembers.get("value") instanceof String) {
+      descriptionValue = (String) descriptionMembers.get("value");
+    }
+    return new PipelineOptionsProperty(
+        propertyName, defaultProvided, required, groups, descriptionValue);
+  }
+
   private static String getPropertyName(String methodName) {
     if (methodName.startsWith("get")) {
       String capitalizedPropertyName = methodName.substring(3);
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ProcessOutputCaptureTest {
+
+  private static final Predicate<String> IS_VERSION = new Predicate<String>() {
+    @Override
+    public boolean apply(String line) {
+      return line.startsWith("Version:");
+    }
+  };
+
+  @Test(expected = NullPointerException.class)
+  public void testNullFilter() {
+    new ProcessOutputCapture(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeMemoryBudget() {
+    new ProcessOutputCapture(Predicates.<String>alwaysTrue(), null, -1);
+  }
+
+  @Test
+  public void testGetLines_withinBudget() {
+    ProcessOutputCapture capture = new ProcessOutputCapture(Predicates.<String>alwaysTrue());
+    capture.onOutputLine("a");
+    capture.onOutputLine("b");
+    assertEquals(Arrays.asList("a", "b"), capture.getLines());
+    assertFalse(capture.hasSpilled());
+  }
+
+  @Test
+  public void testGetLines_spillsBeyondBudget() {
+    try (ProcessOutputCapture capture =
+        new ProcessOutputCapture(Predicates.<String>alwaysTrue(), null, 4)) {
+      capture.onOutputLine("ab");
+      capture.onOutputLine("cd");
+      capture.onOutputLine("efg");
+      capture.onOutputLine("h");
+      assertTrue(capture.hasSpilled());
+      assertEquals(Arrays.asList("ab", "cd", "efg", "h"), capture.getLines());
+    }
+  }
+
+  @Test
+  public void testClose_discardsSpilledLines() {
+    ProcessOutputCapture capture =
+        new ProcessOutputCapture(Predicates.<String>alwaysTrue(), null, 2);
+    capture.onOutputLine("ab");
+    capture.onOutputLine("cd");
+    capture.close();
+    capture.onOutputLine("ef");
+    assertEquals(Arrays.asList("ab"), capture.getLines());
+  }
+
+  @Test
+  public void testStopCondition() {
+    ProcessOutputCapture capture = new ProcessOutputCapture(Predicates.<String>alwaysTrue(),
+        IS_VERSION, ProcessOutputCapture.DEFAULT_MEMORY_BUDGET);
+    capture.onOutputLine("Google Cloud SDK");
+    assertNull(capture.getMatch());
+    capture.onOutputLine("Version: 1.2.3");
+    capture.onOutputLine("Version: 4.5.6");
+    capture.onOutputLine("after");
+
+    assertEquals("Version: 1.2.3", capture.getMatch());
+    assertEquals(Arrays.asList("Google Cloud SDK", "Version: 1.2.3"), capture.getLines());
+  }
+
+  @Test
+  public void testFilter() {
+    ProcessOutputCapture capture = new ProcessOutputCapture(IS_VERSION);
+    capture.onOutputLine("Google Cloud SDK");
+    capture.onOutputLine("Version: 1.2.3");
+    assertEquals(Arrays.asList("Version: 1.2.3"), capture.getLines());
+  }
+
+  @Test
+  public void testConcurrentAppends() throws InterruptedException {
+    try (final ProcessOutputCapture capture =
+        new ProcessOutputCapture(Predicates.<String>alwaysTrue(), null, 1000)) {
+      Thread[] threads = new Thread[4];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = new Thread() {
+          @Override
+          public void run() {
+            for (int j = 0; j < 500; j++) {
+              capture.onOutputLine("line");
+            }
+          }
+        };
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertEquals(2000, capture.getLines().size());
+    }
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class LineRingBufferTest {
+
+  private static final LineRingBuffer.GapMarker<String> MARKER =
+      new LineRingBuffer.GapMarker<String>() {
+        @Override
+        public String linesDropped(long count) {
+          return "[" + count + " dropped]";
+        }
+      };
+
+  private final LineRingBuffer<String> buffer = new LineRingBuffer<>(3);
+  private final List<String> lines = new ArrayList<>();
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroCapacity() {
+    new LineRingBuffer<>(0);
+  }
+
+  @Test
+  public void testDrainTo_empty() {
+    assertFalse(buffer.hasPending());
+    assertEquals(0, buffer.drainTo(lines, MARKER));
+    assertTrue(lines.isEmpty());
+  }
+
+  @Test
+  public void testDrainTo_keepsOrder() {
+    buffer.add("a");
+    buffer.add("b");
+    assertTrue(buffer.hasPending());
+
+    assertEquals(0, buffer.drainTo(lines, MARKER));
+    assertEquals(Arrays.asList("a", "b"), lines);
+    assertFalse(buffer.hasPending());
+  }
+
+  @Test
+  public void testDrainTo_wrapsAround() {
+    buffer.add("a");
+    buffer.add("b");
+    buffer.drainTo(lines, MARKER);
+    buffer.add("c");
+    buffer.add("d");
+    buffer.add("e");
+
+    assertEquals(0, buffer.drainTo(lines, MARKER));
+    assertEquals(Arrays.asList("a", "b", "c", "d", "e"), lines);
+  }
+
+  @Test
+  public void testDrainTo_overflowDropsOldest() {
+    for (int i = 0; i < 10; i++) {
+      buffer.add("line " + i);
+    }
+
+    assertEquals(7, buffer.drainTo(lines, MARKER));
+    assertEquals(Arrays.asList("[7 dropped]", "line 7", "line 8", "line 9"), lines);
+    assertFalse(buffer.hasPending());
+  }
+
+  @Test
+  public void testDrainTo_waitsForClaimedLine() {
+    long sequence = buffer.claim();
+    buffer.add("b");
+
+    assertEquals(0, buffer.drainTo(lines, MARKER));
+    assertTrue(lines.isEmpty());
+    assertTrue(buffer.hasPending());
+
+    buffer.store(sequence, "a");
+    assertEquals(0, buffer.drainTo(lines, MARKER));
+    assertEquals(Arrays.asList("a", "b"), lines);
+    assertFalse(buffer.hasPending());
+  }
+
+  @Test
+  public void testDrainTo_slowWriterOverwritesNewerLine() {
+    long slowSequence = buffer.claim();
+    buffer.add("b");
+    buffer.add("c");
+    buffer.add("d");  // wraps around into the slot of the slow writer
+    buffer.store(slowSequence, "a");  // and the slow writer overwrites "d"
+
+    assertEquals(1, buffer.drainTo(lines, MARKER));
+    assertEquals(Arrays.asList("[1 dropped]", "b", "c"), lines);
+    assertTrue(buffer.hasPending());
+
+    // "d" is still missing a drain later, so it is given up instead of waited for forever
+    assertEquals(1, buffer.drainTo(lines, MARKER));
+    assertEquals(Arrays.asList("[1 dropped]", "b", "c", "[1 dropped]"), lines);
+    assertFalse(buffer.hasPending());
+
+    buffer.add("e");
+    assertEquals(0, buffer.drainTo(lines, MARKER));
+    assertEquals("e", lines.get(lines.size() - 1));
+  }
+
+  @Test
+  public void testConcurrentWriters() throws InterruptedException {
+    final LineRingBuffer<String> largeBuffer = new LineRingBuffer<>(4000);
+    Thread[] writers = new Thread[4];
+    for (int i = 0; i < writers.length; i++) {
+      writers[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 1000; j++) {
+            largeBuffer.add("line");
+          }
+        }
+      };
+      writers[i].start();
+    }
+    for (Thread writer : writers) {
+      writer.join();
+    }
+
+    assertEquals(0, largeBuffer.drainTo(lines, MARKER));
+    assertEquals(4000, lines.size());
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk.ui;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import org.eclipse.ui.console.IOConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RateLimitedConsoleWriterTest {
+
+  @Mock private MessageConsoleStream mockConsoleStream;
+  @Mock private MessageConsoleStream mockErrorStream;
+  @Mock private IOConsole mockConsole;
+
+  private RateLimitedConsoleWriter writer;
+  private ProcessOutputLineListener listener;
+
+  @Before
+  public void setUp() {
+    // the flush job waits a second, long enough for the tests to flush explicitly
+    writer = new RateLimitedConsoleWriter(3, 1);
+    listener = writer.newListener(mockConsoleStream);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroFlushesPerSecond() {
+    new RateLimitedConsoleWriter(3, 0);
+  }
+
+  @Test
+  public void testFlush_writesLinesInOneChunk() {
+    listener.onOutputLine("a");
+    listener.onOutputLine("b");
+    writer.flush();
+    verify(mockConsoleStream).print("a\nb\n");
+  }
+
+  @Test
+  public void testFlush_nothingBuffered() {
+    writer.flush();
+    verify(mockConsoleStream, never()).print(anyString());
+  }
+
+  @Test
+  public void testFlush_reportsSkippedLines() {
+    for (int i = 0; i < 5; i++) {
+      listener.onOutputLine("line " + i);
+    }
+    writer.flush();
+    verify(mockConsoleStream).print("[... 2 lines skipped ...]\nline 2\nline 3\nline 4\n");
+  }
+
+  @Test
+  public void testFlush_closedStream() {
+    when(mockConsoleStream.isClosed()).thenReturn(true);
+    listener.onOutputLine("a");
+    writer.flush();
+    verify(mockConsoleStream, never()).print(anyString());
+  }
+
+  @Test
+  public void testFlush_keepsOrderOfStreams() {
+    ProcessOutputLineListener errorListener = writer.newListener(mockErrorStream);
+    listener.onOutputLine("out 1");
+    errorListener.onOutputLine("error");
+    listener.onOutputLine("out 2");
+    writer.flush();
+
+    InOrder inOrder = inOrder(mockConsoleStream, mockErrorStream);
+    inOrder.verify(mockConsoleStream).print("out 1\n");
+    inOrder.verify(mockErrorStream).print("error\n");
+    inOrder.verify(mockConsoleStream).print("out 2\n");
+  }
+
+  @Test
+  public void testFlush_streamsShareTheBuffer() {
+    ProcessOutputLineListener errorListener = writer.newListener(mockErrorStream);
+    listener.onOutputLine("out 1");
+    listener.onOutputLine("out 2");
+    errorListener.onOutputLine("error 1");
+    errorListener.onOutputLine("error 2");
+    writer.flush();
+
+    // one line of output was dropped to make room for the errors
+    verify(mockConsoleStream).print("[... 1 lines skipped ...]\nout 2\n");
+    verify(mockErrorStream).print("error 1\nerror 2\n");
+  }
+
+  @Test
+  public void testFlush_skippedLinesNotedBeforeNextStream() {
+    ProcessOutputLineListener errorListener = writer.newListener(mockErrorStream);
+    listener.onOutputLine("out 1");
+    listener.onOutputLine("out 2");
+    errorListener.onOutputLine("error 1");
+    errorListener.onOutputLine("error 2");
+    listener.onOutputLine("out 3");
+    writer.flush();
+
+    // the note takes the place of the output lines dropped, on the stream of the next line
+    verify(mockErrorStream).print("[... 2 lines skipped ...]\nerror 1\nerror 2\n");
+    verify(mockConsoleStream).print("out 3\n");
+  }
+
+  @Test
+  public void testSetHighWaterMark() {
+    RateLimitedConsoleWriter.setHighWaterMark(mockConsole, 1000);
+    verify(mockConsole).setWaterMarks(800, 1000);
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk.ui;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity buffer of lines for many concurrent writers and a single reader. Writers never
+ * block and never wait for each other: when the reader falls behind by more than the capacity,
+ * the oldest lines are overwritten, and the next {@link #drainTo} puts a {@link GapMarker marker}
+ * in their place.
+ *
+ * @param <L> the type of the lines, which may carry more than their text
+ */
+class LineRingBuffer<L> {
+
+  /** Creates the line that takes the place of lines lost in the buffer. */
+  interface GapMarker<L> {
+    L linesDropped(long count);
+  }
+
+  /** A line together with its sequence number, so the reader can detect overwrites. */
+  private static class Slot<L> {
+    private final long sequence;
+    private final L line;
+
+    private Slot(long sequence, L line) {
+      this.sequence = sequence;
+      this.line = line;
+    }
+  }
+
+  private final int capacity;
+  private final AtomicReferenceArray<Slot<L>> slots;
+  private final AtomicLong nextWrite = new AtomicLong();
+  // only accessed by the (single) reader
+  private long nextRead;
+  private long stalledAt = -1;
+
+  LineRingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+    slots = new AtomicReferenceArray<>(capacity);
+  }
+
+  void add(L line) {
+    store(claim(), line);
+  }
+
+  /*
+   * A writer claims a sequence number and then stores its line in two steps, between which other
+   * writers may run; they are separate methods so that tests can interleave them.
+   */
+  long claim() {
+    return nextWrite.getAndIncrement();
+  }
+
+  void store(long sequence, L line) {
+    slots.set((int) (sequence % capacity), new Slot<>(sequence, line));
+  }
+
+  /**
+   * @return {@code true} if lines were added since the last {@link #drainTo}
+   */
+  boolean hasPending() {
+    return nextWrite.get() > nextRead;
+  }
+
+  /**
+   * Moves the buffered lines to {@code lines}, oldest first, with a line made by {@code
+   * gapMarker} wherever lines were lost because they were overwritten. Must not be called
+   * concurrently.
+   *
+   * @return the number of lines lost since the last call
+   */
+  long drainTo(List<? super L> lines, GapMarker<? extends L> gapMarker) {
+    long dropped = 0;
+    long gap = 0;
+    long end = nextWrite.get();
+    if (end - nextRead > capacity) {
+      gap = end - capacity - nextRead;
+      nextRead = end - capacity;
+    }
+    while (nextRead < end) {
+      Slot<L> slot = slots.get((int) (nextRead % capacity));
+      long skip;
+      if (slot != null && slot.sequence == nextRead) {
+        if (gap > 0) {
+          lines.add(gapMarker.linesDropped(gap));
+          dropped += gap;
+          gap = 0;
+        }
+        lines.add(slot.line);
+        nextRead++;
+        continue;
+      } else if (slot != null && slot.sequence > nextRead) {
+        // overwritten by a writer that wrapped around
+        skip = Math.max(1, slot.sequence - capacity + 1 - nextRead);
+      } else if (stalledAt == nextRead) {
+        // Still missing since the last call, so not just claimed by a writer who has not stored
+        // it yet: a slow writer of an older line that wrapped around overwrote it.
+        skip = 1;
+      } else {
+        stalledAt = nextRead;
+        break; // claimed by a writer who has not stored the line yet; pick up next time
+      }
+      gap += skip;
+      nextRead += skip;
+    }
+    if (gap > 0) {
+      lines.add(gapMarker.linesDropped(gap));
+      dropped += gap;
+    }
+    return dropped;
+  }
+}
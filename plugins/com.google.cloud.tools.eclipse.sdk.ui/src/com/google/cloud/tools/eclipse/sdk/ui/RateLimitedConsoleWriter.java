@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk.ui;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.cloud.tools.eclipse.sdk.ui.preferences.PreferencesInitializer;
+import com.google.cloud.tools.eclipse.sdk.ui.preferences.SdkUiMessages;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.ui.console.IOConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+
+/**
+ * Writes process output to a console in chunks instead of line by line. The lines of all the
+ * {@link #newListener listeners} of a writer, typically one for stdout and one for stderr, are
+ * collected in a single {@link LineRingBuffer} without locking, each with the stream it goes to,
+ * so they are written in the order they arrived. They are written at most
+ * {@code maxFlushesPerSecond} times a second, each run of lines for the same stream being a
+ * single update of the console document. If a process produces lines faster than they can be
+ * shown, at most {@code maxBufferedLines} lines are kept and a note with the number of skipped
+ * lines is written in place of the others, on the stream of the line that follows them.
+ * <p>
+ * Use {@link #limitSize} to also bound the size of the console document itself.
+ */
+public class RateLimitedConsoleWriter {
+
+  public static final int DEFAULT_MAX_BUFFERED_LINES = 10000;
+  public static final int DEFAULT_MAX_FLUSHES_PER_SECOND = 10;
+
+  /** A line of output and the stream it goes to, or a number of skipped lines. */
+  private static class OutputLine {
+    private final MessageConsoleStream stream;
+    private final String text;
+    private final long skipped;
+
+    private OutputLine(MessageConsoleStream stream, String text) {
+      this.stream = stream;
+      this.text = text;
+      skipped = 0;
+    }
+
+    private OutputLine(long skipped) {
+      stream = null;
+      text = null;
+      this.skipped = skipped;
+    }
+
+    private boolean isSkippedLines() {
+      return stream == null;
+    }
+  }
+
+  private static final LineRingBuffer.GapMarker<OutputLine> SKIPPED_LINES =
+      new LineRingBuffer.GapMarker<OutputLine>() {
+        @Override
+        public OutputLine linesDropped(long count) {
+          return new OutputLine(count);
+        }
+      };
+
+  private final LineRingBuffer<OutputLine> buffer;
+  private final long flushIntervalMillis;
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final Job flushJob;
+  // skipped lines not written yet for lack of a line to write them with; only used by flush
+  private long skipped;
+
+  public RateLimitedConsoleWriter() {
+    this(DEFAULT_MAX_BUFFERED_LINES, DEFAULT_MAX_FLUSHES_PER_SECOND);
+  }
+
+  public RateLimitedConsoleWriter(int maxBufferedLines, int maxFlushesPerSecond) {
+    if (maxFlushesPerSecond <= 0) {
+      throw new IllegalArgumentException("maxFlushesPerSecond must be positive");
+    }
+    buffer = new LineRingBuffer<>(maxBufferedLines);
+    flushIntervalMillis = 1000 / maxFlushesPerSecond;
+    flushJob = new Job("Write process output to console") { //$NON-NLS-1$
+      @Override
+      protected IStatus run(IProgressMonitor monitor) {
+        flushScheduled.set(false);
+        flush();
+        if (buffer.hasPending()) {
+          scheduleFlush(); // lines that were being written during the flush
+        }
+        return Status.OK_STATUS;
+      }
+    };
+    flushJob.setSystem(true);
+  }
+
+  /**
+   * Limits {@code console} to about the number of characters set in the preferences; when it
+   * grows larger, the oldest output is discarded.
+   */
+  public static void limitSize(IOConsole console) {
+    int highWaterMark = Platform.getPreferencesService().getInt(
+        PreferencesInitializer.BUNDLE_ID, PreferencesInitializer.CONSOLE_HIGH_WATER_MARK,
+        PreferencesInitializer.DEFAULT_CONSOLE_HIGH_WATER_MARK, null);
+    setHighWaterMark(console, highWaterMark);
+  }
+
+  static void setHighWaterMark(IOConsole console, int highWaterMark) {
+    console.setWaterMarks(highWaterMark - highWaterMark / 5, highWaterMark);
+  }
+
+  /**
+   * Returns a listener that writes the lines of a process to {@code stream} through this writer.
+   */
+  public ProcessOutputLineListener newListener(final MessageConsoleStream stream) {
+    return new ProcessOutputLineListener() {
+      @Override
+      public void onOutputLine(String line) {
+        buffer.add(new OutputLine(stream, line));
+        scheduleFlush();
+      }
+    };
+  }
+
+  private void scheduleFlush() {
+    if (flushScheduled.compareAndSet(false, true)) {
+      flushJob.schedule(flushIntervalMillis);
+    }
+  }
+
+  /**
+   * Writes all buffered lines to the console now.
+   */
+  public synchronized void flush() {
+    List<OutputLine> lines = new ArrayList<>();
+    buffer.drainTo(lines, SKIPPED_LINES);
+
+    MessageConsoleStream stream = null;
+    StringBuilder chunk = new StringBuilder();
+    for (int i = 0; i < lines.size(); i++) {
+      OutputLine line = lines.get(i);
+      MessageConsoleStream lineStream = line.isSkippedLines() ? findStream(lines, i) : line.stream;
+      if (lineStream == null) {
+        // lines still being stored by writers, if any, are picked up by the next flush
+        skipped += line.skipped;
+        continue;
+      }
+      if (lineStream != stream) {
+        if (stream != null) {
+          print(stream, chunk);
+        }
+        stream = lineStream;
+        chunk.setLength(0);
+      }
+      if (line.isSkippedLines()) {
+        skipped += line.skipped;
+      }
+      if (skipped > 0) {
+        chunk.append(SdkUiMessages.getString("LinesSkipped", skipped)) //$NON-NLS-1$
+            .append('\n');
+        skipped = 0;
+      }
+      if (!line.isSkippedLines()) {
+        chunk.append(line.text).append('\n');
+      }
+    }
+    if (stream != null) {
+      print(stream, chunk);
+    }
+  }
+
+  /**
+   * Returns the stream of the first line at or after {@code index}, else of the last line before
+   * it, or {@code null} if there are only skipped lines.
+   */
+  private static MessageConsoleStream findStream(List<OutputLine> lines, int index) {
+    for (int i = index; i < lines.size(); i++) {
+      if (!lines.get(i).isSkippedLines()) {
+        return lines.get(i).stream;
+      }
+    }
+    for (int i = index - 1; i >= 0; i--) {
+      if (!lines.get(i).isSkippedLines()) {
+        return lines.get(i).stream;
+      }
+    }
+    return null;
+  }
+
+  private static void print(MessageConsoleStream stream, StringBuilder chunk) {
+    // there's still a small chance that the stream will be closed and the error will be logged
+    // by the ConsolePlugin
+    if (!stream.isClosed()) {
+      stream.print(chunk.toString());
+    }
+  }
+}
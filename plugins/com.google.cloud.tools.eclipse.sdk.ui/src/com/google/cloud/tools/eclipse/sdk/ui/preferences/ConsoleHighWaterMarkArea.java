@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk.ui.preferences;
+
+import com.google.cloud.tools.eclipse.preferences.areas.FieldEditorWrapper;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.swt.widgets.Composite;
+
+public class ConsoleHighWaterMarkArea extends FieldEditorWrapper<IntegerFieldEditor> {
+  /** Smallest size that still shows a screenful of long lines. */
+  private static final int MINIMUM_HIGH_WATER_MARK = 10000;
+
+  @Override
+  protected IntegerFieldEditor createFieldEditor(Composite container) {
+    IntegerFieldEditor editor = new IntegerFieldEditor(
+        PreferencesInitializer.CONSOLE_HIGH_WATER_MARK,
+        SdkUiMessages.getString("ConsoleHighWaterMark"), container); //$NON-NLS-1$
+    editor.setValidRange(MINIMUM_HIGH_WATER_MARK, Integer.MAX_VALUE);
+    return editor;
+  }
+}
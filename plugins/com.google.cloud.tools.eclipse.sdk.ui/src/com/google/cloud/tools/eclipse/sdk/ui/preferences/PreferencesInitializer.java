@@ -0,0 +1,35 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk.ui.preferences;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+import org.eclipse.core.runtime.preferences.DefaultScope;
+
+public class PreferencesInitializer extends AbstractPreferenceInitializer {
+
+  public static final String BUNDLE_ID = "com.google.cloud.tools.eclipse.sdk.ui";
+
+  /** Maximum number of characters kept in a console showing the output of a Cloud SDK command. */
+  public static final String CONSOLE_HIGH_WATER_MARK = "consoleHighWaterMark";
+  public static final int DEFAULT_CONSOLE_HIGH_WATER_MARK = 4 * 1024 * 1024;
+
+  @Override
+  public void initializeDefaultPreferences() {
+    DefaultScope.INSTANCE.getNode(BUNDLE_ID)
+        .putInt(CONSOLE_HIGH_WATER_MARK, DEFAULT_CONSOLE_HIGH_WATER_MARK);
+  }
+}
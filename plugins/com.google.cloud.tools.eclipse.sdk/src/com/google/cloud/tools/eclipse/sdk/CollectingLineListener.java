@@ -16,39 +16,23 @@
 
 package com.google.cloud.tools.eclipse.sdk;
 
-import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
-import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
-import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A {@link ProcessOutputLineListener} that collects output lines satisfying some {@link Predicate}.
+ * A {@link ProcessOutputCapture} that collects output lines satisfying some {@link Predicate}
+ * within the {@link ProcessOutputCapture#DEFAULT_MEMORY_BUDGET default memory budget}.
  */
-public class CollectingLineListener implements ProcessOutputLineListener {
-
-  private final Predicate<String> condition;
-  private final List<String> collectedMessages = new ArrayList<>();
+public class CollectingLineListener extends ProcessOutputCapture {
 
   /**
    * @param predicate all lines satisfying this predicate will be collected
    */
   public CollectingLineListener(Predicate<String> predicate) {
-    Preconditions.checkNotNull(predicate, "predicate is null");
-    this.condition = predicate;
-  }
-
-  /**
-   * Evaluates the predicate on <code>line</code> and collects it if it's <code>true</code>.
-   */
-  @Override
-  public void onOutputLine(String line) {
-    if (condition.apply(line)) {
-      collectedMessages.add(line);
-    }
+    super(predicate);
   }
 
   public List<String> getCollectedMessages() {
-    return new ArrayList<>(collectedMessages);
+    return getLines();
   }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.sdk;
+
+import com.google.cloud.tools.appengine.cloudsdk.process.ProcessOutputLineListener;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link ProcessOutputLineListener} that captures the output lines satisfying some {@link
+ * Predicate} within a fixed memory budget. It can be attached to the stdout and stderr of a
+ * process at the same time: lines are appended without locking as long as they fit in the budget.
+ * Lines beyond the budget are spilled to a temporary file, which is deleted by {@link #close()}.
+ * <p>
+ * If a stop condition is given, capturing ends with the first line that satisfies it and any
+ * later output is ignored.
+ */
+public class ProcessOutputCapture implements ProcessOutputLineListener, Closeable {
+
+  private static final Logger logger = Logger.getLogger(ProcessOutputCapture.class.getName());
+
+  /** Default maximum number of characters to keep in memory. */
+  public static final int DEFAULT_MEMORY_BUDGET = 256 * 1024;
+
+  private final Predicate<String> filter;
+  private final Predicate<String> stopCondition;
+  private final long memoryBudget;
+
+  private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+  private final AtomicLong memoryUsed = new AtomicLong();
+  // once set, all later lines are spilled so that the order of lines is kept
+  private volatile boolean spilling;
+  private final AtomicReference<String> match = new AtomicReference<>();
+
+  // guarded by "this"
+  private Path spillFile;
+  private Writer spillWriter;
+  private int lostLines;
+  private boolean closed;
+
+  /**
+   * @param filter all lines satisfying this predicate will be captured
+   */
+  public ProcessOutputCapture(Predicate<String> filter) {
+    this(filter, null, DEFAULT_MEMORY_BUDGET);
+  }
+
+  /**
+   * @param filter all lines satisfying this predicate will be captured
+   * @param stopCondition if not {@code null}, the first captured line satisfying this predicate
+   *     is the last line captured
+   * @param memoryBudget the maximum number of characters to keep in memory
+   */
+  public ProcessOutputCapture(Predicate<String> filter, Predicate<String> stopCondition,
+      long memoryBudget) {
+    Preconditions.checkNotNull(filter, "predicate is null");
+    Preconditions.checkArgument(memoryBudget >= 0, "memoryBudget is negative");
+    this.filter = filter;
+    this.stopCondition = stopCondition;
+    this.memoryBudget = memoryBudget;
+  }
+
+  @Override
+  public void onOutputLine(String line) {
+    if (match.get() != null || !filter.apply(line)) {
+      return;
+    }
+    if (stopCondition != null && stopCondition.apply(line)) {
+      if (match.compareAndSet(null, line)) {
+        append(line);
+      }
+    } else {
+      append(line);
+    }
+  }
+
+  private void append(String line) {
+    if (!spilling) {
+      if (memoryUsed.addAndGet(line.length()) <= memoryBudget) {
+        lines.add(line);
+        return;
+      }
+      spilling = true;
+    }
+    spill(line);
+  }
+
+  private synchronized void spill(String line) {
+    if (closed) {
+      lostLines++;
+      return;
+    }
+    try {
+      if (spillWriter == null) {
+        spillFile = Files.createTempFile("process-output", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+        spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+      }
+      spillWriter.write(line);
+      spillWriter.write('\n');
+    } catch (IOException ex) {
+      lostLines++;
+      logger.log(Level.WARNING, "Could not spill process output to " + spillFile, ex);
+    }
+  }
+
+  /**
+   * @return the captured lines, including those spilled to disk; lines that could not be
+   *     spilled are missing
+   */
+  public List<String> getLines() {
+    List<String> result = new ArrayList<>(lines);
+    synchronized (this) {
+      if (spillWriter != null && !closed) {
+        try {
+          spillWriter.flush();
+          result.addAll(Files.readAllLines(spillFile, StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+          logger.log(Level.WARNING, "Could not read spilled process output from " + spillFile,
+              ex);
+        }
+      }
+      if (lostLines > 0) {
+        logger.warning(lostLines + " lines of process output were lost");
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the line that satisfied the stop condition, or {@code null} if none did yet
+   */
+  public String getMatch() {
+    return match.get();
+  }
+
+  @VisibleForTesting
+  synchronized boolean hasSpilled() {
+    return spillFile != null;
+  }
+
+  /**
+   * Deletes the spill file, if any. Lines captured afterwards are only kept while they fit in
+   * memory.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (spillWriter != null) {
+      try {
+        spillWriter.close();
+        Files.deleteIfExists(spillFile);
+      } catch (IOException ex) {
+        logger.log(Level.WARNING, "Could not delete " + spillFile, ex);
+      }
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.cloud.tools.eclipse.test.util.project.TestProjectCreator;
+import java.util.Arrays;
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.jdt.core.JavaCore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ProjectDescriptionEditorTest {
+
+  private static final String BUILDER_ID = "org.eclipse.jdt.core.javabuilder";
+
+  @Rule public final TestProjectCreator projectCreator = new TestProjectCreator();
+  @Rule public final TestProjectCreator otherProjectCreator = new TestProjectCreator();
+
+  private final IProgressMonitor monitor = new NullProgressMonitor();
+
+  private IProject project;
+
+  @Before
+  public void setUp() {
+    project = projectCreator.getProject();
+  }
+
+  @Test
+  public void testApply() throws CoreException {
+    ProjectDescriptionEditor.edit(project).addNature(JavaCore.NATURE_ID).addBuilder(BUILDER_ID)
+        .apply(monitor);
+    assertTrue(project.hasNature(JavaCore.NATURE_ID));
+    assertEquals(1, countBuilders());
+
+    ProjectDescriptionEditor.edit(project).removeNature(JavaCore.NATURE_ID)
+        .removeBuilder(BUILDER_ID).apply(monitor);
+    assertFalse(project.hasNature(JavaCore.NATURE_ID));
+    assertEquals(0, countBuilders());
+  }
+
+  @Test
+  public void testAddBuilder_existingBuilder() throws CoreException {
+    ProjectDescriptionEditor.edit(project).addBuilder(BUILDER_ID).apply(monitor);
+    ProjectDescriptionEditor.edit(project).addBuilder(BUILDER_ID).apply(monitor);
+    assertEquals(1, countBuilders());
+  }
+
+  @Test
+  public void testBatch_writesOnce() throws CoreException {
+    final int[] descriptionChanges = new int[1];
+    IResourceChangeListener listener = new IResourceChangeListener() {
+      @Override
+      public void resourceChanged(IResourceChangeEvent event) {
+        if (event.getDelta().findMember(project.getFile(".project").getFullPath()) != null) {
+          descriptionChanges[0]++;
+        }
+      }
+    };
+    ResourcesPlugin.getWorkspace().addResourceChangeListener(listener,
+        IResourceChangeEvent.POST_CHANGE);
+    try {
+      ProjectDescriptionEditor.batch(project, new IWorkspaceRunnable() {
+        @Override
+        public void run(IProgressMonitor monitor) throws CoreException {
+          NatureUtils.addNature(project, JavaCore.NATURE_ID, monitor);
+          ProjectDescriptionEditor.edit(project).addBuilder(BUILDER_ID).apply(monitor);
+          assertFalse(project.hasNature(JavaCore.NATURE_ID));  // deferred
+        }
+      }, monitor);
+    } finally {
+      ResourcesPlugin.getWorkspace().removeResourceChangeListener(listener);
+    }
+
+    assertTrue(project.hasNature(JavaCore.NATURE_ID));
+    assertEquals(1, countBuilders());
+    assertEquals(1, descriptionChanges[0]);
+  }
+
+  @Test
+  public void testBatch_writesChangesOnFailure() throws CoreException {
+    try {
+      ProjectDescriptionEditor.batch(project, new IWorkspaceRunnable() {
+        @Override
+        public void run(IProgressMonitor monitor) throws CoreException {
+          NatureUtils.addNature(project, JavaCore.NATURE_ID, monitor);
+          throw new CoreException(Status.CANCEL_STATUS);
+        }
+      }, monitor);
+      fail();
+    } catch (CoreException ex) {
+      assertEquals(Status.CANCEL_STATUS, ex.getStatus());
+    }
+    assertTrue(project.hasNature(JavaCore.NATURE_ID));
+  }
+
+  @Test
+  public void testBatch_severalProjects() throws CoreException {
+    final IProject otherProject = otherProjectCreator.getProject();
+    ProjectDescriptionEditor.batch(Arrays.asList(project, otherProject),
+        new IWorkspaceRunnable() {
+          @Override
+          public void run(IProgressMonitor monitor) throws CoreException {
+            NatureUtils.addNature(project, JavaCore.NATURE_ID, monitor);
+            NatureUtils.addNature(otherProject, JavaCore.NATURE_ID, monitor);
+            // deferred
+            assertFalse(project.hasNature(JavaCore.NATURE_ID));
+            assertFalse(otherProject.hasNature(JavaCore.NATURE_ID));
+          }
+        }, monitor);
+
+    assertTrue(project.hasNature(JavaCore.NATURE_ID));
+    assertTrue(otherProject.hasNature(JavaCore.NATURE_ID));
+  }
+
+  @Test
+  public void testEditNow_notDeferredByBatch() throws CoreException {
+    ProjectDescriptionEditor.batch(project, new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        ProjectDescriptionEditor.edit(project).addBuilder(BUILDER_ID).apply(monitor);
+        ProjectDescriptionEditor.editNow(project).addNature(JavaCore.NATURE_ID).apply(monitor);
+        assertTrue(project.hasNature(JavaCore.NATURE_ID));
+        assertEquals(0, countBuilders());  // deferred
+      }
+    }, monitor);
+
+    assertTrue(project.hasNature(JavaCore.NATURE_ID));
+    assertEquals(1, countBuilders());
+  }
+
+  private int countBuilders() throws CoreException {
+    int count = 0;
+    for (ICommand command : project.getDescription().getBuildSpec()) {
+      if (BUILDER_ID.equals(command.getBuilderName())) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
@@ -147,6 +147,24 @@ public class TemplatesTest {
     compareToFile("web31.txt");
   }
 
+  @Test
+  public void testRenderFileContent() throws CoreException, IOException {
+    dataMap.put("package", "com.example");
+    try (InputStream content =
+        Templates.renderFileContent(Templates.HELLO_APPENGINE_TEMPLATE, dataMap)) {
+      Files.copy(content, Paths.get(fileLocation));
+    }
+
+    compareToFile("helloAppEngineWithPackage.txt");
+  }
+
+  @Test
+  public void testGetFileContent() throws IOException {
+    try (InputStream content = Templates.getFileContent("favicon.ico")) {
+      Assert.assertTrue(content.read() >= 0);
+    }
+  }
+
   private static InputStream getDataFile(String fileName) throws IOException {
     Bundle bundle = FrameworkUtil.getBundle(TemplatesTest.class);
     URL expectedFileUrl = bundle.getResource("/testData/templates/appengine/" + fileName);
@@ -16,10 +16,7 @@
 
 package com.google.cloud.tools.eclipse.util;
 
-import com.google.common.collect.Lists;
-import java.util.List;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IProjectDescription;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -34,36 +31,25 @@ public class NatureUtils {
 
   /**
    * Removes the nature identified by {@code natureId}. If the {@code project} does not have the
-   * nature, this method does nothing.
+   * nature, this method does nothing. Within a {@link ProjectDescriptionEditor#batch batch}, the
+   * change is written when the batch ends.
    *
    * @param monitor a progress monitor, or {@code null} if progress reporting is not desired
    */
   public static void removeNature(IProject project, String natureId, IProgressMonitor monitor)
       throws CoreException {
-    if (project.hasNature(natureId)) {
-      // Remove the nature ID from the natures in the project description
-      IProjectDescription description = project.getDescription();
-      List<String> natures = Lists.newArrayList(description.getNatureIds());
-      natures.remove(natureId);
-      description.setNatureIds(natures.toArray(new String[0]));
-      project.setDescription(description, monitor);
-    }
+    ProjectDescriptionEditor.edit(project).removeNature(natureId).apply(monitor);
   }
 
   /**
    * Adds the nature identified by {@code natureId}. If the {@code project} already has the nature,
-   * this method does nothing.
+   * this method does nothing. Within a {@link ProjectDescriptionEditor#batch batch}, the change is
+   * written when the batch ends.
    *
    * @param monitor a progress monitor, or {@code null} if progress reporting is not desired
    */
   public static void addNature(IProject project, String natureId, IProgressMonitor monitor)
       throws CoreException {
-    if (!project.hasNature(natureId)) {
-      IProjectDescription description = project.getDescription();
-      List<String> natures = Lists.newArrayList(description.getNatureIds());
-      natures.add(natureId);
-      description.setNatureIds(natures.toArray(new String[0]));
-      project.setDescription(description, monitor);
-    }
+    ProjectDescriptionEditor.edit(project).addNature(natureId).apply(monitor);
   }
 }
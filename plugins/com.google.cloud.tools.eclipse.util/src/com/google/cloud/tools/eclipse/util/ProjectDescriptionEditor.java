@@ -0,0 +1,251 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.tools.eclipse.util;
+
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+/**
+ * Collects changes to the natures and builders of a project and writes them with a single
+ * {@link IProject#setDescription(IProjectDescription, IProgressMonitor)}. The changes are applied
+ * to the description current at the time of writing, so changes others made in the meantime are
+ * kept.
+ *
+ * <p>Inside {@link #batch(IProject, IWorkspaceRunnable, IProgressMonitor)}, all editors obtained
+ * from {@link #edit(IProject)} for the project on the same thread share their changes, and
+ * {@link #apply(IProgressMonitor)} defers writing them until the batch ends. This makes
+ * multi-step flows such as project creation write {@code .project} once. Changes that must not
+ * wait for the end of a batch go through {@link #editNow(IProject)}.
+ */
+public class ProjectDescriptionEditor {
+
+  private static final Logger logger = Logger.getLogger(ProjectDescriptionEditor.class.getName());
+
+  private static final ThreadLocal<Map<IProject, ProjectDescriptionEditor>> batches =
+      new ThreadLocal<Map<IProject, ProjectDescriptionEditor>>() {
+        @Override
+        protected Map<IProject, ProjectDescriptionEditor> initialValue() {
+          return new HashMap<>();
+        }
+      };
+
+  private final IProject project;
+  private final boolean deferred;
+  private final Set<String> naturesToAdd = new LinkedHashSet<>();
+  private final Set<String> naturesToRemove = new LinkedHashSet<>();
+  private final Set<String> buildersToAdd = new LinkedHashSet<>();
+  private final Set<String> buildersToRemove = new LinkedHashSet<>();
+
+  private ProjectDescriptionEditor(IProject project, boolean deferred) {
+    this.project = project;
+    this.deferred = deferred;
+  }
+
+  /**
+   * Returns an editor for the project: the editor of the enclosing batch if one is running on
+   * this thread, or a new editor otherwise.
+   */
+  public static ProjectDescriptionEditor edit(IProject project) {
+    ProjectDescriptionEditor batch = batches.get().get(project);
+    return batch != null ? batch : new ProjectDescriptionEditor(project, false);
+  }
+
+  /**
+   * Returns a new editor that writes its changes on {@link #apply(IProgressMonitor)} even inside a
+   * batch, for changes that later steps of the batch must already see in {@code .project}.
+   */
+  public static ProjectDescriptionEditor editNow(IProject project) {
+    return new ProjectDescriptionEditor(project, false);
+  }
+
+  /**
+   * Runs {@code runnable} as a single workspace operation, writing the changes made through
+   * {@link #edit(IProject)} editors for {@code project} once at its end. Builds and resource change
+   * notifications are deferred until the operation ends too. The changes collected so far are
+   * written even if {@code runnable} fails. Note that {@link IProject#hasNature(String)} does not
+   * reflect the deferred changes until then.
+   */
+  public static void batch(IProject project, IWorkspaceRunnable runnable,
+      IProgressMonitor monitor) throws CoreException {
+    batch(Collections.singletonList(project), runnable, monitor);
+  }
+
+  /**
+   * Like {@link #batch(IProject, IWorkspaceRunnable, IProgressMonitor)}, collecting the changes
+   * of all {@code projects}, so that bulk operations write each {@code .project} once.
+   */
+  public static void batch(Collection<IProject> projects, final IWorkspaceRunnable runnable,
+      IProgressMonitor monitor) throws CoreException {
+    final Map<IProject, ProjectDescriptionEditor> editors = batches.get();
+    final Set<IProject> newProjects = new LinkedHashSet<>(projects);
+    newProjects.removeAll(editors.keySet());
+    if (newProjects.isEmpty()) {
+      runnable.run(monitor);  // already batching
+      return;
+    }
+
+    IWorkspaceRunnable batch = new IWorkspaceRunnable() {
+      @Override
+      public void run(IProgressMonitor monitor) throws CoreException {
+        SubMonitor progress = SubMonitor.convert(monitor, 100);
+        List<ProjectDescriptionEditor> batchEditors = new ArrayList<>();
+        for (IProject project : newProjects) {
+          ProjectDescriptionEditor editor = new ProjectDescriptionEditor(project, true);
+          editors.put(project, editor);
+          batchEditors.add(editor);
+        }
+        boolean completed = false;
+        try {
+          runnable.run(progress.newChild(90));
+          completed = true;
+        } finally {
+          editors.keySet().removeAll(newProjects);
+          if (!completed) {
+            for (ProjectDescriptionEditor editor : batchEditors) {
+              try {
+                editor.write(null);
+              } catch (CoreException ex) {
+                // don't hide the original failure
+                logger.log(Level.WARNING, "Unable to update description of " + editor.project,
+                    ex);
+              }
+            }
+          }
+        }
+        SubMonitor writeProgress = progress.newChild(10).setWorkRemaining(batchEditors.size());
+        CoreException failure = null;
+        for (ProjectDescriptionEditor editor : batchEditors) {
+          try {
+            editor.write(writeProgress.newChild(1));
+          } catch (CoreException ex) {
+            // still write the other projects
+            if (failure == null) {
+              failure = ex;
+            } else {
+              logger.log(Level.WARNING, "Unable to update description of " + editor.project,
+                  ex);
+            }
+          }
+        }
+        if (failure != null) {
+          throw failure;
+        }
+      }
+    };
+    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+    workspace.run(batch, workspace.getRoot(), IWorkspace.AVOID_UPDATE, monitor);
+  }
+
+  public ProjectDescriptionEditor addNature(String natureId) {
+    naturesToRemove.remove(natureId);
+    naturesToAdd.add(natureId);
+    return this;
+  }
+
+  public ProjectDescriptionEditor removeNature(String natureId) {
+    naturesToAdd.remove(natureId);
+    naturesToRemove.add(natureId);
+    return this;
+  }
+
+  /**
+   * Adds the builder after the existing builders, unless the project already has it.
+   */
+  public ProjectDescriptionEditor addBuilder(String builderId) {
+    buildersToRemove.remove(builderId);
+    buildersToAdd.add(builderId);
+    return this;
+  }
+
+  public ProjectDescriptionEditor removeBuilder(String builderId) {
+    buildersToAdd.remove(builderId);
+    buildersToRemove.add(builderId);
+    return this;
+  }
+
+  /**
+   * Writes the changes, unless this editor belongs to a batch, which writes them when it ends.
+   * Does nothing if the project description already reflects the changes.
+   *
+   * @param monitor a progress monitor, or {@code null} if progress reporting is not desired
+   */
+  public void apply(IProgressMonitor monitor) throws CoreException {
+    if (!deferred) {
+      write(monitor);
+    }
+  }
+
+  private void write(IProgressMonitor monitor) throws CoreException {
+    IProjectDescription description = project.getDescription();
+    boolean changed = false;
+
+    List<String> natures = Lists.newArrayList(description.getNatureIds());
+    changed |= natures.removeAll(naturesToRemove);
+    for (String natureId : naturesToAdd) {
+      if (!natures.contains(natureId)) {
+        natures.add(natureId);
+        changed = true;
+      }
+    }
+
+    List<ICommand> commands = Lists.newArrayList(description.getBuildSpec());
+    Set<String> builders = new LinkedHashSet<>(buildersToAdd);
+    for (Iterator<ICommand> iterator = commands.iterator(); iterator.hasNext(); ) {
+      String builderName = iterator.next().getBuilderName();
+      builders.remove(builderName);
+      if (buildersToRemove.contains(builderName)) {
+        iterator.remove();
+        changed = true;
+      }
+    }
+    for (String builderId : builders) {
+      ICommand command = description.newCommand();
+      command.setBuilderName(builderId);
+      commands.add(command);
+      changed = true;
+    }
+
+    naturesToAdd.clear();
+    naturesToRemove.clear();
+    buildersToAdd.clear();
+    buildersToRemove.clear();
+    if (changed) {
+      description.setNatureIds(natures.toArray(new String[0]));
+      description.setBuildSpec(commands.toArray(new ICommand[0]));
+      project.setDescription(description, monitor);
+    }
+  }
+}
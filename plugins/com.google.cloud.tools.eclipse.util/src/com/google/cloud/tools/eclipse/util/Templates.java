@@ -23,6 +23,8 @@ import freemarker.template.Configuration;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateExceptionHandler;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -46,7 +48,8 @@ public class Templates {
   public static final String POM_XML_STANDARD_TEMPLATE = "pom.xml.standard.ftl";
   public static final String POM_XML_FLEX_TEMPLATE = "pom.xml.flex.ftl";
 
-  private static Configuration configuration;
+  /** Also caches the parsed templates, so each template is only parsed once. */
+  private static final Configuration configuration = createConfiguration();
 
   public static void createFileContent(
       String outputFileLocation, String templateName, Map<String, String> dataMap)
@@ -55,9 +58,6 @@ public class Templates {
     Preconditions.checkNotNull(templateName, "template name is null");
     Preconditions.checkNotNull(dataMap, "data map is null");
 
-    if (configuration == null) {
-      configuration = createConfiguration();
-    }
     Path outputFile = Paths.get(outputFileLocation);
     try (Writer writer =
         new OutputStreamWriter(Files.newOutputStream(outputFile), StandardCharsets.UTF_8)) {
@@ -68,6 +68,37 @@ public class Templates {
     }
   }
 
+  /**
+   * Renders a template in memory, so that it can be written to a workspace file directly.
+   *
+   * @return the rendered content, encoded in UTF-8
+   */
+  public static InputStream renderFileContent(String templateName, Map<String, String> dataMap)
+      throws CoreException {
+    Preconditions.checkNotNull(templateName, "template name is null");
+    Preconditions.checkNotNull(dataMap, "data map is null");
+
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    try (Writer writer = new OutputStreamWriter(content, StandardCharsets.UTF_8)) {
+      Template template = configuration.getTemplate(templateName);
+      template.process(dataMap, writer);
+    } catch (IOException | TemplateException ex) {
+      throw new CoreException(StatusUtil.error(Templates.class, ex.getMessage()));
+    }
+    return new ByteArrayInputStream(content.toByteArray());
+  }
+
+  /**
+   * Returns the content of a file bundled with the templates. The caller must close the stream.
+   */
+  public static InputStream getFileContent(String sourceName) {
+    Preconditions.checkNotNull(sourceName, "source file name is null");
+    InputStream inputStream =
+        Templates.class.getResourceAsStream("/templates/appengine/" + sourceName);
+    Preconditions.checkArgument(inputStream != null, "no such file: %s", sourceName);
+    return inputStream;
+  }
+
   public static void copyFileContent(String outputFileLocation, String sourceName)
       throws CoreException {
     Preconditions.checkNotNull(outputFileLocation, "output file is null");
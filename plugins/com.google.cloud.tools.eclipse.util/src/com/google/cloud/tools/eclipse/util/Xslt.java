@@ -22,6 +22,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
@@ -36,11 +39,13 @@ public class Xslt {
 
   private static final TransformerFactory factory = TransformerFactory.newInstance();
 
+  /** Compiled stylesheets, by URL. */
+  private static final ConcurrentMap<String, Templates> stylesheets = new ConcurrentHashMap<>();
+
   public static void transformInPlace(IFile file, URL xslt)
       throws IOException, CoreException, TransformerException {
     try (InputStream in = file.getContents();
-        InputStream stylesheetStream = xslt.openStream();
-        InputStream resultStream = applyXslt(in, stylesheetStream)) {
+        InputStream resultStream = applyXslt(in, xslt)) {
       boolean force = true;
       boolean keepHistory = true;
       file.setContents(resultStream, force, keepHistory, null /* monitor */);
@@ -57,6 +62,26 @@ public class Xslt {
     return applyXslt(new StreamSource(document), stylesheet);
   }
 
+  /**
+   * Applies XSLT transformation. The stylesheet is compiled once and reused on later calls, which
+   * may come from different threads.
+   *
+   * @return the result of transformation as {@link InputStream}
+   */
+  public static InputStream applyXslt(InputStream document, URL stylesheet)
+      throws IOException, TransformerException {
+    Templates templates = stylesheets.get(stylesheet.toString());
+    if (templates == null) {
+      try (InputStream stylesheetStream = stylesheet.openStream()) {
+        synchronized (factory) {  // factories are not thread-safe
+          templates = factory.newTemplates(new StreamSource(stylesheetStream));
+        }
+      }
+      stylesheets.putIfAbsent(stylesheet.toString(), templates);
+    }
+    return transform(new StreamSource(document), templates.newTransformer());
+  }
+
   public static InputStream applyXslt(Reader document, InputStream stylesheet)
       throws IOException, TransformerException {
     return applyXslt(new StreamSource(document), stylesheet);
@@ -64,8 +89,16 @@ public class Xslt {
 
   private static InputStream applyXslt(StreamSource document, InputStream stylesheet)
       throws IOException, TransformerException {
+    Transformer transformer;
+    synchronized (factory) {
+      transformer = factory.newTransformer(new StreamSource(stylesheet));
+    }
+    return transform(document, transformer);
+  }
+
+  private static InputStream transform(StreamSource document, Transformer transformer)
+      throws IOException, TransformerException {
     try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-      Transformer transformer = factory.newTransformer(new StreamSource(stylesheet));
       transformer.transform(document, new StreamResult(outputStream));
 
       return new ByteArrayInputStream(outputStream.toByteArray());
@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
 
 /**
  * A fork of org.eclipse.jdi.internal.connect.SocketConnection that stores the
@@ -39,6 +41,15 @@ public class SocketConnection extends Connection {
 		fOutput = out;
 	}
 
+	/**
+	 * Creates a connection for a socket channel in blocking mode. The channel
+	 * is read and written directly rather than through its socket's streams,
+	 * which would serialize reads and writes on the channel's blocking lock.
+	 */
+	SocketConnection(SocketChannel channel) {
+		this(channel.socket(), new ChannelInputStream(channel), new ChannelOutputStream(channel));
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -151,4 +162,57 @@ public class SocketConnection extends Connection {
 		}
 		return len;
 	}
+
+	private static class ChannelInputStream extends InputStream {
+		private final SocketChannel fChannel;
+
+		ChannelInputStream(SocketChannel channel) {
+			fChannel = channel;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			return fChannel.read(ByteBuffer.wrap(b, off, len));
+		}
+
+		@Override
+		public void close() throws IOException {
+			fChannel.close();
+		}
+	}
+
+	private static class ChannelOutputStream extends OutputStream {
+		private final SocketChannel fChannel;
+
+		ChannelOutputStream(SocketChannel channel) {
+			fChannel = channel;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining()) {
+				fChannel.write(buffer);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			fChannel.close();
+		}
+	}
 }
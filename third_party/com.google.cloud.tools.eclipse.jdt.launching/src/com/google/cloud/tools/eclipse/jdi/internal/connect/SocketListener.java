@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Google Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Google Inc - initial API and implementation
+ *******************************************************************************/
+package com.google.cloud.tools.eclipse.jdi.internal.connect;
+
+import com.sun.jdi.connect.TransportTimeoutException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts incoming debug connections on a single thread. The server channel
+ * and all connections still in their JDWP handshake are multiplexed on one
+ * selector, so any number of VMs can connect at once without a thread per
+ * connection. Connections that complete the handshake are queued right away
+ * and handed out by {@link #accept(long)}; a VM that connects but never
+ * completes the handshake is dropped after {@value #HANDSHAKE_TIMEOUT}ms.
+ */
+class SocketListener implements Runnable {
+	/** How long (in milliseconds) a connecting VM has to complete the handshake. */
+	static final long HANDSHAKE_TIMEOUT = 30000;
+
+	/** Queued after the last connection once the listener has stopped. */
+	private static final SocketConnection STOPPED = new SocketConnection(null, null, null);
+
+	private final ServerSocketChannel fServerChannel;
+	private final Selector fSelector;
+	private final Thread fThread;
+	private final BlockingQueue<SocketConnection> fConnections = new LinkedBlockingQueue<SocketConnection>();
+
+	private volatile boolean fStopped;
+	private volatile IOException fFailure;
+
+	/** The state of a JDWP handshake on a connection that is not ready yet. */
+	private static class Handshake {
+		final ByteBuffer out = ByteBuffer.wrap(SocketTransportService.handshakeBytes);
+		final ByteBuffer in = ByteBuffer.allocate(SocketTransportService.handshakeBytes.length);
+		final long deadline = System.currentTimeMillis() + HANDSHAKE_TIMEOUT;
+	}
+
+	/**
+	 * Creates a listener for a bound server channel. The listener owns the
+	 * channel and closes it when stopped.
+	 */
+	SocketListener(ServerSocketChannel serverChannel) throws IOException {
+		fServerChannel = serverChannel;
+		fSelector = Selector.open();
+		try {
+			fServerChannel.configureBlocking(false);
+			fServerChannel.register(fSelector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			fSelector.close();
+			throw e;
+		}
+		fThread = new Thread(this, "Debug connection listener [" //$NON-NLS-1$
+				+ serverChannel.socket().getLocalPort() + "]"); //$NON-NLS-1$
+		fThread.setDaemon(true);
+	}
+
+	void start() {
+		fThread.start();
+	}
+
+	/**
+	 * Waits for a VM that has completed the JDWP handshake.
+	 *
+	 * @param timeout
+	 *            the time to wait in milliseconds, or 0 to wait until a VM
+	 *            connects or the listener is stopped
+	 * @throws TransportTimeoutException
+	 *             if no VM connected in time
+	 * @throws IOException
+	 *             if the listener has been stopped or failed
+	 */
+	SocketConnection accept(long timeout) throws IOException {
+		SocketConnection connection;
+		try {
+			if (timeout > 0) {
+				connection = fConnections.poll(timeout, TimeUnit.MILLISECONDS);
+			} else {
+				connection = fConnections.take();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if (connection == null) {
+			throw new TransportTimeoutException();
+		}
+		if (connection == STOPPED) {
+			fConnections.add(STOPPED); // wake up any other waiting caller
+			if (fFailure != null) {
+				throw new IOException(fFailure);
+			}
+			throw new ClosedChannelException();
+		}
+		return connection;
+	}
+
+	/**
+	 * Stops listening and waits until the port is released. Connections that
+	 * were not accepted yet are closed.
+	 */
+	void stop() {
+		fStopped = true;
+		fSelector.wakeup();
+		if (Thread.currentThread() != fThread) {
+			try {
+				fThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (!fStopped) {
+				fSelector.select(dropExpiredHandshakes());
+				List<SocketChannel> completed = new ArrayList<SocketChannel>();
+				Iterator<SelectionKey> keys = fSelector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						acceptPending();
+					} else if (handshake(key)) {
+						key.cancel();
+						completed.add((SocketChannel) key.channel());
+					}
+				}
+				if (!completed.isEmpty()) {
+					// deregister the cancelled keys so the channels can block
+					fSelector.selectNow();
+					for (SocketChannel channel : completed) {
+						dispatch(channel);
+					}
+				}
+			}
+		} catch (IOException e) {
+			fFailure = e;
+		} finally {
+			shutDown();
+		}
+	}
+
+	private void acceptPending() throws IOException {
+		SocketChannel channel;
+		while ((channel = fServerChannel.accept()) != null) {
+			try {
+				channel.configureBlocking(false);
+				channel.register(fSelector, SelectionKey.OP_WRITE, new Handshake());
+			} catch (IOException e) {
+				closeQuietly(channel);
+			}
+		}
+	}
+
+	/**
+	 * Moves the handshake on a connection along as far as possible without
+	 * blocking.
+	 *
+	 * @return true if the handshake has completed
+	 */
+	private boolean handshake(SelectionKey key) {
+		SocketChannel channel = (SocketChannel) key.channel();
+		Handshake handshake = (Handshake) key.attachment();
+		try {
+			if (handshake.out.hasRemaining()) {
+				channel.write(handshake.out);
+				if (handshake.out.hasRemaining()) {
+					return false;
+				}
+				key.interestOps(SelectionKey.OP_READ);
+			}
+			if (channel.read(handshake.in) < 0) {
+				throw new IOException("Connection closed during handshake"); //$NON-NLS-1$
+			}
+			if (handshake.in.hasRemaining()) {
+				return false;
+			}
+			if (!Arrays.equals(handshake.in.array(), SocketTransportService.handshakeBytes)) {
+				throw new IOException("Received invalid handshake"); //$NON-NLS-1$
+			}
+			return true;
+		} catch (IOException e) {
+			// only this connection is affected; keep listening for others
+			key.cancel();
+			closeQuietly(channel);
+			return false;
+		}
+	}
+
+	private void dispatch(SocketChannel channel) {
+		try {
+			channel.configureBlocking(true);
+			fConnections.add(new SocketConnection(channel));
+		} catch (IOException e) {
+			closeQuietly(channel);
+		}
+	}
+
+	/**
+	 * Closes connections whose handshake has not completed in time.
+	 *
+	 * @return the time in milliseconds until the next handshake expires, or 0
+	 *         if no handshake is in progress
+	 */
+	private long dropExpiredHandshakes() {
+		long now = System.currentTimeMillis();
+		long next = Long.MAX_VALUE;
+		for (SelectionKey key : fSelector.keys()) {
+			if (!key.isValid() || !(key.attachment() instanceof Handshake)) {
+				continue;
+			}
+			long deadline = ((Handshake) key.attachment()).deadline;
+			if (deadline <= now) {
+				key.cancel();
+				closeQuietly(key.channel());
+			} else {
+				next = Math.min(next, deadline - now);
+			}
+		}
+		return next == Long.MAX_VALUE ? 0 : next;
+	}
+
+	private void shutDown() {
+		for (SelectionKey key : fSelector.keys()) {
+			closeQuietly(key.channel());
+		}
+		closeQuietly(fServerChannel);
+		closeQuietly(fSelector);
+		SocketConnection connection;
+		while ((connection = fConnections.poll()) != null) {
+			closeQuietly(connection);
+		}
+		fConnections.add(STOPPED);
+	}
+
+	private static void closeQuietly(Closeable closeable) {
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// nothing more we can do
+		}
+	}
+
+	private static void closeQuietly(SocketConnection connection) {
+		try {
+			connection.close();
+		} catch (IOException e) {
+			// nothing more we can do
+		}
+	}
+}
@@ -9,7 +9,8 @@
  *     IBM Corporation - initial API and implementation
  *     Ivan Popov - Bug 184211: JDI connectors throw NullPointerException if used separately
  *              from Eclipse
- *     Google Inc - add support for accepting multiple connections
+ *     Google Inc - add support for accepting multiple connections,
+ *              accept and attach without a thread per connection
  *******************************************************************************/
 package com.google.cloud.tools.eclipse.jdi.internal.connect;
 
@@ -19,26 +20,30 @@ import com.sun.jdi.connect.spi.Connection;
 import com.sun.jdi.connect.spi.TransportService;
 
 import org.eclipse.jdi.TimeoutException;
-import org.eclipse.jdi.internal.connect.ConnectMessages;
 
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
 import java.util.Arrays;
 
 /**
  * A fork of org.eclipse.jdi.internal.connect.SocketTransportService that
- * supports multiple socket connections.
+ * supports multiple socket connections. Listening is done by a
+ * {@link SocketListener}, which accepts connections and performs their
+ * handshakes on a single selector thread; attaching happens on the calling
+ * thread.
  */
 @SuppressWarnings("restriction")
 public class SocketTransportService extends TransportService {
 	/** Handshake bytes used just after connecting VM. */
-	private static final byte[] handshakeBytes = "JDWP-Handshake".getBytes(); //$NON-NLS-1$
+	static final byte[] handshakeBytes = "JDWP-Handshake".getBytes(); //$NON-NLS-1$
 
 	private Capabilities fCapabilities = new Capabilities() {
 		@Override
@@ -58,7 +63,7 @@ public class SocketTransportService extends TransportService {
 
 		@Override
 		public boolean supportsMultipleConnections() {
-			return false;
+			return true;
 		}
 	};
 
@@ -81,7 +86,7 @@ public class SocketTransportService extends TransportService {
 	}
 
 	// for listening or accepting connectors
-	private ServerSocket fServerSocket;
+	private volatile SocketListener fListener;
 
 	/*
 	 * (non-Javadoc)
@@ -92,22 +97,13 @@ public class SocketTransportService extends TransportService {
 	 */
 	@Override
 	public Connection accept(ListenKey listenKey, long attachTimeout, long handshakeTimeout) throws IOException {
-		if (attachTimeout > 0) {
-			if (attachTimeout > Integer.MAX_VALUE) {
-				attachTimeout = Integer.MAX_VALUE; // approx 25 days!
-			}
-			fServerSocket.setSoTimeout((int) attachTimeout);
-		}
-		Socket socket;
-		try {
-			socket = fServerSocket.accept();
-		} catch (SocketTimeoutException e) {
-			throw new TransportTimeoutException();
+		// the listener has already completed the handshake, within its own
+		// timeout, for any connection it hands out
+		SocketListener listener = fListener;
+		if (listener == null) {
+			throw new ClosedChannelException();
 		}
-		InputStream input = socket.getInputStream();
-		OutputStream output = socket.getOutputStream();
-		performHandshake(input, output, handshakeTimeout);
-		return new SocketConnection(socket, input, output);
+		return listener.accept(attachTimeout);
 	}
 
 	/*
@@ -131,84 +127,48 @@ public class SocketTransportService extends TransportService {
 		return attach(host, port, attachTimeout, handshakeTimeout);
 	}
 
-	public Connection attach(final String host, final int port, long attachTimeout, final long handshakeTimeout)
+	public Connection attach(String host, int port, long attachTimeout, long handshakeTimeout)
 			throws IOException {
-		if (attachTimeout > 0) {
-			if (attachTimeout > Integer.MAX_VALUE) {
-				attachTimeout = Integer.MAX_VALUE; // approx 25 days!
-			}
-		}
-
-		final IOException[] ex = new IOException[1];
-		final SocketConnection[] result = new SocketConnection[1];
-		Thread attachThread = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					Socket socket = new Socket(host, port);
-					InputStream input = socket.getInputStream();
-					OutputStream output = socket.getOutputStream();
-					performHandshake(input, output, handshakeTimeout);
-					result[0] = new SocketConnection(socket, input, output);
-				} catch (IOException e) {
-					ex[0] = e;
-				}
-			}
-		}, ConnectMessages.SocketTransportService_0);
-		attachThread.setDaemon(true);
-		attachThread.start();
+		// connect and handshake on the calling thread, relying on socket
+		// timeouts rather than on a watchdog thread per attempt
+		Socket socket = new Socket();
 		try {
-			attachThread.join(attachTimeout);
-			if (attachThread.isAlive()) {
-				attachThread.interrupt();
+			try {
+				socket.connect(new InetSocketAddress(host, port), toSocketTimeout(attachTimeout));
+			} catch (SocketTimeoutException e) {
 				throw new TimeoutException();
 			}
-		} catch (InterruptedException e) {
-		}
-
-		if (ex[0] != null) {
-			throw ex[0];
+			InputStream input = socket.getInputStream();
+			OutputStream output = socket.getOutputStream();
+			performHandshake(socket, input, output, handshakeTimeout);
+			return new SocketConnection(socket, input, output);
+		} catch (IOException | RuntimeException e) {
+			try {
+				socket.close();
+			} catch (IOException e1) {
+			}
+			throw e;
 		}
-
-		return result[0];
 	}
 
-	void performHandshake(final InputStream in, final OutputStream out, final long timeout) throws IOException {
-		final IOException[] ex = new IOException[1];
-		final boolean[] handshakeCompleted = new boolean[1];
-
-		Thread t = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					writeHandshake(out);
-					readHandshake(in);
-					handshakeCompleted[0] = true;
-				} catch (IOException e) {
-					ex[0] = e;
-				}
-			}
-		}, ConnectMessages.SocketTransportService_1);
-		t.setDaemon(true);
-		t.start();
+	void performHandshake(Socket socket, InputStream in, OutputStream out, long timeout) throws IOException {
+		socket.setSoTimeout(toSocketTimeout(timeout));
 		try {
-			t.join(timeout);
-		} catch (InterruptedException e1) {
+			writeHandshake(out);
+			readHandshake(in);
+		} catch (SocketTimeoutException e) {
+			throw new TransportTimeoutException();
+		} finally {
+			socket.setSoTimeout(0);
 		}
+	}
 
-		if (handshakeCompleted[0])
-			return;
-
-		try {
-			in.close();
-			out.close();
-		} catch (IOException e) {
+	/** Converts a timeout to a socket timeout, where 0 means no timeout. */
+	private static int toSocketTimeout(long timeout) {
+		if (timeout <= 0) {
+			return 0;
 		}
-
-		if (ex[0] != null)
-			throw ex[0];
-
-		throw new TransportTimeoutException();
+		return (int) Math.min(timeout, Integer.MAX_VALUE); // approx 25 days!
 	}
 
 	private void readHandshake(InputStream input) throws IOException {
@@ -293,8 +253,16 @@ public class SocketTransportService extends TransportService {
 			host = "localhost"; //$NON-NLS-1$
 		}
 
-		fServerSocket = new ServerSocket(port);
-		port = fServerSocket.getLocalPort();
+		ServerSocketChannel serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.socket().bind(new InetSocketAddress(port));
+			port = serverChannel.socket().getLocalPort();
+			fListener = new SocketListener(serverChannel);
+		} catch (IOException e) {
+			serverChannel.close();
+			throw e;
+		}
+		fListener.start();
 		ListenKey listenKey = new SocketListenKey(host + ":" + port); //$NON-NLS-1$
 		return listenKey;
 	}
@@ -307,12 +275,10 @@ public class SocketTransportService extends TransportService {
 	 */
 	@Override
 	public void stopListening(ListenKey arg1) throws IOException {
-		if (fServerSocket != null) {
-			try {
-				fServerSocket.close();
-			} catch (IOException e) {
-			}
+		SocketListener listener = fListener;
+		fListener = null;
+		if (listener != null) {
+			listener.stop();
 		}
-		fServerSocket = null;
 	}
 }
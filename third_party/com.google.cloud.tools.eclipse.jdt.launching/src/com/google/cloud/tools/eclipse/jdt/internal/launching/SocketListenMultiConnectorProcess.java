@@ -143,13 +143,10 @@ public class SocketListenMultiConnectorProcess implements IProcess {
             }
             @Override
             public void done(IJobChangeEvent event) {
-				if (event.getResult().isOK() && continueListening()) {
-                    fWaitForConnectionJob.schedule();
-				} else {
-                    try{
-                        terminate();
-                    } catch (DebugException e){}
-                }
+				// the job accepts all connections, so it only finishes once we are done
+                try{
+                    terminate();
+                } catch (DebugException e){}
             }
         });
         fWaitForConnectionJob.schedule();
@@ -305,8 +302,9 @@ public class SocketListenMultiConnectorProcess implements IProcess {
 
     /**
      * Job that waits for incoming VM connections.  When a remote
-     * VM connection is accepted, a debug target is created and 
-     * the process that created this job is removed.
+     * VM connection is accepted, a debug target is created right away
+     * and the job goes back to waiting, until the connection limit is
+     * reached.  The process that created this job is then removed.
      */
     class WaitForConnectionJob extends Job{
 
@@ -318,7 +316,7 @@ public class SocketListenMultiConnectorProcess implements IProcess {
          * IOExceptions will be ignored, allowing other threads
          * to close the socket without generating an error.
          */
-        private boolean fListeningStopped = false;
+        private volatile boolean fListeningStopped = false;
         
         public WaitForConnectionJob(ListeningConnector connector, Map<String, Connector.Argument> arguments) {
             super(getLabel());
@@ -329,27 +327,9 @@ public class SocketListenMultiConnectorProcess implements IProcess {
         @Override
         protected IStatus run(IProgressMonitor monitor) {
             try{
-                // The following code sets a timeout (not officially supported in Sun's spec).
-                // Allows polling for job cancellation. If the implementation does not support timeout
-                // the job cannot be cancelled (but the launch can still be terminated).
-                Connector.Argument timeout = fArguments.get("timeout"); //$NON-NLS-1$
-                if (timeout != null){
-                    timeout.setValue("3000"); //$NON-NLS-1$
-                }
-                
-                VirtualMachine vm = null;
-                while (vm == null && !monitor.isCanceled()){
-                    try {
-                        vm = fConnector.accept(fArguments);
-                    } catch (TransportTimeoutException e){
-                    }
-                }
-                
-                if (monitor.isCanceled()){
-                    fConnector.stopListening(fArguments);
-                    return Status.CANCEL_STATUS;
-                }
-                
+                // No accept timeout: stopListening(), called when the job is
+                // cancelled or the process terminated, makes a waiting accept
+                // fail right away, so there is no need to poll for cancellation.
                 ILaunchConfiguration configuration = fLaunch.getLaunchConfiguration();
                 boolean allowTerminate = false;
                 if (configuration != null) {
@@ -360,10 +340,24 @@ public class SocketListenMultiConnectorProcess implements IProcess {
                     }
                 }
                 Connector.Argument portArg= fArguments.get("port"); //$NON-NLS-1$
-                String vmLabel = constructVMLabel(vm, portArg.value(), fLaunch.getLaunchConfiguration());
-                IDebugTarget debugTarget= JDIDebugModel.newDebugTarget(fLaunch, vm, vmLabel, null, allowTerminate, true);
-                fLaunch.addDebugTarget(debugTarget);
-				fAccepted++;
+
+                while (continueListening() && !monitor.isCanceled()) {
+                    VirtualMachine vm;
+                    try {
+                        vm = fConnector.accept(fArguments);
+                    } catch (TransportTimeoutException e){
+                        continue;
+                    }
+                    String vmLabel = constructVMLabel(vm, portArg.value(), configuration);
+                    IDebugTarget debugTarget= JDIDebugModel.newDebugTarget(fLaunch, vm, vmLabel, null, allowTerminate, true);
+                    fLaunch.addDebugTarget(debugTarget);
+					fAccepted++;
+                }
+
+                if (monitor.isCanceled()){
+                    fConnector.stopListening(fArguments);
+                    return Status.CANCEL_STATUS;
+                }
                 return Status.OK_STATUS;
             } catch (IOException e) {
                 if (fListeningStopped){
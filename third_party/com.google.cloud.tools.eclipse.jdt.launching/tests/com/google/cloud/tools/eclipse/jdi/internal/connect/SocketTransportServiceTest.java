@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Google Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Google Inc - initial API and implementation
+ *******************************************************************************/
+package com.google.cloud.tools.eclipse.jdi.internal.connect;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.jdi.connect.TransportTimeoutException;
+import com.sun.jdi.connect.spi.Connection;
+import com.sun.jdi.connect.spi.TransportService.ListenKey;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SocketTransportServiceTest {
+
+	private static final byte[] HANDSHAKE = "JDWP-Handshake".getBytes();
+
+	private final SocketTransportService service = new SocketTransportService();
+	private final List<Socket> clients = new ArrayList<>();
+	private ListenKey listenKey;
+	private int port;
+
+	@Before
+	public void setUp() throws IOException {
+		listenKey = service.startListening("0");
+		port = Integer.parseInt(listenKey.address().split(":")[1]);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		service.stopListening(listenKey);
+		for (Socket client : clients) {
+			client.close();
+		}
+	}
+
+	@Test
+	public void testSupportsMultipleConnections() {
+		assertTrue(service.capabilities().supportsMultipleConnections());
+	}
+
+	@Test
+	public void testAccept_concurrentConnections() throws IOException {
+		for (int i = 0; i < 5; i++) {
+			connect();
+		}
+		for (Socket client : clients) {
+			handshake(client);
+		}
+		for (int i = 0; i < 5; i++) {
+			Connection connection = service.accept(listenKey, 5000, 0);
+			assertTrue(connection.isOpen());
+		}
+	}
+
+	@Test
+	public void testAccept_packetsFlowAfterHandshake() throws IOException {
+		Socket client = connect();
+		handshake(client);
+		Connection connection = service.accept(listenKey, 5000, 0);
+
+		byte[] packet = new byte[] {0, 0, 0, 11, 0, 0, 0, 1, 0, 1, 1};
+		client.getOutputStream().write(packet);
+		assertArrayEquals(packet, connection.readPacket());
+
+		connection.writePacket(packet);
+		byte[] received = new byte[11];
+		new DataInputStream(client.getInputStream()).readFully(received);
+		assertArrayEquals(packet, received);
+	}
+
+	@Test
+	public void testAccept_timeout() throws IOException {
+		try {
+			service.accept(listenKey, 100, 0);
+			fail("accept should time out");
+		} catch (TransportTimeoutException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testAccept_incompleteHandshakeIsNotDispatched() throws IOException {
+		Socket client = connect();
+		client.getOutputStream().write("JDWP".getBytes());
+		try {
+			service.accept(listenKey, 200, 0);
+			fail("accept should time out");
+		} catch (TransportTimeoutException ex) {
+			// expected
+		}
+
+		Socket other = connect();
+		handshake(other);
+		assertTrue(service.accept(listenKey, 5000, 0).isOpen());
+	}
+
+	@Test
+	public void testAccept_invalidHandshakeIsClosed() throws IOException {
+		Socket client = connect();
+		readHandshake(client);
+		client.getOutputStream().write("Not-A-Handshake".getBytes(), 0, HANDSHAKE.length);
+		assertEquals(-1, client.getInputStream().read());
+	}
+
+	@Test
+	public void testAccept_afterStopListening() throws IOException {
+		service.stopListening(listenKey);
+		try {
+			service.accept(listenKey, 0, 0);
+			fail("accept should fail once listening has stopped");
+		} catch (TransportTimeoutException ex) {
+			fail("accept should not time out");
+		} catch (IOException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testStopListening_wakesUpAccept() throws Exception {
+		final IOException[] thrown = new IOException[1];
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				try {
+					service.accept(listenKey, 0, 0);
+				} catch (IOException ex) {
+					thrown[0] = ex;
+				}
+			}
+		};
+		acceptor.start();
+		Thread.sleep(100);
+		service.stopListening(listenKey);
+		acceptor.join(5000);
+		assertFalse(acceptor.isAlive());
+		assertTrue(thrown[0] != null);
+	}
+
+	@Test
+	public void testAttach() throws IOException {
+		// attach to our own listener, which plays the role of the VM
+		Connection attached = service.attach("localhost:" + port, 5000, 5000);
+		Connection accepted = service.accept(listenKey, 5000, 0);
+		assertTrue(attached.isOpen());
+		assertTrue(accepted.isOpen());
+		attached.close();
+		accepted.close();
+	}
+
+	private Socket connect() throws IOException {
+		Socket client = new Socket(InetAddress.getLoopbackAddress(), port);
+		client.setSoTimeout(5000);
+		clients.add(client);
+		return client;
+	}
+
+	private static void handshake(Socket client) throws IOException {
+		readHandshake(client);
+		client.getOutputStream().write(HANDSHAKE);
+	}
+
+	private static void readHandshake(Socket client) throws IOException {
+		byte[] buffer = new byte[HANDSHAKE.length];
+		new DataInputStream(client.getInputStream()).readFully(buffer);
+		assertArrayEquals(HANDSHAKE, buffer);
+	}
+}
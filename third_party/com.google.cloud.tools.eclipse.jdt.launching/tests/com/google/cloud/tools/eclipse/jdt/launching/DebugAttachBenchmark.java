@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Google Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Google Inc - initial API and implementation
+ *******************************************************************************/
+package com.google.cloud.tools.eclipse.jdt.launching;
+
+import static org.junit.Assert.fail;
+
+import com.google.cloud.tools.eclipse.jdt.internal.launching.SocketListenMultiConnector;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.debug.core.model.IDebugTarget;
+import org.eclipse.jdt.launching.SocketUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes from starting a VM until the debugger has attached to it, through
+ * the path that debug launches of the App Engine dev server use: a
+ * {@link SocketListenMultiConnector} listens with a SocketListeningMultiConnectorImpl, and its
+ * WaitForConnectionJob accepts each VM, which connects with
+ * {@code -agentlib:jdwp=transport=dt_socket,server=n}, and adds a debug target for it to the
+ * launch. The VMs are {@link StubVm} processes with a real JDWP agent. Reports p50/p99 latencies
+ * and the number of threads in the debugger (this JVM).
+ * <p>
+ * Not a test: its name keeps the build from running it. Run it as a JUnit Plug-in Test, with the
+ * optional system properties {@code debugAttachBenchmark.restarts},
+ * {@code debugAttachBenchmark.burstSize} and {@code debugAttachBenchmark.bursts}.
+ * <ul>
+ * <li><em>restarts</em>: like relaunching the server, each round connects a new connector that
+ * accepts one VM, launches a stub VM and terminates the launch once it is attached.</li>
+ * <li><em>bursts</em>: like a dev server starting several instances, one connector without
+ * connection limit accepts several stub VMs launched at the same time.</li>
+ * </ul>
+ * Latencies run from the launch of a VM, or of a burst, until its debug target is added to the
+ * launch, so they include VM startup.
+ */
+public class DebugAttachBenchmark {
+
+	private static final long ATTACH_TIMEOUT_SECONDS = 60;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	private Path stubClasspath;
+
+	@Test
+	public void benchmark() throws Exception {
+		int restarts = Integer.getInteger("debugAttachBenchmark.restarts", 20); //$NON-NLS-1$
+		int burstSize = Integer.getInteger("debugAttachBenchmark.burstSize", 8); //$NON-NLS-1$
+		int bursts = Integer.getInteger("debugAttachBenchmark.bursts", 5); //$NON-NLS-1$
+
+		stubClasspath = writeStubVmClass();
+		measureRestarts(1); // warm up
+		report("restarts", measureRestarts(restarts)); //$NON-NLS-1$
+
+		measureBursts(burstSize, 1); // warm up
+		report("bursts of " + burstSize, measureBursts(burstSize, bursts)); //$NON-NLS-1$
+	}
+
+	/** @return attach latencies in nanoseconds */
+	private List<Long> measureRestarts(int rounds) throws Exception {
+		threads.resetPeakThreadCount();
+		List<Long> latencies = new ArrayList<>();
+		for (int i = 0; i < rounds; i++) {
+			TimingLaunch launch = new TimingLaunch();
+			int port = connect(launch, 1);
+			long start = System.nanoTime();
+			Process vm = launchStubVm(port);
+			try {
+				latencies.addAll(launch.awaitAttached(1, start));
+			} finally {
+				launch.terminate();
+				vm.destroy();
+				vm.waitFor();
+			}
+		}
+		return latencies;
+	}
+
+	/** @return attach latencies in nanoseconds */
+	private List<Long> measureBursts(int burstSize, int rounds) throws Exception {
+		threads.resetPeakThreadCount();
+		List<Long> latencies = new ArrayList<>();
+		TimingLaunch launch = new TimingLaunch();
+		int port = connect(launch, 0);
+		try {
+			for (int i = 0; i < rounds; i++) {
+				List<Process> vms = new ArrayList<>();
+				try {
+					long start = System.nanoTime();
+					for (int j = 0; j < burstSize; j++) {
+						vms.add(launchStubVm(port));
+					}
+					latencies.addAll(launch.awaitAttached(burstSize, start));
+				} finally {
+					launch.terminateDebugTargets();
+					for (Process vm : vms) {
+						vm.destroy();
+						vm.waitFor();
+					}
+				}
+			}
+		} finally {
+			launch.terminate();
+		}
+		return latencies;
+	}
+
+	/**
+	 * Starts listening for VMs on a free port, like a debug launch of the dev server.
+	 *
+	 * @return the port
+	 */
+	private static int connect(TimingLaunch launch, int connectionLimit) throws Exception {
+		int port = SocketUtil.findFreePort();
+		Map<String, String> arguments = new HashMap<>();
+		arguments.put("port", Integer.toString(port)); //$NON-NLS-1$
+		arguments.put("connectionLimit", Integer.toString(connectionLimit)); //$NON-NLS-1$
+		new SocketListenMultiConnector().connect(arguments, new NullProgressMonitor(), launch);
+		return port;
+	}
+
+	private Process launchStubVm(int port) throws IOException {
+		String java = System.getProperty("java.home") //$NON-NLS-1$
+				+ File.separator + "bin" + File.separator + "java"; //$NON-NLS-1$ //$NON-NLS-2$
+		String agent = "-agentlib:jdwp=transport=dt_socket,server=n,suspend=y," //$NON-NLS-1$
+				+ "address=localhost:" + port; //$NON-NLS-1$
+		ProcessBuilder builder = new ProcessBuilder(java, agent,
+				"-cp", stubClasspath.toString(), StubVm.class.getName()); //$NON-NLS-1$
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		return builder.start();
+	}
+
+	/**
+	 * Copies the {@link StubVm} class out of this bundle, so that a plain VM can run it.
+	 *
+	 * @return the class path of the copy
+	 */
+	private Path writeStubVmClass() throws IOException {
+		Path classpath = tempFolder.getRoot().toPath();
+		String name = StubVm.class.getName();
+		Path classFile = classpath.resolve(name.replace('.', '/') + ".class"); //$NON-NLS-1$
+		Files.createDirectories(classFile.getParent());
+		try (InputStream in = StubVm.class.getResourceAsStream(
+				name.substring(name.lastIndexOf('.') + 1) + ".class")) { //$NON-NLS-1$
+			Files.copy(in, classFile);
+		}
+		return classpath;
+	}
+
+	private void report(String scenario, List<Long> latencies) {
+		Collections.sort(latencies);
+		System.out.printf("%-16s %5d attaches  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms"
+				+ "  threads: %d live, %d peak%n", scenario, latencies.size(), //$NON-NLS-1$
+				percentile(latencies, 50), percentile(latencies, 99),
+				latencies.get(latencies.size() - 1) / 1e6,
+				threads.getThreadCount(), threads.getPeakThreadCount());
+	}
+
+	private static double percentile(List<Long> sorted, int percentile) {
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, index)) / 1e6;
+	}
+
+	/** A launch that records when the WaitForConnectionJob adds debug targets to it. */
+	private static class TimingLaunch extends MockLaunch {
+
+		private final List<Long> attachTimes = Collections.synchronizedList(new ArrayList<Long>());
+		private final Semaphore attached = new Semaphore(0);
+
+		@Override
+		public void addDebugTarget(IDebugTarget target) {
+			attachTimes.add(System.nanoTime());
+			super.addDebugTarget(target);
+			attached.release();
+		}
+
+		/** @return the latencies of the next {@code count} attaches since {@code start} */
+		List<Long> awaitAttached(int count, long start) throws InterruptedException {
+			if (!attached.tryAcquire(count, ATTACH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				fail("VMs did not attach in time"); //$NON-NLS-1$
+			}
+			List<Long> latencies = new ArrayList<>();
+			synchronized (attachTimes) {
+				for (long time : attachTimes) {
+					latencies.add(time - start);
+				}
+				attachTimes.clear();
+			}
+			return latencies;
+		}
+
+		void terminateDebugTargets() throws Exception {
+			for (IDebugTarget target : getDebugTargets()) {
+				if (target.canTerminate()) {
+					target.terminate();
+				}
+				removeDebugTarget(target);
+			}
+		}
+	}
+
+	/**
+	 * A VM to debug: does nothing until its stdin is closed, or it is terminated.
+	 */
+	public static class StubVm {
+
+		public static void main(String[] args) throws IOException {
+			while (System.in.read() >= 0) {
+				// wait
+			}
+		}
+	}
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Google Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Google Inc - Initial API and implementation
+ *******************************************************************************/
+
+package com.google.cloud.tools.eclipse.jst.server.core;
+
+import static com.google.cloud.tools.eclipse.jst.server.core.TestPublishOperation.mockFile;
+import static com.google.cloud.tools.eclipse.jst.server.core.TestPublishOperation.mockModule;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BasePublishOperationTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final IModule webModule = mockModule("web");
+  private final IModule jarModule = mockModule("jar");
+  private IPath baseDirectory;
+  private File sources;
+  private File fileA;
+  private IModuleFile resourceA;
+  private File fileB;
+  private IModuleFile resourceB;
+  private IModuleFolder folder;
+
+  @Before
+  public void setUp() throws IOException, CoreException {
+    baseDirectory = newBaseDirectory("server");
+    sources = tempFolder.newFolder("sources");
+    fileA = newFile("A.class", "a1");
+    resourceA = mockFile("A.class", fileA);
+    fileB = newFile("B.class", "b1");
+    resourceB = mockFile(new Path("com"), "B.class", fileB);
+    folder = mock(IModuleFolder.class);
+    when(folder.getName()).thenReturn("com");
+    when(folder.getModuleRelativePath()).thenReturn(Path.EMPTY);
+    when(folder.members()).thenReturn(new IModuleResource[] {resourceB});
+
+    publish(baseDirectory, IServer.PUBLISH_FULL, new IModuleResource[] {resourceA, folder});
+  }
+
+  @Test
+  public void testPublishJar_changedFile() throws IOException, CoreException {
+    write(fileA, "a2");
+    publish(baseDirectory, IServer.PUBLISH_INCREMENTAL,
+        new IModuleResource[] {resourceA, folder},
+        mockDelta(IModuleResourceDelta.CHANGED, resourceA));
+
+    Map<String, String> entries = readJar(baseDirectory);
+    assertEquals("a2", entries.get("A.class"));
+    assertEquals("b1", entries.get("com/B.class"));
+  }
+
+  @Test
+  public void testPublishJar_addedFile() throws IOException, CoreException {
+    IModuleFile resourceC = mockFile(new Path("com"), "C.class", newFile("C.class", "c1"));
+    when(folder.members()).thenReturn(new IModuleResource[] {resourceB, resourceC});
+    publish(baseDirectory, IServer.PUBLISH_INCREMENTAL,
+        new IModuleResource[] {resourceA, folder},
+        mockDelta(IModuleResourceDelta.NO_CHANGE, folder,
+            mockDelta(IModuleResourceDelta.ADDED, resourceC)));
+
+    Map<String, String> entries = readJar(baseDirectory);
+    assertEquals("c1", entries.get("com/C.class"));
+    assertEquals("b1", entries.get("com/B.class"));
+    assertEquals("a1", entries.get("A.class"));
+  }
+
+  @Test
+  public void testPublishJar_removedFolder() throws IOException, CoreException {
+    publish(baseDirectory, IServer.PUBLISH_INCREMENTAL, new IModuleResource[] {resourceA},
+        mockDelta(IModuleResourceDelta.REMOVED, folder,
+            mockDelta(IModuleResourceDelta.REMOVED, resourceB)));
+
+    Map<String, String> entries = readJar(baseDirectory);
+    assertFalse(entries.containsKey("com/B.class"));
+    assertFalse(entries.containsKey("com/"));
+    assertEquals("a1", entries.get("A.class"));
+  }
+
+  @Test
+  public void testPublishJar_keepsLocalTimestamps() throws IOException, CoreException {
+    write(fileA, "a2");
+    assertTrue(fileA.setLastModified(1500000000000L));
+    publish(baseDirectory, IServer.PUBLISH_INCREMENTAL,
+        new IModuleResource[] {resourceA, folder},
+        mockDelta(IModuleResourceDelta.CHANGED, resourceA));
+
+    try (ZipFile jar = new ZipFile(jarOf(baseDirectory))) {
+      assertEquals(1500000000000L, jar.getEntry("A.class").getTime());
+    }
+  }
+
+  @Test
+  public void testUpdateJar_corruptJar() throws IOException, CoreException {
+    File jar = jarOf(baseDirectory);
+    write(jar, "not a jar");
+    TestPublishOperation operation = new TestPublishOperation(baseDirectory,
+        IServer.PUBLISH_INCREMENTAL, webModule, jarModule);
+    assertFalse(operation.updateJar(new Path(jar.getAbsolutePath()),
+        new IModuleResourceDelta[] {mockDelta(IModuleResourceDelta.CHANGED, resourceA)}));
+  }
+
+  @Test
+  public void testPublishJar_corruptJarRebuilt() throws IOException, CoreException {
+    write(jarOf(baseDirectory), "not a jar");
+    write(fileA, "a2");
+    publish(baseDirectory, IServer.PUBLISH_INCREMENTAL,
+        new IModuleResource[] {resourceA, folder},
+        mockDelta(IModuleResourceDelta.CHANGED, resourceA));
+
+    Map<String, String> entries = readJar(baseDirectory);
+    assertEquals("a2", entries.get("A.class"));
+    assertEquals("b1", entries.get("com/B.class"));
+  }
+
+  @Test
+  public void testPublishJar_sameAsFullPublish() throws IOException, CoreException {
+    write(fileA, "a2");
+    IModuleFile resourceC = mockFile("C.class", newFile("C.class", "c1"));
+    IModuleResource[] resources = new IModuleResource[] {resourceA, resourceC};
+    publish(baseDirectory, IServer.PUBLISH_INCREMENTAL, resources,
+        mockDelta(IModuleResourceDelta.CHANGED, resourceA),
+        mockDelta(IModuleResourceDelta.ADDED, resourceC),
+        mockDelta(IModuleResourceDelta.REMOVED, folder,
+            mockDelta(IModuleResourceDelta.REMOVED, resourceB)));
+
+    IPath rebuilt = newBaseDirectory("rebuilt");
+    publish(rebuilt, IServer.PUBLISH_FULL, resources);
+    assertEquals(readFileEntries(rebuilt), readFileEntries(baseDirectory));
+  }
+
+  private void publish(IPath base, int kind, IModuleResource[] resources,
+      IModuleResourceDelta... delta) throws CoreException {
+    TestPublishOperation operation =
+        new TestPublishOperation(base, kind, webModule, jarModule);
+    operation.resources = resources;
+    operation.delta = delta;
+    operation.execute(new NullProgressMonitor(), null);
+  }
+
+  private static IModuleResourceDelta mockDelta(int kind, IModuleResource resource,
+      IModuleResourceDelta... children) {
+    IModuleResourceDelta delta = mock(IModuleResourceDelta.class);
+    when(delta.getKind()).thenReturn(kind);
+    when(delta.getModuleResource()).thenReturn(resource);
+    when(delta.getAffectedChildren()).thenReturn(children);
+    return delta;
+  }
+
+  private IPath newBaseDirectory(String name) throws IOException {
+    File directory = tempFolder.newFolder(name);
+    new File(directory, "temp").mkdir();
+    return new Path(directory.getAbsolutePath());
+  }
+
+  private static File jarOf(IPath base) {
+    return base.append("web/WEB-INF/lib/jar.jar").toFile();
+  }
+
+  private File newFile(String name, String contents) throws IOException {
+    File file = new File(sources, name);
+    write(file, contents);
+    return file;
+  }
+
+  private static void write(File file, String contents) throws IOException {
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns the entries of the published jar by name, with file contents as text. */
+  private static Map<String, String> readJar(IPath base) throws IOException {
+    Map<String, String> entries = new TreeMap<String, String>();
+    try (ZipFile jar = new ZipFile(jarOf(base))) {
+      Enumeration<? extends ZipEntry> enumeration = jar.entries();
+      while (enumeration.hasMoreElements()) {
+        ZipEntry entry = enumeration.nextElement();
+        try (InputStream in = jar.getInputStream(entry)) {
+          ByteArrayOutputStream contents = new ByteArrayOutputStream();
+          byte[] buffer = new byte[4096];
+          for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            contents.write(buffer, 0, read);
+          }
+          entries.put(entry.getName(), contents.toString("UTF-8"));
+        }
+      }
+    }
+    return entries;
+  }
+
+  /** Like {@link #readJar} without directory entries, which a full publish may not write. */
+  private static Map<String, String> readFileEntries(IPath base) throws IOException {
+    Map<String, String> entries = readJar(base);
+    for (String name : entries.keySet().toArray(new String[0])) {
+      if (name.endsWith("/")) {
+        entries.remove(name);
+      }
+    }
+    return entries;
+  }
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Google Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Google Inc - Initial API and implementation
+ *******************************************************************************/
+
+package com.google.cloud.tools.eclipse.jst.server.core;
+
+import static com.google.cloud.tools.eclipse.jst.server.core.TestPublishOperation.mockFile;
+import static com.google.cloud.tools.eclipse.jst.server.core.TestPublishOperation.mockModule;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ConcurrentPublishOperationTest {
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+  private IPath baseDirectory;
+
+  @Before
+  public void setUp() throws IOException {
+    baseDirectory = new Path(tempFolder.newFolder("server").getAbsolutePath());
+    baseDirectory.append("temp").toFile().mkdir();
+  }
+
+  @Test
+  public void testExecute_childModulesAfterTheirWebModule() throws CoreException {
+    List<BasePublishOperation> operations = new ArrayList<BasePublishOperation>();
+    for (int i = 0; i < 4; i++) {
+      IModule webModule = mockModule("web" + i);
+      RecordingOperation parent = new RecordingOperation(webModule);
+      parent.delay = 20; // children running too early would overtake their parent
+      operations.add(parent);
+      for (int j = 0; j < 3; j++) {
+        operations.add(new RecordingOperation(webModule, mockModule("web" + i + "-jar" + j)));
+      }
+    }
+    newBatch(operations, 4).execute(null, null);
+
+    assertEquals(16, executed.size());
+    for (int i = 0; i < 4; i++) {
+      List<String> ofWebModule = new ArrayList<String>();
+      for (String name : executed) {
+        if (name.startsWith("web" + i)) {
+          ofWebModule.add(name);
+        }
+      }
+      assertEquals(Arrays.asList("web" + i, "web" + i + "-jar0", "web" + i + "-jar1",
+          "web" + i + "-jar2"), ofWebModule);
+    }
+  }
+
+  @Test
+  public void testExecute_savesModulePublishLocationsOnce() throws CoreException, IOException {
+    IModule webModule = mockModule("web");
+    TestPublishOperation parent =
+        new TestPublishOperation(baseDirectory, IServer.PUBLISH_FULL, webModule);
+    List<TestPublishOperation> operations = new ArrayList<TestPublishOperation>();
+    operations.add(parent);
+    for (int i = 0; i < 3; i++) {
+      TestPublishOperation child = new TestPublishOperation(baseDirectory, IServer.PUBLISH_FULL,
+          webModule, mockModule("jar" + i));
+      child.resources = new IModuleResource[] {mockFile("A.class", newFile("A" + i, "a"))};
+      operations.add(child);
+    }
+    newBatch(operations, 2).execute(null, null);
+
+    assertEquals(1, parent.locationLoads);
+    assertEquals(1, parent.locationSaves);
+    for (TestPublishOperation child : operations.subList(1, operations.size())) {
+      assertEquals(0, child.locationLoads);
+      assertEquals(0, child.locationSaves);
+    }
+    for (int i = 0; i < 3; i++) {
+      assertEquals("WEB-INF/lib/jar" + i + ".jar", parent.savedLocations.get("jar" + i));
+      assertTrue(baseDirectory.append("web/WEB-INF/lib/jar" + i + ".jar").toFile().isFile());
+    }
+  }
+
+  @Test
+  public void testExecute_noLocationsWithoutChildModules() throws CoreException {
+    TestPublishOperation operation =
+        new TestPublishOperation(baseDirectory, IServer.PUBLISH_FULL, mockModule("web"));
+    newBatch(Arrays.asList(operation), 2).execute(null, null);
+
+    assertEquals(0, operation.locationLoads);
+    assertEquals(0, operation.locationSaves);
+  }
+
+  @Test
+  public void testExecute_collectsErrors() {
+    IModule webModuleA = mockModule("webA");
+    RecordingOperation failing = new RecordingOperation(webModuleA);
+    failing.failure = new CoreException(new Status(IStatus.ERROR, "test", "webA failed"));
+    RecordingOperation crashing = new RecordingOperation(mockModule("webB"));
+    crashing.crash = new IllegalStateException();
+    List<RecordingOperation> operations = Arrays.asList(failing,
+        new RecordingOperation(webModuleA, mockModule("jar")), crashing);
+
+    try {
+      newBatch(operations, 2).execute(null, null);
+      fail();
+    } catch (CoreException ex) {
+      IStatus[] children = ex.getStatus().getChildren();
+      assertEquals(2, children.length);
+      assertEquals("webA failed", children[0].getMessage());
+      assertEquals("Publishing webB failed", children[1].getMessage());
+      assertEquals(crashing.crash, children[1].getException());
+    }
+    // an operation failing does not keep the next ones from running
+    assertTrue(executed.contains("jar"));
+  }
+
+  @Test
+  public void testExecute_collectsFileCopyErrors() throws IOException {
+    TestPublishOperation operation =
+        new TestPublishOperation(baseDirectory, IServer.PUBLISH_FULL, mockModule("web"));
+    operation.resources = new IModuleResource[] {
+        mockFile("readable.txt", newFile("readable.txt", "text")),
+        mockFile("unreadable.txt", null)};
+
+    try {
+      newBatch(Arrays.asList(operation), 2).execute(null, null);
+      fail();
+    } catch (CoreException ex) {
+      File target = baseDirectory.append("web/unreadable.txt").toFile();
+      assertEquals("Could not publish " + target, ex.getStatus().getMessage());
+    }
+    assertArrayEquals(new String[] {"readable.txt"}, baseDirectory.append("web").toFile().list());
+  }
+
+  @Test
+  public void testExecute_replacesPublishedFiles() throws CoreException, IOException {
+    File published = baseDirectory.append("web/index.html").toFile();
+    assertTrue(published.getParentFile().mkdirs());
+    Files.write(published.toPath(), "<old/>".getBytes(StandardCharsets.UTF_8));
+    TestPublishOperation operation =
+        new TestPublishOperation(baseDirectory, IServer.PUBLISH_FULL, mockModule("web"));
+    operation.resources =
+        new IModuleResource[] {mockFile("index.html", newFile("index.html", "<html/>"))};
+    newBatch(Arrays.asList(operation), 2).execute(null, null);
+
+    assertArrayEquals("<html/>".getBytes(StandardCharsets.UTF_8),
+        Files.readAllBytes(published.toPath()));
+    assertArrayEquals(new String[] {"index.html"}, published.getParentFile().list());
+  }
+
+  @Test
+  public void testExecute_keepsLocalTimestamps() throws CoreException, IOException {
+    File source = newFile("index.html", "<html/>");
+    assertTrue(source.setLastModified(1234000L));
+    TestPublishOperation operation =
+        new TestPublishOperation(baseDirectory, IServer.PUBLISH_FULL, mockModule("web"));
+    operation.resources = new IModuleResource[] {mockFile("index.html", source)};
+    newBatch(Arrays.asList(operation), 2).execute(null, null);
+
+    File published = baseDirectory.append("web/index.html").toFile();
+    assertEquals(1234000L, published.lastModified());
+    assertArrayEquals("<html/>".getBytes(StandardCharsets.UTF_8),
+        Files.readAllBytes(published.toPath()));
+  }
+
+  @Test
+  public void testExecute_canceled() throws CoreException {
+    IProgressMonitor monitor = new NullProgressMonitor();
+    monitor.setCanceled(true);
+    newBatch(Arrays.asList(new RecordingOperation(mockModule("web"))), 2)
+        .execute(monitor, null);
+
+    assertTrue(executed.isEmpty());
+  }
+
+  @Test
+  public void testExecute_stopsWhenCanceled() throws CoreException {
+    IProgressMonitor monitor = new NullProgressMonitor();
+    IModule webModule = mockModule("web");
+    RecordingOperation canceling = new RecordingOperation(webModule);
+    canceling.toCancel = monitor;
+    List<RecordingOperation> operations = Arrays.asList(canceling,
+        new RecordingOperation(webModule, mockModule("jar0")),
+        new RecordingOperation(webModule, mockModule("jar1")));
+    newBatch(operations, 2).execute(monitor, null);
+
+    assertEquals(Arrays.asList("web"), executed);
+  }
+
+  private static ConcurrentPublishOperation newBatch(
+      List<? extends BasePublishOperation> operations, int threads) {
+    return new ConcurrentPublishOperation("test", "test", operations, threads);
+  }
+
+  private File newFile(String name, String contents) throws IOException {
+    File file = tempFolder.newFile(name);
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+    return file;
+  }
+
+  /** Records the name of its module instead of publishing it. */
+  private class RecordingOperation extends TestPublishOperation {
+    private long delay;
+    private CoreException failure;
+    private RuntimeException crash;
+    private IProgressMonitor toCancel;
+
+    private RecordingOperation(IModule... module) {
+      super(baseDirectory, IServer.PUBLISH_INCREMENTAL, module);
+    }
+
+    @Override
+    public void execute(IProgressMonitor monitor, IAdaptable info) throws CoreException {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      executed.add(module[module.length - 1].getName());
+      if (toCancel != null) {
+        toCancel.setCanceled(true);
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      if (crash != null) {
+        throw crash;
+      }
+    }
+  }
+}
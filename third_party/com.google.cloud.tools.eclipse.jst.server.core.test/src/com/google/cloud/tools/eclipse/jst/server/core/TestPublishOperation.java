@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Google Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Google Inc - Initial API and implementation
+ *******************************************************************************/
+
+package com.google.cloud.tools.eclipse.jst.server.core;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Properties;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.wst.server.core.IModule;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.IModuleResourceDelta;
+import org.eclipse.wst.server.core.model.ServerBehaviourDelegate;
+
+/**
+ * Publishes a module to {@code <base directory>/<web module name>}, and records the accesses to
+ * the module publish locations.
+ */
+class TestPublishOperation extends BasePublishOperation {
+  private final IPath baseDirectory;
+
+  IModuleResource[] resources = new IModuleResource[0];
+  IModuleResourceDelta[] delta = new IModuleResourceDelta[0];
+  int locationLoads;
+  int locationSaves;
+  Properties savedLocations;
+
+  TestPublishOperation(IPath baseDirectory, int kind, IModule... module) {
+    super("test", "test", kind, module, ServerBehaviourDelegate.CHANGED);
+    this.baseDirectory = baseDirectory;
+  }
+
+  @Override
+  protected IPath getRuntimeBaseDirectory() {
+    return baseDirectory;
+  }
+
+  @Override
+  protected IPath getModuleDeployDirectory(IModule module) {
+    return baseDirectory.append(module.getName());
+  }
+
+  @Override
+  protected void setModulePublishState(IModule[] module, int publishState) {
+  }
+
+  @Override
+  protected IModuleResourceDelta[] getPublishedResourceDelta(IModule[] module) {
+    return delta;
+  }
+
+  @Override
+  protected IModuleResource[] getResources(IModule[] module) {
+    return resources;
+  }
+
+  @Override
+  protected boolean isServeModulesWithoutPublish() {
+    return false;
+  }
+
+  @Override
+  protected Properties loadModulePublishLocations() {
+    locationLoads++;
+    return super.loadModulePublishLocations();
+  }
+
+  @Override
+  protected void saveModulePublishLocations(Properties properties) {
+    locationSaves++;
+    savedLocations = properties;
+    super.saveModulePublishLocations(properties);
+  }
+
+  static IModule mockModule(String name) {
+    IModule module = mock(IModule.class);
+    when(module.getId()).thenReturn(name);
+    when(module.getName()).thenReturn(name);
+    return module;
+  }
+
+  /**
+   * @param localFile the file with the contents, or {@code null} for a file that cannot be read
+   */
+  static IModuleFile mockFile(IPath relativePath, String name, File localFile) {
+    IModuleFile file = mock(IModuleFile.class);
+    when(file.getName()).thenReturn(name);
+    when(file.getModuleRelativePath()).thenReturn(relativePath);
+    when(file.getAdapter(File.class)).thenReturn(localFile);
+    // deliberately no time: only the local timestamp may be used for the published copy
+    when(file.getModificationStamp()).thenReturn(1L);
+    return file;
+  }
+
+  static IModuleFile mockFile(String name, File localFile) {
+    return mockFile(Path.EMPTY, name, localFile);
+  }
+}
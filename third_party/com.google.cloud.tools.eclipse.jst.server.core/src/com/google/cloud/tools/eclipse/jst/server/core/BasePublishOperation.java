@@ -8,6 +8,8 @@
  * Contributors:
  *     IBM Corporation - Initial API and implementation
  *     Google Inc - Generalized to a base implementation
+ *     Google Inc - Update published jars incrementally
+ *     Google Inc - Support running as part of a ConcurrentPublishOperation
  *******************************************************************************/
 
 package com.google.cloud.tools.eclipse.jst.server.core;
@@ -16,9 +18,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.zip.ZipError;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
 import org.eclipse.core.runtime.IPath;
@@ -29,6 +44,7 @@ import org.eclipse.jst.server.core.IJ2EEModule;
 import org.eclipse.jst.server.core.IWebModule;
 import org.eclipse.wst.server.core.IModule;
 import org.eclipse.wst.server.core.IServer;
+import org.eclipse.wst.server.core.model.IModuleFile;
 import org.eclipse.wst.server.core.model.IModuleResource;
 import org.eclipse.wst.server.core.model.IModuleResourceDelta;
 import org.eclipse.wst.server.core.model.PublishOperation;
@@ -40,13 +56,16 @@ import org.eclipse.wst.server.core.util.PublishHelper;
  * server adapter's <tt>org.eclipse.jst.server.tomcat.core.internal.PublishOperation2</tt>.
  */
 public abstract class BasePublishOperation extends PublishOperation {
-  private static final String PLUGIN_ID = "com.google.cloud.tools.eclipse.jst.server.core";
+  static final String PLUGIN_ID = "com.google.cloud.tools.eclipse.jst.server.core";
 
   protected IModule[] module;
   protected int kind;
   protected int deltaKind;
   protected PublishHelper helper;
 
+  /** The batch this operation runs in, or {@code null} when run on its own. */
+  private ConcurrentPublishOperation batch;
+
   /**
    * Construct the operation object to publish the specified module to the specified server.
    * 
@@ -99,6 +118,14 @@ public abstract class BasePublishOperation extends PublishOperation {
    */
   protected abstract boolean isServeModulesWithoutPublish();
 
+  /**
+   * Run this operation as part of the given batch, which shares the module publish locations and
+   * copies files for full publishes in parallel.
+   */
+  void setBatch(ConcurrentPublishOperation batch) {
+    this.batch = batch;
+  }
+
   public int getOrder() {
     return 0;
   }
@@ -131,7 +158,8 @@ public abstract class BasePublishOperation extends PublishOperation {
       publishDir(module[0], statuses, monitor);
     } else {
       // Else a child module
-      Properties properties = loadModulePublishLocations();
+      Properties properties =
+          batch != null ? batch.getModulePublishLocations() : loadModulePublishLocations();
 
       // Try to determine the URI for the child module
       IWebModule webModule = (IWebModule) module[0].loadAdapter(IWebModule.class, monitor);
@@ -151,7 +179,9 @@ public abstract class BasePublishOperation extends PublishOperation {
       } else {
         publishJar(childURI, properties, statuses, monitor);
       }
-      saveModulePublishLocations(properties);
+      if (batch == null) {
+        saveModulePublishLocations(properties);
+      }
     }
     throwExceptionOnError(statuses);
     setModulePublishState(module, IServer.PUBLISH_STATE_NONE);
@@ -178,7 +208,8 @@ public abstract class BasePublishOperation extends PublishOperation {
 
     if (kind == IServer.PUBLISH_CLEAN || kind == IServer.PUBLISH_FULL) {
       IModuleResource[] mr = getResources(module);
-      IStatus[] status = helper.publishFull(mr, path, monitor);
+      IStatus[] status = batch != null ? batch.publishFull(mr, path, monitor)
+          : helper.publishFull(mr, path, monitor);
       addArrayToList(statuses, status);
       return;
     }
@@ -234,6 +265,11 @@ public abstract class BasePublishOperation extends PublishOperation {
       IModuleResourceDelta[] delta = getPublishedResourceDelta(module);
       if (delta == null || delta.length == 0)
         return;
+      // apply just the changes when the jar is already there
+      if (updateJar(jarPath, delta)) {
+        properties.put(module[1].getId(), jarURI);
+        return;
+      }
     }
 
     // make directory if it doesn't exist
@@ -247,6 +283,120 @@ public abstract class BasePublishOperation extends PublishOperation {
     properties.put(module[1].getId(), jarURI);
   }
 
+  /**
+   * Apply the given changes to a previously published jar. Only changed entries are read from the
+   * module and compressed; unchanged entries are carried over as they are.
+   * 
+   * @return {@code true} if the jar was updated, or {@code false} if it does not exist or could
+   *         not be updated and must be rebuilt
+   */
+  protected boolean updateJar(IPath jarPath, IModuleResourceDelta[] delta) {
+    File jarFile = jarPath.toFile();
+    if (!jarFile.isFile()) {
+      return false;
+    }
+    try (FileSystem jar = FileSystems.newFileSystem(jarFile.toPath(), (ClassLoader) null)) {
+      Path root = jar.getPath("/");
+      for (IModuleResourceDelta change : delta) {
+        applyDelta(change, root);
+      }
+      return true;
+    } catch (IOException | CoreException | RuntimeException | ZipError ex) {
+      // the caller rebuilds the jar, which also repairs anything written so far
+      return false;
+    }
+  }
+
+  private static void applyDelta(IModuleResourceDelta delta, Path root)
+      throws IOException, CoreException {
+    IModuleResource resource = delta.getModuleResource();
+    Path entry = root.resolve(
+        resource.getModuleRelativePath().append(resource.getName()).toString());
+    switch (delta.getKind()) {
+      case IModuleResourceDelta.REMOVED:
+        deleteEntry(entry);
+        return; // children are gone too
+      case IModuleResourceDelta.ADDED:
+      case IModuleResourceDelta.CHANGED:
+        if (resource instanceof IModuleFile) {
+          IModuleFile file = (IModuleFile) resource;
+          if (entry.getParent() != null) {
+            Files.createDirectories(entry.getParent());
+          }
+          try (InputStream contents = openContents(file)) {
+            Files.copy(contents, entry, StandardCopyOption.REPLACE_EXISTING);
+          }
+          copyTimestamp(file, entry);
+        } else {
+          Files.createDirectories(entry);
+        }
+        break;
+      default:
+        break;
+    }
+    for (IModuleResourceDelta child : delta.getAffectedChildren()) {
+      applyDelta(child, root);
+    }
+  }
+
+  static InputStream openContents(IModuleFile moduleFile)
+      throws IOException, CoreException {
+    IFile file = (IFile) moduleFile.getAdapter(IFile.class);
+    if (file != null) {
+      return file.getContents();
+    }
+    File localFile = (File) moduleFile.getAdapter(File.class);
+    if (localFile != null) {
+      return new FileInputStream(localFile);
+    }
+    throw new IOException("Cannot read " + moduleFile.getName());
+  }
+
+  /**
+   * Gives a published copy the local timestamp of its module file, as {@link PublishHelper} does.
+   * The module file's modification stamp is not a time and must not be used for this.
+   */
+  static void copyTimestamp(IModuleFile moduleFile, Path target) throws IOException {
+    long timestamp = IResource.NULL_STAMP;
+    IFile file = (IFile) moduleFile.getAdapter(IFile.class);
+    if (file != null) {
+      timestamp = file.getLocalTimeStamp();
+    } else {
+      File localFile = (File) moduleFile.getAdapter(File.class);
+      if (localFile != null) {
+        timestamp = localFile.lastModified();
+      }
+    }
+    if (timestamp != IResource.NULL_STAMP && timestamp != 0) {
+      Files.setLastModifiedTime(target, FileTime.fromMillis(timestamp));
+    }
+  }
+
+  private static void deleteEntry(Path entry) throws IOException {
+    if (!Files.isDirectory(entry)) {
+      Files.deleteIfExists(entry);
+      return;
+    }
+    Files.walkFileTree(entry, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+          throws IOException {
+        Files.delete(file);
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult postVisitDirectory(Path directory, IOException ex)
+          throws IOException {
+        if (ex != null) {
+          throw ex;
+        }
+        Files.delete(directory);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
   protected void publishArchiveModule(String jarURI, Properties p, List<IStatus> statuses,
       IProgressMonitor monitor) {
     IPath path = getModuleDeployDirectory(module[0]);
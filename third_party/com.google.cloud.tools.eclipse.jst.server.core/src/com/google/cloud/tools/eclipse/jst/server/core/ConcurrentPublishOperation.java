@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Google Inc and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Google Inc - Initial API and implementation
+ *******************************************************************************/
+
+package com.google.cloud.tools.eclipse.jst.server.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.wst.server.core.model.IModuleFile;
+import org.eclipse.wst.server.core.model.IModuleFolder;
+import org.eclipse.wst.server.core.model.IModuleResource;
+import org.eclipse.wst.server.core.model.PublishOperation;
+
+/**
+ * Runs the {@link BasePublishOperation}s of one publish as a batch. Operations for different web
+ * modules run in parallel, while the operations for a web module and its child modules run in
+ * the order given, so child jars are published after their parent. Files of full publishes are
+ * copied in parallel as well. Both use pools bounded by the number of threads given. The module
+ * publish locations are read once and written once for the whole batch.
+ *
+ * <p>Operations may call their server's accessors (such as
+ * {@link BasePublishOperation#getResources(org.eclipse.wst.server.core.IModule[])}) from
+ * different threads at once; implementations must be safe for that.
+ */
+public class ConcurrentPublishOperation extends PublishOperation {
+  /** Number of files copied by one task of a full publish. */
+  private static final int FILES_PER_TASK = 32;
+
+  private final List<BasePublishOperation> operations;
+  private final int threads;
+
+  private Properties modulePublishLocations;
+  private ExecutorService fileCopier;
+
+  /**
+   * @param operations the operations to run, with each parent module before its children
+   * @param threads the maximum number of threads for publishing modules, and for copying files
+   */
+  public ConcurrentPublishOperation(String label, String description,
+      List<? extends BasePublishOperation> operations, int threads) {
+    super(label, description);
+    this.operations = new ArrayList<BasePublishOperation>(operations);
+    this.threads = Math.max(1, threads);
+  }
+
+  public int getOrder() {
+    return 0;
+  }
+
+  public int getKind() {
+    return REQUIRED;
+  }
+
+  public void execute(final IProgressMonitor monitor, final IAdaptable info)
+      throws CoreException {
+    if (operations.isEmpty()) {
+      return;
+    }
+    Map<String, List<BasePublishOperation>> byWebModule =
+        new LinkedHashMap<String, List<BasePublishOperation>>();
+    boolean hasChildModules = false;
+    for (BasePublishOperation operation : operations) {
+      String id = operation.module[0].getId();
+      if (!byWebModule.containsKey(id)) {
+        byWebModule.put(id, new ArrayList<BasePublishOperation>());
+      }
+      byWebModule.get(id).add(operation);
+      hasChildModules |= operation.module.length > 1;
+      operation.setBatch(this);
+    }
+
+    BasePublishOperation first = operations.get(0);
+    // only child modules have their locations recorded
+    modulePublishLocations =
+        hasChildModules ? first.loadModulePublishLocations() : new Properties();
+    fileCopier = Executors.newFixedThreadPool(threads, newThreadFactory("Publish file copier"));
+    ExecutorService modulePublisher = Executors.newFixedThreadPool(
+        Math.min(threads, byWebModule.size()), newThreadFactory("Module publisher"));
+    final IProgressMonitor workerMonitor = cancellationOnly(monitor);
+    List<IStatus> statuses = new ArrayList<IStatus>();
+    try {
+      List<Future<List<IStatus>>> results = new ArrayList<Future<List<IStatus>>>();
+      for (final List<BasePublishOperation> group : byWebModule.values()) {
+        results.add(modulePublisher.submit(new Callable<List<IStatus>>() {
+          @Override
+          public List<IStatus> call() {
+            return executeInOrder(group, workerMonitor, info);
+          }
+        }));
+      }
+
+      SubMonitor progress = SubMonitor.convert(monitor, results.size());
+      for (Future<List<IStatus>> result : results) {
+        statuses.addAll(getResult(result));
+        progress.worked(1);
+      }
+    } finally {
+      modulePublisher.shutdownNow();
+      fileCopier.shutdownNow();
+      fileCopier = null;
+      for (BasePublishOperation operation : operations) {
+        operation.setBatch(null);
+      }
+      if (hasChildModules) {
+        first.saveModulePublishLocations(modulePublishLocations);
+      }
+      modulePublishLocations = null;
+    }
+    BasePublishOperation.throwExceptionOnError(statuses);
+  }
+
+  private static List<IStatus> executeInOrder(List<BasePublishOperation> operations,
+      IProgressMonitor monitor, IAdaptable info) {
+    List<IStatus> statuses = new ArrayList<IStatus>();
+    for (BasePublishOperation operation : operations) {
+      if (monitor.isCanceled()) {
+        break;
+      }
+      try {
+        operation.execute(monitor, info);
+      } catch (CoreException ex) {
+        statuses.add(ex.getStatus());
+      } catch (RuntimeException ex) {
+        statuses.add(new Status(IStatus.ERROR, BasePublishOperation.PLUGIN_ID,
+            "Publishing " + operation.module[operation.module.length - 1].getName() + " failed",
+            ex));
+      }
+    }
+    return statuses;
+  }
+
+  /**
+   * Returns the module publish locations shared by the operations of this batch.
+   */
+  Properties getModulePublishLocations() {
+    return modulePublishLocations;
+  }
+
+  /**
+   * Copies the given resources into the given directory, copying files in parallel.
+   */
+  IStatus[] publishFull(IModuleResource[] resources, final IPath path,
+      final IProgressMonitor monitor) {
+    File directory = path.toFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      return new IStatus[] {new Status(IStatus.ERROR, BasePublishOperation.PLUGIN_ID,
+          "Could not create " + directory)};
+    }
+    List<IStatus> statuses = new ArrayList<IStatus>();
+    List<IModuleFile> files = new ArrayList<IModuleFile>();
+    collectFiles(resources, path, files, statuses);
+
+    List<Future<List<IStatus>>> results = new ArrayList<Future<List<IStatus>>>();
+    for (int start = 0; start < files.size(); start += FILES_PER_TASK) {
+      final List<IModuleFile> batch =
+          files.subList(start, Math.min(files.size(), start + FILES_PER_TASK));
+      results.add(fileCopier.submit(new Callable<List<IStatus>>() {
+        @Override
+        public List<IStatus> call() {
+          List<IStatus> failures = new ArrayList<IStatus>();
+          for (IModuleFile file : batch) {
+            if (monitor.isCanceled()) {
+              break;
+            }
+            IStatus status = copyFile(file, path);
+            if (!status.isOK()) {
+              failures.add(status);
+            }
+          }
+          return failures;
+        }
+      }));
+    }
+    for (Future<List<IStatus>> result : results) {
+      statuses.addAll(getResult(result));
+    }
+    return statuses.toArray(new IStatus[statuses.size()]);
+  }
+
+  /** Creates the folders among the given resources and collects the files to copy. */
+  private static void collectFiles(IModuleResource[] resources, IPath path,
+      List<IModuleFile> files, List<IStatus> statuses) {
+    for (IModuleResource resource : resources) {
+      if (resource instanceof IModuleFile) {
+        files.add((IModuleFile) resource);
+      } else if (resource instanceof IModuleFolder) {
+        File folder = targetOf(resource, path).toFile();
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+          statuses.add(new Status(IStatus.ERROR, BasePublishOperation.PLUGIN_ID,
+              "Could not create " + folder));
+          continue;
+        }
+        collectFiles(((IModuleFolder) resource).members(), path, files, statuses);
+      }
+    }
+  }
+
+  /**
+   * Copies the file next to its target and then moves it in place, so that the server never sees
+   * a partially written file.
+   */
+  private static IStatus copyFile(IModuleFile file, IPath path) {
+    Path target = targetOf(file, path).toFile().toPath();
+    try {
+      Path temporary = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+      try {
+        try (InputStream contents = BasePublishOperation.openContents(file)) {
+          Files.copy(contents, temporary, StandardCopyOption.REPLACE_EXISTING);
+        }
+        BasePublishOperation.copyTimestamp(file, temporary);
+        moveInPlace(temporary, target);
+      } finally {
+        Files.deleteIfExists(temporary);
+      }
+      return Status.OK_STATUS;
+    } catch (IOException | CoreException ex) {
+      return new Status(IStatus.ERROR, BasePublishOperation.PLUGIN_ID,
+          "Could not publish " + target, ex);
+    }
+  }
+
+  private static void moveInPlace(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException ex) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static IPath targetOf(IModuleResource resource, IPath path) {
+    return path.append(resource.getModuleRelativePath()).append(resource.getName());
+  }
+
+  private static List<IStatus> getResult(Future<List<IStatus>> result) {
+    try {
+      return result.get();
+    } catch (ExecutionException ex) {
+      return Arrays.<IStatus>asList(new Status(IStatus.ERROR, BasePublishOperation.PLUGIN_ID,
+          "Publishing failed", ex.getCause()));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return Arrays.<IStatus>asList(Status.CANCEL_STATUS);
+    }
+  }
+
+  /**
+   * Returns a monitor that can be shared between threads: it reports the cancellation of the
+   * given monitor, but no progress.
+   */
+  private static IProgressMonitor cancellationOnly(final IProgressMonitor monitor) {
+    return new NullProgressMonitor() {
+      @Override
+      public boolean isCanceled() {
+        return monitor != null && monitor.isCanceled();
+      }
+    };
+  }
+
+  private static ThreadFactory newThreadFactory(final String name) {
+    final AtomicInteger count = new AtomicInteger();
+    return new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, name + " " + count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+}